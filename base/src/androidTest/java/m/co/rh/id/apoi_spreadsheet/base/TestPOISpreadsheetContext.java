@@ -0,0 +1,319 @@
+package m.co.rh.id.apoi_spreadsheet.base;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(AndroidJUnit4.class)
+public final class TestPOISpreadsheetContext {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static POISpreadsheetContext createContext(int workerCount, int queueCapacity) {
+        POISpreadsheetContext context = POISpreadsheetContext.getInstance();
+        context.configure(workerCount, queueCapacity);
+        return context;
+    }
+
+    @Before
+    public void stopStartedWorkers() throws InterruptedException {
+        // other users of the singleton may have started the workers already
+        POISpreadsheetContext.getInstance().stopWorkers();
+    }
+
+    @After
+    public void stopWorkers() throws InterruptedException {
+        POISpreadsheetContext context = POISpreadsheetContext.getInstance();
+        context.stopWorkers();
+        // back to the single thread default
+        context.configure(1, Integer.MAX_VALUE);
+    }
+
+    private static Thread workerOf(POISpreadsheetContext context, Object affinityKey) throws Exception {
+        return context.submit(affinityKey, Thread::currentThread).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a task which blocks its worker until the returned latch is counted down
+     */
+    private static CountDownLatch block(POISpreadsheetContext context, Object affinityKey) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        context.execute(affinityKey, () -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void configureRejectsInvalidValues() throws Exception {
+        POISpreadsheetContext context = POISpreadsheetContext.getInstance();
+        assertThrows(IllegalArgumentException.class, () -> context.configure(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> context.configure(1, 0));
+
+        context.configure(2, 5);
+        assertEquals(2, context.getWorkerCount());
+        assertEquals(5, context.getQueueCapacity());
+
+        workerOf(context, null);
+        assertThrows(IllegalStateException.class, () -> context.configure(3, 5));
+
+        context.stopWorkers();
+        context.configure(3, 5);
+        assertEquals(3, context.getWorkerCount());
+    }
+
+    @Test
+    public void stopWorkersRunsQueuedTasksFirst() throws Exception {
+        POISpreadsheetContext context = createContext(2, 100);
+        Thread worker = workerOf(context, null);
+        CountDownLatch release = block(context, null);
+        Future<Thread> queued = context.submit(Thread::currentThread);
+
+        Thread stopper = new Thread(() -> {
+            try {
+                context.stopWorkers();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        release.countDown();
+        assertEquals(worker, queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        stopper.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(stopper.isAlive());
+        assertFalse(worker.isAlive());
+        assertEquals(0, context.getMetrics().getSubmittedTaskCount());
+
+        // the next task starts new workers
+        assertNotEquals(worker, workerOf(context, null));
+        Future<Boolean> stoppedFromWorker = context.submit(() -> {
+            // waiting for itself would never return
+            try {
+                context.stopWorkers();
+                return false;
+            } catch (IllegalStateException e) {
+                return true;
+            }
+        });
+        assertTrue(stoppedFromWorker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void sameAffinityKeyRunsOnSameWorker() throws Exception {
+        POISpreadsheetContext context = createContext(4, 100);
+        List<Future<Thread>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(context.submit("workbook", Thread::currentThread));
+        }
+        Thread worker = futures.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (Future<Thread> future : futures) {
+            assertEquals(worker, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        // tasks without affinity key all run on the first worker
+        assertEquals(workerOf(context, null), context.submit(Thread::currentThread).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void differentAffinityKeysRunConcurrently() throws Exception {
+        POISpreadsheetContext context = createContext(2, 100);
+        Object key1 = 0;
+        Object key2 = 1;
+        assertNotEquals(workerOf(context, key1), workerOf(context, key2));
+
+        // the first task only finishes if the second one runs at the same time on another worker
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<Boolean> waiting = context.submit(key1, () -> latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        context.execute(key2, latch::countDown);
+        assertTrue(waiting.get(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submitBlocksWhenQueueIsFull() throws Exception {
+        POISpreadsheetContext context = createContext(1, 1);
+        CountDownLatch release = block(context, null);
+        // fills the queue
+        Future<?> queued = context.submit(() -> {
+        });
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        AtomicReference<Future<?>> blockedFuture = new AtomicReference<>();
+        Thread submitter = new Thread(() -> {
+            blockedFuture.set(context.submit(() -> {
+            }));
+            submitted.countDown();
+        });
+        submitter.start();
+        assertFalse("submit should wait for room in the queue", submitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, context.getMetrics().getTotalQueueDepth());
+
+        release.countDown();
+        assertTrue(submitted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        blockedFuture.get().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        submitter.join();
+    }
+
+    @Test
+    public void submitFromWorkerToOwnFullQueueIsRejected() throws Exception {
+        POISpreadsheetContext context = createContext(1, 1);
+        Future<Boolean> rejected = context.submit(() -> {
+            // fills the queue, waiting for room would never return on this thread
+            context.execute(() -> {
+            });
+            try {
+                context.execute(() -> {
+                });
+                return false;
+            } catch (RejectedExecutionException e) {
+                return true;
+            }
+        });
+        assertTrue(rejected.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invokeAnyReturnsFirstSuccessAndCancelsOthers() throws Exception {
+        POISpreadsheetContext context = createContext(2, 100);
+        Object fastKey = 0;
+        Object slowKey = 1;
+        assertNotEquals(workerOf(context, fastKey), workerOf(context, slowKey));
+
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        List<Callable<String>> tasks = Arrays.asList(
+                new KeyedCallable<>(slowKey, () -> {
+                    slowStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                    } catch (InterruptedException e) {
+                        slowInterrupted.countDown();
+                    }
+                    return "slow";
+                }),
+                new KeyedCallable<>(slowKey, () -> {
+                    queuedRan.set(true);
+                    return "queued";
+                }),
+                new KeyedCallable<>(fastKey, () -> {
+                    throw new IllegalStateException("failed");
+                }),
+                new KeyedCallable<>(fastKey, () -> {
+                    assertTrue(slowStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                    return "fast";
+                }));
+
+        assertEquals("fast", context.invokeAny(tasks));
+        assertTrue(slowInterrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // the worker is free again once the cancelled tasks are gone
+        workerOf(context, slowKey);
+        assertFalse(queuedRan.get());
+    }
+
+    @Test
+    public void invokeAnyThrowsWhenAllTasksFail() {
+        POISpreadsheetContext context = createContext(1, 100);
+        List<Callable<String>> tasks = Arrays.asList(
+                () -> {
+                    throw new IllegalStateException("first");
+                },
+                () -> {
+                    throw new IllegalStateException("second");
+                });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> context.invokeAny(tasks));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalArgumentException.class, () -> context.invokeAny(new ArrayList<Callable<String>>()));
+    }
+
+    @Test
+    public void metricsCountTasks() throws Exception {
+        POISpreadsheetContext context = createContext(2, 100);
+        POISpreadsheetContext.Metrics metrics = context.getMetrics();
+        assertArrayEquals(new int[2], metrics.getQueueDepths());
+        assertEquals(0, metrics.getSubmittedTaskCount());
+        assertEquals(0, metrics.getCompletedTaskCount());
+        assertEquals(0, metrics.getAverageQueueWaitNanos());
+        assertEquals(0, metrics.getAverageExecutionNanos());
+
+        Object key = 1;
+        CountDownLatch release = block(context, key);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(context.submit(key, () -> {
+                Thread.sleep(20);
+                return null;
+            }));
+        }
+        metrics = context.getMetrics();
+        assertEquals(3, metrics.getTotalQueueDepth());
+        assertEquals(4, metrics.getSubmittedTaskCount());
+        assertEquals(0, metrics.getCompletedTaskCount());
+
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        // the count is updated right after the task finished
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (context.getMetrics().getCompletedTaskCount() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        metrics = context.getMetrics();
+        assertEquals(0, metrics.getTotalQueueDepth());
+        assertEquals(4, metrics.getSubmittedTaskCount());
+        assertEquals(4, metrics.getCompletedTaskCount());
+        assertTrue(metrics.getMaxExecutionNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(metrics.getMaxQueueWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(metrics.getAverageExecutionNanos() > 0);
+        assertTrue(metrics.getAverageQueueWaitNanos() > 0);
+    }
+
+    private static final class KeyedCallable<T> implements Callable<T>, POISpreadsheetContext.AffinityTask {
+        private final Object affinityKey;
+        private final Callable<T> callable;
+
+        KeyedCallable(Object affinityKey, Callable<T> callable) {
+            this.affinityKey = affinityKey;
+            this.callable = callable;
+        }
+
+        @Override
+        public Object getAffinityKey() {
+            return affinityKey;
+        }
+
+        @Override
+        public T call() throws Exception {
+            return callable.call();
+        }
+    }
+}
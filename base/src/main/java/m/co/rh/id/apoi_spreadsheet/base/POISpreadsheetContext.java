@@ -8,17 +8,27 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Context and ExecutorService to execute Spreadsheet related manipulation.
- * NOTE: This is a reused single thread executor, it may cause starvation deadlock just as other single thread executors.
+ * <p>
+ * By default this is a reused single thread executor. It can be turned into a pool of reused threads
+ * with {@link #configure(int, int)} before the first task is submitted. Each worker owns its own queue,
+ * tasks submitted with the same affinity key (for example the workbook they work on) always run on the same worker
+ * so a workbook is still only touched by one thread, while tasks of different workbooks run in parallel.
+ * Tasks without affinity key all run on the first worker, just like the single thread executor.
+ * </p>
+ * NOTE: Each worker is a single thread executor, it may cause starvation deadlock just as other single thread executors.
  * DO NOT chain multiple futures that depends on each other to finish
  */
 public class POISpreadsheetContext implements ExecutorService {
@@ -33,12 +43,13 @@ public class POISpreadsheetContext implements ExecutorService {
 
     private Context appContext;
 
-    private final ReuseThread reuseThread;
+    private int workerCount = 1;
+
+    private int queueCapacity = Integer.MAX_VALUE;
+
+    private volatile ReuseThread[] reuseThreads;
 
     private POISpreadsheetContext() {
-        reuseThread = new ReuseThread();
-        // Android can be shutdown or killed so set this as daemon
-        reuseThread.setDaemon(true);
     }
 
     public Context getAppContext() {
@@ -53,6 +64,94 @@ public class POISpreadsheetContext implements ExecutorService {
         }
     }
 
+    /**
+     * Configure the worker pool, must be called before the first task is submitted.
+     *
+     * @param workerCount   number of worker threads, 1 keeps the single thread behaviour
+     * @param queueCapacity maximum pending tasks per worker, submitting to a full queue blocks until there is room
+     * @throws IllegalArgumentException if workerCount or queueCapacity is less than 1
+     * @throws IllegalStateException    if the workers were already started and not stopped with {@link #stopWorkers()}
+     */
+    public synchronized void configure(int workerCount, int queueCapacity) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1: " + workerCount);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1: " + queueCapacity);
+        }
+        if (reuseThreads != null) {
+            throw new IllegalStateException("Workers already started, configure before submitting any task");
+        }
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public synchronized int getWorkerCount() {
+        return workerCount;
+    }
+
+    public synchronized int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return snapshot of the queue depth and latency of the workers
+     */
+    public Metrics getMetrics() {
+        ReuseThread[] threads = reuseThreads;
+        if (threads == null) {
+            return new Metrics(new int[getWorkerCount()], 0, 0, 0, 0, 0, 0);
+        }
+        int[] queueDepths = new int[threads.length];
+        long submitted = 0;
+        long completed = 0;
+        long totalWait = 0;
+        long maxWait = 0;
+        long totalExecution = 0;
+        long maxExecution = 0;
+        for (int i = 0; i < threads.length; i++) {
+            ReuseThread thread = threads[i];
+            queueDepths[i] = thread.callableQueue.size();
+            submitted += thread.submittedCount.get();
+            completed += thread.completedCount.get();
+            totalWait += thread.totalWaitNanos.get();
+            maxWait = Math.max(maxWait, thread.maxWaitNanos.get());
+            totalExecution += thread.totalExecutionNanos.get();
+            maxExecution = Math.max(maxExecution, thread.maxExecutionNanos.get());
+        }
+        return new Metrics(queueDepths, submitted, completed, totalWait, maxWait, totalExecution, maxExecution);
+    }
+
+    /**
+     * Stop the workers once the tasks already queued are done and wait for them to finish.
+     * Unlike {@link #shutdown()} this context stays usable, the next task starts new workers,
+     * so the worker pool can be configured again.
+     *
+     * @throws IllegalStateException if called from one of the workers, it would wait for itself
+     * @throws InterruptedException  if interrupted while waiting for the workers
+     */
+    public void stopWorkers() throws InterruptedException {
+        ReuseThread[] threads;
+        synchronized (this) {
+            threads = reuseThreads;
+            if (threads == null) {
+                return;
+            }
+            for (ReuseThread thread : threads) {
+                if (thread == Thread.currentThread()) {
+                    throw new IllegalStateException("Workers can not be stopped from " + thread.getName());
+                }
+            }
+            reuseThreads = null;
+        }
+        for (ReuseThread thread : threads) {
+            thread.stopAfterQueuedTasks();
+        }
+        for (ReuseThread thread : threads) {
+            thread.join();
+        }
+    }
+
     /**
      * No operation, this is a singleton unable to shutdown
      */
@@ -98,165 +197,390 @@ public class POISpreadsheetContext implements ExecutorService {
     }
 
     public <T> Future<T> submit(Callable<T> callable) {
-        checkStart();
-        return reuseThread.submit(callable);
+        return workerFor(callable).submit(new TimedTask<>(callable));
+    }
+
+    /**
+     * Submit callable to the worker pinned to affinityKey
+     */
+    public <T> Future<T> submit(Object affinityKey, Callable<T> callable) {
+        return workerForKey(affinityKey).submit(new TimedTask<>(callable));
     }
 
     @Override
     public <T> Future<T> submit(Runnable runnable, T t) {
-        checkStart();
-        return reuseThread.submit(runnable, t);
+        return workerFor(runnable).submit(new TimedTask<>(runnable, t));
     }
 
     @Override
     public Future<?> submit(Runnable runnable) {
-        checkStart();
-        return reuseThread.submit(runnable, null);
+        return workerFor(runnable).submit(new TimedTask<>(runnable, null));
     }
 
     /**
      * Submit callable and wait for the execution
      */
     public <T> Future<T> submitAndWait(Callable<T> callable) {
-        checkStart();
-        return reuseThread.submitAndWait(callable);
+        return workerFor(callable).submitAndWait(new TimedTask<>(callable));
     }
 
-    @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> collection) {
-        checkStart();
-        List<Future<T>> futures = new ArrayList<>();
-        for (Callable<T> callable : collection) {
-            futures.add(reuseThread.submitAndWait(callable));
-        }
-        return futures;
+    /**
+     * Submit callable to the worker pinned to affinityKey and wait for the execution
+     */
+    public <T> Future<T> submitAndWait(Object affinityKey, Callable<T> callable) {
+        return workerForKey(affinityKey).submitAndWait(new TimedTask<>(callable));
     }
 
+    /**
+     * Submit all tasks first and then wait for them, tasks pinned to different workers run in parallel
+     */
     @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> collection, long l, TimeUnit timeUnit) {
-        checkStart();
-        List<Future<T>> futures = new ArrayList<>();
-        long startTimeMilis = System.currentTimeMillis();
-        long endTimeMilis = startTimeMilis + TimeUnit.MILLISECONDS.convert(l, timeUnit);
-        for (Callable<T> callable : collection) {
-            long currentTimeMilis = System.currentTimeMillis();
-            if (currentTimeMilis >= endTimeMilis) {
-                FutureTask<T> futureTask = new FutureTask<>(callable);
-                futureTask.cancel(true);
-                futures.add(futureTask);
-            } else {
-                futures.add(reuseThread.submitAndWait(callable));
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> collection) throws InterruptedException {
+        List<Future<T>> futures = new ArrayList<>(collection.size());
+        try {
+            for (Callable<T> callable : collection) {
+                futures.add(submit(callable));
             }
+            for (Future<T> future : futures) {
+                if (!future.isDone()) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException | CancellationException e) {
+                        // result is reported by the future itself
+                    }
+                }
+            }
+            return futures;
+        } catch (InterruptedException | RuntimeException e) {
+            cancelAll(futures);
+            throw e;
         }
-        return futures;
-
     }
 
     @Override
-    public <T> T invokeAny(Collection<? extends Callable<T>> collection) throws ExecutionException, InterruptedException {
-        checkStart();
-        List<Future<T>> futures = new ArrayList<>();
-        for (Callable<T> callable : collection) {
-            futures.add(reuseThread.submit(callable));
-        }
-        T result = null;
-        boolean findOne = false;
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> collection, long l, TimeUnit timeUnit) throws InterruptedException {
+        long deadline = System.nanoTime() + timeUnit.toNanos(l);
+        List<Future<T>> futures = new ArrayList<>(collection.size());
         try {
-            while (!findOne) {
-                for (Future<T> future : futures) {
-                    if (future.isDone()) {
-                        result = future.get();
-                        findOne = true;
-                        break;
-                    }
+            for (Callable<T> callable : collection) {
+                if (System.nanoTime() - deadline >= 0) {
+                    FutureTask<T> futureTask = new FutureTask<>(callable);
+                    futureTask.cancel(true);
+                    futures.add(futureTask);
+                } else {
+                    futures.add(submit(callable));
                 }
             }
-        } finally {
             for (Future<T> future : futures) {
-                future.cancel(true);
+                if (!future.isDone()) {
+                    try {
+                        future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    } catch (ExecutionException | CancellationException e) {
+                        // result is reported by the future itself
+                    } catch (TimeoutException e) {
+                        cancelAll(futures);
+                        return futures;
+                    }
+                }
             }
+            return futures;
+        } catch (InterruptedException | RuntimeException e) {
+            cancelAll(futures);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> collection) throws ExecutionException, InterruptedException {
+        try {
+            return doInvokeAny(collection, false, 0);
+        } catch (TimeoutException e) {
+            // not timed
+            throw new IllegalStateException(e);
         }
-        return result;
     }
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> collection, long l, TimeUnit timeUnit) throws ExecutionException, InterruptedException, TimeoutException {
-        checkStart();
-        List<Future<T>> futures = new ArrayList<>();
-        for (Callable<T> callable : collection) {
-            futures.add(reuseThread.submit(callable));
-        }
-        long startTimeMilis = System.currentTimeMillis();
-        long endTimeMilis = startTimeMilis + TimeUnit.MILLISECONDS.convert(l, timeUnit);
-        T result = null;
-        boolean findOne = false;
+        return doInvokeAny(collection, true, timeUnit.toNanos(l));
+    }
+
+    /**
+     * Return the result of the first task that completes successfully,
+     * waiting on completion signals of the tasks instead of polling them
+     */
+    private <T> T doInvokeAny(Collection<? extends Callable<T>> collection, boolean timed, long nanos)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        if (collection.isEmpty()) {
+            throw new IllegalArgumentException("No task to invoke");
+        }
+        long deadline = System.nanoTime() + nanos;
+        BlockingQueue<Future<T>> completionQueue = new LinkedBlockingQueue<>();
+        List<Future<T>> futures = new ArrayList<>(collection.size());
         try {
-            while (!findOne) {
-                long currentTimeMilis = System.currentTimeMillis();
-                if (currentTimeMilis >= endTimeMilis) {
-                    throw new TimeoutException();
-                }
-                for (Future<T> future : futures) {
-                    if (future.isDone()) {
-                        result = future.get();
-                        findOne = true;
-                        break;
+            for (Callable<T> callable : collection) {
+                TimedTask<T> task = new TimedTask<>(callable);
+                task.completionQueue = completionQueue;
+                futures.add(workerFor(callable).submit(task));
+            }
+            ExecutionException lastException = null;
+            for (int remaining = futures.size(); remaining > 0; remaining--) {
+                Future<T> future;
+                if (timed) {
+                    future = completionQueue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        throw new TimeoutException();
                     }
+                } else {
+                    future = completionQueue.take();
+                }
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    lastException = e;
+                } catch (CancellationException e) {
+                    lastException = new ExecutionException(e);
                 }
             }
+            throw lastException;
         } finally {
-            for (Future<T> future : futures) {
-                future.cancel(true);
-            }
+            cancelAll(futures);
         }
-        return result;
     }
 
-    private void checkStart() {
-        if (!reuseThread.isAlive()) {
-            reuseThread.start();
+    private static <T> void cancelAll(List<Future<T>> futures) {
+        for (Future<T> future : futures) {
+            future.cancel(true);
         }
     }
 
     @Override
     public void execute(Runnable runnable) {
-        checkStart();
-        reuseThread.execute(runnable);
+        workerFor(runnable).submit(new TimedTask<>(runnable, null));
+    }
+
+    /**
+     * Execute runnable on the worker pinned to affinityKey
+     */
+    public void execute(Object affinityKey, Runnable runnable) {
+        workerForKey(affinityKey).submit(new TimedTask<>(runnable, null));
     }
 
     /**
      * Execute runnable and wait till finish
      */
     public void executeAndWait(Runnable runnable) {
-        checkStart();
-        reuseThread.executeAndWait(runnable);
+        workerFor(runnable).executeAndWait(new TimedTask<>(runnable, null));
     }
 
+    /**
+     * Execute runnable on the worker pinned to affinityKey and wait till finish
+     */
+    public void executeAndWait(Object affinityKey, Runnable runnable) {
+        workerForKey(affinityKey).executeAndWait(new TimedTask<>(runnable, null));
+    }
 
-    private static class ReuseThread extends Thread {
-        private BlockingQueue<FutureTask<?>> callableQueue;
+    /**
+     * Tasks implementing {@link AffinityTask} are routed by their key, all other tasks run on the first worker
+     */
+    private ReuseThread workerFor(Object task) {
+        return workerForKey(task instanceof AffinityTask ? ((AffinityTask) task).getAffinityKey() : null);
+    }
+
+    private ReuseThread workerForKey(Object affinityKey) {
+        ReuseThread[] threads = checkStart();
+        if (threads.length == 1 || affinityKey == null) {
+            return threads[0];
+        }
+        // spread the hash so keys with similar hash codes end up on different workers
+        int hash = affinityKey.hashCode();
+        hash ^= (hash >>> 16);
+        return threads[(hash & 0x7fffffff) % threads.length];
+    }
+
+    private ReuseThread[] checkStart() {
+        ReuseThread[] threads = reuseThreads;
+        if (threads == null) {
+            synchronized (this) {
+                threads = reuseThreads;
+                if (threads == null) {
+                    threads = new ReuseThread[workerCount];
+                    for (int i = 0; i < workerCount; i++) {
+                        String name = workerCount == 1 ? "poi-spreadsheet-thread" : "poi-spreadsheet-thread-" + i;
+                        threads[i] = new ReuseThread(name, queueCapacity);
+                        // Android can be shutdown or killed so set this as daemon
+                        threads[i].setDaemon(true);
+                        threads[i].start();
+                    }
+                    reuseThreads = threads;
+                }
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Task which should run on the worker pinned to its affinity key,
+     * implement this on {@link Callable} or {@link Runnable} submitted through the plain {@link ExecutorService} methods
+     * such as {@link #invokeAll(Collection)} to spread them across workers.
+     */
+    public interface AffinityTask {
+        /**
+         * @return key which decides the worker, for example the workbook the task works on
+         */
+        Object getAffinityKey();
+    }
+
+    /**
+     * Snapshot of the worker queues and task latency
+     */
+    public static final class Metrics {
+        private final int[] queueDepths;
+        private final long submittedTaskCount;
+        private final long completedTaskCount;
+        private final long totalQueueWaitNanos;
+        private final long maxQueueWaitNanos;
+        private final long totalExecutionNanos;
+        private final long maxExecutionNanos;
+
+        private Metrics(int[] queueDepths, long submittedTaskCount, long completedTaskCount,
+                        long totalQueueWaitNanos, long maxQueueWaitNanos,
+                        long totalExecutionNanos, long maxExecutionNanos) {
+            this.queueDepths = queueDepths;
+            this.submittedTaskCount = submittedTaskCount;
+            this.completedTaskCount = completedTaskCount;
+            this.totalQueueWaitNanos = totalQueueWaitNanos;
+            this.maxQueueWaitNanos = maxQueueWaitNanos;
+            this.totalExecutionNanos = totalExecutionNanos;
+            this.maxExecutionNanos = maxExecutionNanos;
+        }
+
+        /**
+         * @return number of pending tasks per worker
+         */
+        public int[] getQueueDepths() {
+            return queueDepths.clone();
+        }
+
+        /**
+         * @return number of pending tasks of all workers
+         */
+        public int getTotalQueueDepth() {
+            int total = 0;
+            for (int queueDepth : queueDepths) {
+                total += queueDepth;
+            }
+            return total;
+        }
+
+        public long getSubmittedTaskCount() {
+            return submittedTaskCount;
+        }
+
+        public long getCompletedTaskCount() {
+            return completedTaskCount;
+        }
+
+        /**
+         * @return average time a task waited in queue before it started
+         */
+        public long getAverageQueueWaitNanos() {
+            return completedTaskCount == 0 ? 0 : totalQueueWaitNanos / completedTaskCount;
+        }
+
+        public long getMaxQueueWaitNanos() {
+            return maxQueueWaitNanos;
+        }
+
+        /**
+         * @return average time a task took to run
+         */
+        public long getAverageExecutionNanos() {
+            return completedTaskCount == 0 ? 0 : totalExecutionNanos / completedTaskCount;
+        }
+
+        public long getMaxExecutionNanos() {
+            return maxExecutionNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "queueDepth=" + getTotalQueueDepth() +
+                    ", submitted=" + submittedTaskCount +
+                    ", completed=" + completedTaskCount +
+                    ", avgQueueWaitNanos=" + getAverageQueueWaitNanos() +
+                    ", maxQueueWaitNanos=" + maxQueueWaitNanos +
+                    ", avgExecutionNanos=" + getAverageExecutionNanos() +
+                    ", maxExecutionNanos=" + maxExecutionNanos +
+                    '}';
+        }
+    }
+
+    private static class TimedTask<T> extends FutureTask<T> {
+        private long enqueueNanos;
+        private BlockingQueue<Future<T>> completionQueue;
+
+        TimedTask(Callable<T> callable) {
+            super(callable);
+        }
 
-        public ReuseThread() {
-            super("poi-spreadsheet-thread");
+        TimedTask(Runnable runnable, T result) {
+            super(runnable, result);
         }
 
         @Override
-        public synchronized void start() {
-            if (callableQueue == null) {
-                callableQueue = new LinkedBlockingQueue<>(Integer.MAX_VALUE);
+        protected void done() {
+            if (completionQueue != null) {
+                completionQueue.add(this);
             }
-            super.start();
+        }
+    }
+
+    private static class ReuseThread extends Thread {
+        private final BlockingQueue<TimedTask<?>> callableQueue;
+        private final TimedTask<Void> stopTask = new TimedTask<>(() -> {
+        }, null);
+        private final AtomicLong submittedCount = new AtomicLong();
+        private final AtomicLong completedCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalExecutionNanos = new AtomicLong();
+        private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+        public ReuseThread(String name, int queueCapacity) {
+            super(name);
+            callableQueue = new LinkedBlockingQueue<>(queueCapacity);
         }
 
-        public <T> Future<T> submit(Callable<T> callable) {
-            FutureTask<T> task = new FutureTask<>(callable);
-            callableQueue.add(task);
+        public <T> Future<T> submit(TimedTask<T> task) {
+            task.enqueueNanos = System.nanoTime();
+            if (Thread.currentThread() == this) {
+                // blocking on own full queue will never return
+                if (!callableQueue.offer(task)) {
+                    throw new RejectedExecutionException("Queue of " + getName() + " is full");
+                }
+            } else {
+                try {
+                    callableQueue.put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for queue of " + getName(), e);
+                }
+            }
+            submittedCount.incrementAndGet();
             return task;
         }
 
-        public <T> Future<T> submitAndWait(Callable<T> callable) {
-            FutureTask<T> task = new FutureTask<>(callable);
-            callableQueue.add(task);
+        /**
+         * Queue a task which ends this thread, the tasks queued before it still run
+         */
+        public void stopAfterQueuedTasks() throws InterruptedException {
+            callableQueue.put(stopTask);
+        }
+
+        public <T> Future<T> submitAndWait(TimedTask<T> task) {
+            submit(task);
             try {
                 task.get();
             } catch (ExecutionException | InterruptedException e) {
@@ -265,20 +589,8 @@ public class POISpreadsheetContext implements ExecutorService {
             return task;
         }
 
-        public <T> Future<T> submit(Runnable runnable, T t) {
-            FutureTask<T> task = new FutureTask<>(runnable, t);
-            callableQueue.add(task);
-            return task;
-        }
-
-        public void execute(Runnable runnable) {
-            FutureTask<Object> task = new FutureTask<>(runnable, null);
-            callableQueue.add(task);
-        }
-
-        public void executeAndWait(Runnable runnable) {
-            FutureTask<Object> task = new FutureTask<>(runnable, null);
-            callableQueue.add(task);
+        public void executeAndWait(TimedTask<?> task) {
+            submit(task);
             try {
                 task.get();
             } catch (ExecutionException | InterruptedException e) {
@@ -290,15 +602,37 @@ public class POISpreadsheetContext implements ExecutorService {
         @Override
         public void run() {
             // Thread is always alive as long as it hasn't finish this run
-            // So this is intentional infinite loop
+            // So this is intentional infinite loop, until the stop task is taken
             while (isAlive()) {
                 try {
-                    FutureTask<?> task = callableQueue.take();
+                    TimedTask<?> task = callableQueue.take();
+                    if (task == stopTask) {
+                        break;
+                    }
+                    long startNanos = System.nanoTime();
                     task.run();
+                    long endNanos = System.nanoTime();
+                    record(startNanos - task.enqueueNanos, totalWaitNanos, maxWaitNanos);
+                    record(endNanos - startNanos, totalExecutionNanos, maxExecutionNanos);
+                    completedCount.incrementAndGet();
                 } catch (Throwable e) {
                     Log.e(getName(), e.getMessage(), e);
                 }
             }
+            // tasks submitted while stopping would never run
+            List<TimedTask<?>> remaining = new ArrayList<>();
+            callableQueue.drainTo(remaining);
+            for (TimedTask<?> task : remaining) {
+                task.cancel(false);
+            }
+        }
+
+        private static void record(long nanos, AtomicLong total, AtomicLong max) {
+            total.addAndGet(nanos);
+            // only this thread updates the max, no need to compare and set
+            if (nanos > max.get()) {
+                max.set(nanos);
+            }
         }
     }
 }
@@ -0,0 +1,85 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.TempFileZipEntrySource;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests packages opened from an InputStream which is spooled to a temp file,
+ * see {@link ZipPackage#setSpoolInputStreams(boolean)}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestSpooledZipPackage {
+
+    @Test
+    public void partsAreReadOnDemand() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int s = 0; s < 3; s++) {
+                XSSFSheet sheet = wb.createSheet("Sheet" + s);
+                for (int r = 0; r < 100; r++) {
+                    sheet.createRow(r).createCell(0).setCellValue(s * 1000 + r);
+                }
+            }
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+
+        int partCount;
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            assertTrue(((ZipPackage) pkg).getZipArchive() instanceof ZipInputStreamZipEntrySource);
+            partCount = pkg.getParts().size();
+        }
+
+        ZipPackage.setSpoolInputStreams(true);
+        try {
+            try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+                assertTrue(((ZipPackage) pkg).getZipArchive() instanceof TempFileZipEntrySource);
+                assertEquals(partCount, pkg.getParts().size());
+                PackagePart part = pkg.getPart(PackagingURIHelper.createPartName("/xl/worksheets/sheet2.xml"));
+                try (InputStream is = part.getInputStream()) {
+                    assertTrue(new String(IOUtils.toByteArray(is), "UTF-8").contains("<v>1099.0</v>"));
+                }
+            }
+
+            // the stream is left open on request
+            ByteArrayInputStream in = new ByteArrayInputStream(data);
+            try (XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(in, false))) {
+                assertEquals(3, wb.getNumberOfSheets());
+                assertEquals(2042, wb.getSheet("Sheet2").getRow(42).getCell(0).getNumericCellValue(), 0.0);
+            }
+            assertEquals(0, in.available());
+        } finally {
+            ZipPackage.setSpoolInputStreams(false);
+        }
+    }
+}
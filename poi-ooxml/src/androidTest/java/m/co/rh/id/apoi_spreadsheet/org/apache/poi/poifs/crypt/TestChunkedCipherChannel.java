@@ -0,0 +1,149 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.Random;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
+
+/**
+ * Tests the random access decryption of agile encrypted packages
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestChunkedCipherChannel {
+    private static final String PASSWORD = "secret";
+
+    @Test
+    public void channelMatchesStream() throws Exception {
+        // a document in the mini stream and one spanning several chunks and big blocks
+        for (int size : new int[]{1000, 50000}) {
+            byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(encrypt(data)))) {
+                Decryptor streamDecryptor = new EncryptionInfo(fs).getDecryptor();
+                assertTrue(streamDecryptor.verifyPassword(PASSWORD));
+                byte[] streamed;
+                try (InputStream is = streamDecryptor.getDataStream(fs)) {
+                    streamed = IOUtils.toByteArray(is, (int) streamDecryptor.getLength());
+                }
+                assertArrayEquals(data, streamed);
+
+                Decryptor d = new EncryptionInfo(fs).getDecryptor();
+                assertTrue(d.isDataChannelSupported());
+                assertTrue(d.verifyPassword(PASSWORD));
+                SeekableByteChannel channel = d.getDataChannel(fs.getRoot(), false);
+                assertEquals(size, channel.size());
+                assertEquals(size, d.getLength());
+
+                // read at random positions, across chunk boundaries
+                Random random = new Random(42);
+                for (int i = 0; i < 50; i++) {
+                    int pos = random.nextInt(size);
+                    ByteBuffer buf = ByteBuffer.allocate(Math.min(size - pos, 1 + random.nextInt(9000)));
+                    channel.position(pos);
+                    while (buf.hasRemaining()) {
+                        assertTrue(channel.read(buf) > 0);
+                    }
+                    byte[] expected = new byte[buf.capacity()];
+                    System.arraycopy(data, pos, expected, 0, expected.length);
+                    assertArrayEquals(expected, buf.array());
+                }
+                assertEquals(-1, channel.position(size).read(ByteBuffer.allocate(1)));
+                assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+
+                channel.close();
+                assertFalse(channel.isOpen());
+                // the file system is still usable, as it wasn't handed over to the channel
+                assertTrue(fs.getRoot().hasEntryCaseInsensitive(Decryptor.DEFAULT_POIFS_ENTRY));
+            }
+        }
+    }
+
+    @Test
+    public void workbookFromEncryptedFile() throws Exception {
+        byte[] plain;
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            for (int s = 0; s < 3; s++) {
+                wb.createSheet("Sheet" + s).createRow(0).createCell(0).setCellValue(s + 0.5);
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            plain = bos.toByteArray();
+        }
+        File file = TempFile.createTempFile("encrypted", ".xlsx");
+        Files.write(file.toPath(), encrypt(plain));
+
+        XSSFWorkbookFactory factory = new XSSFWorkbookFactory();
+        try (XSSFWorkbook wb = factory.create(file, PASSWORD, true)) {
+            assertEquals(3, wb.getNumberOfSheets());
+            assertEquals(2.5, wb.getSheet("Sheet2").getRow(0).getCell(0).getNumericCellValue(), 0.0);
+
+            // the decrypted package can still be written
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            try (XSSFWorkbook copy = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+                assertEquals(0.5, copy.getSheetAt(0).getRow(0).getCell(0).getNumericCellValue(), 0.0);
+            }
+        }
+        try (InputStream is = Files.newInputStream(file.toPath());
+             XSSFWorkbook wb = (XSSFWorkbook) factory.create(is, PASSWORD)) {
+            assertEquals(1.5, wb.getSheetAt(1).getRow(0).getCell(0).getNumericCellValue(), 0.0);
+        }
+
+        assertThrows(EncryptedDocumentException.class, () -> factory.create(file, "wrong", true));
+        // the file system was closed with the workbook, so the file can be removed
+        assertTrue(file.delete());
+    }
+
+    private static byte[] encrypt(byte[] data) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            Encryptor enc = new EncryptionInfo(EncryptionMode.agile).getEncryptor();
+            enc.confirmPassword(PASSWORD);
+            try (OutputStream os = enc.getDataStream(fs)) {
+                os.write(data);
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            fs.writeFilesystem(bos);
+            return bos.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.DocumentInputStream;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+
+/**
+ * Tests {@link ChunkedCipherOutputStream#setParallelism(int)}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestParallelChunkEncryption {
+    private static final String PASSWORD = "secret";
+
+    @Test
+    public void parallelMatchesSerialEncryption() throws Exception {
+        Encryptor serial = new EncryptionInfo(EncryptionMode.agile).getEncryptor();
+        serial.confirmPassword(PASSWORD);
+        // a copy has the same keys and salts, so both produce the same encrypted package
+        Encryptor parallel = serial.copy();
+        parallel.setParallelism(4);
+        assertEquals(1, serial.getParallelism());
+        assertEquals(4, parallel.getParallelism());
+
+        // the last chunk is padded, full, or the only one
+        for (int size : new int[]{100_000, 40 * 4096, 100}) {
+            byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+
+            byte[] serialPackage = getEncryptedPackage(encrypt(serial, data));
+            byte[] parallelFs = encrypt(parallel, data);
+            assertArrayEquals(serialPackage, getEncryptedPackage(parallelFs));
+
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(parallelFs))) {
+                Decryptor d = new EncryptionInfo(fs).getDecryptor();
+                assertTrue(d.verifyPassword(PASSWORD));
+                try (InputStream is = d.getDataStream(fs)) {
+                    assertArrayEquals(data, IOUtils.toByteArray(is, (int) d.getLength()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamingEncryptorsAreSerial() {
+        Encryptor enc = new EncryptionInfo(EncryptionMode.standard).getEncryptor();
+        assertEquals(1, enc.getParallelism());
+        assertThrows(EncryptedDocumentException.class, () -> enc.setParallelism(2));
+    }
+
+    private static byte[] encrypt(Encryptor enc, byte[] data) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            try (OutputStream os = enc.getDataStream(fs)) {
+                // uneven writes, to fill the chunks across several calls
+                for (int off = 0; off < data.length; off += 1000) {
+                    os.write(data, off, Math.min(1000, data.length - off));
+                }
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            fs.writeFilesystem(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] getEncryptedPackage(byte[] fsBytes) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(fsBytes));
+             DocumentInputStream dis = fs.createDocumentInputStream(Decryptor.DEFAULT_POIFS_ENTRY)) {
+            return IOUtils.toByteArray(dis);
+        }
+    }
+}
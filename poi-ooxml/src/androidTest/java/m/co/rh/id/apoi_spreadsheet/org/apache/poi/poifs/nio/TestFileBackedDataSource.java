@@ -0,0 +1,99 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+
+/**
+ * Tests reading files through mapped windows, see {@link FileBackedDataSource#setMapReadOnlyFiles(boolean)}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestFileBackedDataSource {
+
+    @Test
+    public void mappedReadsMatchHeapReads() throws Exception {
+        // small documents live in the mini stream, big ones in big blocks
+        byte[][] documents = new byte[40][];
+        for (int d = 0; d < documents.length; d++) {
+            documents[d] = new byte[d % 2 == 0 ? 100 + d * 50 : 5000 + d * 300];
+            for (int i = 0; i < documents[d].length; i++) {
+                documents[d][i] = (byte) (i * 31 + d);
+            }
+        }
+        File file = TempFile.createTempFile("mapped", ".ole2");
+        try {
+            try (POIFSFileSystem fs = new POIFSFileSystem(); OutputStream out = Files.newOutputStream(file.toPath())) {
+                for (int d = 0; d < documents.length; d++) {
+                    fs.createDocument(new ByteArrayInputStream(documents[d]), "Doc" + d);
+                }
+                fs.writeFilesystem(out);
+            }
+
+            try (FileBackedDataSource heap = new FileBackedDataSource(file)) {
+                FileBackedDataSource.setMapReadOnlyFiles(true);
+                try (FileBackedDataSource mapped = new FileBackedDataSource(file)) {
+                    ByteBuffer heapBlock = heap.read(512, 1024);
+                    ByteBuffer mappedBlock = mapped.read(512, 1024);
+                    assertFalse(heapBlock.isReadOnly());
+                    assertTrue(mappedBlock.isReadOnly());
+                    assertEquals(0, mappedBlock.position());
+                    assertEquals(512, mappedBlock.remaining());
+                    assertEquals(heapBlock, mappedBlock);
+
+                    // reads past the end of the file are not mapped
+                    long size = mapped.size();
+                    ByteBuffer tail = mapped.read(512, size - 100);
+                    assertFalse(tail.isReadOnly());
+                    assertEquals(heap.read(512, size - 100), tail);
+                } finally {
+                    FileBackedDataSource.setMapReadOnlyFiles(false);
+                }
+            }
+
+            FileBackedDataSource.setMapReadOnlyFiles(true);
+            try (POIFSFileSystem fs = new POIFSFileSystem(file)) {
+                for (int d = documents.length - 1; d >= 0; d--) {
+                    try (InputStream is = fs.createDocumentInputStream("Doc" + d)) {
+                        assertArrayEquals(documents[d], IOUtils.toByteArray(is));
+                    }
+                }
+            } finally {
+                FileBackedDataSource.setMapReadOnlyFiles(false);
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestAreaCacheEntryMap {
+
+    private static AreaCacheEntry.Area column(int sheetIndex, int columnIndex, int firstRow, int lastRow) {
+        return new AreaCacheEntry.Area(0, sheetIndex, firstRow, columnIndex, lastRow, columnIndex);
+    }
+
+    @Test
+    public void entriesAreCreatedOnRepeatedRequests() {
+        AreaCacheEntryMap<ColumnarArea> map = new AreaCacheEntryMap<>(ColumnarArea::new, 2, -1);
+        AreaCacheEntry.Area area = column(0, 0, 0, 99);
+        Object formula = new Object();
+        assertNull(map.getOrCreate(area, formula));
+        // the same formula reading the area again in a row counts once
+        assertNull(map.getOrCreate(area, formula));
+        assertEquals(0, map.size());
+
+        ColumnarArea entry = map.getOrCreate(area, null);
+        assertNotNull(entry);
+        assertSame(entry, map.getOrCreate(column(0, 0, 0, 99), null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        AreaCacheEntryMap<ColumnarArea> map = new AreaCacheEntryMap<>(ColumnarArea::new, 1, 250);
+        ColumnarArea a = map.getOrCreate(column(0, 0, 0, 99), null);
+        ColumnarArea b = map.getOrCreate(column(0, 1, 0, 99), null);
+        ColumnarArea c = map.getOrCreate(column(0, 2, 0, 99), null);
+        // entries are only evicted between evaluations
+        assertEquals(3, map.size());
+
+        assertSame(a, map.getOrCreate(column(0, 0, 0, 99), null));
+        map.evict(null);
+        assertEquals(2, map.size());
+        assertSame(a, map.getOrCreate(column(0, 0, 0, 99), null));
+        assertSame(c, map.getOrCreate(column(0, 2, 0, 99), null));
+        assertNotSame(b, map.getOrCreate(column(0, 1, 0, 99), null));
+    }
+
+    @Test
+    public void cellUpdatesDropContainingEntriesOnly() {
+        AreaCacheEntryMap<ColumnarArea> map = new AreaCacheEntryMap<>(ColumnarArea::new, 1, -1);
+        ColumnarArea top = map.getOrCreate(column(0, 0, 0, 49), null);
+        ColumnarArea bottom = map.getOrCreate(column(0, 0, 50, 99), null);
+        ColumnarArea otherSheet = map.getOrCreate(column(1, 0, 0, 99), null);
+        ColumnarArea wide = map.getOrCreate(new AreaCacheEntry.Area(0, 0, 0, 1, 99, 3), null);
+
+        map.drop(0, 0, 60, 0, null);
+        assertEquals(3, map.size());
+        assertSame(top, map.getOrCreate(column(0, 0, 0, 49), null));
+        assertSame(otherSheet, map.getOrCreate(column(1, 0, 0, 99), null));
+        assertNotSame(bottom, map.getOrCreate(column(0, 0, 50, 99), null));
+
+        map.drop(0, 0, 10, 4, null);
+        assertSame(wide, map.getOrCreate(new AreaCacheEntry.Area(0, 0, 0, 1, 99, 3), null));
+        map.drop(0, 0, 10, 2, null);
+        assertNotSame(wide, map.getOrCreate(new AreaCacheEntry.Area(0, 0, 0, 1, 99, 3), null));
+        assertEquals(4, map.size());
+    }
+}
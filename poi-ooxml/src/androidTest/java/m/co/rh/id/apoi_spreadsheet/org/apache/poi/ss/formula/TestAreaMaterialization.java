@@ -0,0 +1,171 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests functions reading big ranges through their {@link ColumnarArea} snapshot
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestAreaMaterialization {
+
+    @Test
+    public void aggregatesFollowCellUpdates() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 100; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r + 1);
+                if (r % 10 == 0) {
+                    row.createCell(1).setCellValue("text");
+                } else if (r % 10 == 1) {
+                    row.createCell(1).setCellValue(true);
+                } else {
+                    row.createCell(1).setCellFormula("A" + (r + 1) + "*2");
+                }
+            }
+            Row formulas = sheet.createRow(100);
+            Cell sum = formulas.createCell(0);
+            sum.setCellFormula("SUM($A$1:$A$100)");
+            Cell sumAgain = formulas.createCell(1);
+            sumAgain.setCellFormula("SUM($A$1:$A$100)+0");
+            Cell average = formulas.createCell(2);
+            average.setCellFormula("AVERAGE(A1:B100)");
+            Cell averageA = formulas.createCell(3);
+            averageA.setCellFormula("AVERAGEA(B1:B100)");
+            Cell count = formulas.createCell(4);
+            count.setCellFormula("COUNT(A1:B100)");
+            Cell max = formulas.createCell(5);
+            max.setCellFormula("MAX(A1:A100,B1:B100)");
+            Cell sumProduct = formulas.createCell(6);
+            sumProduct.setCellFormula("SUMPRODUCT(A1:A100,A1:A100)");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            // B holds 2 * A, except for rows 1, 11, ... (text) and 2, 12, ... (TRUE)
+            double sumB = 0;
+            int countB = 0;
+            double sumBA = 0;
+            for (int r = 0; r < 100; r++) {
+                if (r % 10 > 1) {
+                    sumB += 2 * (r + 1);
+                    countB++;
+                    sumBA += 2 * (r + 1);
+                } else if (r % 10 == 1) {
+                    sumBA += 1;
+                }
+            }
+            assertEquals(5050, fe.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(5050, fe.evaluate(sumAgain).getNumberValue(), 0.0);
+            assertEquals((5050 + sumB) / (100 + countB), fe.evaluate(average).getNumberValue(), 1e-9);
+            assertEquals(sumBA / 100, fe.evaluate(averageA).getNumberValue(), 1e-9);
+            assertEquals(100 + countB, fe.evaluate(count).getNumberValue(), 0.0);
+            assertEquals(200, fe.evaluate(max).getNumberValue(), 0.0);
+            assertEquals(338350, fe.evaluate(sumProduct).getNumberValue(), 0.0);
+
+            Cell changed = sheet.getRow(99).getCell(0);
+            changed.setCellValue(1000);
+            fe.notifyUpdateCell(changed);
+            assertEquals(5050 - 100 + 1000, fe.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(5050 - 100 + 1000, fe.evaluate(sumAgain).getNumberValue(), 0.0);
+            assertEquals(2000, fe.evaluate(max).getNumberValue(), 0.0);
+            assertEquals(338350 - 10000 + 1000000, fe.evaluate(sumProduct).getNumberValue(), 0.0);
+
+            Cell error = sheet.getRow(50).getCell(0);
+            error.setCellFormula("1/0");
+            fe.notifyUpdateCell(error);
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(sum).getErrorValue());
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(average).getErrorValue());
+            assertEquals(99 + countB, fe.evaluate(count).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void denseKernelsMatchCellByCellResults() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            double[] a = new double[99];
+            double[] b = new double[99];
+            for (int r = 0; r < 99; r++) {
+                Row row = sheet.createRow(r);
+                a[r] = (r * 7919 % 101) / 7.0 - 5;
+                b[r] = 1.0 / (r + 3);
+                row.createCell(0).setCellValue(a[r]);
+                row.createCell(1).setCellValue(b[r]);
+                row.createCell(2).setCellValue(r % 3 == 0 ? "x" : "1");
+            }
+            Row formulas = sheet.createRow(100);
+            Cell sumProduct = formulas.createCell(0);
+            sumProduct.setCellFormula("SUMPRODUCT(A1:A99,B1:B99)");
+            Cell sumProduct3 = formulas.createCell(1);
+            sumProduct3.setCellFormula("SUMPRODUCT(A1:A99,B1:B99,A1:A99)");
+            Cell sumXmY2 = formulas.createCell(2);
+            sumXmY2.setCellFormula("SUMXMY2(A1:A99,B1:B99)");
+            Cell texts = formulas.createCell(3);
+            texts.setCellFormula("SUMPRODUCT(A1:A99,C1:C99)");
+            Cell min = formulas.createCell(4);
+            min.setCellFormula("MIN(A1:A99)");
+            Cell max = formulas.createCell(5);
+            max.setCellFormula("MAX(A1:B99)");
+
+            double expected = 0;
+            double expected3 = 0;
+            double expectedXY = 0;
+            double expectedMin = Double.POSITIVE_INFINITY;
+            double expectedMax = Double.NEGATIVE_INFINITY;
+            for (int r = 0; r < 99; r++) {
+                expected += a[r] * b[r];
+                expected3 += a[r] * b[r] * a[r];
+                expectedXY += (a[r] - b[r]) * (a[r] - b[r]);
+                expectedMin = Math.min(expectedMin, a[r]);
+                expectedMax = Math.max(expectedMax, Math.max(a[r], b[r]));
+            }
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            // the terms are added in the same order as cell by cell, so the results are exact
+            assertEquals(expected, fe.evaluate(sumProduct).getNumberValue(), 0.0);
+            assertEquals(expected3, fe.evaluate(sumProduct3).getNumberValue(), 0.0);
+            assertEquals(expectedXY, fe.evaluate(sumXmY2).getNumberValue(), 0.0);
+            // strings are zero in area products, even if they look like numbers
+            assertEquals(0, fe.evaluate(texts).getNumberValue(), 0.0);
+            assertEquals(expectedMin, fe.evaluate(min).getNumberValue(), 0.0);
+            assertEquals(expectedMax, fe.evaluate(max).getNumberValue(), 0.0);
+
+            // the first error in row major order wins, then the first one in argument order
+            Cell na = sheet.getRow(40).getCell(1);
+            na.setCellErrorValue(FormulaError.NA.getCode());
+            fe.notifyUpdateCell(na);
+            Cell div0 = sheet.getRow(60).getCell(0);
+            div0.setCellErrorValue(FormulaError.DIV0.getCode());
+            fe.notifyUpdateCell(div0);
+            assertEquals(FormulaError.NA.getCode(), fe.evaluate(sumProduct).getErrorValue());
+            // errors in x are reported before errors in y
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(sumXmY2).getErrorValue());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests the *IFS functions, which read their ranges through a {@link ColumnarArea}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestColumnarArea {
+
+    @Test
+    public void ifsFunctionsFollowCellUpdates() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            String[] regions = {"north", "South", "north", "east", "NORTH", "south"};
+            for (int r = 0; r < regions.length; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(regions[r]);
+                row.createCell(1).setCellValue(r % 2 == 0);
+                row.createCell(2).setCellValue((r + 1) * 10);
+            }
+            // C7 is a string, row 8 is blank apart from the amount
+            Row row7 = sheet.createRow(6);
+            row7.createCell(0).setCellValue("north");
+            row7.createCell(2).setCellValue("n/a");
+            sheet.createRow(7).createCell(2).setCellFormula("5*2");
+
+            Row formulas = sheet.createRow(9);
+            Cell sum = formulas.createCell(0);
+            sum.setCellFormula("SUMIFS(C1:C8,A1:A8,\"north\")");
+            Cell sumBoth = formulas.createCell(1);
+            sumBoth.setCellFormula("SUMIFS(C1:C8,A1:A8,\"north\",B1:B8,TRUE)");
+            Cell count = formulas.createCell(2);
+            count.setCellFormula("COUNTIFS(A1:A8,\"<>north\",C1:C8,\">20\")");
+            Cell average = formulas.createCell(3);
+            average.setCellFormula("AVERAGEIFS(C1:C8,A1:A8,\"n*\")");
+            Cell max = formulas.createCell(4);
+            max.setCellFormula("MAXIFS(C1:C8,A1:A8,\"s?uth\")");
+            Cell min = formulas.createCell(5);
+            min.setCellFormula("MINIFS(C1:C8,A1:A8,\"\")");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(10 + 30 + 50, fe.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(10 + 30 + 50, fe.evaluate(sumBoth).getNumberValue(), 0.0);
+            assertEquals(2, fe.evaluate(count).getNumberValue(), 0.0);
+            assertEquals(30, fe.evaluate(average).getNumberValue(), 0.0);
+            assertEquals(60, fe.evaluate(max).getNumberValue(), 0.0);
+            assertEquals(10, fe.evaluate(min).getNumberValue(), 0.0);
+
+            Cell region = sheet.getRow(3).getCell(0);
+            region.setCellValue("North");
+            fe.notifyUpdateCell(region);
+            Cell flag = sheet.getRow(0).getCell(1);
+            flag.setCellValue(false);
+            fe.notifyUpdateCell(flag);
+            Cell blank = sheet.getRow(7).createCell(0);
+            blank.setCellValue("north");
+            fe.notifyUpdateCell(blank);
+
+            assertEquals(10 + 30 + 40 + 50 + 10, fe.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(30 + 50, fe.evaluate(sumBoth).getNumberValue(), 0.0);
+            assertEquals(1, fe.evaluate(count).getNumberValue(), 0.0);
+            assertEquals(0, fe.evaluate(min).getNumberValue(), 0.0);
+
+            Cell error = sheet.getRow(0).getCell(2);
+            error.setCellFormula("1/0");
+            fe.notifyUpdateCell(error);
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(sum).getErrorValue());
+            assertEquals(60, fe.evaluate(max).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void ifsFunctionsMaterializeBoundedRangesOnly() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 100; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r % 3 == 0 ? "x" : "y");
+                row.createCell(2).setCellValue(r + 1);
+            }
+            // 1717 = the sum of the rows 1, 4, ..., 100
+            Cell bounded = sheet.getRow(0).createCell(4);
+            bounded.setCellFormula("SUMIFS(C1:C100,A1:A100,\"x\")");
+            Cell boundedCount = sheet.getRow(0).createCell(5);
+            boundedCount.setCellFormula("COUNTIFS(A1:A100,\"y\",C1:C100,\">50\")");
+            // whole column references are cut at the last row of the sheet, bigger areas are not
+            Cell huge = sheet.getRow(1).createCell(4);
+            huge.setCellFormula("SUMIFS(C1:C1000000,A1:A1000000,\"x\")");
+            Cell hugeCount = sheet.getRow(2).createCell(4);
+            hugeCount.setCellFormula("COUNTIFS(A1:A1000000,\"y\",C1:C1000000,\">50\")");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            WorkbookEvaluator bookEvaluator = fe._getWorkbookEvaluator();
+            // areas above the size limit are read cell by cell, without a snapshot of a million cells
+            assertEquals(1717, fe.evaluate(huge).getNumberValue(), 0.0);
+            assertEquals(33, fe.evaluate(hugeCount).getNumberValue(), 0.0);
+            assertEquals(0, bookEvaluator.getColumnarAreaCount());
+
+            // areas are materialized once they are read again
+            assertEquals(1717, fe.evaluate(bounded).getNumberValue(), 0.0);
+            assertEquals(33, fe.evaluate(boundedCount).getNumberValue(), 0.0);
+            assertEquals(2, bookEvaluator.getColumnarAreaCount());
+        }
+    }
+
+    @Test
+    public void runningTotalsAreNotMaterialized() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 200; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r + 1);
+                row.createCell(1).setCellFormula("SUM($A$1:A" + (r + 1) + ")");
+            }
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.evaluateAll();
+            // each area is read once only, a snapshot per formula would not pay off
+            assertEquals(0, fe._getWorkbookEvaluator().getColumnarAreaCount());
+            assertEquals(200 * 201 / 2, sheet.getRow(199).getCell(1).getNumericCellValue(), 0.0);
+            assertEquals(100 * 101 / 2, sheet.getRow(99).getCell(1).getNumericCellValue(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests the statistics recorded by the {@link EvaluationProfiler}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestEvaluationProfiler {
+
+    @Test
+    public void recordsCellsFunctionsAndChains() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("Data");
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellFormula("A1*2");
+            row.createCell(2).setCellFormula("SUM(B1,A1)+B1");
+            row.createCell(3).setCellFormula("C1+1");
+            row.createCell(4).setCellFormula("SUM(A1:D1)+ROUND(D1,0)");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            fe.setEvaluationProfiler(profiler);
+            assertEquals(6, fe.evaluate(row.getCell(3)).getNumberValue(), 0.0);
+            fe.evaluateAll();
+            assertEquals(20, row.getCell(4).getNumericCellValue(), 0.0);
+
+            // B1 is evaluated on behalf of C1, which is evaluated on behalf of D1
+            List<String> chain = profiler.getDeepestChain();
+            assertEquals(Arrays.asList("Data!D1", "Data!C1", "Data!B1"), chain);
+            assertEquals(4, profiler.getFormulaEvaluations());
+            assertEquals(4, profiler.getCellStatistics().size());
+            assertTrue(profiler.getCacheHits() > 0);
+            assertEquals(1, profiler.getPlainValueReads());
+
+            EvaluationProfiler.Statistics sum = null;
+            for (EvaluationProfiler.Statistics s : profiler.getFunctionStatistics()) {
+                if (s.getName().equals("SUM")) {
+                    sum = s;
+                }
+                assertTrue(s.getSelfNanos() <= s.getTotalNanos());
+            }
+            assertEquals(2, profiler.getFunctionStatistics().size());
+            assertEquals(2, sum == null ? 0 : sum.getCount());
+
+            StringBuilder report = new StringBuilder();
+            profiler.writeReport(report, 2);
+            String json = report.toString();
+            assertTrue(json, json.contains("\"formulaEvaluations\": 4"));
+            assertTrue(json, json.contains("{\"name\": \"SUM\", \"count\": 2"));
+            assertTrue(json, json.contains("\"deepestChain\": [\"Data!D1\", \"Data!C1\", \"Data!B1\"]"));
+
+            profiler.reset();
+            fe.setEvaluationProfiler(null);
+            fe.clearAllCachedResultValues();
+            fe.evaluateAll();
+            assertEquals(0, profiler.getFormulaEvaluations());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellValue;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests lookups which use a {@link LookupIndex}, and its invalidation
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestLookupIndex {
+
+    @Test
+    public void lookupsFollowCellUpdates() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            String[] keys = {"apple", "Pear", "plum", "PEAR", "fig"};
+            for (int r = 0; r < keys.length; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(keys[r]);
+                row.createCell(1).setCellValue(r * 10);
+            }
+            // A6 is left blank and filled later
+            sheet.createRow(5).createCell(1).setCellValue(50);
+            Row formulas = sheet.createRow(7);
+            Cell vlookup = formulas.createCell(0);
+            vlookup.setCellFormula("VLOOKUP(\"pear\",A1:B6,2,FALSE)");
+            Cell match = formulas.createCell(1);
+            match.setCellFormula("MATCH(\"PEAR\",A1:A6,0)");
+            Cell xlookupLast = formulas.createCell(2);
+            xlookupLast.setCellFormula("XLOOKUP(\"pear\",A1:A6,B1:B6,\"none\",0,-1)");
+            Cell xmatch = formulas.createCell(3);
+            xmatch.setCellFormula("XMATCH(\"kiwi\",A1:A6)");
+            Cell wildcard = formulas.createCell(4);
+            wildcard.setCellFormula("MATCH(\"f*\",A1:A6,0)");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(10, fe.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(2, fe.evaluate(match).getNumberValue(), 0.0);
+            assertEquals(30, fe.evaluate(xlookupLast).getNumberValue(), 0.0);
+            assertError(FormulaError.NA, fe.evaluate(xmatch));
+            assertEquals(5, fe.evaluate(wildcard).getNumberValue(), 0.0);
+
+            Cell first = sheet.getRow(1).getCell(0);
+            first.setCellValue("cherry");
+            fe.notifyUpdateCell(first);
+            Cell blank = sheet.getRow(5).createCell(0);
+            blank.setCellValue("kiwi");
+            fe.notifyUpdateCell(blank);
+
+            assertEquals(30, fe.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(4, fe.evaluate(match).getNumberValue(), 0.0);
+            assertEquals(30, fe.evaluate(xlookupLast).getNumberValue(), 0.0);
+            assertEquals(6, fe.evaluate(xmatch).getNumberValue(), 0.0);
+
+            Cell last = sheet.getRow(3).getCell(0);
+            last.setCellFormula("\"app\"&\"le\"");
+            fe.notifyUpdateCell(last);
+            assertError(FormulaError.NA, fe.evaluate(vlookup));
+            assertEquals("none", fe.evaluate(xlookupLast).getStringValue());
+        }
+    }
+
+    @Test
+    public void lookupNumbersAndBooleans() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            Row keys = sheet.createRow(0);
+            keys.createCell(0).setCellValue("1");
+            keys.createCell(1).setCellValue(true);
+            keys.createCell(2).setCellValue(1);
+            keys.createCell(3).setCellValue(0);
+            Row values = sheet.createRow(1);
+            for (int c = 0; c < 4; c++) {
+                values.createCell(c).setCellValue("v" + c);
+            }
+            Row formulas = sheet.createRow(3);
+            Cell number = formulas.createCell(0);
+            number.setCellFormula("HLOOKUP(1,A1:D2,2,FALSE)");
+            Cell bool = formulas.createCell(1);
+            bool.setCellFormula("HLOOKUP(TRUE,A1:D2,2,FALSE)");
+            Cell blank = formulas.createCell(2);
+            blank.setCellFormula("MATCH(F1,A1:D1,0)");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals("v2", fe.evaluate(number).getStringValue());
+            assertEquals("v1", fe.evaluate(bool).getStringValue());
+            // a blank lookup value matches zero
+            assertEquals(4, fe.evaluate(blank).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void approximateLookups() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            Object[] sorted = {10, 20, 20, 30, 40, "x", null};
+            Object[] unsorted = {5, 3, "b", 9, 1, true, 7};
+            for (int r = 0; r < sorted.length; r++) {
+                Row row = sheet.createRow(r);
+                setValue(row.createCell(0), sorted[r]);
+                row.createCell(1).setCellValue("v" + r);
+                setValue(row.createCell(2), unsorted[r]);
+            }
+            Row formulas = sheet.createRow(8);
+            String[] lookups = {
+                    "VLOOKUP(25,A1:B7,2,TRUE)", "VLOOKUP(20,A1:B7,2)", "VLOOKUP(5,A1:B7,2,TRUE)",
+                    "VLOOKUP(99,A1:B7,2,TRUE)", "LOOKUP(30,A1:A7,B1:B7)", "VLOOKUP(6,C1:C7,1,TRUE)",
+                    "MATCH(6,C1:C7,1)", "MATCH(0,C1:C7,1)", "MATCH(6,C1:C7,-1)", "MATCH(3,C1:C7,-1)",
+                    "MATCH(2,C1:C7,-1)", "MATCH(0,C1:C7,-1)", "MATCH(\"c\",C1:C7)"
+            };
+            for (int c = 0; c < lookups.length; c++) {
+                formulas.createCell(c).setCellFormula(lookups[c]);
+            }
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            // the last of equal values is found, text and blanks after the numbers are skipped
+            assertEquals("v2", fe.evaluate(formulas.getCell(0)).getStringValue());
+            assertEquals("v2", fe.evaluate(formulas.getCell(1)).getStringValue());
+            assertError(FormulaError.NA, fe.evaluate(formulas.getCell(2)));
+            assertEquals("v4", fe.evaluate(formulas.getCell(3)).getStringValue());
+            assertEquals("v3", fe.evaluate(formulas.getCell(4)).getStringValue());
+            // unsorted values are searched like before
+            assertEquals(3, fe.evaluate(formulas.getCell(5)).getNumberValue(), 0.0);
+            // MATCH finds the same values in unsorted ranges as when comparing each value
+            assertEquals(5, fe.evaluate(formulas.getCell(6)).getNumberValue(), 0.0);
+            assertError(FormulaError.NA, fe.evaluate(formulas.getCell(7)));
+            assertError(FormulaError.NA, fe.evaluate(formulas.getCell(8)));
+            assertEquals(2, fe.evaluate(formulas.getCell(9)).getNumberValue(), 0.0);
+            assertEquals(4, fe.evaluate(formulas.getCell(10)).getNumberValue(), 0.0);
+            assertEquals(7, fe.evaluate(formulas.getCell(11)).getNumberValue(), 0.0);
+            assertEquals(3, fe.evaluate(formulas.getCell(12)).getNumberValue(), 0.0);
+
+            Cell changed = sheet.getRow(2).getCell(0);
+            changed.setCellValue(25);
+            fe.notifyUpdateCell(changed);
+            assertEquals("v2", fe.evaluate(formulas.getCell(0)).getStringValue());
+            assertEquals("v1", fe.evaluate(formulas.getCell(1)).getStringValue());
+        }
+    }
+
+    private static void setValue(Cell cell, Object value) {
+        if (value instanceof Integer) {
+            cell.setCellValue((Integer) value);
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value != null) {
+            cell.setCellValue((String) value);
+        }
+    }
+
+    private static void assertError(FormulaError expected, CellValue value) {
+        assertEquals(expected.getCode(), value.getErrorValue());
+    }
+}
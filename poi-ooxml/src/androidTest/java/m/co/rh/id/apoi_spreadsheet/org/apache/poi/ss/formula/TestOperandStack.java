@@ -0,0 +1,100 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.EmptyStackException;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BoolEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests the operand stack shared by nested formula evaluations and the operators evaluated on numbers directly
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestOperandStack {
+
+    @Test
+    public void framesHideEnclosingOperands() {
+        OperandStack stack = new OperandStack();
+        stack.push(BoolEval.TRUE);
+        int base = stack.enterFrame();
+        assertTrue(stack.isEmpty());
+        assertThrows(EmptyStackException.class, stack::pop);
+        stack.push(NumberEval.ZERO);
+        stack.push(BoolEval.FALSE);
+        assertSame(NumberEval.ZERO, stack.peek(1));
+        stack.exitFrame(base);
+        assertEquals(1, stack.size());
+        assertSame(BoolEval.TRUE, stack.pop());
+    }
+
+    @Test
+    public void numberEvalCache() {
+        assertSame(NumberEval.ZERO, NumberEval.valueOf(0));
+        assertSame(NumberEval.valueOf(42), NumberEval.valueOf(42.0));
+        assertNotSame(NumberEval.valueOf(0.5), NumberEval.valueOf(0.5));
+        assertNotSame(NumberEval.ZERO, NumberEval.valueOf(-0.0));
+        assertEquals(-0.0, NumberEval.valueOf(-0.0).getNumberValue(), 0.0);
+    }
+
+    @Test
+    public void evaluateOperatorsOnNumbers() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(3);
+            row.createCell(1).setCellFormula("A1*2+1");
+            row.createCell(2).setCellFormula("(B1-A1)/(A1-3)");
+            row.createCell(3).setCellFormula("IF(B1>A1,B1^2,0)");
+            row.createCell(4).setCellFormula("-A1*0");
+            row.createCell(5).setCellFormula("A1<>B1");
+            row.createCell(6).setCellFormula("(-8)^(1/3)");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(7, fe.evaluate(row.getCell(1)).getNumberValue(), 0.0);
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(row.getCell(2)).getErrorValue());
+            assertEquals(49, fe.evaluate(row.getCell(3)).getNumberValue(), 0.0);
+            // Excel converts -0.0 to 0.0
+            assertEquals(0.0, fe.evaluate(row.getCell(4)).getNumberValue(), 0.0);
+            assertTrue(fe.evaluate(row.getCell(5)).getBooleanValue());
+            assertEquals(-2, fe.evaluate(row.getCell(6)).getNumberValue(), 1e-12);
+
+            Cell input = row.getCell(0);
+            input.setCellValue(4);
+            fe.notifyUpdateCell(input);
+            assertEquals(81, fe.evaluate(row.getCell(3)).getNumberValue(), 0.0);
+            assertEquals(5.0 / 1, fe.evaluate(row.getCell(2)).getNumberValue(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestParallelFormulaEvaluation {
+
+    @Test
+    public void formulasAreGroupedByTheAreasTheyReferTo() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            int rows = 200;
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                int n = r + 1;
+                row.createCell(0).setCellValue(n);
+                // running totals over formulas join the whole columns B and C
+                row.createCell(1).setCellFormula("A" + n + "*2");
+                row.createCell(2).setCellFormula("SUM(B$1:B" + n + ")");
+                // pairs of formulas
+                row.createCell(4).setCellFormula("A" + n + "+1");
+                row.createCell(5).setCellFormula("E" + n + "*3");
+                // single formulas, joined by a whole column reference in the last row
+                row.createCell(6).setCellFormula("A" + n + "-1");
+            }
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(1 + rows + rows, ParallelFormulaEvaluation.countGroups(wb, fe));
+
+            sheet.getRow(rows - 1).createCell(7).setCellFormula("SUM(G:G)");
+            assertEquals(1 + rows + 1, ParallelFormulaEvaluation.countGroups(wb, fe));
+
+            // the running totals still evaluate like the serial path
+            fe.setParallelism(4);
+            fe.evaluateAll();
+            assertEquals(rows * (rows + 1), sheet.getRow(rows - 1).getCell(2).getNumericCellValue(), 0.0);
+            assertEquals(rows * (rows + 1) / 2 - rows, sheet.getRow(rows - 1).getCell(7).getNumericCellValue(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Tests {@link BaseFormulaEvaluator#recalculateDirty(java.util.Collection)}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestRecalculateDirty {
+
+    @Test
+    public void recalculatesDependentsOnly() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("Data");
+            XSSFSheet other = wb.createSheet("Other");
+            Row row = sheet.createRow(0);
+            Cell input = row.createCell(0);
+            input.setCellValue(1);
+            Cell doubled = row.createCell(1);
+            doubled.setCellFormula("A1*2");
+            Cell sum = row.createCell(2);
+            sum.setCellFormula("SUM(B1:B3)");
+            Cell unrelated = row.createCell(3);
+            unrelated.setCellFormula("E1+1");
+            row.createCell(4).setCellValue(5);
+            Cell crossSheet = other.createRow(0).createCell(0);
+            crossSheet.setCellFormula("Data!C1*10");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.evaluateAll();
+            assertEquals(20, crossSheet.getNumericCellValue(), 0.0);
+
+            input.setCellValue(3);
+            List<Cell> recalculated = fe.recalculateDirty(Collections.singletonList(input));
+            assertEquals(Arrays.asList(doubled, sum, crossSheet), recalculated);
+            assertEquals(6, doubled.getNumericCellValue(), 0.0);
+            assertEquals(6, sum.getNumericCellValue(), 0.0);
+            assertEquals(60, crossSheet.getNumericCellValue(), 0.0);
+            assertEquals(6, unrelated.getNumericCellValue(), 0.0);
+
+            // a changed formula is recalculated and its new precedents are indexed
+            unrelated.setCellFormula("A1+B1");
+            assertEquals(Collections.singletonList(unrelated),
+                    fe.recalculateDirty(Collections.singletonList(unrelated)));
+            assertEquals(9, unrelated.getNumericCellValue(), 0.0);
+
+            Cell added = sheet.createRow(2).createCell(1);
+            added.setCellValue(100);
+            recalculated = fe.recalculateDirty(Collections.singletonList(added));
+            assertEquals(Arrays.asList(sum, crossSheet), recalculated);
+            assertEquals(1060, crossSheet.getNumericCellValue(), 0.0);
+
+            input.setCellValue(4);
+            recalculated = fe.recalculateDirty(Collections.singletonList(input));
+            assertEquals(4, recalculated.size());
+            assertTrue(recalculated.contains(unrelated));
+            assertEquals(12, unrelated.getNumericCellValue(), 0.0);
+            assertEquals(1080, crossSheet.getNumericCellValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void dynamicFormulasAreAlwaysRecalculated() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            Cell input = row.createCell(0);
+            input.setCellValue(1);
+            row.createCell(1).setCellValue(2);
+            Cell indirect = row.createCell(2);
+            indirect.setCellFormula("INDIRECT(\"B1\")");
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.evaluateAll();
+            assertEquals(2, indirect.getNumericCellValue(), 0.0);
+
+            row.getCell(1).setCellValue(7);
+            assertEquals(Collections.singletonList(indirect),
+                    fe.recalculateDirty(Collections.singletonList(row.getCell(1))));
+            assertEquals(7, indirect.getNumericCellValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void volatileFunctionsAndTheirDependentsAreAlwaysRecalculated() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            Cell input = row.createCell(0);
+            input.setCellValue(1);
+            row.createCell(1).setCellValue(2);
+            Cell offset = row.createCell(2);
+            offset.setCellFormula("OFFSET(A1,0,1)");
+            Cell offsetDependent = row.createCell(3);
+            offsetDependent.setCellFormula("C1*10");
+            // CELL is not evaluated, the formula is still volatile
+            Cell cell = row.createCell(4);
+            cell.setCellFormula("IF(FALSE,CELL(\"row\"),A1)");
+            Cell unrelated = row.createCell(5);
+            unrelated.setCellFormula("G1+1");
+            row.createCell(6).setCellValue(3);
+
+            XSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.evaluateAll();
+            assertEquals(20, offsetDependent.getNumericCellValue(), 0.0);
+
+            row.getCell(1).setCellValue(7);
+            assertEquals(Arrays.asList(offset, cell, offsetDependent),
+                    fe.recalculateDirty(Collections.singletonList(row.getCell(1))));
+            assertEquals(70, offsetDependent.getNumericCellValue(), 0.0);
+            assertEquals(1, cell.getNumericCellValue(), 0.0);
+            assertEquals(4, unrelated.getNumericCellValue(), 0.0);
+        }
+
+        for (String name : Arrays.asList("RAND", "NOW", "TODAY", "OFFSET", "INDIRECT", "CELL", "INFO")) {
+            assertTrue(name, FunctionMetadataRegistry.getFunctionByName(name).isVolatile());
+        }
+        assertFalse(FunctionMetadataRegistry.getFunctionByName("SUM").isVolatile());
+    }
+}
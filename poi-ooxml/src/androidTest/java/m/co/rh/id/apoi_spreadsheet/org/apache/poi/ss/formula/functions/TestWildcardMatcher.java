@@ -0,0 +1,81 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.StringEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.CountUtils.I_MatchPredicate;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestWildcardMatcher {
+
+    @Test
+    public void testMatches() {
+        assertNull(WildcardMatcher.compile("abc"));
+        assertNull(WildcardMatcher.compile("a~b"));
+
+        WildcardMatcher matcher = WildcardMatcher.compile("a*c");
+        assertTrue(matcher.matches("ABC"));
+        assertTrue(matcher.matches("ac"));
+        assertTrue(matcher.matches("a\nc"));
+        assertFalse(matcher.matches("abd"));
+        assertFalse(matcher.matches("xac"));
+
+        matcher = WildcardMatcher.compile("*a?b**c");
+        assertTrue(matcher.matches("xxaXbYbZc"));
+        assertTrue(matcher.matches("aab c"));
+        assertFalse(matcher.matches("abc"));
+
+        matcher = WildcardMatcher.compile("~*?");
+        assertTrue(matcher.matches("*x"));
+        assertFalse(matcher.matches("ax"));
+
+        // a single character outside of the basic plane
+        assertTrue(WildcardMatcher.compile("?").matches("😀"));
+        assertTrue(WildcardMatcher.compile("Ä*").matches("äpfel"));
+        assertTrue(WildcardMatcher.compile("*").matches(""));
+    }
+
+    @Test
+    public void testCompiledCriteriaAreShared() {
+        assertSame(WildcardMatcher.compile("x*"), WildcardMatcher.compile("x*"));
+
+        I_MatchPredicate mp = Countif.createCriteriaPredicate(new StringEval("<>app*"), 0, 0);
+        assertSame(mp, Countif.createCriteriaPredicate(new StringEval("<>app*"), 0, 0));
+        assertFalse(mp.matches(new StringEval("Apples")));
+        assertTrue(mp.matches(new StringEval("pears")));
+        assertTrue(mp.matches(BlankEval.instance));
+
+        mp = Countif.createCriteriaPredicate(new StringEval("=APPLES"), 0, 0);
+        assertNotNull(mp);
+        assertTrue(mp.matches(new StringEval("apples")));
+        assertFalse(mp.matches(new StringEval("apple")));
+        assertFalse(mp.matches(new NumberEval(1)));
+    }
+}
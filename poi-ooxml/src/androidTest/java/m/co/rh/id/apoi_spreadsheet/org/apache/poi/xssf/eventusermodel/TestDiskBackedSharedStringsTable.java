@@ -0,0 +1,103 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.POIDataSamples;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.PackagePart;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStrings;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestDiskBackedSharedStringsTable {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    public void testMatchesReadOnlyTable() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            List<PackagePart> parts = pkg.getPartsByName(Pattern.compile("/xl/sharedStrings.xml"));
+            assertEquals(1, parts.size());
+
+            ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(parts.get(0));
+            try (DiskBackedSharedStringsTable table = new DiskBackedSharedStringsTable(parts.get(0), true, 2)) {
+                assertEquals(expected.getCount(), table.getCount());
+                assertEquals(expected.getUniqueCount(), table.getUniqueCount());
+                assertEquals(expected.getUniqueCount(), table.size());
+                // twice to go through the cache
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int i = 0; i < expected.getUniqueCount(); i++) {
+                        assertEquals(expected.getItemAt(i).getString(), table.getItemAt(i).getString());
+                    }
+                }
+                assertThrows(IllegalStateException.class, () -> table.getItemAt(-1));
+                assertThrows(IllegalStateException.class, () -> table.getItemAt(expected.getUniqueCount()));
+
+                table.close();
+                assertThrows(IllegalStateException.class, () -> table.getItemAt(0));
+            }
+        }
+    }
+
+    @Test
+    public void testPhoneticRunsAndUnicode() throws Exception {
+        String sst = "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"4\" uniqueCount=\"4\">" +
+                "<si><t>plain</t></si>" +
+                "<si><t></t></si>" +
+                "<si><r><t>\u65E5\u672C</t></r><r><t>\uD83D\uDE1C</t></r><rPh sb=\"0\" eb=\"1\"><t>\u306B</t></rPh></si>" +
+                "<si><t xml:space=\"preserve\"> spaced </t></si>" +
+                "</sst>";
+        byte[] data = sst.getBytes(StandardCharsets.UTF_8);
+
+        try (DiskBackedSharedStringsTable table = new DiskBackedSharedStringsTable(
+                new ByteArrayInputStream(data), false, 0)) {
+            assertEquals(4, table.size());
+            assertEquals("plain", table.getItemAt(0).getString());
+            assertEquals("", table.getItemAt(1).getString());
+            assertEquals("\u65E5\u672C\uD83D\uDE1C", table.getItemAt(2).getString());
+            assertEquals(" spaced ", table.getItemAt(3).getString());
+        }
+        try (DiskBackedSharedStringsTable table = new DiskBackedSharedStringsTable(new ByteArrayInputStream(data))) {
+            ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(new ByteArrayInputStream(data));
+            assertEquals(expected.getItemAt(2).getString(), table.getItemAt(2).getString());
+            assertTrue(table.getItemAt(2).getString().endsWith("\u306B"));
+        }
+    }
+
+    @Test
+    public void testXSSFReader() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            reader.setUseDiskBackedSharedStringsTable(true);
+            assertTrue(reader.useDiskBackedSharedStringsTable());
+            SharedStrings strings = reader.getSharedStringsTable();
+            assertTrue(strings instanceof DiskBackedSharedStringsTable);
+            ((DiskBackedSharedStringsTable) strings).close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.POIDataSamples;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.DataFormatter;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.LocaleUtil;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public class TestXSSFSheetRowReader {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    public void testReadValues() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            XSSFCellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0%"));
+            Row row0 = sheet.createRow(0);
+            row0.createCell(0).setCellValue("shared");
+            row0.createCell(1).setCellValue(1.5);
+            row0.createCell(3).setCellValue(true);
+            Row row2 = sheet.createRow(2);
+            row2.createCell(0).setCellFormula("B1*2");
+            row2.createCell(1).setCellValue(0.25);
+            row2.getCell(1).setCellStyle(percent);
+            row2.createCell(27).setCellStyle(percent);
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            try (XSSFSheetRowReader rows = new XSSFSheetRowReader(reader.getSheetsData().next(),
+                    new ReadOnlySharedStringsTable(pkg), reader.getStylesTable())) {
+                DataFormatter formatter = new DataFormatter(LocaleUtil.getUserLocale());
+
+                assertTrue(rows.hasNext());
+                XSSFStreamingRow row = rows.next();
+                assertEquals(0, row.getRowNum());
+                assertEquals(3, row.getPhysicalNumberOfCells());
+                assertEquals(0, row.getFirstCellNum());
+                assertEquals(4, row.getLastCellNum());
+                assertEquals(CellType.STRING, row.getCell(0).getCellType());
+                assertEquals("shared", row.getCell(0).getStringCellValue());
+                assertEquals(1.5, row.getCell(1).getNumericCellValue(), 0.0);
+                assertNull(row.getCell(2));
+                assertTrue(row.getCell(3).getBooleanCellValue());
+                assertEquals("TRUE", row.getCell(3).getFormattedValue(formatter));
+                assertThrows(IllegalStateException.class, () -> row.getCell(0).getNumericCellValue());
+
+                XSSFStreamingRow row2 = rows.next();
+                assertEquals(2, row2.getRowNum());
+                XSSFStreamingCell formula = row2.getCell(0);
+                assertEquals(CellType.FORMULA, formula.getCellType());
+                assertEquals(CellType.NUMERIC, formula.getCachedFormulaResultType());
+                assertEquals("B1*2", formula.getCellFormula());
+                assertEquals(3.0, formula.getNumericCellValue(), 0.0);
+                assertEquals("25%", row2.getCell(1).getFormattedValue(formatter));
+                XSSFStreamingCell blank = row2.getCell(27);
+                assertEquals(CellType.BLANK, blank.getCellType());
+                assertEquals("AB3", blank.getAddress().formatAsString());
+                assertEquals("0%", blank.getCellStyle().getDataFormatString());
+
+                assertFalse(rows.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void testInlineString() throws Exception {
+        try (OPCPackage xlsxPackage = OPCPackage.open(_ssTests.openResourceAsStream("InlineString.xlsx"))) {
+            XSSFReader reader = new XSSFReader(xlsxPackage);
+            try (XSSFSheetRowReader rows = new XSSFSheetRowReader(reader.getSheetsData().next(),
+                    new ReadOnlySharedStringsTable(xlsxPackage), reader.getStylesTable())) {
+                List<String> values = rows.stream()
+                        .flatMap(row -> row.getCells().stream())
+                        .map(XSSFStreamingCell::getStringCellValue)
+                        .collect(Collectors.toList());
+                assertEquals(1, values.size());
+                assertEquals("\uD83D\uDE1Cmore text", values.get(0));
+            }
+        }
+    }
+
+    @Test
+    public void testStopEarly() throws Exception {
+        try (OPCPackage xlsxPackage = OPCPackage.open(_ssTests.openResourceAsStream("sample.xlsx"))) {
+            XSSFReader reader = new XSSFReader(xlsxPackage);
+            InputStream sheet = reader.getSheetsData().next();
+            XSSFSheetRowReader rows = new XSSFSheetRowReader(sheet, null, reader.getStylesTable());
+            try (Stream<XSSFStreamingRow> stream = rows.stream()) {
+                assertEquals(2, stream.limit(2).count());
+            }
+            // closed with the stream
+            assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    public void testParseColumn() {
+        assertEquals(0, XSSFSheetRowReader.parseColumn("A1"));
+        assertEquals(25, XSSFSheetRowReader.parseColumn("Z10"));
+        assertEquals(26, XSSFSheetRowReader.parseColumn("AA1"));
+        assertEquals(16383, XSSFSheetRowReader.parseColumn("XFD1048576"));
+    }
+}
@@ -0,0 +1,111 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellRangeAddress;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestDirectSXSSFWorkbook {
+
+    @Test
+    public void writeSheetsSequentially() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (DirectSXSSFWorkbook wb = new DirectSXSSFWorkbook(null, bos, 10, true)) {
+            for (int s = 0; s < 3; s++) {
+                DirectSXSSFSheet sheet = wb.createSheet("sheet" + s);
+                sheet.setColumnWidth(1, 20 * 256);
+                for (int r = 0; r < 100; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(s * 1000 + r);
+                    row.createCell(1).setCellValue("value " + r);
+                }
+                sheet.addMergedRegion(new CellRangeAddress(0, 0, 2, 3));
+                sheet.finish();
+                assertTrue(sheet.isStreamed());
+                assertNull(sheet.getSheetDataWriter().getTempFile());
+            }
+            // no rows flushed yet
+            wb.createSheet("last").createRow(0).createCell(0).setCellValue("last");
+            wb.createSheet("empty");
+
+            assertThrows(IllegalStateException.class, () -> wb.getSheetAt(0).createRow(200));
+            assertThrows(IllegalArgumentException.class,
+                    () -> wb.write(UnsynchronizedByteArrayOutputStream.builder().get()));
+            wb.write(bos);
+            assertTrue(wb.getSheet("last").isStreamed());
+            assertThrows(IllegalStateException.class, () -> wb.write(bos));
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertEquals(5, wb.getNumberOfSheets());
+            for (int s = 0; s < 3; s++) {
+                XSSFSheet sheet = wb.getSheetAt(s);
+                assertEquals("sheet" + s, sheet.getSheetName());
+                assertEquals(99, sheet.getLastRowNum());
+                for (int r = 0; r < 100; r++) {
+                    assertEquals(s * 1000 + r, sheet.getRow(r).getCell(0).getNumericCellValue(), 0.0);
+                    assertEquals("value " + r, sheet.getRow(r).getCell(1).getStringCellValue());
+                }
+                assertEquals(20 * 256, sheet.getColumnWidth(1));
+                assertEquals(1, sheet.getNumMergedRegions());
+            }
+            assertEquals("last", wb.getSheet("last").getRow(0).getCell(0).getStringCellValue());
+            assertEquals(-1, wb.getSheet("empty").getLastRowNum());
+        }
+    }
+
+    @Test
+    public void writeSheetsInterleaved() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (DirectSXSSFWorkbook wb = new DirectSXSSFWorkbook(bos, 1)) {
+            DirectSXSSFSheet first = wb.createSheet("first");
+            DirectSXSSFSheet second = wb.createSheet("second");
+            for (int r = 0; r < 50; r++) {
+                first.createRow(r).createCell(0).setCellValue("first " + r);
+                second.createRow(r).createCell(0).setCellValue("second " + r);
+            }
+            assertTrue(first.isStreamed());
+            assertFalse(second.isStreamed());
+            wb.write(bos);
+            assertTrue(wb.dispose());
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            for (int r = 0; r < 50; r++) {
+                assertEquals("first " + r, wb.getSheet("first").getRow(r).getCell(0).getStringCellValue());
+                assertEquals("second " + r, wb.getSheet("second").getRow(r).getCell(0).getStringCellValue());
+            }
+        }
+    }
+}
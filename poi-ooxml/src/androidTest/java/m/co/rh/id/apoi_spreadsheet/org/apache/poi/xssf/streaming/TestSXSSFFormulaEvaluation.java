@@ -22,7 +22,9 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,9 +35,13 @@ import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Name;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.SXSSFITestDataProvider;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming.SXSSFFormulaEvaluator.RowFlushedException;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming.SXSSFFormulaEvaluator.SheetsFlushedException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
@@ -205,6 +211,103 @@ public final class TestSXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         wb.close();
     }
 
+    @Test
+    public void testEvaluateOnFlush() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(3)) {
+            wb.setEvaluateFormulasOnFlush(true);
+            wb.setFlushedValueCache(new FlushedValueCache(5));
+            SXSSFSheet s = wb.createSheet();
+            for (int i = 0; i < 20; i++) {
+                SXSSFRow row = s.createRow(i);
+                int r = i + 1;
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellFormula(i == 0 ? "A1" : "B" + i + "+A" + r);
+                row.createCell(2).setCellFormula("A" + r + ">10");
+                row.createCell(3).setCellFormula(i < 10 ? "A" + r : "A" + (r - 10));
+                row.createCell(4).setCellFormula("\"n\"&A" + r);
+            }
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            Sheet s = wb.getSheetAt(0);
+            assertEquals(210, s.getRow(19).getCell(1).getNumericCellValue(), 0.0);
+            assertFalse(s.getRow(9).getCell(2).getBooleanCellValue());
+            assertTrue(s.getRow(19).getCell(2).getBooleanCellValue());
+            assertEquals(5, s.getRow(4).getCell(3).getNumericCellValue(), 0.0);
+            // A10 is no longer kept when row 20 is flushed, the formula has no computed value
+            assertEquals(0, s.getRow(19).getCell(3).getNumericCellValue(), 0.0);
+            assertEquals("n20", s.getRow(19).getCell(4).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void testFlushedValueCacheSetAfterFlush() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(2)) {
+            wb.setEvaluateFormulasOnFlush(true);
+            SXSSFSheet s = wb.createSheet();
+            for (int i = 0; i < 10; i++) {
+                if (i == 5) {
+                    // rows 1 to 3 are flushed already
+                    wb.setFlushedValueCache(new FlushedValueCache());
+                }
+                s.createRow(i).createCell(0).setCellValue(i + 1);
+            }
+            SXSSFRow last = s.getRow(9);
+            last.createCell(1).setCellFormula("A2+1");
+            last.createCell(2).setCellFormula("A6+1");
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            Sheet s = wb.getSheetAt(0);
+            // A2 was flushed before the cache was set, it must not be read as blank
+            assertEquals(0, s.getRow(9).getCell(1).getNumericCellValue(), 0.0);
+            assertEquals(7, s.getRow(9).getCell(2).getNumericCellValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testEvaluateOnFlushSkipsRowsNotCreated() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(2)) {
+            wb.setEvaluateFormulasOnFlush(true);
+            SXSSFSheet s = wb.createSheet("Data");
+            Name later = wb.createName();
+            later.setNameName("Later");
+            later.setRefersToFormula("Data!$A$2:$A$10");
+
+            // totals in the header over the rows which come later
+            SXSSFRow header = s.createRow(0);
+            header.createCell(0).setCellFormula("SUM(A2:A10)");
+            header.createCell(1).setCellFormula("SUM(A:A)");
+            header.createCell(2).setCellFormula("SUM(Later)");
+            header.createCell(3).setCellFormula("SUM(Data!A2:A10)");
+            for (int i = 1; i < 10; i++) {
+                SXSSFRow row = s.createRow(i);
+                row.createCell(0).setCellValue(1);
+                row.createCell(1).setCellFormula("A" + (i + 1) + "+A" + (i + 2));
+            }
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet s = wb.getSheetAt(0);
+            // written without a computed value, instead of totals of the rows created so far
+            for (int i = 0; i < 4; i++) {
+                assertEquals(0, s.getRow(0).getCell(i).getNumericCellValue(), 0.0);
+            }
+            // formulas over rows created before the flush are still evaluated
+            assertEquals(2, s.getRow(1).getCell(1).getNumericCellValue(), 0.0);
+            assertEquals(2, s.getRow(8).getCell(1).getNumericCellValue(), 0.0);
+
+            XSSFFormulaEvaluator.evaluateAllFormulaCells(wb);
+            assertEquals(9, s.getRow(0).getCell(0).getNumericCellValue(), 0.0);
+        }
+    }
+
     @Ignore(
             "This test is disabled because it fails for SXSSF because " +
                     "handling of errors in formulas is slightly different than in XSSF, " +
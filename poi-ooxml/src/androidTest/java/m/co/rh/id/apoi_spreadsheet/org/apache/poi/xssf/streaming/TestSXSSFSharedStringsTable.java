@@ -0,0 +1,173 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Font;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStringsTable;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFont;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestSXSSFSharedStringsTable {
+    private static final String[] VALUES = {
+            "plain", "", " leading", "trailing\t", "<a & \"b\">", "line\nbreak\r",
+            "\u00A0nbsp", "\u65E5\u672C\uD83D\uDE1C", "ctrl\u0001char", "x_x0041_x"
+    };
+
+    @Test
+    public void testDeduplicate() throws Exception {
+        try (SXSSFSharedStringsTable sst = new SXSSFSharedStringsTable()) {
+            assertEquals(0, sst.addSharedString("a"));
+            assertEquals(1, sst.addSharedStringItem(new XSSFRichTextString("b")));
+            assertEquals(0, sst.addSharedStringItem(new XSSFRichTextString("a")));
+            assertEquals(1, sst.addSharedString("b"));
+
+            XSSFRichTextString rich = new XSSFRichTextString("a");
+            rich.applyFont(0, 1, new XSSFFont());
+            assertEquals(2, sst.addSharedStringItem(rich));
+
+            assertEquals(5, sst.getCount());
+            assertEquals(3, sst.getUniqueCount());
+            assertEquals("a", sst.getItemAt(2).getString());
+            assertEquals(1, sst.getItemAt(2).numFormattingRuns());
+        }
+    }
+
+    @Test
+    public void testSpillToDisk() throws Exception {
+        // every string goes to disk right away
+        try (SXSSFSharedStringsTable sst = new SXSSFSharedStringsTable(1)) {
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i, sst.addSharedString("value " + i));
+            }
+            for (int i = 4999; i >= 0; i -= 7) {
+                assertEquals(i, sst.addSharedString("value " + i));
+                assertEquals("value " + i, sst.getItemAt(i).getString());
+            }
+            assertEquals(5000, sst.getUniqueCount());
+
+            SharedStringsTable parsed = roundTrip(sst);
+            assertEquals(sst.getCount(), parsed.getCount());
+            assertEquals(5000, parsed.getUniqueCount());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals("value " + i, parsed.getItemAt(i).getString());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteMatchesSharedStringsTable() throws Exception {
+        for (int threshold : new int[]{SXSSFSharedStringsTable.DEFAULT_SPILL_THRESHOLD, 8}) {
+            try (SXSSFSharedStringsTable sst = new SXSSFSharedStringsTable(threshold);
+                 SharedStringsTable expected = new SharedStringsTable()) {
+                for (String value : VALUES) {
+                    assertEquals(expected.addSharedStringItem(new XSSFRichTextString(value)),
+                            sst.addSharedStringItem(new XSSFRichTextString(value)));
+                }
+                XSSFRichTextString rich = new XSSFRichTextString(" rich text ");
+                rich.applyFont(1, 5, new XSSFFont());
+                assertEquals(expected.addSharedStringItem(rich), sst.addSharedStringItem(rich));
+
+                SharedStringsTable parsed = roundTrip(sst);
+                assertEquals(expected.getUniqueCount(), parsed.getUniqueCount());
+                for (int i = 0; i < expected.getUniqueCount(); i++) {
+                    String value = expected.getItemAt(i).getString().replace('\u0001', '?');
+                    assertEquals(value, parsed.getItemAt(i).getString());
+                }
+                assertEquals(" rich text ", parsed.getItemAt(VALUES.length).getString());
+                assertEquals(expected.getItemAt(VALUES.length).numFormattingRuns(),
+                        parsed.getItemAt(VALUES.length).numFormattingRuns());
+            }
+        }
+    }
+
+    @Test
+    public void testImportKeepsIndexes() throws Exception {
+        try (SharedStringsTable source = new SharedStringsTable();
+             SXSSFSharedStringsTable sst = new SXSSFSharedStringsTable()) {
+            source.addSharedStringItem(new XSSFRichTextString("first"));
+            source.addSharedStringItem(new XSSFRichTextString("second"));
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            source.writeTo(bos);
+            sst.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+
+            assertEquals(1, sst.addSharedString("second"));
+            assertEquals(2, sst.addSharedString("third"));
+            assertEquals("first", sst.getItemAt(0).getString());
+            assertEquals(3, sst.getUniqueCount());
+        }
+    }
+
+    @Test
+    public void testSXSSFWorkbook() throws Exception {
+        byte[] data;
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 2, false, true)) {
+            assertTrue(wb.getXSSFWorkbook().getSharedStringSource() instanceof SXSSFSharedStringsTable);
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < 10; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(VALUES[r % VALUES.length]);
+                row.createCell(1).setCellValue("same");
+            }
+            XSSFRichTextString rich = new XSSFRichTextString("rich");
+            Font font = wb.createFont();
+            font.setBold(true);
+            rich.applyFont(0, 2, font);
+            sheet.createRow(10).createCell(0).setCellValue(rich);
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            wb.write(bos);
+            data = bos.toByteArray();
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(data))) {
+            Sheet sheet = wb.getSheetAt(0);
+            for (int r = 0; r < 10; r++) {
+                // _xHHHH_ escapes are decoded when reading
+                String value = new XSSFRichTextString(VALUES[r % VALUES.length]).getString().replace('\u0001', '?');
+                assertEquals(value, sheet.getRow(r).getCell(0).getStringCellValue());
+                assertEquals("same", sheet.getRow(r).getCell(1).getStringCellValue());
+            }
+            assertEquals(2, sheet.getRow(10).getCell(0).getRichStringCellValue().numFormattingRuns());
+            assertNotEquals(0, wb.getSharedStringSource().getCount());
+            assertEquals(VALUES.length + 2, wb.getSharedStringSource().getUniqueCount());
+        }
+    }
+
+    private static SharedStringsTable roundTrip(SharedStringsTable sst) throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        sst.writeTo(bos);
+        SharedStringsTable parsed = new SharedStringsTable();
+        parsed.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+        return parsed;
+    }
+}
@@ -30,6 +30,7 @@ import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.POITestCase.assertStart
 
 import android.graphics.Color;
 
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.junit.After;
@@ -37,6 +38,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -743,4 +745,52 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
             }
         }
     }
+
+    @Test
+    public void writeInParallel() throws IOException {
+        for (Zip64Mode mode : new Zip64Mode[]{Zip64Mode.Always, Zip64Mode.AsNeeded}) {
+            byte[] serial = writeSheets(1, mode);
+            byte[] parallel = writeSheets(4, mode);
+
+            try (XSSFWorkbook expected = new XSSFWorkbook(new ByteArrayInputStream(serial));
+                 XSSFWorkbook actual = new XSSFWorkbook(new ByteArrayInputStream(parallel))) {
+                assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+                for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+                    Sheet expectedSheet = expected.getSheetAt(s);
+                    Sheet actualSheet = actual.getSheetAt(s);
+                    assertEquals(expectedSheet.getSheetName(), actualSheet.getSheetName());
+                    assertEquals(expectedSheet.getLastRowNum(), actualSheet.getLastRowNum());
+                    for (Row row : expectedSheet) {
+                        Row actualRow = actualSheet.getRow(row.getRowNum());
+                        assertEquals(row.getCell(0).getStringCellValue(), actualRow.getCell(0).getStringCellValue());
+                        assertEquals(row.getCell(1).getNumericCellValue(), actualRow.getCell(1).getNumericCellValue(), 0.0);
+                    }
+                }
+            }
+        }
+
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            assertEquals(1, wb.getParallelism());
+            assertThrows(IllegalArgumentException.class, () -> wb.setParallelism(0));
+        }
+    }
+
+    private static byte[] writeSheets(int parallelism, Zip64Mode mode) throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(10)) {
+            wb.setParallelism(parallelism);
+            wb.setZip64Mode(mode);
+            for (int s = 0; s < 6; s++) {
+                Sheet sheet = wb.createSheet("Sheet " + s);
+                for (int r = 0; r < 200 * (s + 1); r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("sheet " + s + " row " + r);
+                    row.createCell(1).setCellValue(r * 0.5);
+                }
+            }
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            wb.write(bos);
+            assertTrue(wb.dispose());
+            return bos.toByteArray();
+        }
+    }
 }
@@ -19,6 +19,7 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -26,12 +27,19 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellStyle;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
 
 @RunWith(POIJUnit4ClassRunner.class)
@@ -88,4 +96,66 @@ public final class TestSheetDataWriter {
             IOUtils.closeQuietly(writer);
         }
     }
+
+    @Test
+    public void testWriteRow() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            SXSSFSheet sheet = wb.createSheet();
+            CellStyle style = wb.createCellStyle();
+            SXSSFRow row = sheet.createRow(41);
+            row.createCell(0).setCellValue(12.0);
+            row.createCell(1).setCellValue(-3.0);
+            row.createCell(2).setCellValue(-0.0);
+            row.createCell(3).setCellValue(0.1);
+            row.createCell(4).setCellValue(1.0E7);
+            row.createCell(5).setCellValue(" a<b> & \"c\"\t");
+            row.createCell(26).setCellValue(true);
+            row.createCell(701).setCellErrorValue(FormulaError.DIV0.getCode());
+            row.createCell(702).setCellStyle(style);
+            row.createCell(16383).setCellFormula("A42+1");
+
+            StringWriter out = new StringWriter();
+            SheetDataWriter writer = new SheetDataWriter(out);
+            writer.writeRow(41, row);
+            writer.flush();
+
+            String s = style.getIndex() + "";
+            assertEquals("<row r=\"42\">\n"
+                    + "<c r=\"A42\" t=\"n\"><v>12.0</v></c>"
+                    + "<c r=\"B42\" t=\"n\"><v>-3.0</v></c>"
+                    + "<c r=\"C42\" t=\"n\"><v>-0.0</v></c>"
+                    + "<c r=\"D42\" t=\"n\"><v>0.1</v></c>"
+                    + "<c r=\"E42\" t=\"n\"><v>1.0E7</v></c>"
+                    + "<c r=\"F42\" t=\"inlineStr\"><is><t xml:space=\"preserve\"> a&lt;b&gt; &amp; &quot;c&quot;&#x9;</t></is></c>"
+                    + "<c r=\"AA42\" t=\"b\"><v>1</v></c>"
+                    + "<c r=\"ZZ42\" t=\"e\"><v>#DIV/0!</v></c>"
+                    + "<c r=\"AAA42\" s=\"" + s + "\"></c>"
+                    + "<c r=\"" + new CellReference(41, 16383).formatAsString() + "\" t=\"n\"><f>A42+1</f><v>0.0</v></c>"
+                    + "</row>\n", out.toString());
+        }
+    }
+
+    @Test
+    public void testUtf8WriterMatchesOutputStreamWriter() throws IOException {
+        String[] values = {
+                "plain ascii", "caf\u00e9 \u00A0\u20AC", unicodeSurrogates,
+                "lone \uD835 high", "lone \uDF4A low", "\uD835\uD835\uDF4A", "end \uD835"
+        };
+        for (String value : values) {
+            for (int split = 0; split <= value.length(); split++) {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                try (Writer w = new OutputStreamWriter(expected, StandardCharsets.UTF_8)) {
+                    w.write(value, 0, split);
+                    w.write(value.substring(split).toCharArray());
+                }
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                // small buffer to exercise flushing in the middle of multi byte chars
+                try (Writer w = new Utf8Writer(actual, 5)) {
+                    w.write(value, 0, split);
+                    w.write(value.substring(split).toCharArray());
+                }
+                assertArrayEquals(value, expected.toByteArray(), actual.toByteArray());
+            }
+        }
+    }
 }
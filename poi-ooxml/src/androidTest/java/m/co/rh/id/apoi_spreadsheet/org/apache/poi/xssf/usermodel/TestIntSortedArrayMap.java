@@ -0,0 +1,138 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestIntSortedArrayMap {
+
+    @Test
+    public void testAppendAndGet() {
+        IntSortedArrayMap<String> map = new IntSortedArrayMap<>();
+        assertTrue(map.isEmpty());
+        assertThrows(NoSuchElementException.class, map::firstKey);
+        for (int i = 0; i < 1000; i += 2) {
+            assertNull(map.put(i, "v" + i));
+        }
+        assertEquals(500, map.size());
+        assertEquals(0, map.firstKey());
+        assertEquals(998, map.lastKey());
+        assertEquals("v10", map.get(10));
+        assertNull(map.get(11));
+        assertEquals(6, map.rank(11));
+        assertEquals(5, map.rank(10));
+        assertEquals("v10", map.put(10, "x"));
+        assertEquals("x", map.get(10));
+        assertEquals(500, map.size());
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        IntSortedArrayMap<Integer> map = new IntSortedArrayMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(1234);
+        for (int i = 0; i < 20_000; i++) {
+            // mostly local inserts and removes to move the gap around
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        List<Integer> values = new ArrayList<>(map.values());
+        assertEquals(new ArrayList<>(expected.values()), values);
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getKey().intValue(), map.keyAt(index));
+            assertEquals(entry.getValue(), map.valueAt(index));
+            assertEquals(expected.headMap(entry.getKey()).size(), map.rank(entry.getKey()));
+            index++;
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        IntSortedArrayMap<String> map = new IntSortedArrayMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, "v" + i);
+        }
+        for (Iterator<String> it = map.values().iterator(); it.hasNext(); ) {
+            String value = it.next();
+            if (Integer.parseInt(value.substring(1)) % 3 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(6, map.size());
+        assertFalse(map.containsKey(3));
+        assertTrue(map.containsKey(4));
+        assertEquals(1, map.firstKey());
+        assertEquals(8, map.lastKey());
+    }
+
+    @Test
+    public void testIteratorFailFast() {
+        IntSortedArrayMap<String> map = new IntSortedArrayMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        Iterator<String> it = map.values().iterator();
+        it.next();
+        map.put(3, "c");
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    public void testSpliteratorIsOrdered() throws Exception {
+        IntSortedArrayMap<String> map = new IntSortedArrayMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, "v" + i);
+        }
+        Spliterator<String> spliterator = map.values().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(10, spliterator.getExactSizeIfKnown());
+
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            sheet.createRow(1).createCell(1);
+            assertTrue(sheet.spliterator().hasCharacteristics(Spliterator.ORDERED));
+            assertTrue(sheet.getRow(1).spliterator().hasCharacteristics(Spliterator.ORDERED));
+        }
+    }
+}
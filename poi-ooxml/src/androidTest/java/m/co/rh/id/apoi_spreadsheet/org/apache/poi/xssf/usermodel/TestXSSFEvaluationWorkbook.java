@@ -18,14 +18,21 @@
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
 
 import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.FormulaRenderer;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ptg;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellRangeAddress;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.XSSFTestDataSamples;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -80,4 +87,52 @@ public class TestXSSFEvaluationWorkbook {
         assertEquals("3",cellC3.getStringCellValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testFormulaTokensAreCached() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue(2);
+            XSSFCell cell = row.createCell(1);
+            cell.setCellFormula("A1*3");
+
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            XSSFEvaluationCell evalCell = new XSSFEvaluationCell(cell);
+            Ptg[] ptgs = fpb.getFormulaTokens(evalCell);
+            assertSame(ptgs, fpb.getFormulaTokens(evalCell));
+            assertEquals(1, wb.getFormulaTokenCache().size());
+
+            FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(6, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // setting the formula must drop the cached tokens
+            cell.setCellFormula("A1*4");
+            assertNotSame(ptgs, fpb.getFormulaTokens(evalCell));
+            evaluator.clearAllCachedResultValues();
+            assertEquals(8, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // shifting rows rewrites formula text
+            sheet.shiftRows(0, 0, 1);
+            assertEquals(0, wb.getFormulaTokenCache().size());
+            evaluator.clearAllCachedResultValues();
+            assertEquals(8, evaluator.evaluate(sheet.getRow(1).getCell(1)).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    public void testSharedFormulaTokens() throws IOException {
+        // B3 is the master of a shared formula B1+B2 over B3:D3
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("49872.xlsx")) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            XSSFRow row = sheet.getRow(2);
+            for (int i = 1; i <= 3; i++) {
+                XSSFCell cell = row.getCell(i);
+                Ptg[] cached = fpb.getFormulaTokens(new XSSFEvaluationCell(cell));
+                assertEquals(cell.getCellFormula(), FormulaRenderer.toFormulaString(fpb, cached));
+            }
+            // shared formula cells are relocated from one token array of the group
+            assertEquals(0, wb.getFormulaTokenCache().size());
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.junit.Ignore;
@@ -36,6 +37,7 @@ import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.hssf.HSSFTestDataSamples;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellValue;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
@@ -489,4 +491,76 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
             assertEquals("Male", value.getStringValue());
         }
     }
+
+    @Test
+    public void testParallelEvaluateAll() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            for (int s = 0; s < 4; s++) {
+                XSSFSheet sheet = wb.createSheet("S" + s);
+                for (int r = 0; r < 50; r++) {
+                    XSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r + s);
+                    row.createCell(1).setCellFormula("A" + (r + 1) + "*2");
+                    row.createCell(2).setCellFormula("SUM(B$1:B" + (r + 1) + ")");
+                    row.createCell(3).setCellFormula("IF(C" + (r + 1) + ">100,\"big\",\"small\")");
+                }
+            }
+            // cross-sheet and dynamic references
+            wb.getSheet("S3").getRow(0).createCell(4).setCellFormula("S0!C50+S1!C50");
+            wb.getSheet("S2").getRow(0).createCell(4).setCellFormula("INDIRECT(\"S1!B2\")");
+
+            XSSFFormulaEvaluator serial = wb.getCreationHelper().createFormulaEvaluator();
+            Map<String, CellValue> expected = new HashMap<>();
+            for (Sheet sheet : wb) {
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == CellType.FORMULA) {
+                            expected.put(new CellReference(cell).formatAsString(), serial.evaluate(cell));
+                        }
+                    }
+                }
+            }
+
+            XSSFFormulaEvaluator parallel = wb.getCreationHelper().createFormulaEvaluator();
+            parallel.setParallelism(4);
+            assertEquals(4, parallel.getParallelism());
+            parallel.evaluateAll();
+
+            int checked = 0;
+            for (Sheet sheet : wb) {
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == CellType.FORMULA) {
+                            CellValue cv = expected.get(new CellReference(cell).formatAsString());
+                            assertNotNull(cv);
+                            if (cv.getCellType() == CellType.NUMERIC) {
+                                assertEquals(cv.getNumberValue(), cell.getNumericCellValue(), 0);
+                            } else {
+                                assertEquals(cv.getStringValue(), cell.getStringCellValue());
+                            }
+                            checked++;
+                        }
+                    }
+                }
+            }
+            assertEquals(4 * 50 * 3 + 2, checked);
+            assertThrows(IllegalArgumentException.class, () -> parallel.setParallelism(0));
+        }
+    }
+
+    @Test
+    public void testParallelEvaluateAllIgnoresMissingWorkbooks() throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("52575_main.xlsx")) {
+            XSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            evaluator.setIgnoreMissingWorkbooks(true);
+            evaluator.setParallelism(2);
+            // the workers fall back to the cached values like the serial evaluation
+            evaluator.evaluateAll();
+
+            Sheet sheet = wb.getSheetAt(0);
+            assertEquals(10.0, sheet.getRow(0).getCell(0).getNumericCellValue(), 0.00001);
+            assertEquals("POI rocks!", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertTrue(sheet.getRow(2).getCell(0).getBooleanCellValue());
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import m.co.rh.id.apoi_spreadsheet.POIJUnit4ClassRunner;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLDocumentPart;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+
+/**
+ * Tests opening workbooks with a {@link XSSFSheetFilter}
+ */
+@RunWith(POIJUnit4ClassRunner.class)
+public final class TestXSSFSheetFilter {
+
+    @Test
+    public void sheetsAreParsedOnFirstAccess() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int s = 0; s < 3; s++) {
+                XSSFSheet sheet = wb.createSheet("Sheet" + s);
+                for (int r = 0; r < 10; r++) {
+                    sheet.createRow(r).createCell(0).setCellValue(s * 100 + r);
+                }
+            }
+            wb.getSheet("Sheet0").getRow(0).createCell(1).setCellFormula("SUM(Sheet2!A1:A10)");
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+
+        byte[] written;
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(data), XSSFSheetFilter.names("sheet0"))) {
+            assertEquals(3, wb.getNumberOfSheets());
+            assertEquals("Sheet1", wb.getSheetName(1));
+            assertFalse(getSheetPart(wb, "Sheet0").isDocumentReadDeferred());
+            assertTrue(getSheetPart(wb, "Sheet1").isDocumentReadDeferred());
+            assertTrue(getSheetPart(wb, "Sheet2").isDocumentReadDeferred());
+
+            // the formula reads the other sheet on demand
+            Cell formula = wb.getSheetAt(0).getRow(0).getCell(1);
+            assertEquals(2045, wb.getCreationHelper().createFormulaEvaluator().evaluate(formula).getNumberValue(), 0.0);
+            assertFalse(getSheetPart(wb, "Sheet2").isDocumentReadDeferred());
+            assertTrue(getSheetPart(wb, "Sheet1").isDocumentReadDeferred());
+            assertSame(getSheetPart(wb, "Sheet2"), wb.getSheet("Sheet2"));
+
+            wb.getSheetAt(0).getRow(1).getCell(0).setCellValue(42);
+            try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+                wb.write(bos);
+                written = bos.toByteArray();
+            }
+            assertTrue(getSheetPart(wb, "Sheet1").isDocumentReadDeferred());
+        }
+
+        // the sheet which was not accessed is written back unchanged
+        assertArrayEquals(readPart(data, "/xl/worksheets/sheet2.xml"), readPart(written, "/xl/worksheets/sheet2.xml"));
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(written), XSSFSheetFilter.indexes(1))) {
+            assertTrue(getSheetPart(wb, "Sheet0").isDocumentReadDeferred());
+            assertFalse(getSheetPart(wb, "Sheet1").isDocumentReadDeferred());
+            assertEquals(42, wb.getSheetAt(0).getRow(1).getCell(0).getNumericCellValue(), 0.0);
+            assertEquals(109, wb.getSheetAt(1).getRow(9).getCell(0).getNumericCellValue(), 0.0);
+            int count = 0;
+            for (Sheet sheet : wb) {
+                assertFalse(((XSSFSheet) sheet).isDocumentReadDeferred());
+                count++;
+            }
+            assertEquals(3, count);
+        }
+    }
+
+    /**
+     * @return the sheet without parsing it, unlike {@link XSSFWorkbook#getSheet(String)}
+     */
+    private static XSSFSheet getSheetPart(XSSFWorkbook wb, String name) {
+        for (POIXMLDocumentPart part : wb.getRelations()) {
+            if (part instanceof XSSFSheet && name.equals(((XSSFSheet) part).getSheetName())) {
+                return (XSSFSheet) part;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static byte[] readPart(byte[] data, String partName) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data));
+             InputStream is = pkg.getPart(PackagingURIHelper.createPartName(partName)).getInputStream()) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
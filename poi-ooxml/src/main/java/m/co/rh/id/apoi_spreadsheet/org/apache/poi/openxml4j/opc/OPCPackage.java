@@ -32,6 +32,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -294,7 +295,8 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
      * <p>
      * Note - uses quite a bit more memory than {@link #open(String)}, which
      * doesn't need to hold the whole zip file in memory, and can take advantage
-     * of native methods
+     * of native methods, unless the stream is spooled to a temp file, see
+     * {@link ZipPackage#setSpoolInputStreams(boolean)}
      *
      * @param in The InputStream to read the package from. The stream is closed.
      * @return A PackageBase object
@@ -315,12 +317,45 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
         return pack;
     }
 
+    /**
+     * Open a package from a channel, e.g. the decrypted view of an encrypted package, see
+     * {@link m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.Decryptor#getDataChannel}.
+     * <p>
+     * Like {@link #open(File)}, the zip central directory is read from the channel and
+     * the parts are only inflated when they are read, without loading the whole package.
+     *
+     * @param channel The channel to read the package from. The channel is closed with the package.
+     * @return A PackageBase object
+     * @throws InvalidFormatException Throws if the package is not valid.
+     * @throws IOException            If reading the channel fails
+     */
+    public static OPCPackage open(SeekableByteChannel channel) throws InvalidFormatException,
+            IOException {
+        OPCPackage pack;
+        try {
+            pack = new ZipPackage(channel, PackageAccess.READ_WRITE);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+        try {
+            if (pack.partList == null) {
+                pack.getParts();
+            }
+        } catch (InvalidFormatException | RuntimeException e) {
+            IOUtils.closeQuietly(pack);
+            throw e;
+        }
+        return pack;
+    }
+
     /**
      * Open a package.
      * <p>
      * Note - uses quite a bit more memory than {@link #open(String)}, which
      * doesn't need to hold the whole zip file in memory, and can take advantage
-     * of native methods
+     * of native methods, unless the stream is spooled to a temp file, see
+     * {@link ZipPackage#setSpoolInputStreams(boolean)}
      *
      * @param in          The InputStream to read the package from.
      * @param closeStream Whether to close the input stream.
@@ -30,6 +30,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -54,6 +56,7 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.internal.TempFil
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.internal.ZipContentTypeManager;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.internal.ZipHelper;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.internal.marshallers.ZipPartMarshaller;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.TempFileZipEntrySource;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipArchiveThresholdInputStream;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipEntrySource;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipFileZipEntrySource;
@@ -69,6 +72,7 @@ public final class ZipPackage extends OPCPackage {
     private static final String SETTINGS_XML = "settings.xml";
     private static boolean useTempFilePackageParts = false;
     private static boolean encryptTempFilePackageParts = false;
+    private static boolean spoolInputStreams = false;
 
     private static final String TAG = "ZipPackage";
 
@@ -92,6 +96,30 @@ public final class ZipPackage extends OPCPackage {
         encryptTempFilePackageParts = encryptTempFiles;
     }
 
+    /**
+     * Packages opened from an InputStream are read in one pass by default, inflating every part
+     * into memory (or into temp files, see {@link ZipInputStreamZipEntrySource#setThresholdBytesForTempFiles(int)}),
+     * whether it is used or not. When spooling, the stream is copied to a temp file instead, whose
+     * central directory is read like the one of a package opened from a file, and a part is only
+     * inflated when its data is read.
+     * <p>
+     * The spooled temp file holds the package as it was read, so streams are not spooled while
+     * {@link ZipInputStreamZipEntrySource#setEncryptTempFiles(boolean) temp files are encrypted}.
+     * </p>
+     *
+     * @param spool whether to copy packages opened from an InputStream to a temp file and inflate parts on demand
+     */
+    public static void setSpoolInputStreams(boolean spool) {
+        spoolInputStreams = spool;
+    }
+
+    /**
+     * @return whether packages opened from an InputStream are copied to a temp file and parts are inflated on demand
+     */
+    public static boolean spoolInputStreams() {
+        return spoolInputStreams;
+    }
+
     /**
      * @return whether package part data is stored in temp files to save memory
      */
@@ -132,6 +160,10 @@ public final class ZipPackage extends OPCPackage {
      */
     ZipPackage(InputStream in, PackageAccess access) throws IOException {
         super(access);
+        if (isSpoolingInputStreams()) {
+            this.zipArchive = openSpooledZipEntrySource(in, true);
+            return;
+        }
         try (ZipArchiveThresholdInputStream zis = ZipHelper.openZipStream(in)) {
             this.zipArchive = new ZipInputStreamZipEntrySource(zis);
         }
@@ -151,11 +183,37 @@ public final class ZipPackage extends OPCPackage {
      */
     ZipPackage(InputStream in, PackageAccess access, boolean closeStream) throws IOException {
         super(access);
+        if (isSpoolingInputStreams()) {
+            this.zipArchive = openSpooledZipEntrySource(in, closeStream);
+            return;
+        }
         try (ZipArchiveThresholdInputStream zis = ZipHelper.openZipStream(in, closeStream)) {
             this.zipArchive = new ZipInputStreamZipEntrySource(zis);
         }
     }
 
+    /**
+     * Constructor. Opens a Zip based Open XML document from a channel,
+     * which is closed with the package.
+     *
+     * @param channel the channel to read the document from, e.g. a decrypted view of an encrypted package
+     * @param access  The package access mode.
+     * @throws IOException if the channel cannot be read
+     */
+    ZipPackage(SeekableByteChannel channel, PackageAccess access) throws IOException {
+        super(access);
+        ZipEntrySource ze;
+        try {
+            ze = new ZipFileZipEntrySource(ZipHelper.openZipFile(channel)); // NOSONAR
+        } catch (IOException e) {
+            Log.w(TAG, "Error in zip channel - falling back to stream processing (i.e. ignoring zip central directory)");
+            try (ZipArchiveThresholdInputStream zis = ZipHelper.openZipStream(Channels.newInputStream(channel.position(0)))) {
+                ze = new ZipInputStreamZipEntrySource(zis);
+            }
+        }
+        this.zipArchive = ze;
+    }
+
     /**
      * Constructor. Opens a Zip based Open XML document from a file.
      *
@@ -193,6 +251,44 @@ public final class ZipPackage extends OPCPackage {
         this.zipArchive = ze;
     }
 
+    private static boolean isSpoolingInputStreams() {
+        return spoolInputStreams && !ZipInputStreamZipEntrySource.shouldEncryptTempFiles();
+    }
+
+    /**
+     * Copies the stream to a temp file and opens it with its central directory,
+     * so that the parts are only inflated when they are read
+     */
+    private static ZipEntrySource openSpooledZipEntrySource(InputStream in, boolean closeStream) throws IOException {
+        final File tempFile = TempFile.createTempFile("poi-package", ".zip");
+        boolean keepTempFile = false;
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                IOUtils.copy(in, out);
+            } finally {
+                if (closeStream) {
+                    in.close();
+                }
+            }
+
+            ZipSecureFile zipFile;
+            try {
+                zipFile = ZipHelper.openZipFile(tempFile); // NOSONAR
+            } catch (IOException e) {
+                Log.w(TAG, "Error in zip stream - falling back to stream processing (i.e. ignoring zip central directory)");
+                try (ZipArchiveThresholdInputStream zis = ZipHelper.openZipStream(Files.newInputStream(tempFile.toPath()))) {
+                    return new ZipInputStreamZipEntrySource(zis);
+                }
+            }
+            keepTempFile = true;
+            return new TempFileZipEntrySource(zipFile, tempFile);
+        } finally {
+            if (!keepTempFile && !tempFile.delete()) {
+                Log.w(TAG, String.format("%s can't be removed (or was already removed).", tempFile.getAbsolutePath()));
+            }
+        }
+    }
+
     private static ZipEntrySource openZipEntrySourceStream(File file) throws InvalidOperationException {
         final InputStream fis;
         // Acquire a resource that is needed to read the next level of openZipEntrySourceStream
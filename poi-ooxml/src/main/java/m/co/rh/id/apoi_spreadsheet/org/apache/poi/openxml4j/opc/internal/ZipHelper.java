@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
@@ -218,6 +220,23 @@ public final class ZipHelper {
         return new ZipSecureFile(file);
     }
 
+    /**
+     * Opens a channel as a secure zip file, e.g. a decrypted view of an encrypted package.
+     * The channel is closed with the zip file.
+     *
+     * @param channel the channel to read the archive from
+     * @return The zip archive freshly open.
+     * @throws IOException if the channel cannot be read, or its zip central directory is invalid
+     * @throws NotOfficeXmlFileException if the channel does not start with zip header signature
+     */
+    public static ZipSecureFile openZipFile(SeekableByteChannel channel) throws IOException, NotOfficeXmlFileException {
+        // Peek at the first few bytes to sanity check
+        verifyZipHeader(Channels.newInputStream(channel.position(0)));
+
+        channel.position(0);
+        return new ZipSecureFile(channel);
+    }
+
     /**
      * Retrieve and open as a secure zip file with the specified path.
      *
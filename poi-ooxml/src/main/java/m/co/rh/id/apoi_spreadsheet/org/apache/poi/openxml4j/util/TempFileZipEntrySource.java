@@ -0,0 +1,57 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * A ZipEntrySource of a zip stream which was copied to a temp file,
+ *  so that its central directory can be read and its entries are only
+ *  inflated when they are read, like those of a ZipFile.
+ * The temp file is deleted on close.
+ */
+public final class TempFileZipEntrySource extends ZipFileZipEntrySource {
+   private static final String TAG = "TempFileZipEntrySource";
+
+   private final File tempFile;
+
+   /**
+    * @param zipFile the zip file opened on the temp file
+    * @param tempFile the temp file, which is deleted on close
+    */
+   public TempFileZipEntrySource(ZipFile zipFile, File tempFile) {
+      super(zipFile);
+      this.tempFile = tempFile;
+   }
+
+   @Override
+   public void close() throws IOException {
+      boolean wasClosed = isClosed();
+      try {
+         super.close();
+      } finally {
+         if (!wasClosed && !tempFile.delete()) {
+            Log.w(TAG, String.format("%s can't be removed (or was already removed).", tempFile.getAbsolutePath()));
+         }
+      }
+   }
+}
@@ -24,6 +24,7 @@ import org.apache.commons.compress.archivers.zip.ZipFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Removal;
@@ -217,6 +218,15 @@ public class ZipSecureFile extends ZipFile {
         this.fileName = new File(name).getAbsolutePath();
     }
 
+    /**
+     * @param channel the channel to read the archive from, which is closed with the zip file
+     * @throws IOException if an error occurs while reading the channel.
+     */
+    public ZipSecureFile(SeekableByteChannel channel) throws IOException {
+        super(channel);
+        this.fileName = null;
+    }
+
     /**
      * Returns an input stream for reading the contents of the specified
      * zip file entry.
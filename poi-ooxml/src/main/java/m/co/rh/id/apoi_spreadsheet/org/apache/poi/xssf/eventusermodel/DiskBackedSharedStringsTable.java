@@ -0,0 +1,285 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.PackagePart;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.RichTextString;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRelation;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.SAXException;
+
+/**
+ * Variant of {@link ReadOnlySharedStringsTable} for workbooks with too many unique strings
+ * to keep them on the heap.
+ * <p>
+ * While the shared strings part is parsed, the strings are spooled as UTF-8 bytes into a
+ * temp file, together with a second temp file holding the start offset of every string.
+ * Both files are then memory-mapped, so the heap only holds a small LRU cache of decoded strings.
+ * </p>
+ * <p>
+ * Call {@link #close()} when done to delete the temp files.
+ * </p>
+ *
+ * @see XSSFReader#setUseDiskBackedSharedStringsTable(boolean)
+ */
+public class DiskBackedSharedStringsTable extends ReadOnlySharedStringsTable implements Closeable {
+    private static final String TAG = "DiskBackedSharedStrings";
+
+    /**
+     * Default number of decoded strings kept in memory
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    // a single mapping is limited to 2GB, the string data is mapped in segments of this size
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final int cacheSize;
+    private final LinkedHashMap<Integer, String> cache;
+
+    private File dataFile;
+    private File indexFile;
+    private OutputStream dataOut;
+    private DataOutputStream indexOut;
+    private long dataLength;
+    private int size;
+
+    private ByteBuffer[] dataSegments;
+    private ByteBuffer index;
+    private boolean closed;
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException  If reading the data from the package or writing the temp files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public DiskBackedSharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param pkg                 The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize           number of decoded strings kept in memory, 0 disables the cache
+     * @throws IOException  If reading the data from the package or writing the temp files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public DiskBackedSharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        ArrayList<PackagePart> parts =
+                pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        // Some workbooks have no shared strings table.
+        if (!parts.isEmpty()) {
+            try (InputStream stream = parts.get(0).getInputStream()) {
+                load(stream);
+            }
+        }
+    }
+
+    public DiskBackedSharedStringsTable(PackagePart part) throws IOException, SAXException {
+        this(part, true, DEFAULT_CACHE_SIZE);
+    }
+
+    public DiskBackedSharedStringsTable(PackagePart part, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        try (InputStream stream = part.getInputStream()) {
+            load(stream);
+        }
+    }
+
+    public DiskBackedSharedStringsTable(InputStream stream) throws IOException, SAXException {
+        this(stream, true, DEFAULT_CACHE_SIZE);
+    }
+
+    public DiskBackedSharedStringsTable(InputStream stream, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        load(stream);
+    }
+
+    private DiskBackedSharedStringsTable(boolean includePhoneticRuns, int cacheSize) {
+        super(includePhoneticRuns);
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > DiskBackedSharedStringsTable.this.cacheSize;
+            }
+        };
+    }
+
+    private void load(InputStream stream) throws IOException, SAXException {
+        try {
+            readFrom(stream);
+            mapFiles();
+        } catch (IOException | SAXException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void startStrings(int uniqueCount) {
+        if (dataOut != null || dataSegments != null) {
+            throw new IllegalStateException("Shared strings were already read");
+        }
+        try {
+            dataFile = TempFile.createTempFile("poi-sst-data", ".bin");
+            indexFile = TempFile.createTempFile("poi-sst-index", ".bin");
+            dataOut = new BufferedOutputStream(new FileOutputStream(dataFile), 64 * 1024);
+            indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 64 * 1024));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void addString(CharSequence string) {
+        byte[] bytes = string.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            indexOut.writeLong(dataLength);
+            dataOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        dataLength += bytes.length;
+        size++;
+    }
+
+    private void mapFiles() throws IOException {
+        if (dataOut == null) {
+            // empty part or no sst element
+            return;
+        }
+        // the end offset of the last string
+        indexOut.writeLong(dataLength);
+        indexOut.close();
+        dataOut.close();
+        indexOut = null;
+        dataOut = null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+             FileChannel channel = raf.getChannel()) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+             FileChannel channel = raf.getChannel()) {
+            int segments = (int) ((dataLength + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            dataSegments = new ByteBuffer[segments];
+            for (int i = 0; i < segments; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                dataSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(1L << SEGMENT_SHIFT, dataLength - start));
+            }
+        }
+    }
+
+    /**
+     * @return the number of strings read from the table
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized RichTextString getItemAt(int idx) {
+        if (closed || idx < 0 || idx >= size) {
+            throw new IllegalStateException("Cannot get item at " + idx + " with " + size + " strings"
+                    + (closed ? ", the table is closed" : ""));
+        }
+        String string = cacheSize == 0 ? null : cache.get(idx);
+        if (string == null) {
+            string = readString(idx);
+            if (cacheSize > 0) {
+                cache.put(idx, string);
+            }
+        }
+        return new XSSFRichTextString(string);
+    }
+
+    private String readString(int idx) {
+        long start = index.getLong(idx * 8);
+        int length = (int) (index.getLong((idx + 1) * 8) - start);
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        long position = start;
+        // a string may span two data segments
+        while (copied < length) {
+            ByteBuffer segment = dataSegments[(int) (position >>> SEGMENT_SHIFT)];
+            int offset = (int) (position & SEGMENT_MASK);
+            int count = Math.min(length - copied, segment.capacity() - offset);
+            segment.position(offset);
+            segment.get(bytes, copied, count);
+            copied += count;
+            position += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the temp files, the strings are not accessible afterwards
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOUtils.closeQuietly(dataOut);
+        IOUtils.closeQuietly(indexOut);
+        dataOut = null;
+        indexOut = null;
+        dataSegments = null;
+        index = null;
+        cache.clear();
+        deleteFile(dataFile);
+        deleteFile(indexFile);
+    }
+
+    private static void deleteFile(File file) {
+        if (file != null && !file.delete() && file.exists()) {
+            Log.w(TAG, "Failed to delete temp file " + file);
+        }
+    }
+}
@@ -101,6 +101,16 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
      */
     private List<String> strings;
 
+    /**
+     * For subclasses which store the strings themselves, the subclass calls
+     * {@link #readFrom(InputStream)} once it is initialized.
+     *
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     */
+    protected ReadOnlySharedStringsTable(boolean includePhoneticRuns) {
+        this.includePhoneticRuns = includePhoneticRuns;
+    }
+
     /**
      * Calls {{@link #ReadOnlySharedStringsTable(OPCPackage, boolean)}} with
      * a value of <code>true</code> for including phonetic runs
@@ -230,6 +240,26 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         return new XSSFRichTextString(strings.get(idx));
     }
 
+    /**
+     * Called when the {@code sst} element starts, before any string is added
+     *
+     * @param uniqueCount the unique count declared by the table, may be 0 if it is missing
+     */
+    protected void startStrings(int uniqueCount) {
+        this.strings = new ArrayList<>(uniqueCount);
+    }
+
+    /**
+     * Called for every {@code si} element in document order
+     *
+     * @param string the text of the item, only valid during this call
+     */
+    protected void addString(CharSequence string) {
+        if (strings != null) {
+            strings.add(string.toString());
+        }
+    }
+
     //// ContentHandler methods ////
 
     private StringBuilder characters;
@@ -248,7 +278,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
             String uniqueCount = attributes.getValue("uniqueCount");
             if(uniqueCount != null) this.uniqueCount = (int) Long.parseLong(uniqueCount);
 
-            this.strings = new ArrayList<>(this.uniqueCount);
+            startStrings(this.uniqueCount);
             characters = new StringBuilder(64);
         } else if ("si".equals(localName)) {
             if (characters != null) {
@@ -271,8 +301,8 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         }
 
         if ("si".equals(localName)) {
-            if (strings != null && characters != null) {
-                strings.add(characters.toString());
+            if (characters != null) {
+                addString(characters);
             }
         } else if ("t".equals(localName)) {
             tIsOpen = false;
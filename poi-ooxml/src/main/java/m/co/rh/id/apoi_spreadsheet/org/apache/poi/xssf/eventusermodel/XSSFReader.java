@@ -81,6 +81,7 @@ public class XSSFReader {
     protected OPCPackage pkg;
     protected PackagePart workbookPart;
     protected boolean useReadOnlySharedStringsTable;
+    protected boolean useDiskBackedSharedStringsTable;
 
     /**
      * Creates a new XSSFReader, for the given package
@@ -148,6 +149,25 @@ public class XSSFReader {
         return useReadOnlySharedStringsTable;
     }
 
+    /**
+     * Controls whether {@link #getSharedStringsTable()} uses {@link DiskBackedSharedStringsTable},
+     * which keeps the strings in memory-mapped temp files instead of on the heap.
+     * Takes precedence over {@link #setUseReadOnlySharedStringsTable(boolean)}.
+     * The caller should close the returned table when done to delete the temp files.
+     *
+     * @param useDiskBackedSharedStringsTable if true, the DiskBackedSharedStringsTable is used
+     */
+    public void setUseDiskBackedSharedStringsTable(boolean useDiskBackedSharedStringsTable) {
+        this.useDiskBackedSharedStringsTable = useDiskBackedSharedStringsTable;
+    }
+
+    /**
+     * @return whether {@link #getSharedStringsTable()} uses {@link DiskBackedSharedStringsTable}
+     */
+    public boolean useDiskBackedSharedStringsTable() {
+        return useDiskBackedSharedStringsTable;
+    }
+
     /**
      * Opens up the Shared Strings Table, parses it, and
      * returns a handy object for working with
@@ -157,11 +177,13 @@ public class XSSFReader {
      * @throws InvalidFormatException if the shared strings data format is invalid
      * @throws IOException            if there is an I/O issue reading the data
      * @see #setUseReadOnlySharedStringsTable(boolean)
+     * @see #setUseDiskBackedSharedStringsTable(boolean)
      */
     public SharedStrings getSharedStringsTable() throws IOException, InvalidFormatException {
         ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
         try {
             return parts.isEmpty() ? null :
+                    useDiskBackedSharedStringsTable ? new DiskBackedSharedStringsTable(parts.get(0)) :
                     useReadOnlySharedStringsTable ? new ReadOnlySharedStringsTable(parts.get(0)) :
                             new SharedStringsTable(parts.get(0));
         } catch (SAXException se) {
@@ -0,0 +1,290 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.XMLHelper;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStrings;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.Styles;
+
+/**
+ * Pull based reader of a sheet#.xml sheet part of a XSSF .xlsx file.
+ * <p>
+ * Unlike {@link XSSFSheetXMLHandler}, which pushes every cell to a callback while a SAX parser
+ * runs over the whole sheet, this class parses the sheet with StAX one row at a time as the
+ * rows are requested:
+ * <pre>{@code
+ * XSSFReader reader = new XSSFReader(pkg);
+ * SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+ * try (XSSFSheetRowReader rows = new XSSFSheetRowReader(reader.getSheetsData().next(), strings, reader.getStylesTable())) {
+ *     while (rows.hasNext()) {
+ *         XSSFStreamingRow row = rows.next();
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ * Only the row returned last is held by the reader, so memory use does not depend on the size
+ * of the sheet. Shared strings and styles are only looked up when a cell value or style is asked for.
+ * Callers can stop at any point, {@link #close()} releases the parser and the sheet stream.
+ * </p>
+ */
+public class XSSFSheetRowReader implements Iterator<XSSFStreamingRow>, Closeable {
+    private static final String TAG = "XSSFSheetRowReader";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+
+    private final InputStream sheetInputStream;
+    private final XMLStreamReader xmlReader;
+    private final SharedStrings sharedStrings;
+    private final Styles styles;
+
+    private XSSFStreamingRow nextRow;
+    private boolean finished;
+    private int nextRowNum;
+
+    /**
+     * @param sheetInputStream stream of the sheet part, closed together with this reader
+     * @param strings          shared strings of the workbook, may be {@code null} if the sheet has none
+     * @param styles           styles of the workbook, may be {@code null}
+     * @throws IOException if the sheet cannot be parsed
+     */
+    public XSSFSheetRowReader(InputStream sheetInputStream, SharedStrings strings, Styles styles) throws IOException {
+        this.sheetInputStream = sheetInputStream;
+        this.sharedStrings = strings;
+        this.styles = styles;
+        try {
+            this.xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(sheetInputStream);
+        } catch (XMLStreamException e) {
+            IOUtils.closeQuietly(sheetInputStream);
+            throw new IOException("Failed to parse the sheet", e);
+        }
+    }
+
+    SharedStrings getSharedStrings() {
+        return sharedStrings;
+    }
+
+    Styles getStyles() {
+        return styles;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null && !finished) {
+            try {
+                nextRow = readRow();
+            } catch (XMLStreamException e) {
+                close();
+                throw new POIXMLException("Failed to parse the sheet", e);
+            }
+            if (nextRow == null) {
+                close();
+            }
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public XSSFStreamingRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        XSSFStreamingRow row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    /**
+     * @return sequential stream over the remaining rows, closing the stream closes this reader
+     */
+    public Stream<XSSFStreamingRow> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Stops reading and closes the sheet stream, the remaining rows are not parsed
+     */
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            xmlReader.close();
+        } catch (XMLStreamException e) {
+            Log.w(TAG, "Failed to close sheet parser", e);
+        }
+        IOUtils.closeQuietly(sheetInputStream);
+    }
+
+    private static boolean isSpreadsheetElement(XMLStreamReader reader, String localName) {
+        String uri = reader.getNamespaceURI();
+        return (uri == null || uri.isEmpty() || NS_SPREADSHEETML.equals(uri)) && localName.equals(reader.getLocalName());
+    }
+
+    private XSSFStreamingRow readRow() throws XMLStreamException {
+        while (xmlReader.hasNext()) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isSpreadsheetElement(xmlReader, "row")) {
+                    return parseRow();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (isSpreadsheetElement(xmlReader, "sheetData")) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private XSSFStreamingRow parseRow() throws XMLStreamException {
+        String rowNumStr = xmlReader.getAttributeValue(null, "r");
+        // some sheets do not have rowNums, Excel can read them so we should try to handle them correctly as well
+        int rowNum = rowNumStr != null ? Integer.parseInt(rowNumStr) - 1 : nextRowNum;
+        nextRowNum = rowNum + 1;
+
+        List<XSSFStreamingCell> cells = new ArrayList<>();
+        XSSFStreamingRow row = new XSSFStreamingRow(this, rowNum, cells);
+        int nextColumn = 0;
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && isSpreadsheetElement(xmlReader, "c")) {
+                    XSSFStreamingCell cell = parseCell(row, nextColumn);
+                    cells.add(cell);
+                    nextColumn = cell.getColumnIndex() + 1;
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return row;
+    }
+
+    private XSSFStreamingCell parseCell(XSSFStreamingRow row, int defaultColumn) throws XMLStreamException {
+        String ref = xmlReader.getAttributeValue(null, "r");
+        String type = xmlReader.getAttributeValue(null, "t");
+        String styleStr = xmlReader.getAttributeValue(null, "s");
+        int column = ref != null ? parseColumn(ref) : defaultColumn;
+        int styleIndex = styleStr != null ? Integer.parseInt(styleStr) : -1;
+
+        String value = null;
+        String formula = null;
+        boolean hasFormula = false;
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && isSpreadsheetElement(xmlReader, "v")) {
+                    value = xmlReader.getElementText();
+                } else if (depth == 1 && isSpreadsheetElement(xmlReader, "f")) {
+                    hasFormula = true;
+                    formula = xmlReader.getElementText();
+                } else if (depth == 1 && isSpreadsheetElement(xmlReader, "is")) {
+                    value = parseInlineString();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return new XSSFStreamingCell(row, column, type, styleIndex, value,
+                hasFormula ? formula : null);
+    }
+
+    /**
+     * Collects the text of an inline string, without the phonetic runs
+     */
+    private String parseInlineString() throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isSpreadsheetElement(xmlReader, "t")) {
+                    text.append(xmlReader.getElementText());
+                } else if (isSpreadsheetElement(xmlReader, "rPh")) {
+                    skipElement();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return text.toString();
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return 0-based column index of a cell reference like "AB12"
+     */
+    static int parseColumn(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                column = column * 26 + (c - 'a' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+}
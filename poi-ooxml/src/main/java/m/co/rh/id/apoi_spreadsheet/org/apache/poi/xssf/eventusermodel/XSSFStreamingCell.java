@@ -0,0 +1,249 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.BuiltinFormats;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.DataFormatter;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellAddress;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStrings;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.Styles;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * Read-only cell returned by {@link XSSFSheetRowReader}.
+ * <p>
+ * Only the raw text of the {@code <c>} element is kept, shared strings and styles are
+ * resolved when {@link #getStringCellValue()} or {@link #getCellStyle()} are called.
+ * </p>
+ */
+public final class XSSFStreamingCell {
+    private final XSSFStreamingRow row;
+    private final int columnIndex;
+    private final String type;
+    private final int styleIndex;
+    private final String rawValue;
+    private final String formula;
+
+    XSSFStreamingCell(XSSFStreamingRow row, int columnIndex, String type, int styleIndex,
+                      String rawValue, String formula) {
+        this.row = row;
+        this.columnIndex = columnIndex;
+        this.type = type;
+        this.styleIndex = styleIndex;
+        this.rawValue = rawValue;
+        this.formula = formula;
+    }
+
+    public XSSFStreamingRow getRow() {
+        return row;
+    }
+
+    public int getRowIndex() {
+        return row.getRowNum();
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public CellAddress getAddress() {
+        return new CellAddress(row.getRowNum(), columnIndex);
+    }
+
+    /**
+     * @return the cell type, {@link CellType#FORMULA} if the cell has a formula
+     */
+    public CellType getCellType() {
+        return formula != null ? CellType.FORMULA : getValueType();
+    }
+
+    /**
+     * @return the type of the cached result of a formula cell
+     * @throws IllegalStateException if the cell is not a formula cell
+     */
+    public CellType getCachedFormulaResultType() {
+        if (formula == null) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return getValueType();
+    }
+
+    private CellType getValueType() {
+        if (type == null || "n".equals(type)) {
+            return rawValue == null || rawValue.isEmpty() ? (formula != null ? CellType.NUMERIC : CellType.BLANK)
+                    : CellType.NUMERIC;
+        }
+        switch (type) {
+            case "s":
+            case "str":
+            case "inlineStr":
+                return CellType.STRING;
+            case "b":
+                return CellType.BOOLEAN;
+            case "e":
+                return CellType.ERROR;
+            default:
+                // "d", ISO 8601 date which is kept as text
+                return CellType.STRING;
+        }
+    }
+
+    /**
+     * @return the text of the {@code <v>} element or of the inline string, without resolving shared strings
+     */
+    public String getRawValue() {
+        return rawValue;
+    }
+
+    /**
+     * @return formula text, or {@code null} for cells without formula. Cells using a shared formula
+     * return an empty formula as only the master cell of the group contains the formula text.
+     */
+    public String getCellFormula() {
+        return formula;
+    }
+
+    /**
+     * @return index of the cell style, or -1 if the cell has none
+     */
+    public int getStyleIndex() {
+        return styleIndex;
+    }
+
+    /**
+     * @return the cell style, looked up in the styles table on every call,
+     * or {@code null} if no styles table was given to the reader
+     */
+    public XSSFCellStyle getCellStyle() {
+        Styles styles = row.getReader().getStyles();
+        if (styles == null) {
+            return null;
+        }
+        if (styleIndex >= 0) {
+            return styles.getStyleAt(styleIndex);
+        }
+        return styles.getNumCellStyles() > 0 ? styles.getStyleAt(0) : null;
+    }
+
+    /**
+     * @return the string value, shared strings are looked up on every call.
+     * Blank cells return an empty string.
+     * @throws IllegalStateException if the value is not a string
+     */
+    public String getStringCellValue() {
+        CellType valueType = getValueType();
+        if (valueType == CellType.BLANK) {
+            return "";
+        }
+        if (valueType != CellType.STRING) {
+            throw typeMismatch(CellType.STRING, valueType);
+        }
+        if ("s".equals(type)) {
+            if (rawValue == null || rawValue.isEmpty()) {
+                return "";
+            }
+            SharedStrings sharedStrings = row.getReader().getSharedStrings();
+            if (sharedStrings == null) {
+                throw new IllegalStateException("No shared strings table to resolve cell " + getAddress());
+            }
+            return sharedStrings.getItemAt(Integer.parseInt(rawValue)).getString();
+        }
+        if ("inlineStr".equals(type)) {
+            // decode the _xHHHH_ escapes
+            return new XSSFRichTextString(rawValue).getString();
+        }
+        return rawValue == null ? "" : rawValue;
+    }
+
+    /**
+     * @return the numeric value, 0 for blank cells
+     * @throws IllegalStateException if the value is not numeric
+     * @throws NumberFormatException if the value cannot be parsed
+     */
+    public double getNumericCellValue() {
+        CellType valueType = getValueType();
+        if (valueType == CellType.BLANK || (valueType == CellType.NUMERIC && (rawValue == null || rawValue.isEmpty()))) {
+            return 0.0;
+        }
+        if (valueType != CellType.NUMERIC) {
+            throw typeMismatch(CellType.NUMERIC, valueType);
+        }
+        return Double.parseDouble(rawValue);
+    }
+
+    /**
+     * @return the boolean value, {@code false} for blank cells
+     * @throws IllegalStateException if the value is not a boolean
+     */
+    public boolean getBooleanCellValue() {
+        CellType valueType = getValueType();
+        if (valueType == CellType.BLANK) {
+            return false;
+        }
+        if (valueType != CellType.BOOLEAN) {
+            throw typeMismatch(CellType.BOOLEAN, valueType);
+        }
+        return rawValue != null && !rawValue.isEmpty() && rawValue.charAt(0) != '0';
+    }
+
+    /**
+     * @return the value formatted like {@link XSSFSheetXMLHandler} does, using the data format
+     * of the cell style for numbers. Formula cells return their cached result.
+     */
+    public String getFormattedValue(DataFormatter formatter) {
+        switch (getValueType()) {
+            case BLANK:
+                return "";
+            case BOOLEAN:
+                return getBooleanCellValue() ? "TRUE" : "FALSE";
+            case ERROR:
+                return "ERROR:" + rawValue;
+            case STRING:
+                return getStringCellValue();
+            case NUMERIC:
+            default:
+                if (rawValue == null || rawValue.isEmpty()) {
+                    return "";
+                }
+                XSSFCellStyle style = getCellStyle();
+                if (style == null) {
+                    return rawValue;
+                }
+                short formatIndex = style.getDataFormat();
+                String formatString = style.getDataFormatString();
+                if (formatString == null) {
+                    formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                }
+                if (formatString == null) {
+                    return rawValue;
+                }
+                return formatter.formatRawCellContents(Double.parseDouble(rawValue), formatIndex, formatString);
+        }
+    }
+
+    private IllegalStateException typeMismatch(CellType expected, CellType actual) {
+        return new IllegalStateException("Cannot get a " + expected + " value from a " + actual + " cell "
+                + getAddress().formatAsString());
+    }
+
+    @Override
+    public String toString() {
+        return getAddress().formatAsString() + "=" + rawValue;
+    }
+}
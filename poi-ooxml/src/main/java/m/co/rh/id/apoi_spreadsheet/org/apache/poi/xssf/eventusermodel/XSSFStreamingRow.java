@@ -0,0 +1,113 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.eventusermodel;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-only row returned by {@link XSSFSheetRowReader}, holding the cells of one
+ * {@code <row>} element in document order.
+ */
+public final class XSSFStreamingRow implements Iterable<XSSFStreamingCell> {
+    private final XSSFSheetRowReader reader;
+    private final int rowNum;
+    private final List<XSSFStreamingCell> cells;
+
+    XSSFStreamingRow(XSSFSheetRowReader reader, int rowNum, List<XSSFStreamingCell> cells) {
+        this.reader = reader;
+        this.rowNum = rowNum;
+        this.cells = cells;
+    }
+
+    XSSFSheetRowReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the row number (0 based)
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * @return the cells defined in this row
+     */
+    public List<XSSFStreamingCell> getCells() {
+        return Collections.unmodifiableList(cells);
+    }
+
+    /**
+     * @param columnIndex 0 based column index
+     * @return the cell at the given column, or {@code null} if it is not defined
+     */
+    public XSSFStreamingCell getCell(int columnIndex) {
+        // cells are normally stored in ascending column order
+        int low = 0;
+        int high = cells.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midColumn = cells.get(mid).getColumnIndex();
+            if (midColumn < columnIndex) {
+                low = mid + 1;
+            } else if (midColumn > columnIndex) {
+                high = mid - 1;
+            } else {
+                return cells.get(mid);
+            }
+        }
+        for (XSSFStreamingCell cell : cells) {
+            if (cell.getColumnIndex() == columnIndex) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 0 based index of the first cell, or -1 if the row has no cells
+     */
+    public int getFirstCellNum() {
+        return cells.isEmpty() ? -1 : cells.get(0).getColumnIndex();
+    }
+
+    /**
+     * @return index of the last cell <b>PLUS ONE</b>, or -1 if the row has no cells
+     */
+    public int getLastCellNum() {
+        return cells.isEmpty() ? -1 : cells.get(cells.size() - 1).getColumnIndex() + 1;
+    }
+
+    /**
+     * @return number of cells defined in this row
+     */
+    public int getPhysicalNumberOfCells() {
+        return cells.size();
+    }
+
+    @Override
+    public Iterator<XSSFStreamingCell> iterator() {
+        return getCells().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "XSSFStreamingRow{rowNum=" + rowNum + ", cells=" + cells + '}';
+    }
+}
@@ -0,0 +1,83 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Beta;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * A variant of SXSSFSheet whose rows are written straight into the output of its {@link DirectSXSSFWorkbook}.
+ * <p>
+ * This variant is experimental and APIs may change at short notice.
+ *
+ * @see DirectSXSSFWorkbook
+ */
+@Beta
+public class DirectSXSSFSheet extends SXSSFSheet {
+    private boolean _finished;
+
+    public DirectSXSSFSheet(DirectSXSSFWorkbook workbook, XSSFSheet xSheet) throws IOException {
+        super(workbook, xSheet, workbook.getRandomAccessWindowSize());
+        _writer = new DirectSheetDataWriter(workbook, this, workbook.getSharedStringSource());
+    }
+
+    /**
+     * @throws IllegalStateException if the sheet was already finished
+     */
+    @Override
+    public SXSSFRow createRow(int rownum) {
+        if (_finished) {
+            throw new IllegalStateException("Sheet " + getSheetName() + " was finished, no rows can be added");
+        }
+        return super.createRow(rownum);
+    }
+
+    /**
+     * Flushes all rows of this sheet. If the rows are streamed into the output,
+     * the zip entry of the sheet is completed, so that the next sheet can be streamed too.
+     * No rows can be added afterwards.
+     *
+     * @throws IOException if writing the rows fails
+     */
+    public void finish() throws IOException {
+        if (_finished) {
+            return;
+        }
+        _finished = true;
+        flushRows(0);
+        _writer.close();
+        ((DirectSXSSFWorkbook) _workbook).finishSheet(this);
+    }
+
+    /**
+     * @return whether {@link #finish()} was called
+     */
+    public boolean isFinished() {
+        return _finished;
+    }
+
+    /**
+     * @return whether the rows are written straight into the output, instead of a temp file.
+     * This is only known after the first rows are flushed.
+     */
+    public boolean isStreamed() {
+        return ((DirectSheetDataWriter) _writer).isStreamed();
+    }
+}
@@ -0,0 +1,302 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipArchiveThresholdInputStream;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipEntrySource;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Beta;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFChartSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * A variant of SXSSFWorkbook which writes the workbook in a single pass to the stream given to the constructor.
+ * <p>
+ * When the first rows of a sheet are flushed and no other sheet is streamed at that moment, the zip entry
+ * of the sheet is started in the output and the rows are written straight into it, without a temp file.
+ * The entry stays open until {@link DirectSXSSFSheet#finish()} is called or the workbook is written.
+ * Sheets which get rows flushed while another sheet is streamed, i.e. sheets which are written interleaved,
+ * fall back to a temp file each. So a workbook whose sheets are written one after another, calling
+ * {@code finish()} in between, does not need any temp files for the sheet data.
+ * </p>
+ * <p>
+ * The part of the worksheet before the rows is written when the sheet is started, so settings stored there,
+ * like column widths, freeze panes or the sheet dimension, have to be done before the first rows are flushed.
+ * Settings stored after the rows, like merged regions or hyperlinks, can be done until the sheet is finished.
+ * The remaining parts of the package are written by {@link #write(OutputStream)}, which only accepts the
+ * stream given to the constructor.
+ * </p>
+ * <p>
+ * This variant is experimental and APIs may change at short notice.
+ *
+ * @see DirectSXSSFSheet
+ */
+@Beta
+public class DirectSXSSFWorkbook extends SXSSFWorkbook {
+    private static final String SHEET_DATA_START = "<sheetData";
+    private static final String SHEET_DATA_EMPTY = "<sheetData/>";
+    private static final String SHEET_DATA_END = "</sheetData>";
+
+    private final OutputStream _stream;
+    private final Set<String> _writtenEntries = new HashSet<>();
+    private ZipArchiveOutputStream _zos;
+    private DirectSXSSFSheet _openSheet;
+    private boolean _written;
+
+    public DirectSXSSFWorkbook(OutputStream stream) {
+        this(null, stream, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, false);
+    }
+
+    public DirectSXSSFWorkbook(OutputStream stream, int rowAccessWindowSize) {
+        this(null, stream, rowAccessWindowSize, false);
+    }
+
+    /**
+     * @param workbook              the template workbook
+     * @param stream                the stream the workbook is written to
+     * @param rowAccessWindowSize   the number of rows that are kept in memory until flushed out
+     * @param useSharedStringsTable whether to use a shared strings table
+     */
+    public DirectSXSSFWorkbook(XSSFWorkbook workbook, OutputStream stream, int rowAccessWindowSize,
+                               boolean useSharedStringsTable) {
+        super(workbook, rowAccessWindowSize, false, useSharedStringsTable);
+        if (stream == null) {
+            throw new IllegalArgumentException("stream must not be null");
+        }
+        _stream = stream;
+    }
+
+    @Override
+    SXSSFSheet createAndRegisterSXSSFSheet(XSSFSheet xSheet) {
+        final DirectSXSSFSheet sxSheet;
+        try {
+            sxSheet = new DirectSXSSFSheet(this, xSheet);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        registerSheetMapping(sxSheet, xSheet);
+        return sxSheet;
+    }
+
+    @Override
+    public DirectSXSSFSheet createSheet() {
+        return (DirectSXSSFSheet) super.createSheet();
+    }
+
+    @Override
+    public DirectSXSSFSheet createSheet(String sheetname) {
+        return (DirectSXSSFSheet) super.createSheet(sheetname);
+    }
+
+    @Override
+    public DirectSXSSFSheet getSheetAt(int index) {
+        return (DirectSXSSFSheet) super.getSheetAt(index);
+    }
+
+    @Override
+    public DirectSXSSFSheet getSheet(String name) {
+        return (DirectSXSSFSheet) super.getSheet(name);
+    }
+
+    /**
+     * Starts the zip entry of the sheet, if no other sheet is streamed at the moment
+     *
+     * @return the stream for the rows or {@code null} if the rows have to go to a temp file
+     */
+    OutputStream startSheet(DirectSXSSFSheet sheet) throws IOException {
+        XSSFSheet xSheet = sheet._sh;
+        if (_openSheet != null || _written || xSheet instanceof XSSFChartSheet) {
+            return null;
+        }
+        String head = splitWorksheet(xSheet)[0];
+        if (_zos == null) {
+            _zos = createArchiveOutputStream(_stream);
+        }
+        String name = xSheet.getPackagePart().getPartName().getName().substring(1);
+        _zos.putArchiveEntry(new ZipArchiveEntry(name));
+        _zos.write(head.getBytes(StandardCharsets.UTF_8));
+        _writtenEntries.add(name);
+        _openSheet = sheet;
+        return CloseShieldOutputStream.wrap(_zos);
+    }
+
+    /**
+     * Completes the zip entry of the sheet, if it is streamed. The rows must be flushed already.
+     */
+    void finishSheet(DirectSXSSFSheet sheet) throws IOException {
+        if (_openSheet != sheet) {
+            return;
+        }
+        _openSheet = null;
+        String tail = splitWorksheet(sheet._sh)[1];
+        _zos.write((SHEET_DATA_END + tail).getBytes(StandardCharsets.UTF_8));
+        _zos.closeArchiveEntry();
+    }
+
+    /**
+     * Splits the worksheet xml of the sheet into the part up to the rows and the part after the rows
+     */
+    private static String[] splitWorksheet(XSSFSheet xSheet) throws IOException {
+        String xml;
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            xSheet.writeWorksheet(bos);
+            xml = bos.toString(StandardCharsets.UTF_8);
+        }
+        int start = xml.indexOf(SHEET_DATA_START);
+        if (start < 0) {
+            throw new POIXMLException("Worksheet of sheet " + xSheet.getSheetName() + " has no sheetData");
+        }
+        if (xml.startsWith(SHEET_DATA_EMPTY, start)) {
+            return new String[]{xml.substring(0, start) + "<sheetData>",
+                    xml.substring(start + SHEET_DATA_EMPTY.length())};
+        }
+        // rows of a template sheet are kept
+        int end = xml.indexOf(SHEET_DATA_END, start);
+        if (end < 0) {
+            throw new POIXMLException("Worksheet of sheet " + xSheet.getSheetName() + " has no sheetData end");
+        }
+        return new String[]{xml.substring(0, end), xml.substring(end + SHEET_DATA_END.length())};
+    }
+
+    @Override
+    protected ISheetInjector createSheetInjector(SXSSFSheet sxSheet) throws IOException {
+        if (sxSheet.getSheetDataWriter().getTempFile() == null) {
+            // no rows were flushed
+            return (output) -> {
+            };
+        }
+        return super.createSheetInjector(sxSheet);
+    }
+
+    /**
+     * Finishes all sheets and writes the remaining parts of the package.
+     * The parallelism of the workbook is not used, as the sheets are already written at this point.
+     *
+     * @param stream the stream given to the constructor
+     * @throws IllegalArgumentException if the stream is not the one given to the constructor
+     * @throws IllegalStateException    if the workbook was already written
+     */
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        if (stream != _stream) {
+            throw new IllegalArgumentException("DirectSXSSFWorkbook can only be written to the stream given to its constructor");
+        }
+        if (_written) {
+            throw new IllegalStateException("DirectSXSSFWorkbook was already written");
+        }
+        // the open sheet goes first, so that the remaining sheets can be streamed one after another
+        if (_openSheet != null) {
+            _openSheet.finish();
+        }
+        for (int i = 0; i < getNumberOfSheets(); i++) {
+            DirectSXSSFSheet sheet = getSheetAt(i);
+            sheet.deriveDimension();
+            sheet.finish();
+        }
+        _written = true;
+
+        if (_zos == null) {
+            _zos = createArchiveOutputStream(_stream);
+        }
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            _wb.write(bos);
+
+            try (
+                    InputStream is = bos.toInputStream();
+                    ZipArchiveInputStream zis = new ZipArchiveInputStream(is);
+                    ZipInputStreamZipEntrySource source = new ZipInputStreamZipEntrySource(
+                            new ZipArchiveThresholdInputStream(zis))
+            ) {
+                injectEntries(new SkippingZipEntrySource(source, _writtenEntries), _zos);
+            }
+        } finally {
+            _zos.finish();
+        }
+    }
+
+    /**
+     * Same as {@link #write(OutputStream)}, no temp files are used for the package
+     */
+    @Override
+    public void writeAvoidingTempFiles(OutputStream stream) throws IOException {
+        write(stream);
+    }
+
+    /**
+     * Hides the entries of the template which were already written
+     */
+    private static final class SkippingZipEntrySource implements ZipEntrySource {
+        private final ZipEntrySource _source;
+        private final Set<String> _skipped;
+
+        SkippingZipEntrySource(ZipEntrySource source, Set<String> skipped) {
+            _source = source;
+            _skipped = skipped;
+        }
+
+        @Override
+        public Enumeration<? extends ZipArchiveEntry> getEntries() {
+            List<ZipArchiveEntry> entries = new ArrayList<>();
+            for (ZipArchiveEntry entry : Collections.list(_source.getEntries())) {
+                if (!_skipped.contains(entry.getName())) {
+                    entries.add(entry);
+                }
+            }
+            return Collections.enumeration(entries);
+        }
+
+        @Override
+        public ZipArchiveEntry getEntry(String path) {
+            return _skipped.contains(path) ? null : _source.getEntry(path);
+        }
+
+        @Override
+        public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+            return _source.getInputStream(entry);
+        }
+
+        @Override
+        public void close() throws IOException {
+            _source.close();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return _source.isClosed();
+        }
+    }
+}
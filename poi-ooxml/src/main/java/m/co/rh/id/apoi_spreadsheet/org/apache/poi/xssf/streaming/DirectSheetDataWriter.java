@@ -0,0 +1,137 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Sheet data writer of {@link DirectSXSSFSheet}.
+ * <p>
+ * Where the rows go is decided when the first row is flushed: straight into the zip entry of the sheet
+ * if no other sheet is streamed at that moment, otherwise into a temp file which is copied into
+ * the output when the workbook is written.
+ * </p>
+ */
+final class DirectSheetDataWriter extends SheetDataWriter {
+    private final SheetOutput _output;
+
+    DirectSheetDataWriter(DirectSXSSFWorkbook workbook, DirectSXSSFSheet sheet,
+                          SharedStringsTable sharedStringsTable) throws IOException {
+        this(new SheetOutput(workbook, sheet), sharedStringsTable);
+    }
+
+    private DirectSheetDataWriter(SheetOutput output, SharedStringsTable sharedStringsTable) throws IOException {
+        super(output, sharedStringsTable);
+        _output = output;
+    }
+
+    /**
+     * @return whether the rows are written straight into the zip entry of the sheet
+     */
+    boolean isStreamed() {
+        return _output._streamed;
+    }
+
+    @Override
+    protected File getTempFile() {
+        return _output._tempFile;
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        final boolean ret;
+        try {
+            _output.close();
+        } finally {
+            File fd = _output._tempFile;
+            ret = fd == null || fd.delete();
+        }
+        return ret;
+    }
+
+    /**
+     * Writer which opens its target on the first write
+     */
+    private static final class SheetOutput extends Writer {
+        private final DirectSXSSFWorkbook _workbook;
+        private final DirectSXSSFSheet _sheet;
+        private Writer _target;
+        private File _tempFile;
+        private boolean _streamed;
+        private boolean _closed;
+
+        SheetOutput(DirectSXSSFWorkbook workbook, DirectSXSSFSheet sheet) {
+            _workbook = workbook;
+            _sheet = sheet;
+        }
+
+        private Writer target() throws IOException {
+            if (_target == null) {
+                if (_closed) {
+                    throw new IOException("The sheet data writer was already closed");
+                }
+                OutputStream out = _workbook.startSheet(_sheet);
+                if (out != null) {
+                    _streamed = true;
+                } else {
+                    _tempFile = TempFile.createTempFile("poi-sxssf-sheet", ".xml");
+                    out = new FileOutputStream(_tempFile);
+                }
+                _target = new Utf8Writer(out);
+            }
+            return _target;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            target().write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            target().write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            target().write(str, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (_target != null) {
+                _target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            _closed = true;
+            if (_target != null) {
+                _target.close();
+            }
+        }
+    }
+}
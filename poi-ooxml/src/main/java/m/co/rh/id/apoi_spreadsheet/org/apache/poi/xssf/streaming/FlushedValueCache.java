@@ -0,0 +1,244 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationCell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationSheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Keeps the numbers of flushed rows, so that formulas evaluated on flush can still refer to them,
+ * see {@link SXSSFWorkbook#setFlushedValueCache(FlushedValueCache)}.
+ * <p>
+ * Only numeric cells and formula cells with a numeric result are kept. References to other
+ * flushed cells, like strings, or to rows which are no longer kept, cannot be evaluated and
+ * leave the formula without a computed value. Rows are dropped oldest first once more than
+ * the configured number of rows per sheet were flushed.
+ * </p>
+ */
+public final class FlushedValueCache {
+    private final int _maxRows;
+    private final Map<SXSSFSheet, SheetValues> _sheets = new HashMap<>();
+
+    /**
+     * Keeps the numbers of all flushed rows
+     */
+    public FlushedValueCache() {
+        this(-1);
+    }
+
+    /**
+     * @param maxRows the number of most recently flushed rows kept per sheet, -1 for all rows
+     */
+    public FlushedValueCache(int maxRows) {
+        if (maxRows == 0 || maxRows < -1) {
+            throw new IllegalArgumentException("maxRows must be either -1 or a positive integer");
+        }
+        _maxRows = maxRows;
+    }
+
+    /**
+     * @return the number of most recently flushed rows kept per sheet, -1 for all rows
+     */
+    public int getMaxRows() {
+        return _maxRows;
+    }
+
+    /**
+     * Takes the numbers of a row which is being flushed
+     */
+    synchronized void addRow(SXSSFSheet sheet, SXSSFRow row) {
+        _sheets.computeIfAbsent(sheet, SheetValues::new).add(row, _maxRows);
+    }
+
+    /**
+     * @return the kept number as a cell, or {@code null} if the cell was blank
+     * @throws SXSSFFormulaEvaluator.RowFlushedException if the value of the cell is not kept
+     */
+    synchronized EvaluationCell getCell(SXSSFEvaluationSheet evalSheet, int rowIndex, int columnIndex) {
+        SXSSFSheet sheet = evalSheet.getSXSSFSheet();
+        SheetValues values = _sheets.get(sheet);
+        if (values == null || rowIndex < values.firstKeptRow) {
+            throw new SXSSFFormulaEvaluator.RowFlushedException(rowIndex, sheet.getLastFlushedRowNum());
+        }
+        RowValues row = values.rows.get(rowIndex);
+        if (row == null) {
+            return null;
+        }
+        int i = Arrays.binarySearch(row.columns, columnIndex);
+        if (i < 0) {
+            return null;
+        }
+        if (Double.isNaN(row.numbers[i])) {
+            throw new SXSSFFormulaEvaluator.RowFlushedException(rowIndex, sheet.getLastFlushedRowNum());
+        }
+        return new NumberCell(evalSheet, rowIndex, columnIndex, row.numbers[i]);
+    }
+
+    private static final class SheetValues {
+        /** flushed rows with at least one cell, in flush order */
+        final LinkedHashMap<Integer, RowValues> rows = new LinkedHashMap<>();
+        /** rows below this one are not kept */
+        int firstKeptRow;
+
+        SheetValues(SXSSFSheet sheet) {
+            // rows flushed before the cache was set are not kept
+            firstKeptRow = sheet.getLastFlushedRowNum() + 1;
+        }
+
+        void add(SXSSFRow row, int maxRows) {
+            int[] columns = new int[row.getPhysicalNumberOfCells()];
+            double[] numbers = new double[columns.length];
+            int count = 0;
+            for (Cell cell : row) {
+                if (cell.getCellType() != CellType.BLANK) {
+                    columns[count] = cell.getColumnIndex();
+                    numbers[count] = getNumber(cell);
+                    count++;
+                }
+            }
+            int rowIndex = row.getRowNum();
+            if (count > 0) {
+                rows.put(rowIndex, new RowValues(Arrays.copyOf(columns, count), Arrays.copyOf(numbers, count)));
+            }
+            if (maxRows > 0) {
+                // a row is kept until maxRows rows were flushed after it, even if they were empty
+                int firstKept = rowIndex - maxRows + 1;
+                while (!rows.isEmpty()) {
+                    Map.Entry<Integer, RowValues> oldest = rows.entrySet().iterator().next();
+                    if (oldest.getKey() >= firstKept) {
+                        break;
+                    }
+                    rows.remove(oldest.getKey());
+                }
+                firstKeptRow = Math.max(firstKeptRow, firstKept);
+            }
+        }
+
+        /**
+         * @return the number, or NaN for values which are not kept
+         */
+        private static double getNumber(Cell cell) {
+            switch (cell.getCellType()) {
+                case NUMERIC:
+                    return cell.getNumericCellValue();
+                case FORMULA:
+                    if (cell.getCachedFormulaResultType() == CellType.NUMERIC) {
+                        return cell.getNumericCellValue();
+                    }
+                    return Double.NaN;
+                default:
+                    return Double.NaN;
+            }
+        }
+    }
+
+    private static final class RowValues {
+        final int[] columns;
+        final double[] numbers;
+
+        RowValues(int[] columns, double[] numbers) {
+            this.columns = columns;
+            this.numbers = numbers;
+        }
+    }
+
+    /**
+     * A kept number as seen by the formula evaluator
+     */
+    private static final class NumberCell implements EvaluationCell {
+        private final EvaluationSheet _sheet;
+        private final int _rowIndex;
+        private final int _columnIndex;
+        private final double _value;
+
+        NumberCell(EvaluationSheet sheet, int rowIndex, int columnIndex, double value) {
+            _sheet = sheet;
+            _rowIndex = rowIndex;
+            _columnIndex = columnIndex;
+            _value = value;
+        }
+
+        @Override
+        public Object getIdentityKey() {
+            return this;
+        }
+
+        @Override
+        public EvaluationSheet getSheet() {
+            return _sheet;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return _rowIndex;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return _columnIndex;
+        }
+
+        @Override
+        public CellType getCellType() {
+            return CellType.NUMERIC;
+        }
+
+        @Override
+        public double getNumericCellValue() {
+            return _value;
+        }
+
+        @Override
+        public String getStringCellValue() {
+            throw new IllegalStateException("Cannot get a STRING value from a NUMERIC cell");
+        }
+
+        @Override
+        public boolean getBooleanCellValue() {
+            throw new IllegalStateException("Cannot get a BOOLEAN value from a NUMERIC cell");
+        }
+
+        @Override
+        public int getErrorCellValue() {
+            throw new IllegalStateException("Cannot get an ERROR value from a NUMERIC cell");
+        }
+
+        @Override
+        public CellRangeAddress getArrayFormulaRange() {
+            throw new IllegalStateException("Cell " + _rowIndex + "," + _columnIndex + " is not part of an array formula.");
+        }
+
+        @Override
+        public boolean isPartOfArrayFormulaGroup() {
+            return false;
+        }
+
+        @Override
+        public CellType getCachedFormulaResultType() {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+    }
+}
@@ -19,7 +19,10 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming.Zip64Impl.Entry;
 
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -95,6 +98,35 @@ class OpcOutputStream extends DeflaterOutputStream {
     }
 
 
+    /**
+     * Adds an entry whose data was already deflated, the data is copied as is
+     *
+     * @param name           name of the entry
+     * @param crc            CRC-32 of the uncompressed data
+     * @param size           size of the uncompressed data
+     * @param compressedSize size of the deflated data
+     * @param raw            stream of the deflated data, without zlib header
+     */
+    public void putRawEntry(String name, long crc, long size, long compressedSize, InputStream raw) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        Entry entry = new Entry(name);
+        entry.offset = written;
+        written += spec.writeLFH(entry);
+
+        long copied = IOUtils.copy(raw, out);
+        if (copied != compressedSize) {
+            throw new IOException("Expected " + compressedSize + " bytes of deflated data for " + name + ", but had " + copied);
+        }
+        entry.crc = crc;
+        entry.size = size;
+        entry.compressedSize = Math.toIntExact(compressedSize);
+        written += entry.compressedSize;
+        written += spec.writeDAT(entry);
+        entries.add(entry);
+    }
+
     /**
      * @see ZipOutputStream#finish()
      */
@@ -828,6 +828,10 @@ public class SXSSFCell extends CellBase {
         while(current!=null&&current.getType()!=type) current=current._next;
         return current==null?defaultValue:current.getValue();
     }
+    /*package*/ boolean isPlainString()
+    {
+        return _value.getType()==CellType.STRING&&!((StringValue)_value).isRichText();
+    }
     /*package*/ void ensurePlainStringType()
     {
         if(_value.getType()!=CellType.STRING
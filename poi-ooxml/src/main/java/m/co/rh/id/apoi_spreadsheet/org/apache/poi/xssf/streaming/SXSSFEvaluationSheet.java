@@ -61,7 +61,11 @@ final class SXSSFEvaluationSheet implements EvaluationSheet {
         SXSSFRow row = _xs.getRow(rowIndex);
         if (row == null) {
             if (rowIndex <= _xs.getLastFlushedRowNum()) {
-                throw new SXSSFFormulaEvaluator.RowFlushedException(rowIndex, _xs.getLastFlushedRowNum());
+                FlushedValueCache flushedValues = _xs.getWorkbook().getFlushedValueCache();
+                if (flushedValues == null) {
+                    throw new SXSSFFormulaEvaluator.RowFlushedException(rowIndex, _xs.getLastFlushedRowNum());
+                }
+                return flushedValues.getCell(this, rowIndex, columnIndex);
             }
             return null;
         }
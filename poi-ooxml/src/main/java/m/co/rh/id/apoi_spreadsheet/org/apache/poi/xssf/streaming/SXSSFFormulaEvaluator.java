@@ -19,9 +19,20 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 
 import android.util.Log;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationCell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationName;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.IStabilityClassifier;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.WorkbookEvaluator;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NotImplementedException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Area3DPxg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.NamePtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ptg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.RefPtgBase;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.udf.UDFFinder;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
@@ -38,6 +49,7 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
     private static final String TAG = "SXSSFFormulaEvaluator";
 
     private final SXSSFWorkbook wb;
+    private final SXSSFEvaluationWorkbook evaluationWorkbook;
 
     public SXSSFFormulaEvaluator(SXSSFWorkbook workbook) {
         this(workbook, null, null);
@@ -50,6 +62,7 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
     private SXSSFFormulaEvaluator(SXSSFWorkbook workbook, WorkbookEvaluator bookEvaluator) {
         super(bookEvaluator);
         this.wb = workbook;
+        this.evaluationWorkbook = SXSSFEvaluationWorkbook.create(workbook);
     }
 
     /**
@@ -135,6 +148,112 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         }
     }
 
+    /**
+     * Evaluates the formula cells of a row which is about to be flushed, see
+     * {@link SXSSFWorkbook#setEvaluateFormulasOnFlush(boolean)}. Formulas which cannot be
+     * evaluated, or which refer to rows not created yet, keep their cached value.
+     */
+    void evaluateRowOnFlush(SXSSFRow row) {
+        for (Cell c : row) {
+            if (c.getCellType() == CellType.FORMULA) {
+                try {
+                    if (refersToRowsNotCreated((SXSSFCell) c)) {
+                        continue;
+                    }
+                    evaluateFormulaCell(c);
+                } catch (RowFlushedException | NotImplementedException e) {
+                    // refers to values which are gone, or cannot be evaluated anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the formula of the cell, or of a formula it refers to in the window, refers
+     * to rows after the last row created so far in their sheet, which would be evaluated as blank
+     */
+    private boolean refersToRowsNotCreated(SXSSFCell cell) {
+        Set<SXSSFCell> visited = new HashSet<>();
+        visited.add(cell);
+        return refersToRowsNotCreated(cell, visited);
+    }
+
+    private boolean refersToRowsNotCreated(SXSSFCell cell, Set<SXSSFCell> visited) {
+        Ptg[] ptgs = evaluationWorkbook.getFormulaTokens(new SXSSFEvaluationCell(cell));
+        return refersToRowsNotCreated(ptgs, cell.getSheet(), visited, true);
+    }
+
+    private boolean refersToRowsNotCreated(Ptg[] ptgs, SXSSFSheet sheet, Set<SXSSFCell> visited, boolean resolveNames) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof NamePtg) {
+                EvaluationName name = evaluationWorkbook.getName((NamePtg) ptg);
+                if (resolveNames && name.hasFormula()
+                        && refersToRowsNotCreated(name.getNameDefinition(), sheet, visited, false)) {
+                    return true;
+                }
+                continue;
+            }
+
+            String firstSheetName = null;
+            String lastSheetName = null;
+            if (ptg instanceof Area3DPxg) {
+                Area3DPxg area = (Area3DPxg) ptg;
+                if (area.getExternalWorkbookNumber() > 0) {
+                    continue;
+                }
+                firstSheetName = area.getSheetName();
+                lastSheetName = area.getLastSheetName();
+            } else if (ptg instanceof Ref3DPxg) {
+                Ref3DPxg ref = (Ref3DPxg) ptg;
+                if (ref.getExternalWorkbookNumber() > 0) {
+                    continue;
+                }
+                firstSheetName = ref.getSheetName();
+                lastSheetName = ref.getLastSheetName();
+            }
+
+            if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                if (refersToRowsNotCreated(sheet, firstSheetName, lastSheetName, area.getFirstRow(), area.getLastRow(),
+                        area.getFirstColumn(), area.getLastColumn(), visited)) {
+                    return true;
+                }
+            } else if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                if (refersToRowsNotCreated(sheet, firstSheetName, lastSheetName, ref.getRow(), ref.getRow(),
+                        ref.getColumn(), ref.getColumn(), visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean refersToRowsNotCreated(SXSSFSheet sheet, String firstSheetName, String lastSheetName,
+            int firstRow, int lastRow, int firstColumn, int lastColumn, Set<SXSSFCell> visited) {
+        int first = firstSheetName == null ? wb.getSheetIndex(sheet) : wb.getSheetIndex(firstSheetName);
+        int last = lastSheetName == null ? first : wb.getSheetIndex(lastSheetName);
+        if (first < 0 || last < 0) {
+            return false;
+        }
+        for (int i = first; i <= last; i++) {
+            SXSSFSheet s = wb.getSheetAt(i);
+            if (lastRow > s.getLastRowNum()) {
+                return true;
+            }
+            for (SXSSFRow row : s.getRowsInWindow(firstRow, lastRow)) {
+                for (Cell c : row) {
+                    if (c.getColumnIndex() >= firstColumn && c.getColumnIndex() <= lastColumn
+                            && c.getCellType() == CellType.FORMULA && visited.add((SXSSFCell) c)
+                            && refersToRowsNotCreated((SXSSFCell) c, visited)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Loops over rows and cells, evaluating formula cells there.
      * If any sheets are inactive, or any cells outside of the window,
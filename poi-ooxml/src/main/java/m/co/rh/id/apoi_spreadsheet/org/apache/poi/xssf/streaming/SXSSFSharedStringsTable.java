@@ -0,0 +1,594 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLDocumentPart;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ooxml.POIXMLRelation;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.RichTextString;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStringsTable;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFFactory;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRelation;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.SstDocument;
+
+/**
+ * Write-optimized shared strings table used by {@link SXSSFWorkbook}.
+ * <p>
+ * {@link SharedStringsTable} keeps a {@code CTRst} bean per unique string and a
+ * {@code HashMap} keyed by the XML of the bean. This table keeps the UTF-8 bytes of the
+ * strings in one byte buffer, indexed by an open-addressing hash of ids, and spills the
+ * buffer to a temp file once it grows past a threshold. The {@code sst} part is written
+ * straight from the bytes, without XmlBeans.
+ * </p>
+ * <p>
+ * Strings with formatting runs or phonetic properties are stored as the XML of their bean,
+ * plain strings as their text. {@link #getItemAt(int)} rebuilds a new rich text string on each
+ * call, it is meant for occasional reads, not for random access to a huge table.
+ * </p>
+ */
+public class SXSSFSharedStringsTable extends SharedStringsTable {
+    private static final String TAG = "SXSSFSharedStringsTable";
+
+    /**
+     * Default number of string bytes kept in memory before they are spilled to disk
+     */
+    public static final int DEFAULT_SPILL_THRESHOLD = 8 * 1024 * 1024;
+
+    private static final byte PLAIN = 0;
+    private static final byte RICH = 1;
+
+    private static final byte[] XML_HEADER =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final int spillThreshold;
+
+    // id + 1 of the entry in each slot, 0 for empty slots
+    private int[] slots = new int[1024];
+    private int[] hashes = new int[256];
+    // start of each entry, offsets[size] is the end of the last entry
+    private long[] offsets = new long[257];
+    private int size;
+
+    // entries starting before spilledLength are in the spill file, the others in buffer
+    private byte[] buffer = new byte[8192];
+    private int bufferLength;
+    private long spilledLength;
+    private File spillFile;
+    private FileChannel spillChannel;
+
+    // the key of the string which is added, and the entry read from the spill file
+    private byte[] scratch = new byte[256];
+    private byte[] readBuffer = new byte[256];
+
+    public SXSSFSharedStringsTable() {
+        this(DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * @param spillThreshold number of string bytes kept in memory before they are written to a temp file
+     */
+    public SXSSFSharedStringsTable(int spillThreshold) {
+        super();
+        if (spillThreshold < 1) {
+            throw new IllegalArgumentException("spillThreshold must be positive: " + spillThreshold);
+        }
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Imports an existing table, the indexes of the items are kept.
+     */
+    @Override
+    public void readFrom(InputStream is) throws IOException {
+        try {
+            SstDocument doc = SstDocument.Factory.parse(is, DEFAULT_XML_OPTIONS);
+            //noinspection deprecation
+            for (CTRst st : doc.getSst().getSiArray()) {
+                add(st, false);
+            }
+            count = (int) doc.getSst().getCount();
+            uniqueCount = (int) doc.getSst().getUniqueCount();
+        } catch (XmlException e) {
+            throw new IOException("unable to parse shared strings table", e);
+        }
+    }
+
+    @Override
+    public int addSharedStringItem(RichTextString string) {
+        if (!(string instanceof XSSFRichTextString)) {
+            throw new IllegalArgumentException("Only XSSFRichTextString argument is supported");
+        }
+        return add(((XSSFRichTextString) string).getCTRst(), true);
+    }
+
+    /**
+     * Adds a string without formatting, without creating a rich text string for it.
+     *
+     * @param string the entry to add
+     * @return index the index of added entry
+     */
+    public int addSharedString(String string) {
+        count++;
+        return add(PLAIN, string == null ? "" : string, true);
+    }
+
+    private int add(CTRst st, boolean countIt) {
+        if (countIt) {
+            count++;
+        }
+        if (st.sizeOfRArray() == 0 && st.sizeOfRPhArray() == 0 && !st.isSetPhoneticPr()) {
+            return add(PLAIN, st.isSetT() ? st.getT() : "", countIt);
+        }
+        return add(RICH, toXml(st), countIt);
+    }
+
+    /**
+     * @return the XML of the {@code si} element, in the default namespace declared by the {@code sst} element
+     */
+    private String toXml(CTRst st) {
+        // saving the bean on its own can produce an xml-fragment element, so it is saved in an sst element
+        SstDocument doc = SstDocument.Factory.newInstance();
+        doc.addNewSst().addNewSi().set(st);
+        String xml = doc.xmlText(DEFAULT_XML_OPTIONS);
+        int start = xml.indexOf("<si");
+        int end = xml.lastIndexOf("</sst>");
+        if (start < 0 || end < start) {
+            throw new POIXMLException("Unexpected XML for shared string: " + xml);
+        }
+        return xml.substring(start, end);
+    }
+
+    /**
+     * @param deduplicate false to append the entry even if it exists, as imported tables may have duplicates
+     */
+    private int add(byte kind, String text, boolean deduplicate) {
+        int length = encode(kind, text);
+        int hash = hash(scratch, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot] - 1) >= 0) {
+            if (deduplicate && hashes[id] == hash && entryEquals(id, scratch, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        id = append(hash, length);
+        slots[slot] = id + 1;
+        if (deduplicate) {
+            uniqueCount++;
+        }
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private int append(int hash, int length) {
+        int id = size;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            offsets = Arrays.copyOf(offsets, hashes.length + 1);
+        }
+        if (bufferLength + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + length));
+        }
+        System.arraycopy(scratch, 0, buffer, bufferLength, length);
+        bufferLength += length;
+        hashes[id] = hash;
+        offsets[id + 1] = offsets[id] + length;
+        size++;
+        if (bufferLength >= spillThreshold) {
+            spill();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int id : slots) {
+            if (id != 0) {
+                int slot = hashes[id - 1] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = id;
+            }
+        }
+        slots = newSlots;
+    }
+
+    private void spill() {
+        try {
+            if (spillChannel == null) {
+                spillFile = TempFile.createTempFile("poi-sxssf-sst", ".tmp");
+                spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+            }
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, bufferLength);
+            long position = spilledLength;
+            while (bb.hasRemaining()) {
+                position += spillChannel.write(bb, position);
+            }
+        } catch (IOException e) {
+            throw new POIXMLException("Failed to write shared strings to disk", e);
+        }
+        spilledLength += bufferLength;
+        bufferLength = 0;
+        if (buffer.length > spillThreshold) {
+            // a single huge string should not pin a huge buffer
+            buffer = new byte[Math.min(buffer.length, Math.max(8192, spillThreshold))];
+        }
+    }
+
+    private boolean entryEquals(int id, byte[] key, int length) {
+        long start = offsets[id];
+        if (offsets[id + 1] - start != length) {
+            return false;
+        }
+        byte[] data;
+        int from;
+        if (start >= spilledLength) {
+            data = buffer;
+            from = (int) (start - spilledLength);
+        } else {
+            data = readSpilled(start, length);
+            from = 0;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[from + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readSpilled(long position, int length) {
+        if (readBuffer.length < length) {
+            readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+        }
+        ByteBuffer bb = ByteBuffer.wrap(readBuffer, 0, length);
+        try {
+            while (bb.hasRemaining()) {
+                int read = spillChannel.read(bb, position + bb.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of shared strings file");
+                }
+            }
+        } catch (IOException e) {
+            throw new POIXMLException("Failed to read shared strings from disk", e);
+        }
+        return readBuffer;
+    }
+
+    /**
+     * Writes the kind and the UTF-8 bytes of the text into scratch, unpaired surrogates are written as '?'
+     *
+     * @return number of bytes written
+     */
+    private int encode(byte kind, String text) {
+        int max = text.length() * 3 + 1;
+        if (scratch.length < max) {
+            scratch = new byte[Math.max(max, scratch.length * 2)];
+        }
+        byte[] b = scratch;
+        int pos = 0;
+        b[pos++] = kind;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    b[pos++] = (byte) (0xF0 | (cp >> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    b[pos++] = '?';
+                }
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static int hash(byte[] b, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + b[i];
+        }
+        // spread the bits, the slot is taken from the low bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return number of entries in the table, which can differ from the unique count of an imported table
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        }
+        long start = offsets[idx];
+        int length = (int) (offsets[idx + 1] - start);
+        byte[] data;
+        int from;
+        if (start >= spilledLength) {
+            data = buffer;
+            from = (int) (start - spilledLength);
+        } else {
+            data = readSpilled(start, length);
+            from = 0;
+        }
+        String text = new String(data, from + 1, length - 1, StandardCharsets.UTF_8);
+        if (data[from] == PLAIN) {
+            return new XSSFRichTextString(text);
+        }
+        try {
+            SstDocument doc = SstDocument.Factory.parse(
+                    "<sst xmlns=\"" + NS_SPREADSHEETML + "\">" + text + "</sst>", DEFAULT_XML_OPTIONS);
+            return new XSSFRichTextString(doc.getSst().getSiArray(0));
+        } catch (XmlException e) {
+            throw new POIXMLException("Failed to parse shared string " + idx, e);
+        }
+    }
+
+    @Override
+    public List<RichTextString> getSharedStringItems() {
+        ArrayList<RichTextString> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(getItemAt(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Write this table out as XML.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        BufferedOutputStream bos = new BufferedOutputStream(out, 64 * 1024);
+        bos.write(XML_HEADER);
+        writeAscii(bos, "<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"" + count
+                + "\" uniqueCount=\"" + uniqueCount + "\"");
+        if (size == 0) {
+            bos.write('/');
+            bos.write('>');
+            bos.flush();
+            return;
+        }
+        bos.write('>');
+        int id = 0;
+        if (spilledLength > 0) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(spillFile), 64 * 1024)) {
+                for (; id < size && offsets[id] < spilledLength; id++) {
+                    int length = (int) (offsets[id + 1] - offsets[id]);
+                    if (readBuffer.length < length) {
+                        readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+                    }
+                    if (IOUtils.readFully(in, readBuffer, 0, length) < length) {
+                        throw new IOException("Unexpected end of shared strings file");
+                    }
+                    writeEntry(bos, readBuffer, 0, length);
+                }
+            }
+        }
+        for (; id < size; id++) {
+            int length = (int) (offsets[id + 1] - offsets[id]);
+            writeEntry(bos, buffer, (int) (offsets[id] - spilledLength), length);
+        }
+        writeAscii(bos, "</sst>");
+        bos.flush();
+    }
+
+    private static void writeEntry(OutputStream out, byte[] b, int off, int length) throws IOException {
+        if (b[off] == RICH) {
+            out.write(b, off + 1, length - 1);
+            return;
+        }
+        writeAscii(out, hasLeadingTrailingSpaces(b, off + 1, off + length) ? "<si><t xml:space=\"preserve\">" : "<si><t>");
+        writeEscaped(out, b, off + 1, off + length);
+        writeAscii(out, "</t></si>");
+    }
+
+    /**
+     * Escapes the UTF-8 bytes like {@link SheetDataWriter#outputEscapedString(String)} does with chars.
+     * The bytes of multi-byte sequences never look like ASCII, so the escaping can be done on the bytes.
+     */
+    private static void writeEscaped(OutputStream out, byte[] b, int start, int end) throws IOException {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            int c = b[i] & 0xFF;
+            String replacement;
+            int skip = 0;
+            switch (c) {
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '\"':
+                    replacement = "&quot;";
+                    break;
+                case '\n':
+                    replacement = "&#xa;";
+                    break;
+                case '\r':
+                    replacement = "&#xd;";
+                    break;
+                case '\t':
+                    replacement = "&#x9;";
+                    break;
+                case 0xC2:
+                    // U+00A0 NO-BREAK SPACE
+                    if (i + 1 < end && (b[i + 1] & 0xFF) == 0xA0) {
+                        replacement = "&#xa0;";
+                        skip = 1;
+                        break;
+                    }
+                    continue;
+                case 0xEF:
+                    // U+FFFE and U+FFFF are replaced like control characters
+                    if (i + 2 < end && (b[i + 1] & 0xFF) == 0xBF && (b[i + 2] & 0xFE) == 0xBE) {
+                        replacement = "?";
+                        skip = 2;
+                        break;
+                    }
+                    continue;
+                default:
+                    if (c < ' ') {
+                        replacement = "?";
+                        break;
+                    }
+                    continue;
+            }
+            if (i > runStart) {
+                out.write(b, runStart, i - runStart);
+            }
+            writeAscii(out, replacement);
+            i += skip;
+            runStart = i + 1;
+        }
+        if (runStart < end) {
+            out.write(b, runStart, end - runStart);
+        }
+    }
+
+    private static boolean hasLeadingTrailingSpaces(byte[] b, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        int last = end - 1;
+        while (last > start && (b[last] & 0xC0) == 0x80) {
+            last--;
+        }
+        return Character.isWhitespace(codePointAt(b, start, end)) || Character.isWhitespace(codePointAt(b, last, end));
+    }
+
+    private static int codePointAt(byte[] b, int i, int end) {
+        int c = b[i] & 0xFF;
+        int count;
+        if (c < 0x80) {
+            return c;
+        } else if (c < 0xE0) {
+            c &= 0x1F;
+            count = 1;
+        } else if (c < 0xF0) {
+            c &= 0x0F;
+            count = 2;
+        } else {
+            c &= 0x07;
+            count = 3;
+        }
+        for (int j = 1; j <= count && i + j < end; j++) {
+            c = (c << 6) | (b[i + j] & 0x3F);
+        }
+        return c;
+    }
+
+    private static void writeAscii(OutputStream out, String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            out.write(s.charAt(i));
+        }
+    }
+
+    /**
+     * Deletes the temp file holding the spilled strings
+     */
+    @Override
+    public void close() throws IOException {
+        IOUtils.closeQuietly(spillChannel);
+        spillChannel = null;
+        if (spillFile != null && !spillFile.delete() && spillFile.exists()) {
+            Log.w(TAG, "Failed to delete temp file " + spillFile);
+        }
+        spillFile = null;
+        super.close();
+    }
+
+    /**
+     * Factory which creates a {@link SXSSFSharedStringsTable} for the shared strings part of a new workbook
+     */
+    static final class Factory extends XSSFFactory {
+        private final int spillThreshold;
+
+        Factory(int spillThreshold) {
+            this.spillThreshold = spillThreshold;
+        }
+
+        @Override
+        public POIXMLDocumentPart newDocumentPart(POIXMLRelation descriptor) {
+            if (descriptor == XSSFRelation.SHARED_STRINGS) {
+                return new SXSSFSharedStringsTable(spillThreshold);
+            }
+            return super.newDocumentPart(descriptor);
+        }
+    }
+}
@@ -1950,8 +1950,18 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      * with lower index values are flushed first.
      */
     public void flushRows(int remaining) throws IOException {
+        SXSSFFormulaEvaluator evaluator = _workbook.getFlushEvaluator();
+        if (evaluator != null && _rows.size() > remaining) {
+            synchronized (evaluator) {
+                while (_rows.size() > remaining) {
+                    flushOneRow(evaluator);
+                }
+                // the next rows may have changed in the meantime
+                evaluator.clearAllCachedResultValues();
+            }
+        }
         while (_rows.size() > remaining) {
-            flushOneRow();
+            flushOneRow(null);
         }
         if (remaining == 0) {
             allFlushed = true;
@@ -1976,11 +1986,18 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         this._writer.flush();
     }
 
-    private void flushOneRow() throws IOException {
+    private void flushOneRow(SXSSFFormulaEvaluator evaluator) throws IOException {
         Integer firstRowNum = _rows.firstKey();
         if (firstRowNum != null) {
             int rowIndex = firstRowNum;
             SXSSFRow row = _rows.get(firstRowNum);
+            if (evaluator != null) {
+                evaluator.evaluateRowOnFlush(row);
+            }
+            FlushedValueCache flushedValues = _workbook.getFlushedValueCache();
+            if (flushedValues != null) {
+                flushedValues.addRow(this, row);
+            }
             if (_autoSizeColumnTracker != null) {
                 // Update the best fit column widths for auto-sizing just before the rows are flushed
                 _autoSizeColumnTracker.updateColumnWidths(row);
@@ -2237,6 +2254,13 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         throw new UnsupportedOperationException("Not Implemented");
     }
 
+    /**
+     * @return the rows still in the random access window from firstRow to lastRow, inclusive
+     */
+    Collection<SXSSFRow> getRowsInWindow(int firstRow, int lastRow) {
+        return _rows.subMap(firstRow, true, lastRow, true).values();
+    }
+
     void trackNewCell(SXSSFCell cell) {
         leftMostColumn = Math.min(cell.getColumnIndex(), leftMostColumn);
         rightMostColumn = Math.max(cell.getColumnIndex(), rightMostColumn);
@@ -26,16 +26,20 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -43,6 +47,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
 
 import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage;
@@ -141,6 +155,15 @@ public class SXSSFWorkbook implements Workbook {
 
     private boolean shouldCalculateSheetDimensions = true;
 
+    private int _parallelism = 1;
+
+    /**
+     * evaluates the formulas of rows when they are flushed, {@code null} if disabled
+     */
+    private SXSSFFormulaEvaluator _flushEvaluator;
+
+    private FlushedValueCache _flushedValueCache;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -264,7 +287,10 @@ public class SXSSFWorkbook implements Workbook {
         setRandomAccessWindowSize(rowAccessWindowSize);
         setCompressTempFiles(compressTmpFiles);
         if (workbook == null) {
-            _wb = new XSSFWorkbook();
+            // the streaming workbook only appends to the shared strings, so a write-optimized table is used
+            _wb = useSharedStringsTable ?
+                    new XSSFWorkbook(new SXSSFSharedStringsTable.Factory(SXSSFSharedStringsTable.DEFAULT_SPILL_THRESHOLD)) :
+                    new XSSFWorkbook();
             _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
         } else {
             _wb = workbook;
@@ -375,6 +401,89 @@ public class SXSSFWorkbook implements Workbook {
         return shouldCalculateSheetDimensions;
     }
 
+    /**
+     * @return number of threads used to compress the sheets when the workbook is written, 1 by default
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to compress the sheets when the workbook is written.
+     * <p>
+     * With more than one thread, every sheet is deflated on its own into a temp file while the
+     * other parts are copied, the compressed sheets are then added to the zip in their original order.
+     * The sheet injectors, like the row generators of {@link DeferredSXSSFWorkbook}, run on these
+     * threads and must not depend on each other.
+     * </p>
+     *
+     * @param parallelism number of threads, 1 (the default) to compress the sheets one after another
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, had " + parallelism);
+        }
+        _parallelism = parallelism;
+    }
+
+    /**
+     * @return whether formulas are evaluated when their rows are flushed
+     * @see #setEvaluateFormulasOnFlush(boolean)
+     */
+    public boolean isEvaluateFormulasOnFlush() {
+        return _flushEvaluator != null;
+    }
+
+    /**
+     * Evaluates the formula cells of each row just before the row is flushed, and writes the results
+     * as the cached values of the formulas, so that the written file has the values without
+     * recalculating it, e.g. with an {@link XSSFWorkbook}.
+     * <p>
+     * A formula is evaluated with the cells present at that time. It can refer to rows still in the
+     * random access window, and to the numbers of flushed rows if a {@link FlushedValueCache} is set.
+     * Formulas with other references to flushed rows, with references to rows not created yet, e.g.
+     * a total in a header, or with functions that are not implemented, are written without a
+     * computed value, like before.
+     * </p>
+     * <p>
+     * The evaluation results are not kept beyond a flush, so changing cells still in the window
+     * between flushes is fine. With {@link #setParallelism(int)} the rows of the sheets of a
+     * {@link DeferredSXSSFWorkbook} are generated concurrently, their formulas should then only
+     * refer to their own sheet.
+     * </p>
+     *
+     * @param evaluate whether to evaluate formulas on flush, {@code false} by default
+     */
+    public void setEvaluateFormulasOnFlush(boolean evaluate) {
+        if (!evaluate) {
+            _flushEvaluator = null;
+        } else if (_flushEvaluator == null) {
+            _flushEvaluator = new SXSSFFormulaEvaluator(this);
+        }
+    }
+
+    /**
+     * @return the numbers of flushed rows used by formulas evaluated on flush, may be {@code null}
+     */
+    public FlushedValueCache getFlushedValueCache() {
+        return _flushedValueCache;
+    }
+
+    /**
+     * Sets the cache which keeps the numbers of flushed rows, so that formulas evaluated on flush
+     * can refer to them, see {@link #setEvaluateFormulasOnFlush(boolean)}. Only rows flushed after
+     * the cache was set are kept.
+     *
+     * @param cache the cache, {@code null} (the default) to not keep the values of flushed rows
+     */
+    public void setFlushedValueCache(FlushedValueCache cache) {
+        _flushedValueCache = cache;
+    }
+
+    SXSSFFormulaEvaluator getFlushEvaluator() {
+        return _flushEvaluator;
+    }
+
     @Internal
     protected SharedStringsTable getSharedStringSource() {
         return _sharedStringSource;
@@ -421,39 +530,210 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
-        ArchiveOutputStream zos = createArchiveOutputStream(out);
+        if (_parallelism > 1) {
+            injectDataInParallel(zipEntrySource, out);
+            return;
+        }
+        ZipArchiveOutputStream zos = createArchiveOutputStream(out);
         try {
-            Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
-            while (en.hasMoreElements()) {
-                ZipArchiveEntry ze = en.nextElement();
+            injectEntries(zipEntrySource, zos);
+        } finally {
+            zos.finish();
+            zipEntrySource.close();
+        }
+    }
+
+    /**
+     * Copies the template entries to the archive, the sheet templates are filled with the sheet data
+     */
+    void injectEntries(ZipEntrySource zipEntrySource, ArchiveOutputStream<ZipArchiveEntry> zos) throws IOException {
+        Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
+        while (en.hasMoreElements()) {
+            ZipArchiveEntry ze = en.nextElement();
+            ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+            if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
+            if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+            zos.putArchiveEntry(zeOut);
+            try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                if (is instanceof ZipArchiveThresholdInputStream) {
+                    // #59743 - disable Threshold handling for SXSSF copy
+                    // as users tend to put too much repetitive data in when using SXSSF :)
+                    ((ZipArchiveThresholdInputStream) is).setGuardState(false);
+                }
+                XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+                // See bug 56557, we should not inject data into the special ChartSheets
+                if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
+                    SXSSFSheet sxSheet = getSXSSFSheet(xSheet);
+                    copyStreamAndInjectWorksheet(is, zos, createSheetInjector(sxSheet));
+                } else {
+                    IOUtils.copy(is, zos);
+                }
+            } finally {
+                zos.closeArchiveEntry();
+            }
+        }
+    }
+
+    private void injectDataInParallel(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        ZipArchiveOutputStream zos = createArchiveOutputStream(out);
+        List<? extends ZipArchiveEntry> entries = Collections.list(zipEntrySource.getEntries());
+        List<Future<DeflatedSheet>> sheets = new ArrayList<>(Collections.nCopies(entries.size(), null));
+        ExecutorService executor = null;
+        try {
+            // the template of each sheet is read here, as the entry source is not thread-safe
+            for (int i = 0; i < entries.size(); i++) {
+                ZipArchiveEntry ze = entries.get(i);
+                XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+                if (xSheet == null || xSheet instanceof XSSFChartSheet) {
+                    continue;
+                }
+                byte[] template;
+                try (InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        ((ZipArchiveThresholdInputStream) is).setGuardState(false);
+                    }
+                    template = IOUtils.toByteArray(is);
+                }
+                ISheetInjector injector = createSheetInjector(getSXSSFSheet(xSheet));
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.min(_parallelism, _sxFromXHash.size()));
+                }
+                sheets.set(i, executor.submit(() -> DeflatedSheet.deflate(template, injector)));
+            }
+
+            for (int i = 0; i < entries.size(); i++) {
+                ZipArchiveEntry ze = entries.get(i);
+                Future<DeflatedSheet> sheet = sheets.get(i);
+                if (sheet != null) {
+                    DeflatedSheet deflated = getDeflatedSheet(sheet);
+                    sheets.set(i, null);
+                    try {
+                        deflated.writeTo(zos, ze);
+                    } finally {
+                        deflated.dispose();
+                    }
+                    continue;
+                }
                 ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
                 if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
                 if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
                 zos.putArchiveEntry(zeOut);
                 try (final InputStream is = zipEntrySource.getInputStream(ze)) {
                     if (is instanceof ZipArchiveThresholdInputStream) {
-                        // #59743 - disable Threshold handling for SXSSF copy
-                        // as users tend to put too much repetitive data in when using SXSSF :)
                         ((ZipArchiveThresholdInputStream) is).setGuardState(false);
                     }
-                    XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
-                    // See bug 56557, we should not inject data into the special ChartSheets
-                    if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
-                        SXSSFSheet sxSheet = getSXSSFSheet(xSheet);
-                        copyStreamAndInjectWorksheet(is, zos, createSheetInjector(sxSheet));
-                    } else {
-                        IOUtils.copy(is, zos);
-                    }
+                    IOUtils.copy(is, zos);
                 } finally {
                     zos.closeArchiveEntry();
                 }
             }
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                disposeDeflatedSheets(executor, sheets);
+            }
             zos.finish();
             zipEntrySource.close();
         }
     }
 
+    /**
+     * Removes the temp files of the sheets which were not written because of an error
+     */
+    private static void disposeDeflatedSheets(ExecutorService executor, List<Future<DeflatedSheet>> sheets) {
+        try {
+            // sheets which are compressed still create their temp file
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Future<DeflatedSheet> sheet : sheets) {
+            if (sheet != null && sheet.isDone() && !sheet.isCancelled()) {
+                try {
+                    getDeflatedSheet(sheet).dispose();
+                } catch (IOException | RuntimeException e) {
+                    Log.d(TAG, "Sheet failed while another error is handled", e);
+                }
+            }
+        }
+    }
+
+    private static DeflatedSheet getDeflatedSheet(Future<DeflatedSheet> sheet) throws IOException {
+        try {
+            return sheet.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the sheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Sheet part which was deflated into a temp file, to be added as raw entry to the zip
+     */
+    private static final class DeflatedSheet {
+        private final File file;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+
+        private DeflatedSheet(File file, long crc, long size, long compressedSize) {
+            this.file = file;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+        }
+
+        static DeflatedSheet deflate(byte[] template, ISheetInjector injector) throws IOException {
+            File file = TempFile.createTempFile("poi-sxssf-sheet", ".deflate");
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            CRC32 crc = new CRC32();
+            boolean success = false;
+            try {
+                try (OutputStream fos = Files.newOutputStream(file.toPath());
+                     DeflaterOutputStream dos = new DeflaterOutputStream(fos, deflater, 64 * 1024);
+                     OutputStream cos = new CheckedOutputStream(dos, crc)) {
+                    copyStreamAndInjectWorksheet(new ByteArrayInputStream(template), cos, injector);
+                }
+                success = true;
+                return new DeflatedSheet(file, crc.getValue(), deflater.getBytesRead(), deflater.getBytesWritten());
+            } finally {
+                deflater.end();
+                if (!success && !file.delete()) {
+                    Log.w(TAG, "Could not delete temporary file " + file);
+                }
+            }
+        }
+
+        void writeTo(ZipArchiveOutputStream zos, ZipArchiveEntry ze) throws IOException {
+            ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+            zeOut.setMethod(ZipEntry.DEFLATED);
+            zeOut.setCrc(crc);
+            zeOut.setSize(size);
+            zeOut.setCompressedSize(compressedSize);
+            if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+            try (InputStream raw = Files.newInputStream(file.toPath())) {
+                zos.addRawArchiveEntry(zeOut, raw);
+            }
+        }
+
+        void dispose() throws IOException {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
     protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
         if (Zip64Mode.Always.equals(zip64Mode)) {
             return new OpcZipArchiveOutputStream(out);
@@ -21,7 +21,6 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
@@ -29,11 +28,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
-import java.util.PrimitiveIterator;
 
 import m.co.rh.id.apoi_spreadsheet.base.util.TempFile;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
@@ -42,7 +38,6 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.RichTextString;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
-import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.CodepointsUtil;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Removal;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.SharedStringsTable;
 
@@ -61,6 +56,13 @@ public class SheetDataWriter implements Closeable {
     private int _numberOfCellsOfLastFlushedRow; // meaningful only of _numberOfFlushedRows>0
     private int _numberLastFlushedRow = -1; // meaningful only of _numberOfFlushedRows>0
 
+    // scratch buffer to format cell references and numbers without intermediate Strings
+    private final char[] _chars = new char[32];
+    // 1-based number of the current row formatted as chars, appended to the column letters of each cell reference
+    private final char[] _rowChars = new char[11];
+    private int _rowCharsLength;
+    private int _rowCharsRownum = -1;
+
     /**
      * Table of strings shared across this workbook.
      * If two cells contain the same string, then the cell value is the same index into SharedStringsTable
@@ -82,6 +84,11 @@ public class SheetDataWriter implements Closeable {
         this._sharedStringSource = sharedStringsTable;
     }
 
+    public SheetDataWriter(Writer writer, SharedStringsTable sharedStringsTable) throws IOException {
+        this(writer);
+        this._sharedStringSource = sharedStringsTable;
+    }
+
     /**
      * Create a temp file to write sheet data.
      * By default, temp files are created in the default temporary-file directory
@@ -114,8 +121,7 @@ public class SheetDataWriter implements Closeable {
             fos.close();
             throw e;
         }
-        return new BufferedWriter(
-                new OutputStreamWriter(decorated, StandardCharsets.UTF_8));
+        return new Utf8Writer(decorated);
     }
 
     /**
@@ -216,7 +222,7 @@ public class SheetDataWriter implements Closeable {
 
     void beginRow(int rownum, SXSSFRow row) throws IOException {
         _out.write("<row");
-        writeAttribute("r", Integer.toString(rownum + 1));
+        writeAttribute("r", rownum + 1);
         if (row.hasCustomHeight()) {
             writeAttribute("customHeight", "1");
             writeAttribute("ht", Float.toString(row.getHeightInPoints()));
@@ -225,11 +231,11 @@ public class SheetDataWriter implements Closeable {
             writeAttribute("hidden", "1");
         }
         if (row.isFormatted()) {
-            writeAttribute("s", Integer.toString(row.getRowStyleIndex()));
+            writeAttribute("s", row.getRowStyleIndex());
             writeAttribute("customFormat", "1");
         }
         if (row.getOutlineLevel() != 0) {
-            writeAttribute("outlineLevel", Integer.toString(row.getOutlineLevel()));
+            writeAttribute("outlineLevel", row.getOutlineLevel());
         }
         if (row.getHidden() != null) {
             writeAttribute("hidden", row.getHidden() ? "1" : "0");
@@ -250,15 +256,14 @@ public class SheetDataWriter implements Closeable {
         if (cell == null) {
             return;
         }
-        String ref = new CellReference(_rownum, columnIndex).formatAsString();
         _out.write("<c");
-        writeAttribute("r", ref);
+        writeCellReference(columnIndex);
         CellStyle cellStyle = cell.getCellStyle();
         if (cellStyle.getIndex() != 0) {
             // need to convert the short to unsigned short as the indexes can be up to 64k
             // ideally we would use int for this index, but that would need changes to some more
             // APIs
-            writeAttribute("s", Integer.toString(cellStyle.getIndex() & 0xffff));
+            writeAttribute("s", cellStyle.getIndex() & 0xffff);
         }
         CellType cellType = cell.getCellType();
         switch (cellType) {
@@ -289,7 +294,7 @@ public class SheetDataWriter implements Closeable {
                         double nval = cell.getNumericCellValue();
                         if (!Double.isNaN(nval)) {
                             _out.write("<v>");
-                            _out.write(Double.toString(nval));
+                            writeDouble(nval);
                             _out.write("</v>");
                         }
                         break;
@@ -302,14 +307,14 @@ public class SheetDataWriter implements Closeable {
                         }
                         break;
                     case BOOLEAN:
-                        _out.write("><v>");
+                        _out.write("<v>");
                         _out.write(cell.getBooleanCellValue() ? "1" : "0");
                         _out.write("</v>");
                         break;
                     case ERROR: {
                         FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
 
-                        _out.write("><v>");
+                        _out.write("<v>");
                         outputEscapedString(error.getString());
                         _out.write("</v>");
                         break;
@@ -319,12 +324,19 @@ public class SheetDataWriter implements Closeable {
             }
             case STRING: {
                 if (_sharedStringSource != null) {
-                    RichTextString rt = cell.getRichStringCellValue();
-                    int sRef = _sharedStringSource.addSharedStringItem(rt);
+                    int sRef;
+                    if (_sharedStringSource instanceof SXSSFSharedStringsTable
+                            && cell instanceof SXSSFCell && ((SXSSFCell) cell).isPlainString()) {
+                        // no need to create a rich text string for plain text
+                        sRef = ((SXSSFSharedStringsTable) _sharedStringSource).addSharedString(cell.getStringCellValue());
+                    } else {
+                        RichTextString rt = cell.getRichStringCellValue();
+                        sRef = _sharedStringSource.addSharedStringItem(rt);
+                    }
 
                     writeAttribute("t", STCellType.S.toString());
                     _out.write("><v>");
-                    _out.write(String.valueOf(sRef));
+                    writeInt(sRef);
                     _out.write("</v>");
                 } else {
                     writeAttribute("t", "inlineStr");
@@ -341,7 +353,7 @@ public class SheetDataWriter implements Closeable {
             case NUMERIC: {
                 writeAttribute("t", "n");
                 _out.write("><v>");
-                _out.write(Double.toString(cell.getNumericCellValue()));
+                writeDouble(cell.getNumericCellValue());
                 _out.write("</v>");
                 break;
             }
@@ -376,6 +388,101 @@ public class SheetDataWriter implements Closeable {
         _out.write('\"');
     }
 
+    private void writeAttribute(String name, int value) throws IOException {
+        _out.write(' ');
+        _out.write(name);
+        _out.write("=\"");
+        writeInt(value);
+        _out.write('\"');
+    }
+
+    /**
+     * Writes the {@code r} attribute of a cell, same as {@link CellReference#formatAsString()}
+     * of a relative reference to the current row
+     */
+    private void writeCellReference(int columnIndex) throws IOException {
+        if (_rowCharsRownum != _rownum) {
+            _rowCharsLength = formatInt(_rownum + 1, _rowChars, 0);
+            _rowCharsRownum = _rownum;
+        }
+        final char[] chars = _chars;
+        int pos = chars.length;
+        // bijective base 26, see CellReference.convertNumToColString
+        int col = columnIndex + 1;
+        while (col > 0) {
+            int rem = (col - 1) % 26;
+            chars[--pos] = (char) ('A' + rem);
+            col = (col - 1) / 26;
+        }
+        int len = chars.length - pos;
+        System.arraycopy(chars, pos, chars, 0, len);
+        System.arraycopy(_rowChars, 0, chars, len, _rowCharsLength);
+        _out.write(" r=\"");
+        _out.write(chars, 0, len + _rowCharsLength);
+        _out.write('\"');
+    }
+
+    private void writeInt(int value) throws IOException {
+        int len = formatInt(value, _chars, 0);
+        _out.write(_chars, 0, len);
+    }
+
+    /**
+     * Writes the same text as {@link Double#toString(double)}, integral values in the range
+     * where it uses plain notation are formatted without creating a String
+     */
+    private void writeDouble(double value) throws IOException {
+        if (value == (long) value && Math.abs(value) < 1e7 && (value != 0 || 1 / value > 0)) {
+            final char[] chars = _chars;
+            long l = (long) value;
+            int pos = chars.length;
+            chars[--pos] = '0';
+            chars[--pos] = '.';
+            boolean negative = l < 0;
+            if (negative) {
+                l = -l;
+            }
+            do {
+                chars[--pos] = (char) ('0' + (l % 10));
+                l /= 10;
+            } while (l != 0);
+            if (negative) {
+                chars[--pos] = '-';
+            }
+            _out.write(chars, pos, chars.length - pos);
+        } else {
+            _out.write(Double.toString(value));
+        }
+    }
+
+    /**
+     * Formats value like {@link Integer#toString(int)} into chars starting at offset
+     *
+     * @return number of chars written
+     */
+    private static int formatInt(int value, char[] chars, int offset) {
+        if (value == Integer.MIN_VALUE) {
+            String s = Integer.toString(value);
+            s.getChars(0, s.length(), chars, offset);
+            return s.length();
+        }
+        int pos = offset;
+        if (value < 0) {
+            chars[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end - offset;
+    }
+
     /**
      * @return whether the string has leading / trailing spaces that
      * need to be preserved with the xml:space=\"preserve\" attribute
@@ -394,51 +501,57 @@ public class SheetDataWriter implements Closeable {
             return;
         }
 
-        int codepoint;
-        for (PrimitiveIterator.OfInt iter = CodepointsUtil.primitiveIterator(s); iter.hasNext(); ) {
-            codepoint = iter.nextInt();
-            switch (codepoint) {
+        // write runs of chars which need no escaping in one go, escaping is only needed for BMP chars
+        // so surrogate pairs are part of the runs
+        final int length = s.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            String replacement;
+            switch (c) {
                 case '<':
-                    _out.write("&lt;");
+                    replacement = "&lt;";
                     break;
                 case '>':
-                    _out.write("&gt;");
+                    replacement = "&gt;";
                     break;
                 case '&':
-                    _out.write("&amp;");
+                    replacement = "&amp;";
                     break;
                 case '\"':
-                    _out.write("&quot;");
+                    replacement = "&quot;";
                     break;
                 // Special characters
                 case '\n':
-                    _out.write("&#xa;");
+                    replacement = "&#xa;";
                     break;
                 case '\r':
-                    _out.write("&#xd;");
+                    replacement = "&#xd;";
                     break;
                 case '\t':
-                    _out.write("&#x9;");
+                    replacement = "&#x9;";
                     break;
                 case '\u00A0': // NO-BREAK SPACE
-                    _out.write("&#xa0;");
+                    replacement = "&#xa0;";
                     break;
                 default:
-                    final char[] chars = Character.toChars(codepoint);
-                    if (chars.length == 1) {
-                        char c = chars[0];
-                        // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
-                        // the same rule applies to "not a character" symbols.
-                        if (replaceWithQuestionMark(c)) {
-                            _out.write('?');
-                        } else {
-                            _out.write(c);
-                        }
+                    // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
+                    // the same rule applies to "not a character" symbols.
+                    if (replaceWithQuestionMark(c)) {
+                        replacement = "?";
                     } else {
-                        _out.write(chars);
+                        continue;
                     }
                     break;
             }
+            if (i > runStart) {
+                _out.write(s, runStart, i - runStart);
+            }
+            _out.write(replacement);
+            runStart = i + 1;
+        }
+        if (runStart < length) {
+            _out.write(s, runStart, length - runStart);
         }
     }
 
@@ -19,14 +19,11 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
 
 import android.util.Log;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Beta;
 
@@ -66,7 +63,7 @@ public class StreamingSheetWriter extends SheetDataWriter {
      * @param out the output stream to write to
      */
     protected static Writer createWriter(OutputStream out) throws IOException {
-        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return new Utf8Writer(out);
     }
 
     @Override
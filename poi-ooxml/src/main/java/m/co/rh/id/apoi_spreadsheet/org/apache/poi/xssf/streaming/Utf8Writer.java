@@ -0,0 +1,187 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Unsynchronized writer which encodes chars as UTF-8 straight into a reusable byte buffer.
+ * <p>
+ * It replaces the {@code BufferedWriter}/{@code OutputStreamWriter} pair used for the sheet data,
+ * which buffers the chars once and then runs them through a {@code CharsetEncoder} into a second buffer.
+ * The produced bytes are the same: unpaired surrogates are written as {@code '?'},
+ * just like the UTF-8 encoder of {@code OutputStreamWriter} does.
+ * </p>
+ */
+final class Utf8Writer extends Writer {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final OutputStream _out;
+    private final byte[] _buf;
+    private int _pos;
+    // high surrogate waiting for its low surrogate of the next write
+    private char _pendingHighSurrogate;
+    private boolean _closed;
+
+    Utf8Writer(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    Utf8Writer(OutputStream out, int bufferSize) {
+        if (bufferSize < 4) {
+            throw new IllegalArgumentException("bufferSize must be at least 4: " + bufferSize);
+        }
+        _out = out;
+        _buf = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (_pos + 4 > _buf.length) {
+            flushBuffer();
+        }
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        final byte[] buf = _buf;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c < 0x80 && _pendingHighSurrogate == 0) {
+                if (_pos == buf.length) {
+                    flushBuffer();
+                }
+                buf[_pos++] = (byte) c;
+            } else {
+                if (_pos + 4 > buf.length) {
+                    flushBuffer();
+                }
+                writeChar(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        final byte[] buf = _buf;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80 && _pendingHighSurrogate == 0) {
+                if (_pos == buf.length) {
+                    flushBuffer();
+                }
+                buf[_pos++] = (byte) c;
+            } else {
+                if (_pos + 4 > buf.length) {
+                    flushBuffer();
+                }
+                writeChar(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    /**
+     * Encodes one char, the caller makes sure there is room for 4 bytes
+     */
+    private void writeChar(char c) {
+        final byte[] buf = _buf;
+        if (_pendingHighSurrogate != 0) {
+            char high = _pendingHighSurrogate;
+            _pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buf[_pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[_pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[_pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[_pos++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            // the unpaired high surrogate takes 1 byte, c takes at most 3 more
+            buf[_pos++] = '?';
+        }
+        if (c < 0x80) {
+            buf[_pos++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[_pos++] = (byte) (0xC0 | (c >> 6));
+            buf[_pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            _pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[_pos++] = '?';
+        } else {
+            buf[_pos++] = (byte) (0xE0 | (c >> 12));
+            buf[_pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[_pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_pos > 0) {
+            _out.write(_buf, 0, _pos);
+            _pos = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (_closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        try {
+            if (_pendingHighSurrogate != 0) {
+                _pendingHighSurrogate = 0;
+                if (_pos == _buf.length) {
+                    flushBuffer();
+                }
+                _buf[_pos++] = '?';
+            }
+            flushBuffer();
+        } finally {
+            _closed = true;
+            _out.close();
+        }
+    }
+}
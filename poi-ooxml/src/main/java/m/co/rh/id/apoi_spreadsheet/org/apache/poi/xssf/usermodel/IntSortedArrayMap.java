@@ -0,0 +1,335 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Sorted map from int keys to values, stored in a pair of parallel arrays with a gap buffer.
+ * <p>
+ * Used instead of a {@code TreeMap<Integer, V>} for the rows of a sheet and the cells of a row,
+ * it needs no tree node and no boxed key per entry. Lookups are a binary search, appending
+ * a key greater than all others is amortized O(1), and inserting or removing keys close to the
+ * previous insert or remove only moves the entries between the two positions.
+ * </p>
+ * Iterators are fail-fast and support {@link Iterator#remove()}.
+ */
+final class IntSortedArrayMap<V> {
+    private static final int[] EMPTY_KEYS = {};
+    private static final Object[] EMPTY_VALUES = {};
+
+    // logical index i is stored at i if i < _gapStart, else at i + gap length
+    private int[] _keys;
+    private Object[] _values;
+    private int _size;
+    private int _gapStart;
+    private int _modCount;
+
+    private Values _valuesView;
+
+    IntSortedArrayMap() {
+        _keys = EMPTY_KEYS;
+        _values = EMPTY_VALUES;
+    }
+
+    IntSortedArrayMap(int initialCapacity) {
+        _keys = initialCapacity == 0 ? EMPTY_KEYS : new int[initialCapacity];
+        _values = initialCapacity == 0 ? EMPTY_VALUES : new Object[initialCapacity];
+    }
+
+    int size() {
+        return _size;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    private int gapLength() {
+        return _keys.length - _size;
+    }
+
+    private int physical(int index) {
+        return index < _gapStart ? index : index + gapLength();
+    }
+
+    /**
+     * @return the key at the given position in ascending key order
+     */
+    int keyAt(int index) {
+        return _keys[physical(index)];
+    }
+
+    /**
+     * @return the value at the given position in ascending key order
+     */
+    @SuppressWarnings("unchecked")
+    V valueAt(int index) {
+        return (V) _values[physical(index)];
+    }
+
+    int firstKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(0);
+    }
+
+    int lastKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(_size - 1);
+    }
+
+    /**
+     * @return position of key, or {@code -(insertion point) - 1} if the key is not contained
+     */
+    int indexOfKey(int key) {
+        int low = 0;
+        int high = _size - 1;
+        // rows and cells are mostly accessed in ascending order, check the last key first
+        if (high >= 0) {
+            int last = keyAt(high);
+            if (key > last) {
+                return -(_size + 1);
+            } else if (key == last) {
+                return high;
+            }
+            high--;
+        }
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = keyAt(mid);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return number of keys less than the given key
+     */
+    int rank(int key) {
+        int index = indexOfKey(key);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    boolean containsKey(int key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    V get(int key) {
+        int index = indexOfKey(key);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    /**
+     * @return the previous value of the key, or {@code null}
+     */
+    V put(int key, V value) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            int p = physical(index);
+            @SuppressWarnings("unchecked")
+            V prev = (V) _values[p];
+            _values[p] = value;
+            return prev;
+        }
+        insertAt(-(index + 1), key, value);
+        return null;
+    }
+
+    V remove(int key) {
+        int index = indexOfKey(key);
+        return index >= 0 ? removeAt(index) : null;
+    }
+
+    V removeAt(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        moveGap(index);
+        // the removed entry is the first one after the gap, growing the gap by one drops it
+        int p = index + gapLength();
+        @SuppressWarnings("unchecked")
+        V prev = (V) _values[p];
+        _values[p] = null;
+        _size--;
+        _modCount++;
+        return prev;
+    }
+
+    boolean containsValue(Object value) {
+        for (int i = 0; i < _size; i++) {
+            Object v = valueAt(i);
+            if (value == null ? v == null : value.equals(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        Arrays.fill(_values, null);
+        _size = 0;
+        _gapStart = 0;
+        _modCount++;
+    }
+
+    private void insertAt(int index, int key, V value) {
+        if (gapLength() == 0) {
+            grow(index);
+        } else {
+            moveGap(index);
+        }
+        _keys[_gapStart] = key;
+        _values[_gapStart] = value;
+        _gapStart++;
+        _size++;
+        _modCount++;
+    }
+
+    /**
+     * Grows the arrays by half, placing the new gap at the given index
+     */
+    private void grow(int index) {
+        int newCapacity = Math.max(8, _keys.length + (_keys.length >> 1));
+        int[] keys = new int[newCapacity];
+        Object[] values = new Object[newCapacity];
+        // the gap is empty, so the logical and physical positions are the same
+        System.arraycopy(_keys, 0, keys, 0, index);
+        System.arraycopy(_values, 0, values, 0, index);
+        int tail = _size - index;
+        System.arraycopy(_keys, index, keys, newCapacity - tail, tail);
+        System.arraycopy(_values, index, values, newCapacity - tail, tail);
+        _keys = keys;
+        _values = values;
+        _gapStart = index;
+    }
+
+    private void moveGap(int index) {
+        final int gap = gapLength();
+        if (index == _gapStart || gap == 0) {
+            _gapStart = index;
+            return;
+        }
+        if (index < _gapStart) {
+            int count = _gapStart - index;
+            System.arraycopy(_keys, index, _keys, index + gap, count);
+            System.arraycopy(_values, index, _values, index + gap, count);
+            // clear the references left behind in the new gap
+            Arrays.fill(_values, index, Math.min(index + gap, _gapStart), null);
+        } else {
+            int count = index - _gapStart;
+            System.arraycopy(_keys, _gapStart + gap, _keys, _gapStart, count);
+            System.arraycopy(_values, _gapStart + gap, _values, _gapStart, count);
+            Arrays.fill(_values, Math.max(index, _gapStart + gap), index + gap, null);
+        }
+        _gapStart = index;
+    }
+
+    /**
+     * @return live view of the values in ascending key order
+     */
+    Collection<V> values() {
+        Values values = _valuesView;
+        if (values == null) {
+            values = new Values();
+            _valuesView = values;
+        }
+        return values;
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            // also SIZED and SUBSIZED, as for any collection
+            return Spliterators.spliterator(this, Spliterator.ORDERED);
+        }
+
+        @Override
+        public int size() {
+            return _size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return _size == 0;
+        }
+
+        @Override
+        public void clear() {
+            IntSortedArrayMap.this.clear();
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int _next;
+        private int _lastReturned = -1;
+        private int _expectedModCount = _modCount;
+
+        @Override
+        public boolean hasNext() {
+            return _next < _size;
+        }
+
+        @Override
+        public V next() {
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_next >= _size) {
+                throw new NoSuchElementException();
+            }
+            _lastReturned = _next++;
+            return valueAt(_lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (_lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(_lastReturned);
+            _next = _lastReturned;
+            _lastReturned = -1;
+            _expectedModCount = _modCount;
+        }
+    }
+}
@@ -495,6 +495,8 @@ public final class XSSFCell extends CellBase {
             FormulaParser.parse(formula, fpb, formulaType, wb.getSheetIndex(getSheet()), getRowIndex());
         }
 
+        wb.getFormulaTokenCache().onFormulaChanged(this);
+
         CTCellFormula f;
         if (_cell.isSetF()) {
             f = _cell.getF();
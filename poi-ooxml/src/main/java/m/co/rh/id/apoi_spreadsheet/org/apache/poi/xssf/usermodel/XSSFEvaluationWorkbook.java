@@ -22,8 +22,6 @@ import java.util.Map;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationCell;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationSheet;
-import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.FormulaParser;
-import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.FormulaType;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ptg;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
 
@@ -52,6 +50,7 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
     public void clearAllCachedResultValues() {
         super.clearAllCachedResultValues();
         _sheetCache.clear();
+        _uBook.getFormulaTokenCache().clear();
     }
 
     @Override
@@ -77,11 +76,13 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
         return _sheetCache.computeIfAbsent(sheet, rows -> new XSSFEvaluationSheet(sheet));
     }
 
+    /**
+     * Returns the parsed formula tokens of the cell. Tokens are cached per workbook,
+     * see {@link XSSFFormulaTokenCache}, so that recalculations do not re-parse formula text.
+     */
     @Override
     public Ptg[] getFormulaTokens(EvaluationCell evalCell) {
         final XSSFCell cell = ((XSSFEvaluationCell)evalCell).getXSSFCell();
-        final int sheetIndex = _uBook.getSheetIndex(cell.getSheet());
-        return FormulaParser.parse(cell.getCellFormula(this), this,
-                FormulaType.CELL, sheetIndex, cell.getRowIndex());
+        return _uBook.getFormulaTokenCache().getFormulaTokens(cell, this);
     }
 }
@@ -17,12 +17,21 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.EvaluationCell;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.IStabilityClassifier;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.WorkbookEvaluator;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.udf.UDFFinder;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.model.CalculationChain;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
 
 /**
  * Evaluates formula cells.<p>
@@ -100,6 +109,43 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Workers get their own evaluation workbook and cache, formula tokens are shared through
+     * the thread-safe {@link XSSFFormulaTokenCache} of the workbook.
+     */
+    @Override
+    protected BaseFormulaEvaluator createParallelWorker() {
+        return new XSSFFormulaEvaluator(_book, getStabilityClassifier(), null);
+    }
+
+    /**
+     * Reads the order from the calcChain part, if the workbook has one
+     */
+    @Override
+    protected Iterable<CellReference> getCalculationChain() {
+        CalculationChain chain = _book.getCalculationChain();
+        if (chain == null) {
+            return null;
+        }
+        Map<Long, String> sheetNames = new HashMap<>();
+        for (CTSheet ctSheet : _book.getCTWorkbook().getSheets().getSheetArray()) {
+            sheetNames.put(ctSheet.getSheetId(), ctSheet.getName());
+        }
+        List<CellReference> cells = new ArrayList<>();
+        String sheetName = null;
+        for (CTCalcCell c : chain.getCTCalcChain().getCArray()) {
+            // if the sheet id is omitted, it is the same as the one of the previous cell
+            if (c.isSetI()) {
+                sheetName = sheetNames.get((long) c.getI());
+            }
+            if (sheetName != null) {
+                CellReference ref = new CellReference(c.getR());
+                cells.add(new CellReference(sheetName, ref.getRow(), ref.getCol(), false, false));
+            }
+        }
+        return cells;
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
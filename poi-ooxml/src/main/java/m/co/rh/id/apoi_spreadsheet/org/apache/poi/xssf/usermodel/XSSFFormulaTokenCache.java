@@ -0,0 +1,193 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
+
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellFormula;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellFormulaType;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.SpreadsheetVersion;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.FormulaParser;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.FormulaType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.SharedFormula;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ptg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellRangeAddress;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
+
+/**
+ * Internal POI use only - per-workbook cache of parsed formula tokens.
+ * <p>
+ * Formula evaluation asks for the tokens of a cell every time the evaluation cache misses,
+ * which used to re-parse the formula text on every recalculation. This cache keeps the parsed
+ * {@link Ptg} arrays of ordinary formula cells in a bounded LRU keyed on the cell, and keeps a
+ * single parsed token array per shared-formula group which is relocated for each member cell
+ * with {@link SharedFormula#convertSharedFormulas(Ptg[], int, int)}.
+ * </p>
+ * <p>
+ * Entries are dropped when a cell formula is set or removed, and the cache is cleared when rows
+ * or columns are shifted, names are removed or sheets are renamed, removed or reordered.
+ * Formulas containing structured or external references (any {@code '['}) are position or
+ * link dependent and are never cached.
+ * </p>
+ *
+ * @see XSSFWorkbook#getFormulaTokenCache()
+ */
+@Internal
+public final class XSSFFormulaTokenCache {
+    /**
+     * Default maximum number of cached per-cell token arrays
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final SharedFormula _sharedFormula = new SharedFormula(SpreadsheetVersion.EXCEL2007);
+
+    // keyed on the master formula bean of each shared formula group
+    private final Map<CTCellFormula, Ptg[]> _sharedTokens = new IdentityHashMap<>();
+
+    private final LruMap _cellTokens = new LruMap();
+
+    private int _maxEntries = DEFAULT_MAX_ENTRIES;
+
+    XSSFFormulaTokenCache() {
+    }
+
+    /**
+     * @return maximum number of cached per-cell token arrays
+     */
+    public synchronized int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of cached per-cell token arrays, the least recently used
+     * entries are evicted first. A value of {@code 0} disables caching.
+     *
+     * @param maxEntries maximum number of cached entries
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        }
+        _maxEntries = maxEntries;
+        if (maxEntries == 0) {
+            clear();
+        } else {
+            while (_cellTokens.size() > maxEntries) {
+                _cellTokens.remove(_cellTokens.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * @return number of per-cell entries currently cached
+     */
+    public synchronized int size() {
+        return _cellTokens.size();
+    }
+
+    /**
+     * Removes all cached token arrays
+     */
+    public synchronized void clear() {
+        _cellTokens.clear();
+        _sharedTokens.clear();
+    }
+
+    /**
+     * Removes the cached tokens of the given cell, including the shared token array
+     * of its shared formula group if the cell is part of one.
+     *
+     * @param cell the cell which formula changed or was removed
+     */
+    public synchronized void onFormulaChanged(XSSFCell cell) {
+        _cellTokens.remove(cell);
+        CTCellFormula f = cell.getCTCell().getF();
+        if (f != null && f.getT() == STCellFormulaType.SHARED && f.isSetSi()) {
+            CTCellFormula master = cell.getSheet().getSharedFormula(Math.toIntExact(f.getSi()));
+            if (master != null) {
+                _sharedTokens.remove(master);
+            }
+            _sharedTokens.remove(f);
+        }
+    }
+
+    /**
+     * Returns the parsed tokens for the formula of the given cell, parsing only on a cache miss.
+     * The returned array is shared and must not be modified.
+     */
+    synchronized Ptg[] getFormulaTokens(XSSFCell cell, BaseXSSFEvaluationWorkbook fpb) {
+        Ptg[] ptgs = _cellTokens.get(cell);
+        if (ptgs != null) {
+            return ptgs;
+        }
+
+        final XSSFSheet sheet = cell.getSheet();
+        final int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+        CTCellFormula f = cell.getCTCell().getF();
+        if (f != null && f.getT() == STCellFormulaType.SHARED && _maxEntries > 0
+                && !cell.isPartOfArrayFormulaGroup()) {
+            ptgs = getSharedFormulaTokens(cell, Math.toIntExact(f.getSi()), fpb, sheetIndex);
+            if (ptgs != null) {
+                return ptgs;
+            }
+        }
+
+        String formula = cell.getCellFormula(fpb);
+        ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, cell.getRowIndex());
+        if (_maxEntries > 0 && formula.indexOf('[') == -1) {
+            _cellTokens.put(cell, ptgs);
+        }
+        return ptgs;
+    }
+
+    private Ptg[] getSharedFormulaTokens(XSSFCell cell, int si, BaseXSSFEvaluationWorkbook fpb, int sheetIndex) {
+        CTCellFormula master = cell.getSheet().getSharedFormula(si);
+        if (master == null) {
+            // let XSSFCell report the missing master cell
+            return null;
+        }
+        CellRangeAddress ref = CellRangeAddress.valueOf(master.getRef());
+        Ptg[] template = _sharedTokens.get(master);
+        if (template == null) {
+            String formula = master.getStringValue();
+            if (formula.indexOf('[') != -1) {
+                return null;
+            }
+            template = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, ref.getFirstRow());
+            _sharedTokens.put(master, template);
+        }
+        return _sharedFormula.convertSharedFormulas(template,
+                cell.getRowIndex() - ref.getFirstRow(), cell.getColumnIndex() - ref.getFirstColumn());
+    }
+
+    private final class LruMap extends LinkedHashMap<XSSFCell, Ptg[]> {
+        private static final long serialVersionUID = 1L;
+
+        private LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<XSSFCell, Ptg[]> eldest) {
+            return size() > _maxEntries;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
+
+import java.util.Arrays;
+
+/**
+ * Selects the sheets which are parsed when a workbook is opened, see
+ * {@link XSSFWorkbook#XSSFWorkbook(m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.opc.OPCPackage, XSSFSheetFilter)}.
+ * The other sheets are parsed on first access, and written back unchanged if they are never accessed.
+ */
+@FunctionalInterface
+public interface XSSFSheetFilter {
+
+    /**
+     * @param sheetIndex the 0-based index of the sheet in the workbook
+     * @param sheetName  the name of the sheet
+     * @return whether the sheet is parsed when the workbook is opened
+     */
+    boolean accept(int sheetIndex, String sheetName);
+
+    /**
+     * @return a filter which parses no sheet when the workbook is opened, i.e. every sheet on first access
+     */
+    static XSSFSheetFilter none() {
+        return (sheetIndex, sheetName) -> false;
+    }
+
+    /**
+     * @param sheetNames the names of the sheets to parse when the workbook is opened (case insensitive match)
+     * @return a filter accepting the sheets with the given names
+     */
+    static XSSFSheetFilter names(String... sheetNames) {
+        String[] names = sheetNames.clone();
+        return (sheetIndex, sheetName) -> {
+            for (String name : names) {
+                if (name.equalsIgnoreCase(sheetName)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * @param sheetIndexes the 0-based indexes of the sheets to parse when the workbook is opened
+     * @return a filter accepting the sheets at the given indexes
+     */
+    static XSSFSheetFilter indexes(int... sheetIndexes) {
+        int[] indexes = sheetIndexes.clone();
+        Arrays.sort(indexes);
+        return (sheetIndex, sheetName) -> Arrays.binarySearch(indexes, sheetIndex) >= 0;
+    }
+}
@@ -177,6 +177,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
     private CalculationChain calcChain;
 
+    /**
+     * Parsed formula tokens, reused across formula evaluations
+     */
+    private final XSSFFormulaTokenCache formulaTokenCache = new XSSFFormulaTokenCache();
+
     /**
      * External Links, for referencing names or cells in other workbooks.
      */
@@ -229,6 +234,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
     private final XSSFFactory xssfFactory;
 
+    /**
+     * Selects the sheets parsed on open, the others are parsed on first access - {@code null} for all sheets
+     */
+    private XSSFSheetFilter sheetFilter;
+
     /**
      * Create a new SpreadsheetML workbook.
      */
@@ -273,8 +283,32 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      *                               input format
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, null);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J {@code Package} object,
+     * parsing only the sheets selected by the filter when the workbook is opened.
+     * <p>
+     * The other sheets are parsed when they are first accessed, e.g. by {@link #getSheet(String)},
+     * {@link #getSheetAt(int)}, {@link #sheetIterator()} or by evaluating a formula referring to them.
+     * Sheets which are never accessed are written back with the data they were read with, so opening
+     * a workbook takes time and memory proportional to the sheets which are used. Pivot tables of
+     * sheets which were not parsed are not included in {@link #getPivotTables()}.
+     *
+     * @param pkg         the OpenXML4J {@code OPC Package} object.
+     * @param sheetFilter selects the sheets which are parsed when the workbook is opened,
+     *                    e.g. {@link XSSFSheetFilter#none()} to parse every sheet on first access,
+     *                    or {@code null} to parse all sheets
+     * @throws IOException           If reading data from the package fails
+     * @throws POIXMLException       a RuntimeException that can be caused by invalid OOXML data
+     * @throws IllegalStateException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     *                               input format
+     */
+    public XSSFWorkbook(OPCPackage pkg, XSSFSheetFilter sheetFilter) throws IOException {
         super(pkg);
         this.xssfFactory = XSSFFactory.getInstance();
+        this.sheetFilter = sheetFilter;
 
         beforeDocumentRead();
 
@@ -335,6 +369,22 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         this(PackageHelper.open(stream, closeStream));
     }
 
+    /**
+     * Constructs a XSSFWorkbook object from a stream, parsing only the sheets selected by the
+     * filter when the workbook is opened, see {@link #XSSFWorkbook(OPCPackage, XSSFSheetFilter)}.
+     * The stream is closed.
+     *
+     * @param stream      input stream
+     * @param sheetFilter selects the sheets which are parsed when the workbook is opened, {@code null} for all sheets
+     * @throws IOException           If reading data from the stream fails
+     * @throws POIXMLException       a RuntimeException that can be caused by invalid OOXML data
+     * @throws IllegalStateException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     *                               input format
+     */
+    public XSSFWorkbook(InputStream stream, XSSFSheetFilter sheetFilter) throws IOException {
+        this(PackageHelper.open(stream), sheetFilter);
+    }
+
     /**
      * Constructs a XSSFWorkbook object from a given file.
      *
@@ -517,7 +567,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (sheetFilter == null || sheetFilter.accept(sheets.size(), ctSheet.getName())) {
+            sh.onDocumentRead();
+        } else {
+            sh.deferDocumentRead();
+        }
         sheets.add(sh);
     }
 
@@ -677,7 +731,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      */
     public XSSFSheet cloneSheet(int sheetNum, String newName) {
         validateSheetIndex(sheetNum);
-        XSSFSheet srcSheet = sheets.get(sheetNum);
+        XSSFSheet srcSheet = sheets.get(sheetNum).ensureDocumentRead();
 
         if (newName == null) {
             String srcName = srcSheet.getSheetName();
@@ -1217,7 +1271,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFSheet getSheet(String name) {
         for (XSSFSheet sheet : sheets) {
             if (name.equalsIgnoreCase(sheet.getSheetName())) {
-                return sheet;
+                return sheet.ensureDocumentRead();
             }
         }
         return null;
@@ -1234,7 +1288,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     public XSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return sheets.get(index);
+        return sheets.get(index).ensureDocumentRead();
     }
 
     /**
@@ -1323,6 +1377,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     @SuppressWarnings("unchecked")
     public Spliterator<Sheet> spliterator() {
+        for (XSSFSheet sh : sheets) {
+            sh.ensureDocumentRead();
+        }
         return (Spliterator<Sheet>) (Spliterator<? extends Sheet>) sheets.spliterator();
     }
 
@@ -1341,7 +1398,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
         @Override
         public T next() throws NoSuchElementException {
-            return it.next();
+            T sheet = it.next();
+            ((XSSFSheet) sheet).ensureDocumentRead();
+            return sheet;
         }
 
         /**
@@ -1376,6 +1435,8 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
                 || !namedRanges.remove(name)) {
             throw new IllegalArgumentException("Name was not found: " + name);
         }
+        // name indexes of the remaining names have moved
+        formulaTokenCache.clear();
     }
 
     void updateName(XSSFName name, String oldName) {
@@ -1418,6 +1479,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         validateSheetIndex(index);
 
         onSheetDelete(index);
+        formulaTokenCache.clear();
 
         XSSFSheet sheet = getSheetAt(index);
         removeRelation(sheet);
@@ -1684,7 +1746,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public void setSelectedTab(int index) {
         int idx = 0;
         for (XSSFSheet sh : sheets) {
-            sh.setSelected(idx == index);
+            sh.ensureDocumentRead().setSelected(idx == index);
             idx++;
         }
     }
@@ -1727,6 +1789,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         // Update references to the name
         XSSFFormulaUtils utils = new XSSFFormulaUtils(this);
         utils.updateSheetName(sheetIndex, oldSheetName, sheetname);
+        formulaTokenCache.clear();
 
         workbook.getSheets().getSheetArray(sheetIndex).setName(sheetname);
     }
@@ -1757,6 +1820,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
         updateNamedRangesAfterSheetReorder(idx, pos);
         updateActiveSheetAfterSheetReorder(idx, pos);
+        formulaTokenCache.clear();
     }
 
     /**
@@ -2049,12 +2113,23 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      * @see XSSFCell#setCellFormula(String)
      */
     protected void onDeleteFormula(XSSFCell cell) {
+        formulaTokenCache.onFormulaChanged(cell);
         if (calcChain != null) {
             int sheetId = (int) cell.getSheet().sheet.getSheetId();
             calcChain.removeItem(sheetId, cell.getReference());
         }
     }
 
+    /**
+     * Return the cache of parsed formula tokens used by formula evaluation
+     *
+     * @return the formula token cache of this workbook, never {@code null}
+     */
+    @Internal
+    public XSSFFormulaTokenCache getFormulaTokenCache() {
+        return formulaTokenCache;
+    }
+
     /**
      * Return the {@link CalculationChain} object for this workbook
      * <p>
@@ -2492,7 +2567,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFTable getTable(String name) {
         if (name != null && sheets != null) {
             for (XSSFSheet sheet : sheets) {
-                for (XSSFTable tbl : sheet.getTables()) {
+                for (XSSFTable tbl : sheet.ensureDocumentRead().getTables()) {
                     if (name.equalsIgnoreCase(tbl.getName())) {
                         return tbl;
                     }
@@ -20,6 +20,7 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -32,6 +33,7 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSFileSyst
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.WorkbookFactory;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.WorkbookProvider;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
 
 @Internal
@@ -66,10 +68,7 @@ public class XSSFWorkbookFactory implements WorkbookProvider {
         FileMagic fm = FileMagic.valueOf(bufInp);
 
         if (fm == FileMagic.OLE2) {
-            try (POIFSFileSystem poifs = new POIFSFileSystem(bufInp);
-                 InputStream stream = DocumentFactoryHelper.getDecryptedStream(poifs.getRoot(), password)) {
-                return create(stream);
-            }
+            return create(new POIFSFileSystem(bufInp), password);
         }
 
         if (fm == FileMagic.OOXML) {
@@ -102,6 +101,36 @@ public class XSSFWorkbookFactory implements WorkbookProvider {
         }
     }
 
+    /**
+     * Creates a XSSFWorkbook from an encrypted package. If the encryption supports random access,
+     * only the parts of the package which are read are decrypted and the file system is
+     * closed with the workbook, otherwise the package is decrypted as a whole.
+     */
+    @SuppressWarnings("resource")
+    private XSSFWorkbook create(POIFSFileSystem poifs, String password) throws IOException {
+        SeekableByteChannel channel;
+        try {
+            channel = DocumentFactoryHelper.getDecryptedChannel(poifs.getRoot(), password, true);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(poifs);
+            throw e;
+        }
+
+        if (channel == null) {
+            try (POIFSFileSystem fs = poifs;
+                 InputStream stream = DocumentFactoryHelper.getDecryptedStream(fs.getRoot(), password)) {
+                return create(stream);
+            }
+        }
+
+        try {
+            OPCPackage pkg = OPCPackage.open(channel);
+            return createWorkbook(pkg);
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Creates a XSSFWorkbook from the given OOXML Package
      *
@@ -146,10 +175,7 @@ public class XSSFWorkbookFactory implements WorkbookProvider {
         FileMagic fm = FileMagic.valueOf(file);
 
         if (fm == FileMagic.OLE2) {
-            try (POIFSFileSystem poifs = new POIFSFileSystem(file, true);
-                 InputStream stream = DocumentFactoryHelper.getDecryptedStream(poifs.getRoot(), password)) {
-                return create(stream);
-            }
+            return create(new POIFSFileSystem(file, true), password);
         }
 
         try {
@@ -96,6 +96,9 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
             if (sheet == sh) continue;
             updateSheetFormulas(sh, formulaShifter);
         }
+
+        // shared formula groups and cell positions may have moved
+        ((XSSFWorkbook) wb).getFormulaTokenCache().clear();
     }
 
     /*package*/
@@ -125,6 +128,7 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.xssf.usermodel.XSSFWorkbook;
                 if (formula.length() > 0) {
                     String shiftedFormula = shiftFormula(row, formula, formulaShifter);
                     if (shiftedFormula != null) {
+                        sheet.getWorkbook().getFormulaTokenCache().onFormulaChanged(cell);
                         f.setStringValue(shiftedFormula);
                         if (f.getT() == STCellFormulaType.SHARED) {
                             int si = Math.toIntExact(f.getSi());
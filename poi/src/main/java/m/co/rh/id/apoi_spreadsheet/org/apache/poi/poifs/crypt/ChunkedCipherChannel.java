@@ -0,0 +1,195 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSDocument;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
+
+/**
+ * A read-only random access view of chunked encrypted data, the counterpart of
+ * {@link ChunkedCipherInputStream} for readers which seek, e.g. the zip central directory.
+ * <p>
+ * Only the chunks which are read are decrypted, the most recently read ones are kept
+ * so that reading nearby data doesn't decrypt a chunk again.
+ * </p>
+ */
+@Internal
+public abstract class ChunkedCipherChannel implements SeekableByteChannel {
+    /** the number of decrypted chunks which are kept */
+    private static final int MAX_CACHED_CHUNKS = 16;
+
+    private final POIFSDocument document;
+    private final int dataOffset;
+    private final long size;
+    private final int chunkSize;
+    private final Closeable owner;
+
+    private final Map<Integer, byte[]> chunks = new LinkedHashMap<Integer, byte[]>(MAX_CACHED_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > MAX_CACHED_CHUNKS;
+        }
+    };
+
+    private Cipher cipher;
+    private long position;
+    private boolean open = true;
+
+    /**
+     * @param document the document holding the encrypted data
+     * @param dataOffset the offset of the encrypted data within the document, i.e. after the size field
+     * @param size the size of the decrypted data
+     * @param chunkSize the size of the chunks which are encrypted with the same key and IV
+     * @param owner closed with the channel, e.g. the file system of the document, or {@code null}
+     */
+    protected ChunkedCipherChannel(POIFSDocument document, int dataOffset, long size, int chunkSize, Closeable owner) {
+        this.document = document;
+        this.dataOffset = dataOffset;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.owner = owner;
+    }
+
+    protected abstract Cipher initCipherForBlock(Cipher existing, int block)
+    throws GeneralSecurityException;
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            int index = (int) (position / chunkSize);
+            int inChunk = (int) (position % chunkSize);
+            byte[] plain = getChunk(index);
+            int count = (int) Math.min(dst.remaining(), Math.min(chunkSize - inChunk, size - position));
+            dst.put(plain, inChunk, count);
+            position += count;
+            total += count;
+        }
+        return total;
+    }
+
+    private byte[] getChunk(int index) throws IOException {
+        byte[] plain = chunks.get(index);
+        if (plain != null) {
+            return plain;
+        }
+
+        long start = (long) index * chunkSize;
+        int todo = (int) Math.min(chunkSize, (long) document.getSize() - dataOffset - start);
+        int needed = (int) Math.min(chunkSize, size - start);
+        if (todo < needed) {
+            throw new EOFException("buffer underrun");
+        }
+        byte[] chunk = IOUtils.safelyAllocate(todo, CryptoFunctions.MAX_RECORD_LENGTH);
+        int read = document.read(Math.toIntExact(dataOffset + start), chunk, 0, todo);
+        if (read < todo) {
+            throw new EOFException("buffer underrun");
+        }
+
+        try {
+            cipher = initCipherForBlock(cipher, index);
+            plain = new byte[cipher.getOutputSize(todo)];
+            // like the stream, only full chunks are finished, the padding of the last one is ignored
+            int count = (todo == chunkSize)
+                ? cipher.doFinal(chunk, 0, todo, plain)
+                : cipher.update(chunk, 0, todo, plain);
+            if (count < needed) {
+                throw new EOFException("buffer underrun");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new EncryptedDocumentException(e.getMessage(), e);
+        }
+
+        chunks.put(index, plain);
+        return plain;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        chunks.clear();
+        if (owner != null) {
+            owner.close();
+        }
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
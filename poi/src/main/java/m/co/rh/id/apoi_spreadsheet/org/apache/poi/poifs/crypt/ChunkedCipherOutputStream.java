@@ -26,9 +26,16 @@ import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
 
@@ -65,6 +72,13 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     private Cipher cipher;
     private boolean isClosed;
 
+    private int parallelism = 1;
+    private ExecutorService executor;
+    /** the chunks being encrypted by the workers, in the order they are written */
+    private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+    /** the cipher of each worker, as a cipher instance can't be shared between threads */
+    private final ThreadLocal<Cipher> workerCipher = new ThreadLocal<>();
+
     public ChunkedCipherOutputStream(DirectoryNode dir, int chunkSize) throws IOException, GeneralSecurityException {
         super(null);
         this.chunkSize = chunkSize;
@@ -104,6 +118,26 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     protected abstract Cipher initCipherForBlock(Cipher existing, int block, boolean lastChunk)
             throws IOException, GeneralSecurityException;
 
+    /**
+     * Sets the number of threads which encrypt the chunks.
+     * <p>
+     * With more than one thread, full chunks are encrypted by a worker pool while the next ones are
+     * filled, and are written in order. At most twice as many chunks as threads are in flight.
+     * This is only possible if each chunk is encrypted on its own, i.e. the cipher is initialized
+     * for every chunk by {@link #initCipherForBlock(Cipher, int, boolean)} and is thread safe
+     * when called with a {@code null} cipher, and the chunks contain no plain bytes.
+     * Otherwise, and for the padded last chunk, the chunks are encrypted on the writing thread.
+     * </p>
+     *
+     * @param parallelism number of threads, 1 (the default) to encrypt the chunks on the writing thread
+     */
+    protected void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, had " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     protected abstract void calculateChecksum(File fileOut, int oleStreamSize)
             throws GeneralSecurityException, IOException;
 
@@ -180,6 +214,13 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
             lastChunk = true;
         }
 
+        if (parallelism > 1 && chunkSize != STREAMING && !lastChunk && plainByteFlags.isEmpty()) {
+            submitChunk(index);
+            return;
+        }
+        // the chunks in flight are written first to keep the order
+        writePendingChunks(0);
+
         int ciLen;
         try {
             boolean doFinal = true;
@@ -206,6 +247,49 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
         written += ciLen;
     }
 
+    private void submitChunk(int index) throws IOException {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+        final byte[] plain = chunk.clone();
+        pendingChunks.add(executor.submit(() -> encryptChunk(plain, index)));
+        // a full chunk is encrypted without padding, i.e. to the same size
+        written += plain.length;
+        writePendingChunks(2 * parallelism);
+    }
+
+    private byte[] encryptChunk(byte[] plain, int index) throws IOException, GeneralSecurityException {
+        Cipher c = initCipherForBlock(workerCipher.get(), index, false);
+        workerCipher.set(c);
+        int ciLen = c.doFinal(plain, 0, plain.length, plain);
+        if (ciLen != plain.length) {
+            throw new IOException("the encrypted chunk has " + ciLen + " instead of " + plain.length + " bytes");
+        }
+        return plain;
+    }
+
+    /**
+     * Writes the encrypted chunks in order, until at most the given number of chunks is in flight
+     */
+    private void writePendingChunks(int maxPending) throws IOException {
+        while (pendingChunks.size() > maxPending) {
+            byte[] encrypted;
+            try {
+                encrypted = pendingChunks.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while encrypting the chunks");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("can't encrypt chunk", cause);
+            }
+            out.write(encrypted);
+        }
+    }
+
     /**
      * Helper function for overriding the cipher invocation, i.e. XOR doesn't use a cipher
      * and uses its own implementation
@@ -256,6 +340,7 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
 
         try {
             writeChunk(false);
+            writePendingChunks(0);
 
             super.close();
 
@@ -268,6 +353,9 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
         } catch (GeneralSecurityException e) {
             throw new IOException(e);
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
             if (fileOut != null) {
                 if (!fileOut.delete()) {
                     //ignore
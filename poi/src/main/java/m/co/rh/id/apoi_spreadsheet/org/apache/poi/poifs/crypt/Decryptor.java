@@ -18,6 +18,7 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -80,6 +81,28 @@ public abstract class Decryptor implements GenericRecord {
         throw new EncryptedDocumentException("this decryptor doesn't support reading from a stream");
     }
 
+    /**
+     * Return a read-only random access view of the decrypted data, which only decrypts the parts which are read.
+     * Unlike {@link #getDataStream(DirectoryNode)}, the size of the channel is the length of the data,
+     * without the padding bytes.
+     *
+     * @param dir the node to read from
+     * @param closeFileSystem if the file system of the node is closed with the channel
+     * @return decrypted channel
+     * @see #isDataChannelSupported()
+     */
+    public SeekableByteChannel getDataChannel(DirectoryNode dir, boolean closeFileSystem)
+        throws IOException, GeneralSecurityException {
+        throw new EncryptedDocumentException("this decryptor doesn't support random access reading");
+    }
+
+    /**
+     * @return if {@link #getDataChannel(DirectoryNode, boolean)} is supported
+     */
+    public boolean isDataChannelSupported() {
+        return false;
+    }
+
     /**
      * Sets the chunk size of the data stream.
      * Needs to be set before the data stream is requested.
@@ -98,6 +98,24 @@ public abstract class Encryptor implements GenericRecord {
         throw new EncryptedDocumentException("this decryptor doesn't support changing the chunk size");
     }
 
+    /**
+     * Sets the number of threads which encrypt the chunks of the data stream, see
+     * {@link ChunkedCipherOutputStream#setParallelism(int)}.
+     * Needs to be set before the data stream is requested.
+     *
+     * @param parallelism number of threads, 1 (the default) to encrypt on the writing thread
+     */
+    public void setParallelism(int parallelism) {
+        throw new EncryptedDocumentException("this encryptor doesn't support parallel encryption");
+    }
+
+    /**
+     * @return number of threads which encrypt the chunks of the data stream, 1 by default
+     */
+    public int getParallelism() {
+        return 1;
+    }
+
     public abstract Encryptor copy();
 
     @Override
@@ -23,9 +23,12 @@ import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.CryptoFunct
 import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.CryptoFunctions.getMessageDigest;
 import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.CryptoFunctions.hashPassword;
 
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.spec.AlgorithmParameterSpec;
@@ -39,6 +42,7 @@ import javax.crypto.spec.SecretKeySpec;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.ChainingMode;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.ChunkedCipherChannel;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.ChunkedCipherInputStream;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.CipherAlgorithm;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.CryptoFunctions;
@@ -48,7 +52,11 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.EncryptionInfo;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.crypt.HashAlgorithm;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.DirectoryNode;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.DocumentInputStream;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.Entry;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.DocumentNode;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem.POIFSDocument;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.LittleEndian;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.LittleEndianConsts;
 
 /**
  * Decryptor implementation for Agile Encryption
@@ -217,6 +225,26 @@ public class AgileDecryptor extends Decryptor {
         return new AgileCipherInputStream(dis, _length);
     }
 
+    @Override
+    public SeekableByteChannel getDataChannel(DirectoryNode dir, boolean closeFileSystem) throws IOException, GeneralSecurityException {
+        Entry entry = dir.getEntryCaseInsensitive(DEFAULT_POIFS_ENTRY);
+        if (!(entry instanceof DocumentNode)) {
+            throw new IOException("Entry '" + entry.getName() + "' is not a DocumentEntry");
+        }
+        POIFSDocument document = new POIFSDocument((DocumentNode) entry);
+        byte[] length = new byte[LittleEndianConsts.LONG_SIZE];
+        if (document.read(0, length, 0, length.length) < length.length) {
+            throw new EOFException("the encrypted package is too short");
+        }
+        _length = LittleEndian.getLong(length);
+        return new AgileCipherChannel(document, _length, closeFileSystem ? dir.getFileSystem() : null);
+    }
+
+    @Override
+    public boolean isDataChannelSupported() {
+        return true;
+    }
+
     @Override
     public long getLength(){
         if(_length == -1) {
@@ -281,6 +309,18 @@ public class AgileDecryptor extends Decryptor {
         }
     }
 
+    private class AgileCipherChannel extends ChunkedCipherChannel {
+        AgileCipherChannel(POIFSDocument document, long size, Closeable owner) {
+            super(document, LittleEndianConsts.LONG_SIZE, size, 4096, owner);
+        }
+
+        @Override
+        protected Cipher initCipherForBlock(Cipher cipher, int block)
+        throws GeneralSecurityException {
+            return AgileDecryptor.initCipherForBlock(cipher, block, false, getEncryptionInfo(), getSecretKey(), Cipher.DECRYPT_MODE);
+        }
+    }
+
     @Override
     public AgileDecryptor copy() {
         return new AgileDecryptor(this);
@@ -69,6 +69,7 @@ public class AgileEncryptor extends Encryptor {
 
     private byte[] integritySalt;
     private byte[] pwHash;
+    private int parallelism = 1;
 
     protected AgileEncryptor() {}
 
@@ -76,6 +77,7 @@ public class AgileEncryptor extends Encryptor {
         super(other);
         integritySalt = (other.integritySalt == null) ? null : other.integritySalt.clone();
         pwHash = (other.pwHash == null) ? null : other.pwHash.clone();
+        parallelism = other.parallelism;
     }
 
     @Override
@@ -326,6 +328,19 @@ public class AgileEncryptor extends Encryptor {
         }
     }
 
+    @Override
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, had " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * 2.3.4.15 Data Encryption (Agile Encryption)
      *
@@ -344,6 +359,7 @@ public class AgileEncryptor extends Encryptor {
     private class AgileCipherOutputStream extends ChunkedCipherOutputStream {
         public AgileCipherOutputStream(DirectoryNode dir) throws IOException, GeneralSecurityException {
             super(dir, 4096);
+            setParallelism(AgileEncryptor.this.parallelism);
         }
 
         @Override
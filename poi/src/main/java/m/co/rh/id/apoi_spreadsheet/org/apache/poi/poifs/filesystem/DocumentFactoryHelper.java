@@ -22,6 +22,7 @@ import static m.co.rh.id.apoi_spreadsheet.org.apache.poi.extractor.ExtractorFact
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.EncryptedDocumentException;
@@ -81,23 +82,59 @@ public final class DocumentFactoryHelper {
         Decryptor d = Decryptor.getInstance(info);
 
         try {
-            boolean passwordCorrect = false;
-            if (password != null && d.verifyPassword(password)) {
-                passwordCorrect = true;
-            }
-            if (!passwordCorrect && d.verifyPassword(Decryptor.DEFAULT_PASSWORD)) {
-                passwordCorrect = true;
-            }
+            verifyPassword(d, password);
+            return d.getDataStream(root);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Wrap the OLE2 data of the DirectoryNode into a decrypted random access view by using
+     * the given password, which only decrypts the parts of the package which are read.
+     *
+     * @param root The OLE2 directory node for the document
+     * @param password The password, null if the default password should be used
+     * @param closeFileSystem if the file system of the node is closed with the channel
+     * @return A channel for reading the decrypted data, or {@code null} if the node contains a plain package
+     *  or the encryption doesn't support random access - use {@link #getDecryptedStream(DirectoryNode, String)} then
+     * @throws IOException If an error occurs while decrypting or if the password does not match
+     */
+    public static SeekableByteChannel getDecryptedChannel(final DirectoryNode root, String password, boolean closeFileSystem)
+    throws IOException {
+        if (root.hasEntryCaseInsensitive(OOXML_PACKAGE)) {
+            return null;
+        }
 
-            if (passwordCorrect) {
-                return d.getDataStream(root);
-            } else if (password != null) {
+        EncryptionInfo info = new EncryptionInfo(root);
+        Decryptor d = Decryptor.getInstance(info);
+        if (!d.isDataChannelSupported()) {
+            return null;
+        }
+
+        try {
+            verifyPassword(d, password);
+            return d.getDataChannel(root, closeFileSystem);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void verifyPassword(Decryptor d, String password) throws GeneralSecurityException {
+        boolean passwordCorrect = false;
+        if (password != null && d.verifyPassword(password)) {
+            passwordCorrect = true;
+        }
+        if (!passwordCorrect && d.verifyPassword(Decryptor.DEFAULT_PASSWORD)) {
+            passwordCorrect = true;
+        }
+
+        if (!passwordCorrect) {
+            if (password != null) {
                 throw new EncryptedDocumentException("Password incorrect");
             } else {
                 throw new EncryptedDocumentException("The supplied spreadsheet is protected, but no password was supplied");
             }
-        } catch (GeneralSecurityException e) {
-            throw new IOException(e);
         }
     }
 
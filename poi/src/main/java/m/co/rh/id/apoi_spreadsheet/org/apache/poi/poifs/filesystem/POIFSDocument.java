@@ -45,6 +45,8 @@ public final class POIFSDocument implements POIFSViewable, Iterable<ByteBuffer>
     private POIFSFileSystem _filesystem;
     private POIFSStream _stream;
     private int _block_size;
+    /** the blocks of the stream in order, collected on the first random access read */
+    private int[] _block_offsets;
 
     /**
      * Constructor for an existing Document
@@ -156,6 +158,7 @@ public final class POIFSDocument implements POIFSViewable, Iterable<ByteBuffer>
      * Frees the underlying stream and property
      */
     void free() throws IOException {
+        _block_offsets = null;
         _stream.free();
         _property.setStartBlock(POIFSConstants.END_OF_CHAIN);
     }
@@ -184,6 +187,57 @@ public final class POIFSDocument implements POIFSViewable, Iterable<ByteBuffer>
         return _property.getSize();
     }
 
+    /**
+     * Reads from a position of the document, without reading the blocks before it
+     * like skipping in a {@link DocumentInputStream} does
+     *
+     * @param position the offset within the document
+     * @param b the buffer into which the data is read
+     * @param off the start offset in the buffer
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, which is only less than len at the end of the document,
+     *  or -1 if the position is at or after the end of the document
+     */
+    public int read(int position, byte[] b, int off, int len) throws IOException {
+        int size = getSize();
+        if (position < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        if (position >= size) {
+            return -1;
+        }
+        len = Math.min(len, size - position);
+
+        int[] blocks = getBlockOffsets();
+        BlockStore store = _stream.getBlockStore();
+        int read = 0;
+        while (read < len) {
+            int index = (position + read) / _block_size;
+            if (index >= blocks.length) {
+                throw new IllegalStateException("the document ends before its size of " + size + " bytes");
+            }
+            ByteBuffer block = store.getBlockAt(blocks[index]);
+            block.position(block.position() + (position + read) % _block_size);
+            int count = Math.min(len - read, block.remaining());
+            block.get(b, off + read, count);
+            read += count;
+        }
+        return read;
+    }
+
+    private int[] getBlockOffsets() {
+        if (_block_offsets == null) {
+            int[] blocks = new int[(getSize() + _block_size - 1) / _block_size];
+            int count = 0;
+            Iterator<Integer> iter = _stream.getBlockOffsetIterator();
+            while (count < blocks.length && iter.hasNext()) {
+                blocks[count++] = iter.next();
+            }
+            _block_offsets = (count == blocks.length) ? blocks : Arrays.copyOf(blocks, count);
+        }
+        return _block_offsets;
+    }
+
     public void replaceContents(InputStream stream) throws IOException {
         free();
         int size = store(stream);
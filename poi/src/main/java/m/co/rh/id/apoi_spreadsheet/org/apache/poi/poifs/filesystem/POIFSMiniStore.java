@@ -20,6 +20,7 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.poifs.filesystem;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -38,6 +39,11 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.RecordFormatException;
 public class POIFSMiniStore extends BlockStore {
     private final POIFSFileSystem _filesystem;
     private POIFSStream _mini_stream;
+    /**
+     * The big blocks of the mini stream in stream order, collected on first use,
+     * so that finding the block of a small block doesn't walk the chain each time
+     */
+    private int[] _mini_stream_blocks;
     private final List<BATBlock> _sbat_blocks;
     private final HeaderBlock _header;
     private final RootProperty _root;
@@ -65,12 +71,7 @@ public class POIFSMiniStore extends BlockStore {
         int bigBlockOffset = byteOffset % _filesystem.getBigBlockSize();
 
         // Now locate the data block for it
-        Iterator<Integer> it = _mini_stream.getBlockOffsetIterator();
-        for (int i = 0; i < bigBlockNumber; i++) {
-            it.next();
-        }
-
-        ByteBuffer dataBlock = _filesystem.getBlockAt(it.next());
+        ByteBuffer dataBlock = _filesystem.getBlockAt(getMiniStreamBlock(bigBlockNumber));
         assert(dataBlock != null);
 
         // Position ourselves, and take a slice
@@ -82,6 +83,31 @@ public class POIFSMiniStore extends BlockStore {
         return miniBuffer;
     }
 
+    /**
+     * @return the big block holding the given block of the mini stream
+     * @throws NoSuchElementException if the mini stream has fewer blocks
+     */
+    private int getMiniStreamBlock(int bigBlockNumber) {
+        int[] blocks = _mini_stream_blocks;
+        if (blocks == null) {
+            blocks = new int[8];
+            int count = 0;
+            Iterator<Integer> it = _mini_stream.getBlockOffsetIterator();
+            while (it.hasNext()) {
+                if (count == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, count * 2);
+                }
+                blocks[count++] = it.next();
+            }
+            blocks = Arrays.copyOf(blocks, count);
+            _mini_stream_blocks = blocks;
+        }
+        if (bigBlockNumber >= blocks.length) {
+            throw new NoSuchElementException("Can't read past the end of the stream");
+        }
+        return blocks[bigBlockNumber];
+    }
+
     /**
      * Load the block, extending the underlying stream if needed
      */
@@ -102,6 +128,7 @@ public class POIFSMiniStore extends BlockStore {
         // Need to extend the stream
         // TODO Replace this with proper append support
         // For now, do the extending by hand...
+        _mini_stream_blocks = null;
 
         // Ask for another block
         int newBigBlock = _filesystem.getFreeBlock();
@@ -105,6 +105,10 @@ public class POIFSStream implements Iterable<ByteBuffer>
         return new StreamBlockOffsetIterator(startBlock);
     }
 
+    BlockStore getBlockStore() {
+        return blockStore;
+    }
+
     /**
      * Updates the contents of the stream to the new
      *  set of bytes.
@@ -37,6 +37,13 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.IOUtils;
 public class FileBackedDataSource extends DataSource implements Closeable {
     private static final String TAG = "FileBackedDataSource";
 
+    /**
+     * The size of the file windows which are mapped in mapped read-only mode
+     */
+    private static final int MAPPED_WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private static boolean mapReadOnlyFiles = false;
+
     private final FileChannel channel;
     private Long channelSize;
 
@@ -51,6 +58,32 @@ public class FileBackedDataSource extends DataSource implements Closeable {
     // See https://bz.apache.org/bugzilla/show_bug.cgi?id=58480,
     private final IdentityHashMap<ByteBuffer, ByteBuffer> buffersToClean = new IdentityHashMap<>();
 
+    // whether blocks are sliced from mapped file windows instead of being read into heap buffers
+    private final boolean mapped;
+    // the mapped file windows, by position / MAPPED_WINDOW_SIZE, created on first use
+    private ByteBuffer[] mappedWindows;
+
+    /**
+     * Read-only data sources read each block into a new heap buffer by default. When mapping, the
+     * file is mapped in windows of a few megabytes instead, each window once, and blocks are
+     * returned as slices of them without copying.
+     * <p>
+     * The blocks of mapped data sources are read-only buffers. Only data sources created after
+     * the change are affected.
+     *
+     * @param map whether read-only data sources map the file
+     */
+    public static void setMapReadOnlyFiles(boolean map) {
+        mapReadOnlyFiles = map;
+    }
+
+    /**
+     * @return whether read-only data sources map the file, see {@link #setMapReadOnlyFiles(boolean)}
+     */
+    public static boolean isMapReadOnlyFiles() {
+        return mapReadOnlyFiles;
+    }
+
     public FileBackedDataSource(File file) throws FileNotFoundException {
         this(newSrcFile(file, "r"), true);
     }
@@ -79,6 +112,7 @@ public class FileBackedDataSource extends DataSource implements Closeable {
         this.channel = channel;
         this.writable = !readOnly;
         this.closeChannelOnClose = closeChannelOnClose;
+        this.mapped = readOnly && mapReadOnlyFiles;
     }
 
 
@@ -96,14 +130,16 @@ public class FileBackedDataSource extends DataSource implements Closeable {
             throw new IndexOutOfBoundsException("Position " + position + " past the end of the file");
         }
 
-        // TODO Could we do the read-only case with MapMode.PRIVATE instead?
+        // MapMode.PRIVATE would allow writing to the blocks of read-only files,
+        // but it needs a channel which is opened for writing too, so mapped
+        // read-only blocks are read-only buffers
         // See https://docs.oracle.com/javase/7/docs/api/java/nio/channels/FileChannel.MapMode.html#PRIVATE
-        // Or should we have 3 modes instead of the current boolean -
-        //  read-write, read-only, read-to-write-elsewhere?
 
         // Do we read or map (for read/write)?
         ByteBuffer dst;
-        if (writable) {
+        if (mapped && (dst = readMapped(length, position)) != null) {
+            return dst;
+        } else if (writable) {
             dst = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
 
             // remember this buffer for cleanup
@@ -128,6 +164,38 @@ public class FileBackedDataSource extends DataSource implements Closeable {
         return dst;
     }
 
+    /**
+     * @return a slice of the mapped window holding the data,
+     * or {@code null} if the data is not within one window or the file
+     */
+    private ByteBuffer readMapped(int length, long position) throws IOException {
+        long size = size();
+        int window = (int) (position / MAPPED_WINDOW_SIZE);
+        long windowStart = (long) window * MAPPED_WINDOW_SIZE;
+        int offset = (int) (position - windowStart);
+        if (position + length > size || offset + length > MAPPED_WINDOW_SIZE) {
+            return null;
+        }
+
+        if (mappedWindows == null) {
+            mappedWindows = new ByteBuffer[(int) ((size - 1) / MAPPED_WINDOW_SIZE) + 1];
+        }
+        ByteBuffer windowBuffer = mappedWindows[window];
+        if (windowBuffer == null) {
+            windowBuffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(MAPPED_WINDOW_SIZE, size - windowStart));
+            mappedWindows[window] = windowBuffer;
+
+            // remember this buffer for cleanup
+            buffersToClean.put(windowBuffer, windowBuffer);
+        }
+
+        ByteBuffer dst = windowBuffer.duplicate();
+        dst.limit(offset + length);
+        dst.position(offset);
+        return dst.slice();
+    }
+
     @Override
     public void write(ByteBuffer src, long position) throws IOException {
         channel.write(src, position);
@@ -171,6 +239,7 @@ public class FileBackedDataSource extends DataSource implements Closeable {
         // We consider it a bug if a Buffer is still in use now!
         buffersToClean.forEach((k, v) -> unmap(v));
         buffersToClean.clear();
+        mappedWindows = null;
 
         if (srcFile != null) {
             // see http://bugs.java.com/bugdatabase/view_bug.do?bug_id=4796385
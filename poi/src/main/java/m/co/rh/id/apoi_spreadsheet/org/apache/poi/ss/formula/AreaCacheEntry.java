@@ -0,0 +1,152 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Stores data derived from the values of a rectangular area of a sheet, like a {@link LookupIndex}.
+ * <p>
+ * The entry is filled by the {@link WorkbookEvaluator} with the values of the area in row major order,
+ * and kept in the {@link EvaluationCache} until a cell of the area changes. It takes part in the
+ * cell dependency tracking like a formula cell, so changes of formula cells in the area invalidate it too.
+ * </p>
+ */
+abstract class AreaCacheEntry {
+    private final Area _area;
+    private final FormulaCellCacheEntry _cacheEntry = new FormulaCellCacheEntry();
+    private boolean _complete;
+
+    AreaCacheEntry(Area area) {
+        _area = area;
+    }
+
+    final Area getArea() {
+        return _area;
+    }
+
+    final FormulaCellCacheEntry getCacheEntry() {
+        return _cacheEntry;
+    }
+
+    /**
+     * @return whether the entry holds the current values of its area
+     */
+    final boolean isValid() {
+        return _complete && _cacheEntry.getValue() != null;
+    }
+
+    /**
+     * @param complete {@code false} if some values could not be evaluated, e.g. because of
+     *                 a circular reference, so that the entry is filled again on next use
+     */
+    final void setComplete(boolean complete) {
+        _complete = complete;
+    }
+
+    /**
+     * Removes the values of the last fill
+     */
+    abstract void clear();
+
+    /**
+     * @param value    the value of a cell
+     * @param position zero based position of the cell in row major order
+     */
+    abstract void add(ValueEval value, int position);
+
+    /**
+     * Identifies the area of an entry
+     */
+    static final class Area {
+        private final int _bookIndex;
+        private final int _sheetIndex;
+        private final int _firstRow;
+        private final int _firstColumn;
+        private final int _lastRow;
+        private final int _lastColumn;
+
+        Area(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            _bookIndex = bookIndex;
+            _sheetIndex = sheetIndex;
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+            _lastRow = lastRow;
+            _lastColumn = lastColumn;
+        }
+
+        int getBookIndex() {
+            return _bookIndex;
+        }
+
+        int getSheetIndex() {
+            return _sheetIndex;
+        }
+
+        int getFirstRow() {
+            return _firstRow;
+        }
+
+        int getFirstColumn() {
+            return _firstColumn;
+        }
+
+        int getLastRow() {
+            return _lastRow;
+        }
+
+        int getLastColumn() {
+            return _lastColumn;
+        }
+
+        int getWidth() {
+            return _lastColumn - _firstColumn + 1;
+        }
+
+        int getHeight() {
+            return _lastRow - _firstRow + 1;
+        }
+
+        boolean contains(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+            return _bookIndex == bookIndex && _sheetIndex == sheetIndex
+                    && rowIndex >= _firstRow && rowIndex <= _lastRow
+                    && columnIndex >= _firstColumn && columnIndex <= _lastColumn;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = _bookIndex;
+            result = 31 * result + _sheetIndex;
+            result = 31 * result + _firstRow;
+            result = 31 * result + _firstColumn;
+            result = 31 * result + _lastRow;
+            return 31 * result + _lastColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Area)) {
+                return false;
+            }
+            Area other = (Area) obj;
+            return _bookIndex == other._bookIndex && _sheetIndex == other._sheetIndex
+                    && _firstRow == other._firstRow && _firstColumn == other._firstColumn
+                    && _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.PlainCellCache.Loc;
+
+/**
+ * The {@link AreaCacheEntry}s of one kind in the {@link EvaluationCache}.
+ * <p>
+ * The entries are indexed by sheet and column, so that a cell update only looks at the entries
+ * of its column. Optionally an entry is only created once its area was requested a few times,
+ * and the least recently used entries are dropped between evaluations when the entries hold
+ * too many cells.
+ * </p>
+ */
+final class AreaCacheEntryMap<T extends AreaCacheEntry> {
+    /** the number of areas remembered while they are requested fewer times than needed for an entry */
+    private static final int MAX_PENDING_AREAS = 1024;
+
+    private final Function<AreaCacheEntry.Area, T> _factory;
+    private final int _requestsBeforeCreate;
+    private final long _maxCells;
+    /** in access order, so the least recently used entry comes first */
+    private final LinkedHashMap<AreaCacheEntry.Area, T> _entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** the entries by {@link Loc#toBookSheetColumn(int, int, int)} of each column of their area */
+    private final Map<Long, Set<T>> _entriesByColumn = new HashMap<>();
+    private final Map<AreaCacheEntry.Area, PendingArea> _pendingAreas;
+    private long _cells;
+
+    /**
+     * @param factory              creates the entry of an area
+     * @param requestsBeforeCreate the number of requests of an area until its entry is created, at least 1
+     * @param maxCells             the number of cells of all entries, above which the least recently used
+     *                             entries are dropped, -1 for no limit
+     */
+    AreaCacheEntryMap(Function<AreaCacheEntry.Area, T> factory, int requestsBeforeCreate, long maxCells) {
+        _factory = factory;
+        _requestsBeforeCreate = requestsBeforeCreate;
+        _maxCells = maxCells;
+        _pendingAreas = new LinkedHashMap<AreaCacheEntry.Area, PendingArea>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AreaCacheEntry.Area, PendingArea> eldest) {
+                return size() > MAX_PENDING_AREAS;
+            }
+        };
+    }
+
+    /**
+     * @param requester identifies who reads the area, e.g. the formula, so that repeated requests
+     *                  of the same reader in a row count once, {@code null} if unknown
+     * @return the entry of the area, or {@code null} if the area was not requested often enough yet
+     */
+    T getOrCreate(AreaCacheEntry.Area area, Object requester) {
+        T entry = _entries.get(area);
+        if (entry != null) {
+            return entry;
+        }
+        if (_requestsBeforeCreate > 1) {
+            PendingArea pending = _pendingAreas.computeIfAbsent(area, k -> new PendingArea());
+            if (requester == null || requester != pending._lastRequester) {
+                pending._lastRequester = requester;
+                pending._requests++;
+            }
+            if (pending._requests < _requestsBeforeCreate) {
+                return null;
+            }
+            _pendingAreas.remove(area);
+        }
+        entry = _factory.apply(area);
+        _entries.put(area, entry);
+        for (int columnIndex = area.getFirstColumn(); columnIndex <= area.getLastColumn(); columnIndex++) {
+            _entriesByColumn.computeIfAbsent(toBookSheetColumn(area, columnIndex), k -> new HashSet<>()).add(entry);
+        }
+        _cells += getCells(area);
+        return entry;
+    }
+
+    /**
+     * Drops the least recently used entries until the cells fit the limit. Must not be called
+     * while formulas are evaluated, as they may use the entries without depending on them yet.
+     */
+    void evict(IEvaluationListener evaluationListener) {
+        if (_maxCells < 0) {
+            return;
+        }
+        Iterator<T> it = _entries.values().iterator();
+        while (_cells > _maxCells && it.hasNext()) {
+            T entry = it.next();
+            it.remove();
+            drop(entry, evaluationListener);
+        }
+    }
+
+    /**
+     * Drops the entries which contain the cell, together with the cached results of the formulas using them
+     */
+    void drop(int bookIndex, int sheetIndex, int rowIndex, int columnIndex, IEvaluationListener evaluationListener) {
+        Set<T> entries = _entriesByColumn.get(Loc.toBookSheetColumn(bookIndex, sheetIndex, columnIndex));
+        if (entries == null) {
+            return;
+        }
+        for (T entry : new ArrayList<>(entries)) {
+            if (entry.getArea().contains(bookIndex, sheetIndex, rowIndex, columnIndex)) {
+                _entries.remove(entry.getArea());
+                drop(entry, evaluationListener);
+            }
+        }
+    }
+
+    private void drop(T entry, IEvaluationListener evaluationListener) {
+        AreaCacheEntry.Area area = entry.getArea();
+        for (int columnIndex = area.getFirstColumn(); columnIndex <= area.getLastColumn(); columnIndex++) {
+            Long key = toBookSheetColumn(area, columnIndex);
+            Set<T> entries = _entriesByColumn.get(key);
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                _entriesByColumn.remove(key);
+            }
+        }
+        _cells -= getCells(area);
+        // the formulas which used the entry are evaluated again, so that they depend on the cells again
+        FormulaCellCacheEntry cce = entry.getCacheEntry();
+        cce.clearFormulaEntry();
+        cce.recurseClearCachedFormulaResults(evaluationListener);
+    }
+
+    void clear() {
+        _entries.clear();
+        _entriesByColumn.clear();
+        _pendingAreas.clear();
+        _cells = 0;
+    }
+
+    int size() {
+        return _entries.size();
+    }
+
+    private static long toBookSheetColumn(AreaCacheEntry.Area area, int columnIndex) {
+        return Loc.toBookSheetColumn(area.getBookIndex(), area.getSheetIndex(), columnIndex);
+    }
+
+    private static long getCells(AreaCacheEntry.Area area) {
+        return (long) area.getWidth() * area.getHeight();
+    }
+
+    private static final class PendingArea {
+        private Object _lastRequester;
+        private int _requests;
+    }
+}
@@ -17,6 +17,9 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
@@ -27,6 +30,8 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.RichTextString;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Beta;
 
 /**
  * Common functionality across file formats for evaluating formula cells.
@@ -34,10 +39,77 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
 public abstract class BaseFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluatorProvider {
     protected final WorkbookEvaluator _bookEvaluator;
 
+    /**
+     * number of threads used by {@link #evaluateAllFormulaCells(Workbook, FormulaEvaluator)}
+     */
+    private int _parallelism = 1;
+
+    /**
+     * formula dependencies used by {@link #recalculateDirty(Collection)}, built on first use
+     */
+    private FormulaDependencyIndex _dependencyIndex;
+
     protected BaseFormulaEvaluator(WorkbookEvaluator bookEvaluator) {
         this._bookEvaluator = bookEvaluator;
     }
 
+    /**
+     * @return the number of threads used to recalculate all formula cells of the workbook
+     * @see #setParallelism(int)
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * Sets the number of threads used when all formula cells of the workbook are recalculated,
+     * e.g. by {@code evaluateAll()}. With a value greater than 1 the formula cells are split into
+     * groups that do not reference each other, and the groups are evaluated concurrently with
+     * separate evaluation caches. The results are the same as with serial evaluation.
+     * <p>
+     * The workbook must not be modified while the evaluation is running. Evaluators which do not
+     * support parallel evaluation, or which are part of a collaborating workbooks environment,
+     * always evaluate serially.
+     *
+     * @param parallelism number of threads, 1 (the default) for serial evaluation
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, had " + parallelism);
+        }
+        _parallelism = parallelism;
+    }
+
+    /**
+     * Creates an evaluator for the same workbook which shares no evaluation state with this one,
+     * used as a worker for parallel evaluation. Implementations must ensure the new evaluator
+     * only reads the workbook.
+     *
+     * @return a new evaluator, or {@code null} if parallel evaluation is not supported
+     */
+    protected BaseFormulaEvaluator createParallelWorker() {
+        return null;
+    }
+
+    /**
+     * The formula cells in the order they were last calculated, e.g. from the calculation chain
+     * stored in the file. Used to order the formulas recalculated by {@link #recalculateDirty(Collection)}.
+     *
+     * @return the formula cells with their sheet names, or {@code null} if the order is not known
+     */
+    protected Iterable<CellReference> getCalculationChain() {
+        return null;
+    }
+
+    /**
+     * internal use
+     *
+     * @return the stability classifier this evaluator was created with, may be {@code null}
+     */
+    protected IStabilityClassifier getStabilityClassifier() {
+        return _bookEvaluator.getStabilityClassifier();
+    }
+
     /**
      * Coordinates several formula evaluators together so that formulas that involve external
      * references can be evaluated.
@@ -84,6 +156,58 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
     @Override
     public void clearAllCachedResultValues() {
         _bookEvaluator.clearAllCachedResultValues();
+        _dependencyIndex = null;
+    }
+
+    /**
+     * Recalculates the formula cells affected by changes to the given cells, and saves their results
+     * like {@link #evaluateFormulaCell(Cell)}. This is the incremental alternative to evaluating all
+     * formula cells again after a few input cells were edited.
+     * <p>
+     * On first use the formulas of the workbook are parsed into an index from each cell to the formula
+     * cells referencing it. The index is kept and updated for the changed cells, so new or changed formulas
+     * are taken into account when they are passed here. Formulas referencing names, using {@code INDIRECT},
+     * {@code OFFSET} or volatile functions like {@code NOW()} are recalculated on every call.
+     * Structural changes like adding, removing or moving sheets, rows or cells require a call to
+     * {@link #clearAllCachedResultValues()}, which drops the index as well.
+     * </p>
+     * <p>
+     * There is no need to call the notify~ methods for the changed cells, this method does so.
+     * </p>
+     *
+     * @param changed the cells of which the value or formula was changed, all from the workbook of this evaluator
+     * @return the recalculated formula cells, in the order they were evaluated
+     */
+    public List<Cell> recalculateDirty(Collection<? extends Cell> changed) {
+        if (changed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Workbook workbook = changed.iterator().next().getSheet().getWorkbook();
+        for (Cell cell : changed) {
+            notifyUpdateCell(cell);
+        }
+        if (_dependencyIndex == null || _dependencyIndex.getWorkbook() != workbook) {
+            _dependencyIndex = new FormulaDependencyIndex(workbook, getEvaluationWorkbook(), getCalculationChain());
+        }
+        List<Cell> dirty = _dependencyIndex.update(changed);
+        for (Cell cell : dirty) {
+            evaluateFormulaCell(cell);
+        }
+        return dirty;
+    }
+
+    /**
+     * Attaches a profiler which records the evaluations of this evaluator from now on,
+     * see {@link EvaluationProfiler}. Formulas are not evaluated in parallel while it is attached.
+     *
+     * @param profiler the profiler, or {@code null} to detach the current one
+     */
+    @Beta
+    public void setEvaluationProfiler(EvaluationProfiler profiler) {
+        if (profiler != null) {
+            profiler.setWorkbook(getEvaluationWorkbook());
+        }
+        _bookEvaluator.setEvaluationListener(profiler);
     }
 
     /**
@@ -273,6 +397,14 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
     }
 
     protected static void evaluateAllFormulaCells(Workbook wb, FormulaEvaluator evaluator) {
+        if (evaluator instanceof BaseFormulaEvaluator) {
+            int parallelism = ((BaseFormulaEvaluator) evaluator).getParallelism();
+            if (parallelism > 1 && ParallelFormulaEvaluation.evaluateAllFormulaCells(
+                    wb, (BaseFormulaEvaluator) evaluator, parallelism)) {
+                return;
+            }
+        }
+
         for (int i = 0; i < wb.getNumberOfSheets(); i++) {
             Sheet sheet = wb.getSheetAt(i);
 
@@ -169,6 +169,13 @@ public final class CollaboratingWorkbooksEnvironment {
         _unhooked = true;
     }
 
+    /**
+     * @return number of workbooks sharing this environment
+     */
+    /* package */ int getWorkbookCount() {
+        return _evaluators.length;
+    }
+
     public WorkbookEvaluator getWorkbookEvaluator(String workbookName) throws WorkbookNotFoundException {
         if (_unhooked) {
             throw new IllegalStateException("This environment has been unhooked");
@@ -0,0 +1,225 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BoolEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.StringEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
+
+/**
+ * Snapshot of the evaluated values of a rectangular area of a sheet in row major order,
+ * so that functions going through all values of big ranges, like SUMIFS, don't have to
+ * evaluate each cell again.
+ * <p>
+ * Each value is stored as a type and a number: the number itself, 1 or 0 for booleans,
+ * the error code for errors or the id of the string for strings. Equal strings share an id.
+ * The snapshot is taken the second time a function reads the area and kept until a cell
+ * of the area changes or the cache holds too many cells, see {@link AreaCacheEntry}.
+ * Functions can attach results derived from the values, which are dropped together with
+ * the snapshot.
+ * </p>
+ */
+@Internal
+public final class ColumnarArea extends AreaCacheEntry {
+    public static final byte BLANK = 0;
+    public static final byte NUMBER = 1;
+    public static final byte STRING = 2;
+    public static final byte BOOLEAN = 3;
+    public static final byte ERROR = 4;
+
+    /**
+     * Areas with fewer cells are read cell by cell, as a snapshot costs more than it saves
+     */
+    public static final int MIN_MATERIALIZED_SIZE = 64;
+
+    /**
+     * Areas with more cells are read cell by cell, to bound the memory of a snapshot,
+     * e.g. whole column references are not materialized
+     */
+    public static final int MAX_MATERIALIZED_SIZE = 1 << 18;
+
+    /**
+     * An area is only materialized once it is read again, e.g. running totals like SUM($A$1:A10)
+     * read each of their areas once, which would not pay off
+     */
+    static final int REQUESTS_BEFORE_SNAPSHOT = 2;
+
+    /**
+     * The number of cells of all snapshots kept by the cache, above which the least recently used
+     * snapshots are dropped
+     */
+    static final long MAX_CACHED_SIZE = 1 << 20;
+
+    /** the number of derived results kept per snapshot */
+    private static final int MAX_DERIVED_VALUES = 64;
+
+    private final byte[] _types;
+    private final double[] _numbers;
+    private final List<StringEval> _strings = new ArrayList<>();
+    private final Map<String, Integer> _stringIds = new HashMap<>();
+    /** the errors, keyed by position, as there can be non-standard error codes */
+    private final Map<Integer, ValueEval> _errors = new HashMap<>();
+    private final Map<Object, Object> _derivedValues = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+            return size() > MAX_DERIVED_VALUES;
+        }
+    };
+
+    ColumnarArea(Area area) {
+        super(area);
+        int size = Math.toIntExact((long) area.getWidth() * area.getHeight());
+        _types = new byte[size];
+        _numbers = new double[size];
+    }
+
+    @Override
+    void clear() {
+        _strings.clear();
+        _stringIds.clear();
+        _errors.clear();
+        _derivedValues.clear();
+    }
+
+    @Override
+    void add(ValueEval value, int position) {
+        if (value instanceof NumberEval) {
+            _types[position] = NUMBER;
+            _numbers[position] = ((NumberEval) value).getNumberValue();
+        } else if (value instanceof StringEval) {
+            StringEval se = (StringEval) value;
+            Integer id = _stringIds.get(se.getStringValue());
+            if (id == null) {
+                id = _strings.size();
+                _strings.add(se);
+                _stringIds.put(se.getStringValue(), id);
+            }
+            _types[position] = STRING;
+            _numbers[position] = id;
+        } else if (value instanceof BoolEval) {
+            _types[position] = BOOLEAN;
+            _numbers[position] = ((BoolEval) value).getBooleanValue() ? 1 : 0;
+        } else if (value instanceof ErrorEval) {
+            _types[position] = ERROR;
+            _numbers[position] = ((ErrorEval) value).getErrorCode();
+            _errors.put(position, value);
+        } else {
+            _types[position] = BLANK;
+            _numbers[position] = 0;
+        }
+    }
+
+    public int getWidth() {
+        return getArea().getWidth();
+    }
+
+    public int getHeight() {
+        return getArea().getHeight();
+    }
+
+    /**
+     * @return the number of values, i.e. width * height
+     */
+    public int getSize() {
+        return _types.length;
+    }
+
+    /**
+     * @return whether an area with the given number of cells is worth a snapshot when it is read as a whole
+     */
+    public static boolean isMaterialized(long size) {
+        return size >= MIN_MATERIALIZED_SIZE && size <= MAX_MATERIALIZED_SIZE;
+    }
+
+    /**
+     * @param position zero based position in row major order
+     * @return one of {@link #BLANK}, {@link #NUMBER}, {@link #STRING}, {@link #BOOLEAN} or {@link #ERROR}
+     */
+    public byte getType(int position) {
+        return _types[position];
+    }
+
+    /**
+     * @param position zero based position in row major order
+     * @return the number, 1 or 0 for booleans, the error code or the string id, depending on the type
+     */
+    public double getNumber(int position) {
+        return _numbers[position];
+    }
+
+    /**
+     * @return the number of distinct strings
+     */
+    public int getStringCount() {
+        return _strings.size();
+    }
+
+    /**
+     * @param id the string id, as returned by {@link #getNumber(int)} for strings
+     */
+    public StringEval getString(int id) {
+        return _strings.get(id);
+    }
+
+    /**
+     * @param position zero based position in row major order
+     * @return the value as evaluated, numbers are boxed again, see {@link NumberEval#valueOf(double)}
+     */
+    public ValueEval getValue(int position) {
+        switch (_types[position]) {
+            case NUMBER:
+                return NumberEval.valueOf(_numbers[position]);
+            case STRING:
+                return _strings.get((int) _numbers[position]);
+            case BOOLEAN:
+                return BoolEval.valueOf(_numbers[position] != 0);
+            case ERROR:
+                return _errors.get(position);
+            default:
+                return BlankEval.instance;
+        }
+    }
+
+    /**
+     * Returns a result derived from the values, like the cells matching a criteria, which is
+     * computed once per snapshot. Only a limited number of results is kept.
+     *
+     * @param key      identifies the result, must implement equals and hashCode
+     * @param function computes the result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getDerivedValue(Object key, Function<ColumnarArea, T> function) {
+        T result = (T) _derivedValues.get(key);
+        if (result == null) {
+            result = function.apply(this);
+            _derivedValues.put(key, result);
+        }
+        return result;
+    }
+}
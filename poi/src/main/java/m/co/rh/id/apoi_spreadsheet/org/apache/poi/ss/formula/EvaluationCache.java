@@ -36,16 +36,26 @@ final class EvaluationCache {
 
     private final PlainCellCache _plainCellCache;
     private final FormulaCellCache _formulaCellCache;
-    /** only used for testing. <code>null</code> otherwise */
-    final IEvaluationListener _evaluationListener;
+    private final AreaCacheEntryMap<LookupIndex> _lookupIndexes;
+    private final AreaCacheEntryMap<ColumnarArea> _columnarAreas;
+    /** notified of the cache activity, e.g. by an {@link EvaluationProfiler}, <code>null</code> otherwise */
+    IEvaluationListener _evaluationListener;
 
     /* package */EvaluationCache(IEvaluationListener evaluationListener) {
         _evaluationListener = evaluationListener;
         _plainCellCache = new PlainCellCache();
         _formulaCellCache = new FormulaCellCache();
+        _lookupIndexes = new AreaCacheEntryMap<>(LookupIndex::new, 1, -1);
+        _columnarAreas = new AreaCacheEntryMap<>(ColumnarArea::new,
+                ColumnarArea.REQUESTS_BEFORE_SNAPSHOT, ColumnarArea.MAX_CACHED_SIZE);
+    }
+
+    /* package */ void setEvaluationListener(IEvaluationListener evaluationListener) {
+        _evaluationListener = evaluationListener;
     }
 
     public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
+        dropAreaEntries(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
         FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
 
         int rowIndex = cell.getRowIndex();
@@ -112,6 +122,16 @@ final class EvaluationCache {
         }
     }
 
+    /**
+     * Drops the area entries which contain the cell, together with the cached results of the
+     * formulas using them. This also covers cells changing from blank, which are not tracked by
+     * the entries.
+     */
+    private void dropAreaEntries(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+        _lookupIndexes.drop(bookIndex, sheetIndex, rowIndex, columnIndex, _evaluationListener);
+        _columnarAreas.drop(bookIndex, sheetIndex, rowIndex, columnIndex, _evaluationListener);
+    }
+
     private void updateAnyBlankReferencingFormulas(int bookIndex, int sheetIndex,
             final int rowIndex, final int columnIndex) {
         final BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
@@ -140,6 +160,37 @@ final class EvaluationCache {
         }
         return result;
     }
+    /**
+     * Same as {@link #getPlainValueEntry(int, int, int, int, ValueEval)} with the value of the cell,
+     * but numbers and strings are only converted to an eval, if the cell was not read before
+     */
+    public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
+            int rowIndex, int columnIndex, EvaluationCell cell) {
+
+        PlainValueCellCacheEntry result = _plainCellCache.get(new Loc(bookIndex, sheetIndex, rowIndex, columnIndex));
+        if (result != null && isValueOf(result.getValue(), cell)) {
+            if (_evaluationListener != null) {
+                _evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, result.getValue());
+            }
+            return result;
+        }
+        return getPlainValueEntry(bookIndex, sheetIndex, rowIndex, columnIndex,
+                WorkbookEvaluator.getValueFromNonFormulaCell(cell));
+    }
+
+    private static boolean isValueOf(ValueEval value, EvaluationCell cell) {
+        switch (cell.getCellType()) {
+            case NUMERIC:
+                return value instanceof NumberEval
+                        && ((NumberEval) value).getNumberValue() == cell.getNumericCellValue();
+            case STRING:
+                return value instanceof StringEval
+                        && ((StringEval) value).getStringValue().equals(cell.getStringCellValue());
+            default:
+                return false;
+        }
+    }
+
     private boolean areValuesEqual(ValueEval a, ValueEval b) {
         if (a == null) {
             return false;
@@ -177,6 +228,36 @@ final class EvaluationCache {
         return result;
     }
 
+    public LookupIndex getOrCreateLookupIndex(int bookIndex, int sheetIndex, int firstRowIndex,
+            int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+        AreaCacheEntry.Area area = new AreaCacheEntry.Area(bookIndex, sheetIndex, firstRowIndex,
+                firstColumnIndex, lastRowIndex, lastColumnIndex);
+        return _lookupIndexes.getOrCreate(area, null);
+    }
+
+    /**
+     * @param requester the formula reading the area, see {@link AreaCacheEntryMap#getOrCreate(AreaCacheEntry.Area, Object)}
+     * @return the snapshot, {@code null} if the area was not read often enough yet
+     */
+    public ColumnarArea getOrCreateColumnarArea(int bookIndex, int sheetIndex, int firstRowIndex,
+            int firstColumnIndex, int lastRowIndex, int lastColumnIndex, Object requester) {
+        AreaCacheEntry.Area area = new AreaCacheEntry.Area(bookIndex, sheetIndex, firstRowIndex,
+                firstColumnIndex, lastRowIndex, lastColumnIndex);
+        return _columnarAreas.getOrCreate(area, requester);
+    }
+
+    /**
+     * Drops the least recently used snapshots above the size limit, to be called before an evaluation
+     */
+    public void evictColumnarAreas() {
+        _columnarAreas.evict(_evaluationListener);
+    }
+
+    // for tests
+    /* package */ int getColumnarAreaCount() {
+        return _columnarAreas.size();
+    }
+
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      */
@@ -186,8 +267,11 @@ final class EvaluationCache {
         }
         _plainCellCache.clear();
         _formulaCellCache.clear();
+        _lookupIndexes.clear();
+        _columnarAreas.clear();
     }
     public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
+        dropAreaEntries(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
 
         if (cell.getCellType() == CellType.FORMULA) {
             FormulaCellCacheEntry fcce = _formulaCellCache.remove(cell);
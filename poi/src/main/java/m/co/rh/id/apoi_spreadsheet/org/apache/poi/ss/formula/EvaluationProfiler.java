@@ -0,0 +1,363 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Beta;
+
+/**
+ * Records where the time of formula evaluations is spent, to find the cells, functions and
+ * dependency chains which dominate a slow recalculation.
+ * <p>
+ * Attach the profiler with {@link BaseFormulaEvaluator#setEvaluationProfiler(EvaluationProfiler)},
+ * evaluate, and read the statistics or write them with {@link #writeReport(Appendable, int)}.
+ * It records:
+ * </p>
+ * <ul>
+ *   <li>per formula cell: the number of evaluations, the total time including the cells and functions
+ *   evaluated on its behalf, and the self time without them</li>
+ *   <li>per function, by the name of the built-in function or of the add-in or user defined function:
+ *   the number of calls, the total and the self time</li>
+ *   <li>the cache hits of cell values, the plain cell values read and the formula cells evaluated</li>
+ *   <li>the longest chain of formula cells which were evaluated one on behalf of the other</li>
+ * </ul>
+ * <p>
+ * Operators like {@code +} are not recorded as functions. A profiler is not thread safe and records
+ * the evaluations of one evaluator, so formulas are not evaluated in parallel while it is attached.
+ * </p>
+ */
+@Beta
+public final class EvaluationProfiler implements IEvaluationListener {
+    private EvaluationWorkbook _workbook;
+
+    private final Map<String, Statistics> _cells = new HashMap<>();
+    private final Map<String, Statistics> _functions = new HashMap<>();
+    /** the cells and functions being evaluated */
+    private final List<Frame> _frames = new ArrayList<>();
+    /** the cells of {@link #_frames}, i.e. the current dependency chain */
+    private final List<String> _chain = new ArrayList<>();
+    private List<String> _deepestChain = Collections.emptyList();
+
+    private long _cacheHits;
+    private long _plainValueReads;
+    private long _formulaEvaluations;
+
+    /**
+     * @param workbook the workbook of the evaluator the profiler is attached to, to name the cells
+     */
+    /* package */ void setWorkbook(EvaluationWorkbook workbook) {
+        _workbook = workbook;
+    }
+
+    /**
+     * Discards all recorded statistics
+     */
+    public void reset() {
+        _cells.clear();
+        _functions.clear();
+        _frames.clear();
+        _chain.clear();
+        _deepestChain = Collections.emptyList();
+        _cacheHits = 0;
+        _plainValueReads = 0;
+        _formulaEvaluations = 0;
+    }
+
+    /**
+     * @return the statistics of the evaluated formula cells, named like {@code Sheet1!A1},
+     * by descending total time
+     */
+    public List<Statistics> getCellStatistics() {
+        return sortByTotalTime(_cells);
+    }
+
+    /**
+     * @return the statistics of the called functions, by descending total time
+     */
+    public List<Statistics> getFunctionStatistics() {
+        return sortByTotalTime(_functions);
+    }
+
+    /**
+     * @return the number of cell values which were taken from the evaluation cache
+     */
+    public long getCacheHits() {
+        return _cacheHits;
+    }
+
+    /**
+     * @return the number of plain cell values which were read, as they were not cached yet
+     */
+    public long getPlainValueReads() {
+        return _plainValueReads;
+    }
+
+    /**
+     * @return the number of formula cells which were evaluated, as their value was not cached
+     */
+    public long getFormulaEvaluations() {
+        return _formulaEvaluations;
+    }
+
+    /**
+     * @return the share of cell values which were taken from the evaluation cache, 0 if no value was needed
+     */
+    public double getCacheHitRatio() {
+        long total = _cacheHits + _plainValueReads + _formulaEvaluations;
+        return total == 0 ? 0 : (double) _cacheHits / total;
+    }
+
+    /**
+     * @return the longest chain of formula cells, starting with the cell which was evaluated first,
+     * where each cell was evaluated on behalf of the one before
+     */
+    public List<String> getDeepestChain() {
+        return Collections.unmodifiableList(_deepestChain);
+    }
+
+    /**
+     * Writes the statistics as JSON object, with times in nanoseconds
+     *
+     * @param out   where to write the report to
+     * @param limit the maximum number of cells and of functions in the report, which have the highest total time
+     */
+    public void writeReport(Appendable out, int limit) throws IOException {
+        out.append("{\n  \"cacheHits\": ").append(Long.toString(_cacheHits))
+                .append(",\n  \"plainValueReads\": ").append(Long.toString(_plainValueReads))
+                .append(",\n  \"formulaEvaluations\": ").append(Long.toString(_formulaEvaluations))
+                .append(",\n  \"cacheHitRatio\": ").append(Double.toString(getCacheHitRatio()))
+                .append(",\n  \"cells\": ");
+        writeStatistics(out, getCellStatistics(), limit);
+        out.append(",\n  \"functions\": ");
+        writeStatistics(out, getFunctionStatistics(), limit);
+        out.append(",\n  \"deepestChain\": [");
+        for (int i = 0; i < _deepestChain.size(); i++) {
+            out.append(i == 0 ? "" : ", ");
+            writeString(out, _deepestChain.get(i));
+        }
+        out.append("]\n}\n");
+    }
+
+    private static void writeStatistics(Appendable out, List<Statistics> statistics, int limit) throws IOException {
+        out.append('[');
+        int count = Math.min(limit, statistics.size());
+        for (int i = 0; i < count; i++) {
+            Statistics s = statistics.get(i);
+            out.append(i == 0 ? "\n    {\"name\": " : ",\n    {\"name\": ");
+            writeString(out, s.getName());
+            out.append(", \"count\": ").append(Long.toString(s.getCount()))
+                    .append(", \"totalNanos\": ").append(Long.toString(s.getTotalNanos()))
+                    .append(", \"selfNanos\": ").append(Long.toString(s.getSelfNanos()))
+                    .append('}');
+        }
+        out.append(count == 0 ? "]" : "\n  ]");
+    }
+
+    private static void writeString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                out.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                out.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+            } else {
+                out.append(ch);
+            }
+        }
+        out.append('"');
+    }
+
+    private static List<Statistics> sortByTotalTime(Map<String, Statistics> statistics) {
+        List<Statistics> result = new ArrayList<>(statistics.values());
+        result.sort((a, b) -> Long.compare(b._totalNanos, a._totalNanos));
+        return result;
+    }
+
+    @Override
+    public void onCacheHit(int sheetIndex, int rowIndex, int columnIndex, ValueEval result) {
+        _cacheHits++;
+    }
+
+    @Override
+    public void onReadPlainValue(int sheetIndex, int rowIndex, int columnIndex, ICacheEntry entry) {
+        _plainValueReads++;
+    }
+
+    @Override
+    public void onStartEvaluate(EvaluationCell cell, ICacheEntry entry) {
+        _formulaEvaluations++;
+        String name = getCellName(cell);
+        _frames.add(new Frame(entry, name, true));
+        _chain.add(name);
+        if (_chain.size() > _deepestChain.size()) {
+            _deepestChain = new ArrayList<>(_chain);
+        }
+    }
+
+    @Override
+    public void onEndEvaluate(ICacheEntry entry, ValueEval result) {
+        end(entry, _cells);
+    }
+
+    @Override
+    public void onStartFunction(String functionName) {
+        _frames.add(new Frame(functionName, functionName, false));
+    }
+
+    @Override
+    public void onEndFunction(String functionName) {
+        end(functionName, _functions);
+    }
+
+    /**
+     * Ends the frame of the key, and the frames started after it, which were left by an exception
+     */
+    private void end(Object key, Map<String, Statistics> statistics) {
+        long now = System.nanoTime();
+        while (!_frames.isEmpty()) {
+            Frame frame = _frames.remove(_frames.size() - 1);
+            if (frame._isCell) {
+                _chain.remove(_chain.size() - 1);
+            }
+            if (frame._key != key) {
+                continue;
+            }
+            long elapsed = now - frame._start;
+            if (!_frames.isEmpty()) {
+                _frames.get(_frames.size() - 1)._childNanos += elapsed;
+            }
+            Statistics s = statistics.computeIfAbsent(frame._name, Statistics::new);
+            s._count++;
+            s._totalNanos += elapsed;
+            s._selfNanos += elapsed - frame._childNanos;
+            return;
+        }
+    }
+
+    private String getCellName(EvaluationCell cell) {
+        String sheetName = null;
+        if (_workbook != null) {
+            int sheetIndex = _workbook.getSheetIndex(cell.getSheet());
+            if (sheetIndex >= 0) {
+                sheetName = _workbook.getSheetName(sheetIndex);
+            }
+        }
+        return new CellReference(sheetName, cell.getRowIndex(), cell.getColumnIndex(), false, false).formatAsString();
+    }
+
+    @Override
+    public void onClearWholeCache() {
+        // cache invalidation is not profiled
+    }
+
+    @Override
+    public void onClearCachedValue(ICacheEntry entry) {
+        // cache invalidation is not profiled
+    }
+
+    @Override
+    public void sortDependentCachedValues(ICacheEntry[] formulaCells) {
+        // cache invalidation is not profiled
+    }
+
+    @Override
+    public void onClearDependentCachedValue(ICacheEntry formulaCell, int depth) {
+        // cache invalidation is not profiled
+    }
+
+    @Override
+    public void onChangeFromBlankValue(int sheetIndex, int rowIndex, int columnIndex,
+                                       EvaluationCell cell, ICacheEntry entry) {
+        // cache invalidation is not profiled
+    }
+
+    /**
+     * A cell or function being evaluated
+     */
+    private static final class Frame {
+        final Object _key;
+        final String _name;
+        final boolean _isCell;
+        final long _start = System.nanoTime();
+        /** time spent in the cells and functions evaluated on behalf of this one */
+        long _childNanos;
+
+        Frame(Object key, String name, boolean isCell) {
+            _key = key;
+            _name = name;
+            _isCell = isCell;
+        }
+    }
+
+    /**
+     * The recorded evaluations of a formula cell or calls of a function
+     */
+    public static final class Statistics {
+        private final String _name;
+        private long _count;
+        private long _totalNanos;
+        private long _selfNanos;
+
+        private Statistics(String name) {
+            _name = name;
+        }
+
+        /**
+         * @return the cell reference including the sheet name, or the name of the function
+         */
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * @return the number of evaluations or calls
+         */
+        public long getCount() {
+            return _count;
+        }
+
+        /**
+         * @return the time of all evaluations or calls, including the cells and functions evaluated on their behalf
+         */
+        public long getTotalNanos() {
+            return _totalNanos;
+        }
+
+        /**
+         * @return the time of all evaluations or calls, without the cells and functions evaluated on their behalf
+         */
+        public long getSelfNanos() {
+            return _selfNanos;
+        }
+
+        @Override
+        public String toString() {
+            return _name + " [count=" + _count + ", totalNanos=" + _totalNanos + ", selfNanos=" + _selfNanos + "]";
+        }
+    }
+}
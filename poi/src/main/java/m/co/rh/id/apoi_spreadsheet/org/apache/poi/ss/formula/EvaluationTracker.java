@@ -25,6 +25,7 @@ import java.util.Set;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
 
 /**
  * Instances of this class keep track of multiple dependent cell evaluations due
@@ -118,6 +119,14 @@ final class EvaluationTracker {
         _currentlyEvaluatingCells.remove(cce);
     }
 
+    /**
+     * @return the cache entry of the formula cell currently evaluated, {@code null} at top level
+     */
+    /* package */ CellCacheEntry getCurrentCacheEntry() {
+        int nFrames = _evaluationFrames.size();
+        return nFrames == 0 ? null : _evaluationFrames.get(nFrames - 1).getCCE();
+    }
+
     public void acceptFormulaDependency(CellCacheEntry cce) {
         // Tell the currently evaluating cell frame that it has a dependency on the specified
         int prevFrameIndex = _evaluationFrames.size()-1;
@@ -129,6 +138,28 @@ final class EvaluationTracker {
         }
     }
 
+    /**
+     * Same as {@link #acceptPlainValueDependency(EvaluationWorkbook, int, int, int, int, ValueEval)}
+     * with the value of the cell, but the value is taken from the cache if the cell was read before,
+     * so that no new eval is created for each read of an unchanged number or string.
+     *
+     * @param cell the plain value cell, {@code null} for blank cells
+     * @return the value of the cell
+     */
+    public ValueEval acceptPlainValueDependency(EvaluationWorkbook evalWorkbook, int bookIndex, int sheetIndex,
+            int rowIndex, int columnIndex, EvaluationCell cell) {
+        int prevFrameIndex = _evaluationFrames.size() - 1;
+        if (prevFrameIndex < 0 || cell == null || cell.getCellType() == CellType.BLANK) {
+            ValueEval value = WorkbookEvaluator.getValueFromNonFormulaCell(cell);
+            acceptPlainValueDependency(evalWorkbook, bookIndex, sheetIndex, rowIndex, columnIndex, value);
+            return value;
+        }
+        CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
+        PlainValueCellCacheEntry cce = _cache.getPlainValueEntry(bookIndex, sheetIndex, rowIndex, columnIndex, cell);
+        consumingFrame.addSensitiveInputCell(cce);
+        return cce.getValue();
+    }
+
     public void acceptPlainValueDependency(EvaluationWorkbook evalWorkbook, int bookIndex, int sheetIndex,
             int rowIndex, int columnIndex, ValueEval value) {
         // Tell the currently evaluating cell frame that it has a dependency on the specified
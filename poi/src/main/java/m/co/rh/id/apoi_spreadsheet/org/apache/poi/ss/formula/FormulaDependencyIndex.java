@@ -0,0 +1,401 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.function.FunctionMetadata;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Area3DPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Area3DPxg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AreaNPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AttrPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.ExpPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.NamePtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.NameXPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.NameXPxg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ptg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ref3DPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.RefNPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.RefPtgBase;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.TblPtg;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
+
+/**
+ * Index from cells to the formula cells referencing them, used by
+ * {@link BaseFormulaEvaluator#recalculateDirty(Collection)} to find the formulas to recalculate
+ * after some cells were changed.
+ * <p>
+ * The index is built once from the parsed formulas of the workbook and then kept up to date
+ * with the changed cells. Formulas whose references can only be resolved during evaluation
+ * (names, {@code INDIRECT}, {@code OFFSET}, external functions) and the functions marked volatile
+ * in their {@link FunctionMetadata}, like {@code NOW()} or {@code CELL()}, are recalculated on every change. The formulas to recalculate are ordered by the
+ * calculation chain of the workbook if there is one, so that precedents are usually evaluated
+ * before their dependents, followed by the remaining formulas in discovery order.
+ * </p>
+ */
+final class FormulaDependencyIndex {
+    private static final short FUNCTION_INDEX_OFFSET = 78;
+
+    /** areas spanning more columns are not indexed by column */
+    private static final int MAX_INDEXED_AREA_WIDTH = 64;
+
+    /**
+     * Receives the references of a formula, see {@link #forEachReference(EvaluationWorkbook, int, Ptg[], ReferenceVisitor)}
+     */
+    interface ReferenceVisitor {
+        /**
+         * A reference which can only be resolved during evaluation
+         */
+        void visitDynamic();
+
+        void visitArea(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn);
+    }
+
+    private final Workbook _workbook;
+    private final EvaluationWorkbook _evaluationWorkbook;
+    private final Map<Long, Integer> _calculationOrder = new HashMap<>();
+
+    private final Map<Long, Node> _formulas = new HashMap<>();
+    private final Map<Long, List<Node>> _cellDependents = new HashMap<>();
+    // per sheet: column index -> areas covering the column
+    private final List<Map<Integer, List<AreaDependency>>> _columnDependents = new ArrayList<>();
+    // per sheet: areas too wide to be indexed by column
+    private final List<List<AreaDependency>> _wideDependents = new ArrayList<>();
+    private final Set<Node> _volatileFormulas = new LinkedHashSet<>();
+
+    /**
+     * @param calculationChain the formula cells in the order they were last calculated, may be {@code null}
+     */
+    FormulaDependencyIndex(Workbook workbook, EvaluationWorkbook evaluationWorkbook,
+                           Iterable<CellReference> calculationChain) {
+        _workbook = workbook;
+        _evaluationWorkbook = evaluationWorkbook;
+        if (calculationChain != null) {
+            for (CellReference ref : calculationChain) {
+                int sheetIndex = ref.getSheetName() == null ? 0 : workbook.getSheetIndex(ref.getSheetName());
+                if (sheetIndex >= 0) {
+                    _calculationOrder.putIfAbsent(toKey(sheetIndex, ref.getRow(), ref.getCol()), _calculationOrder.size());
+                }
+            }
+        }
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            _columnDependents.add(new HashMap<>());
+            _wideDependents.add(new ArrayList<>());
+            for (Row r : workbook.getSheetAt(i)) {
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        add(c, i);
+                    }
+                }
+            }
+        }
+    }
+
+    Workbook getWorkbook() {
+        return _workbook;
+    }
+
+    /**
+     * Updates the index for changed cells and returns the formula cells which have to be recalculated:
+     * the changed formula cells, all formula cells depending on a changed cell directly or indirectly,
+     * and the formulas recalculated on every change.
+     */
+    List<Cell> update(Collection<? extends Cell> changedCells) {
+        Set<Node> dirty = new LinkedHashSet<>();
+        Deque<Long> pending = new ArrayDeque<>();
+        for (Cell cell : changedCells) {
+            Sheet sheet = cell.getSheet();
+            int sheetIndex = _workbook.getSheetIndex(sheet);
+            if (sheetIndex < 0 || sheetIndex >= _columnDependents.size()) {
+                throw new IllegalStateException("Sheet " + sheet.getSheetName()
+                        + " was added after the dependencies were indexed, clear the cached results first");
+            }
+            long key = toKey(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+            remove(key);
+            if (cell.getCellType() == CellType.FORMULA) {
+                dirty.add(add(cell, sheetIndex));
+            }
+            pending.add(key);
+        }
+        for (Node node : _volatileFormulas) {
+            if (dirty.add(node)) {
+                pending.add(node.key);
+            }
+        }
+        while (!pending.isEmpty()) {
+            long key = pending.poll();
+            collectDependents(key, node -> {
+                if (dirty.add(node)) {
+                    pending.add(node.key);
+                }
+            });
+        }
+
+        List<Node> nodes = new ArrayList<>(dirty);
+        if (!_calculationOrder.isEmpty()) {
+            // stable, so formulas outside of the chain keep their discovery order
+            nodes.sort((a, b) -> Integer.compare(a.rank, b.rank));
+        }
+        List<Cell> cells = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            cells.add(node.cell);
+        }
+        return cells;
+    }
+
+    private interface NodeConsumer {
+        void accept(Node node);
+    }
+
+    private void collectDependents(long key, NodeConsumer consumer) {
+        List<Node> dependents = _cellDependents.get(key);
+        if (dependents != null) {
+            for (Node node : dependents) {
+                consumer.accept(node);
+            }
+        }
+        int sheetIndex = (int) (key >>> 34);
+        int row = (int) (key >>> 14) & 0xFFFFF;
+        int column = (int) key & 0x3FFF;
+        List<AreaDependency> areas = _columnDependents.get(sheetIndex).get(column);
+        if (areas != null) {
+            for (AreaDependency area : areas) {
+                if (row >= area.firstRow && row <= area.lastRow) {
+                    consumer.accept(area.dependent);
+                }
+            }
+        }
+        for (AreaDependency area : _wideDependents.get(sheetIndex)) {
+            if (area.contains(row, column)) {
+                consumer.accept(area.dependent);
+            }
+        }
+    }
+
+    private Node add(Cell cell, int sheetIndex) {
+        long key = toKey(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+        Integer rank = _calculationOrder.get(key);
+        Node node = new Node(cell, key, rank == null ? Integer.MAX_VALUE : rank);
+        _formulas.put(key, node);
+
+        EvaluationCell evalCell = _evaluationWorkbook.getSheet(sheetIndex).getCell(cell.getRowIndex(), cell.getColumnIndex());
+        Ptg[] ptgs = _evaluationWorkbook.getFormulaTokens(evalCell);
+        forEachReference(_evaluationWorkbook, sheetIndex, ptgs, new ReferenceVisitor() {
+            @Override
+            public void visitDynamic() {
+                _volatileFormulas.add(node);
+            }
+
+            @Override
+            public void visitArea(int refSheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                if (refSheetIndex < 0 || refSheetIndex >= _columnDependents.size()) {
+                    return;
+                }
+                if (firstRow == lastRow && firstColumn == lastColumn) {
+                    long precedent = toKey(refSheetIndex, firstRow, firstColumn);
+                    _cellDependents.computeIfAbsent(precedent, k -> new ArrayList<>()).add(node);
+                    node.cellPrecedents.add(precedent);
+                } else {
+                    AreaDependency area = new AreaDependency(refSheetIndex, firstRow, lastRow, firstColumn, lastColumn, node);
+                    addArea(area);
+                    node.areaPrecedents.add(area);
+                }
+            }
+        });
+        if (isVolatile(ptgs)) {
+            _volatileFormulas.add(node);
+        }
+        return node;
+    }
+
+    private void remove(long key) {
+        Node node = _formulas.remove(key);
+        if (node == null) {
+            return;
+        }
+        _volatileFormulas.remove(node);
+        for (Long precedent : node.cellPrecedents) {
+            List<Node> dependents = _cellDependents.get(precedent);
+            dependents.remove(node);
+            if (dependents.isEmpty()) {
+                _cellDependents.remove(precedent);
+            }
+        }
+        for (AreaDependency area : node.areaPrecedents) {
+            if (area.getWidth() > MAX_INDEXED_AREA_WIDTH) {
+                _wideDependents.get(area.sheetIndex).remove(area);
+            } else {
+                Map<Integer, List<AreaDependency>> columns = _columnDependents.get(area.sheetIndex);
+                for (int c = area.firstColumn; c <= area.lastColumn; c++) {
+                    columns.get(c).remove(area);
+                }
+            }
+        }
+    }
+
+    private void addArea(AreaDependency area) {
+        if (area.getWidth() > MAX_INDEXED_AREA_WIDTH) {
+            _wideDependents.get(area.sheetIndex).add(area);
+        } else {
+            Map<Integer, List<AreaDependency>> columns = _columnDependents.get(area.sheetIndex);
+            for (int c = area.firstColumn; c <= area.lastColumn; c++) {
+                columns.computeIfAbsent(c, k -> new ArrayList<>()).add(area);
+            }
+        }
+    }
+
+    private static long toKey(int sheetIndex, int row, int column) {
+        return ((long) sheetIndex << 34) | ((long) row << 14) | column;
+    }
+
+    private static boolean isVolatile(Ptg[] ptgs) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof AttrPtg && ((AttrPtg) ptg).isSemiVolatile()) {
+                return true;
+            }
+            if (ptg instanceof AbstractFunctionPtg) {
+                // by name, as the index of a macro command or an external function is not a built-in function
+                FunctionMetadata fm = FunctionMetadataRegistry.getFunctionByName(((AbstractFunctionPtg) ptg).getName());
+                if (fm != null && fm.isVolatile()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports the cell and area references of a parsed formula. References to other workbooks are skipped.
+     *
+     * @param sheetIndex the sheet of the formula, used for references without a sheet
+     */
+    static void forEachReference(EvaluationWorkbook ewb, int sheetIndex, Ptg[] ptgs, ReferenceVisitor visitor) {
+        for (Ptg ptg : ptgs) {
+            if (isDynamic(ptg)) {
+                visitor.visitDynamic();
+            } else if (ptg instanceof Ref3DPxg) {
+                Ref3DPxg ref = (Ref3DPxg) ptg;
+                if (ref.getExternalWorkbookNumber() <= 0) {
+                    visitSheets(ewb, ref.getSheetName(), ref.getLastSheetName(),
+                            ref.getRow(), ref.getRow(), ref.getColumn(), ref.getColumn(), visitor);
+                }
+            } else if (ptg instanceof Area3DPxg) {
+                Area3DPxg area = (Area3DPxg) ptg;
+                if (area.getExternalWorkbookNumber() <= 0) {
+                    visitSheets(ewb, area.getSheetName(), area.getLastSheetName(),
+                            area.getFirstRow(), area.getLastRow(), area.getFirstColumn(), area.getLastColumn(), visitor);
+                }
+            } else if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                visitor.visitArea(sheetIndex, ref.getRow(), ref.getRow(), ref.getColumn(), ref.getColumn());
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                visitor.visitArea(sheetIndex, Math.min(area.getFirstRow(), area.getLastRow()),
+                        Math.max(area.getFirstRow(), area.getLastRow()),
+                        Math.min(area.getFirstColumn(), area.getLastColumn()),
+                        Math.max(area.getFirstColumn(), area.getLastColumn()));
+            }
+        }
+    }
+
+    private static boolean isDynamic(Ptg ptg) {
+        if (ptg instanceof NamePtg || ptg instanceof NameXPtg || ptg instanceof NameXPxg
+                || ptg instanceof ExpPtg || ptg instanceof TblPtg
+                || ptg instanceof RefNPtg || ptg instanceof AreaNPtg
+                || ptg instanceof Ref3DPtg || ptg instanceof Area3DPtg) {
+            return true;
+        }
+        if (ptg instanceof AbstractFunctionPtg) {
+            short index = ((AbstractFunctionPtg) ptg).getFunctionIndex();
+            return index == FunctionMetadataRegistry.FUNCTION_INDEX_INDIRECT
+                    || index == FunctionMetadataRegistry.FUNCTION_INDEX_EXTERNAL
+                    || index == FUNCTION_INDEX_OFFSET;
+        }
+        return false;
+    }
+
+    private static void visitSheets(EvaluationWorkbook ewb, String firstSheetName, String lastSheetName,
+                                    int firstRow, int lastRow, int firstColumn, int lastColumn, ReferenceVisitor visitor) {
+        int first = ewb.getSheetIndex(firstSheetName);
+        int last = lastSheetName == null ? first : ewb.getSheetIndex(lastSheetName);
+        if (first < 0 || last < 0) {
+            return;
+        }
+        for (int i = Math.min(first, last); i <= Math.max(first, last); i++) {
+            visitor.visitArea(i, Math.min(firstRow, lastRow), Math.max(firstRow, lastRow),
+                    Math.min(firstColumn, lastColumn), Math.max(firstColumn, lastColumn));
+        }
+    }
+
+    private static final class Node {
+        final Cell cell;
+        final long key;
+        final int rank;
+        final List<Long> cellPrecedents = new ArrayList<>();
+        final List<AreaDependency> areaPrecedents = new ArrayList<>();
+
+        Node(Cell cell, long key, int rank) {
+            this.cell = cell;
+            this.key = key;
+            this.rank = rank;
+        }
+    }
+
+    private static final class AreaDependency {
+        final int sheetIndex;
+        final int firstRow;
+        final int lastRow;
+        final int firstColumn;
+        final int lastColumn;
+        final Node dependent;
+
+        AreaDependency(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn, Node dependent) {
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+            this.dependent = dependent;
+        }
+
+        int getWidth() {
+            return lastColumn - firstColumn + 1;
+        }
+
+        boolean contains(int row, int column) {
+            return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+        }
+    }
+}
@@ -22,7 +22,7 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
 /**
  * Tests can implement this class to track the internal working of the {@link WorkbookEvaluator}.<br>
  *
- * For POI internal testing use only
+ * For POI internal testing use only, and for the {@link EvaluationProfiler}
  */
 interface IEvaluationListener {
     /**
@@ -38,6 +38,16 @@ interface IEvaluationListener {
     void onReadPlainValue(int sheetIndex, int rowIndex, int columnIndex, ICacheEntry entry);
     void onStartEvaluate(EvaluationCell cell, ICacheEntry entry);
     void onEndEvaluate(ICacheEntry entry, ValueEval result);
+    /**
+     * Called before a function is invoked, operators are not reported
+     *
+     * @param functionName the name of the built-in function, or of the add-in or user defined function
+     */
+    default void onStartFunction(String functionName) {}
+    /**
+     * Called after a function returned, with the same name instance as {@link #onStartFunction(String)}
+     */
+    default void onEndFunction(String functionName) {}
     void onClearWholeCache();
     void onClearCachedValue(ICacheEntry entry);
     /**
@@ -28,7 +28,15 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.util.CellReference;
  * Provides Lazy Evaluation to 3D Ranges
  */
 final class LazyAreaEval extends AreaEvalBase {
+    /**
+     * number of cells read one by one before a big area is read from a {@link ColumnarArea},
+     * so that functions reading only a few cells, like lookups, don't materialize the area
+     */
+    private static final int READS_BEFORE_SNAPSHOT = 32;
+
     private final SheetRangeEvaluator _evaluator;
+    private int _reads;
+    private ColumnarArea _snapshot;
 
     LazyAreaEval(AreaI ptg, SheetRangeEvaluator evaluator) {
         super(ptg, evaluator);
@@ -48,6 +56,19 @@ final class LazyAreaEval extends AreaEvalBase {
 
     @Override
     public ValueEval getRelativeValue(int sheetIndex, int relativeRowIndex, int relativeColumnIndex) {
+        if (_snapshot == null && _reads >= 0 && ++_reads > READS_BEFORE_SNAPSHOT) {
+            _snapshot = ColumnarArea.isMaterialized((long) getWidth() * getHeight()) ? getColumnarArea() : null;
+            if (_snapshot == null) {
+                // don't try again
+                _reads = -1;
+            }
+        }
+        if (_snapshot != null && sheetIndex == getFirstSheetIndex()
+                && relativeRowIndex >= 0 && relativeRowIndex < getHeight()
+                && relativeColumnIndex >= 0 && relativeColumnIndex < getWidth()) {
+            return _snapshot.getValue(relativeRowIndex * getWidth() + relativeColumnIndex);
+        }
+
         int rowIx = (relativeRowIndex + getFirstRow() ) ;
         int colIx = (relativeColumnIndex + getFirstColumn() ) ;
 
@@ -113,4 +134,22 @@ final class LazyAreaEval extends AreaEvalBase {
         SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
         return _sre.isRowHidden(getFirstRow() + rowIndex);
     }
+
+    @Override
+    public LookupIndex getLookupIndex() {
+        if (getFirstSheetIndex() != getLastSheetIndex() || !(isRow() || isColumn())) {
+            return null;
+        }
+        SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(getFirstSheetIndex());
+        return _sre.getLookupIndex(getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn());
+    }
+
+    @Override
+    public ColumnarArea getColumnarArea() {
+        if (getFirstSheetIndex() != getLastSheetIndex()) {
+            return null;
+        }
+        SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(getFirstSheetIndex());
+        return _sre.getColumnarArea(getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn());
+    }
 }
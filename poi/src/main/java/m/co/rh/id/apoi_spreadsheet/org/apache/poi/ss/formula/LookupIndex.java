@@ -0,0 +1,334 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BoolEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.StringEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.util.Internal;
+
+/**
+ * Maps the values of a single row or column of a sheet to their first and last position,
+ * so that exact match lookups (VLOOKUP, HLOOKUP, MATCH, XLOOKUP, XMATCH) don't compare every value.
+ * <p>
+ * The index is built the first time a lookup searches the range and kept until a cell of the range
+ * changes, see {@link AreaCacheEntry}. Values are equal,
+ * if a lookup comparer would report them as equal: numbers by value, strings ignoring case and
+ * booleans by value. Other values, like blanks and errors, are not indexed.
+ * </p>
+ * <p>
+ * For approximate lookups, the numbers, strings and booleans of the range are also kept in sorted
+ * views, which are built the first time a value of their type is looked up. They answer the
+ * approximate lookups with a binary search over primitive arrays, where the result is the same
+ * as the one of the search over the range.
+ * </p>
+ */
+@Internal
+public final class LookupIndex extends AreaCacheEntry {
+    /**
+     * Result of the approximate lookups, if the sorted view can't be used for the lookup value
+     */
+    public static final int NOT_APPLICABLE = -2;
+
+    private static final byte NONE = 0;
+    private static final byte NUMBER = 1;
+    private static final byte STRING = 2;
+    private static final byte BOOLEAN = 3;
+
+    private final Map<Object, int[]> _positions = new HashMap<>();
+    /** the types of the values by position, for the sorted views */
+    private final byte[] _types;
+    /** numbers, and booleans as 0 or 1, by position, created with the first one */
+    private double[] _numbers;
+    /** strings by position, created with the first one */
+    private String[] _strings;
+    /** the sorted views by type, built with the first approximate lookup of their type */
+    private final SortedView[] _sortedViews = new SortedView[BOOLEAN + 1];
+
+    LookupIndex(Area area) {
+        super(area);
+        _types = new byte[area.getWidth() * area.getHeight()];
+    }
+
+    @Override
+    void clear() {
+        _positions.clear();
+        Arrays.fill(_types, NONE);
+        _numbers = null;
+        _strings = null;
+        synchronized (_sortedViews) {
+            Arrays.fill(_sortedViews, null);
+        }
+    }
+
+    @Override
+    void add(ValueEval value, int position) {
+        Object key = toKey(value);
+        if (key == null) {
+            return;
+        }
+        if (value instanceof StringEval) {
+            if (_strings == null) {
+                _strings = new String[_types.length];
+            }
+            _types[position] = STRING;
+            _strings[position] = ((StringEval) value).getStringValue();
+        } else {
+            if (_numbers == null) {
+                _numbers = new double[_types.length];
+            }
+            if (value instanceof NumberEval) {
+                _types[position] = NUMBER;
+                _numbers[position] = ((NumberEval) value).getNumberValue();
+            } else {
+                _types[position] = BOOLEAN;
+                _numbers[position] = ((BoolEval) value).getBooleanValue() ? 1 : 0;
+            }
+        }
+        int[] positions = _positions.get(key);
+        if (positions == null) {
+            _positions.put(key, new int[]{position, position});
+        } else {
+            positions[1] = position;
+        }
+    }
+
+    /**
+     * @param value the value to find
+     * @return zero based position of the first equal value, -1 if there is none
+     */
+    public int getFirstIndex(ValueEval value) {
+        int[] positions = _positions.get(toKey(value));
+        return positions == null ? -1 : positions[0];
+    }
+
+    /**
+     * @param value the value to find
+     * @return zero based position of the last equal value, -1 if there is none
+     */
+    public int getLastIndex(ValueEval value) {
+        int[] positions = _positions.get(toKey(value));
+        return positions == null ? -1 : positions[1];
+    }
+
+    /**
+     * Finds the value which a binary search over the range finds for approximate lookups
+     * (VLOOKUP, HLOOKUP and LOOKUP), if the values of the type of the lookup value are in
+     * ascending order at the start of the range, and only followed by values of other types.
+     *
+     * @param value the value to find, a number, string or boolean
+     * @return zero based position of the last value less than or equal to the value, -1 if there
+     * is none, {@link #NOT_APPLICABLE} if the values are not sorted like that
+     */
+    public int getLastIndexInSortedRange(ValueEval value) {
+        SortedView view = getSortedView(value);
+        if (view == null || !view.isSortedPrefix()) {
+            return NOT_APPLICABLE;
+        }
+        int count = view.countLessOrEqual(value);
+        return count == 0 ? -1 : view.positions[count - 1];
+    }
+
+    /**
+     * @param value the value to compare with, a number, string or boolean
+     * @return zero based position of the last value of the same type which is less than or equal
+     * to the value, -1 if there is none, {@link #NOT_APPLICABLE} for other values
+     */
+    public int getLastIndexOfLessOrEqual(ValueEval value) {
+        SortedView view = getSortedView(value);
+        if (view == null) {
+            return NOT_APPLICABLE;
+        }
+        int count = view.countLessOrEqual(value);
+        return count == 0 ? -1 : view.maxPositions[count - 1];
+    }
+
+    /**
+     * @param value the value to compare with, a number, string or boolean
+     * @return zero based position of the first value of the same type which is less than or equal
+     * to the value, -1 if there is none, {@link #NOT_APPLICABLE} for other values
+     */
+    public int getFirstIndexOfLessOrEqual(ValueEval value) {
+        SortedView view = getSortedView(value);
+        if (view == null) {
+            return NOT_APPLICABLE;
+        }
+        int count = view.countLessOrEqual(value);
+        return count == 0 ? -1 : view.minPositions[count - 1];
+    }
+
+    private SortedView getSortedView(ValueEval value) {
+        byte type;
+        if (value instanceof NumberEval) {
+            type = NUMBER;
+        } else if (value instanceof StringEval) {
+            type = STRING;
+        } else if (value instanceof BoolEval) {
+            type = BOOLEAN;
+        } else {
+            return null;
+        }
+        // views are shared by all formulas looking up values in the range
+        synchronized (_sortedViews) {
+            SortedView view = _sortedViews[type];
+            if (view == null) {
+                view = new SortedView(type);
+                _sortedViews[type] = view;
+            }
+            return view;
+        }
+    }
+
+    /**
+     * The positions of the values of one type, ordered like the lookup comparers order them
+     */
+    private final class SortedView {
+        private final byte _type;
+        /** positions of the values in ascending order of the values, and of positions for equal values */
+        final int[] positions;
+        /** smallest of the first n positions */
+        final int[] minPositions;
+        /** largest of the first n positions */
+        final int[] maxPositions;
+        /** whether the values are in order in the range */
+        private final boolean _sorted;
+
+        SortedView(byte type) {
+            _type = type;
+            int count = 0;
+            for (byte t : _types) {
+                if (t == type) {
+                    count++;
+                }
+            }
+            int[] sorted = new int[count];
+            count = 0;
+            for (int i = 0; i < _types.length; i++) {
+                if (_types[i] == type) {
+                    sorted[count++] = i;
+                }
+            }
+            boolean inOrder = true;
+            for (int i = 1; i < count && inOrder; i++) {
+                inOrder = compare(sorted[i - 1], sorted[i]) <= 0;
+            }
+            if (!inOrder) {
+                sort(sorted, new int[count], 0, count);
+            }
+            positions = sorted;
+            _sorted = inOrder;
+            minPositions = new int[count];
+            maxPositions = new int[count];
+            for (int i = 0; i < count; i++) {
+                minPositions[i] = i == 0 ? sorted[0] : Math.min(minPositions[i - 1], sorted[i]);
+                maxPositions[i] = i == 0 ? sorted[0] : Math.max(maxPositions[i - 1], sorted[i]);
+            }
+        }
+
+        boolean isSortedPrefix() {
+            return _sorted && (positions.length == 0 || positions[positions.length - 1] == positions.length - 1);
+        }
+
+        /**
+         * @return the number of values less than or equal to the value
+         */
+        int countLessOrEqual(ValueEval value) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareTo(value, positions[mid]) < 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private int compareTo(ValueEval value, int position) {
+            switch (_type) {
+                case NUMBER:
+                    return Double.compare(((NumberEval) value).getNumberValue(), _numbers[position]);
+                case STRING:
+                    return ((StringEval) value).getStringValue().compareToIgnoreCase(_strings[position]);
+                default:
+                    return Double.compare(((BoolEval) value).getBooleanValue() ? 1 : 0, _numbers[position]);
+            }
+        }
+
+        private int compare(int position1, int position2) {
+            if (_type == STRING) {
+                return _strings[position1].compareToIgnoreCase(_strings[position2]);
+            }
+            return Double.compare(_numbers[position1], _numbers[position2]);
+        }
+
+        /**
+         * Stable merge sort of the positions by their values
+         */
+        private void sort(int[] a, int[] tmp, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(a, tmp, from, mid);
+            sort(a, tmp, mid, to);
+            if (compare(a[mid - 1], a[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(a, from, tmp, from, to - from);
+            int i = from;
+            int j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && compare(tmp[i], tmp[j]) <= 0)) {
+                    a[k] = tmp[i++];
+                } else {
+                    a[k] = tmp[j++];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the key of the value in the index, {@code null} for values which are not indexed
+     */
+    private static Object toKey(ValueEval value) {
+        if (value instanceof NumberEval) {
+            return ((NumberEval) value).getNumberValue();
+        }
+        if (value instanceof StringEval) {
+            // same equality as String.compareToIgnoreCase
+            String s = ((StringEval) value).getStringValue();
+            StringBuilder sb = new StringBuilder(s.length()).append('s');
+            for (int i = 0; i < s.length(); i++) {
+                sb.append(Character.toLowerCase(Character.toUpperCase(s.charAt(i))));
+            }
+            return sb.toString();
+        }
+        if (value instanceof BoolEval) {
+            return ((BoolEval) value).getBooleanValue();
+        }
+        return null;
+    }
+}
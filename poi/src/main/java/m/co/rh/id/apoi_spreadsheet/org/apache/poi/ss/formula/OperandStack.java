@@ -0,0 +1,103 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Unsynchronized operand stack of a {@link WorkbookEvaluator}, which is reused for all formulas.
+ * <p>
+ * Evaluating a formula may evaluate referenced formulas before it is complete, so each formula
+ * works on a frame on top of the operands of the formulas below it. Operations only see the
+ * operands of the current frame, i.e. popping beyond the frame fails like on an empty stack.
+ * </p>
+ */
+final class OperandStack {
+    private ValueEval[] _values = new ValueEval[32];
+    private int _size;
+    private int _base;
+
+    /**
+     * Starts the frame of a formula
+     *
+     * @return the start of the enclosing frame, to be passed to {@link #exitFrame(int)}
+     */
+    int enterFrame() {
+        int previousBase = _base;
+        _base = _size;
+        return previousBase;
+    }
+
+    /**
+     * Drops the operands of the current frame, if any are left, and returns to the enclosing frame
+     */
+    void exitFrame(int previousBase) {
+        Arrays.fill(_values, _base, _size, null);
+        _size = _base;
+        _base = previousBase;
+    }
+
+    void push(ValueEval value) {
+        if (_size == _values.length) {
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        _values[_size++] = value;
+    }
+
+    ValueEval pop() {
+        if (_size == _base) {
+            throw new EmptyStackException();
+        }
+        ValueEval value = _values[--_size];
+        _values[_size] = null;
+        return value;
+    }
+
+    ValueEval peek() {
+        return peek(0);
+    }
+
+    /**
+     * @param depth 0 for the top operand, 1 for the one below, and so on
+     */
+    ValueEval peek(int depth) {
+        if (_size - depth <= _base) {
+            throw new EmptyStackException();
+        }
+        return _values[_size - 1 - depth];
+    }
+
+    /**
+     * @return the number of operands in the current frame
+     */
+    int size() {
+        return _size - _base;
+    }
+
+    boolean isEmpty() {
+        return _size == _base;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOfRange(_values, _base, _size));
+    }
+}
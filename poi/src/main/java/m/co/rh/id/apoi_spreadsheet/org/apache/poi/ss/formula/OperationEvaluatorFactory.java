@@ -138,6 +138,24 @@ final class OperationEvaluatorFactory {
         throw new IllegalStateException("Unexpected operation ptg class (" + ptg.getClass().getName() + ")");
     }
 
+    /**
+     * Evaluates binary arithmetic and comparison operators on two numbers, without resolving the
+     * operands, with the same result as {@link #evaluate(OperationPtg, ValueEval[], OperationEvaluationContext)}
+     * outside of array formulas.
+     *
+     * @return {@code null} if the operator is no such operator
+     */
+    static ValueEval evaluateNumbers(OperationPtg ptg, double d0, double d1) {
+        Function function = _instancesByPtgClass.get(ptg.getSid());
+        if (function instanceof TwoOperandNumericOperation) {
+            return ((TwoOperandNumericOperation) function).evaluateNumbers(d0, d1);
+        }
+        if (function instanceof RelationalOperationEval) {
+            return ((RelationalOperationEval) function).evaluateNumbers(d0, d1);
+        }
+        return null;
+    }
+
     static ValueEval evaluateArrayFunction(ArrayFunction func, ValueEval[] args,
                                            OperationEvaluationContext ec) {
         EvaluationSheet evalSheet = ec.getWorkbook().getSheet(ec.getSheetIndex());
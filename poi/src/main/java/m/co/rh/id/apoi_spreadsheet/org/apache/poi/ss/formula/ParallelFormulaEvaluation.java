@@ -0,0 +1,359 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Cell;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellType;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.CellValue;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Row;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Sheet;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Recalculates all formula cells of a workbook on several threads.
+ * <p>
+ * The formula cells are split into independent groups using the cell and area references
+ * of their parsed formulas. Formulas whose references can only be resolved during evaluation
+ * (names, {@code INDIRECT}, {@code OFFSET}, external functions) are kept in one group.
+ * The groups are then distributed over a fork-join pool, each worker evaluating with its own
+ * {@link BaseFormulaEvaluator} and therefore its own {@link EvaluationCache}, so no evaluation
+ * state is shared between threads. A worker that reaches a cell outside of its group simply
+ * evaluates it into its own cache, which keeps results identical to the serial path.
+ * </p>
+ * <p>
+ * The computed values are written back to the cells on the calling thread, in the same
+ * order as {@link BaseFormulaEvaluator#evaluateAllFormulaCells(Workbook, m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaEvaluator)}.
+ * </p>
+ */
+final class ParallelFormulaEvaluation {
+    private final Workbook _workbook;
+    private final BaseFormulaEvaluator _evaluator;
+    private final int _parallelism;
+
+    private final List<Cell> _cells = new ArrayList<>();
+    private final int[] _sheetOffsets;
+    // per sheet: column index -> formula cells of the column
+    private final List<NavigableMap<Integer, FormulaColumn>> _columns = new ArrayList<>();
+    private int[] _parent;
+
+    private ParallelFormulaEvaluation(Workbook workbook, BaseFormulaEvaluator evaluator, int parallelism) {
+        _workbook = workbook;
+        _evaluator = evaluator;
+        _parallelism = parallelism;
+        _sheetOffsets = new int[workbook.getNumberOfSheets()];
+    }
+
+    /**
+     * Evaluates and stores the results of all formula cells of the workbook.
+     *
+     * @return {@code false} if the evaluator does not support parallel evaluation
+     * and nothing was evaluated
+     */
+    static boolean evaluateAllFormulaCells(Workbook workbook, BaseFormulaEvaluator evaluator, int parallelism) {
+        WorkbookEvaluator bookEvaluator = evaluator._getWorkbookEvaluator();
+        if (bookEvaluator.getEnvironment().getWorkbookCount() > 1) {
+            // evaluators of collaborating workbooks share one cache
+            return false;
+        }
+        if (bookEvaluator.getEvaluationListener() != null) {
+            // the workers would not report to the listener, e.g. a profiler
+            return false;
+        }
+        BaseFormulaEvaluator probe = createWorker(evaluator);
+        if (probe == null) {
+            return false;
+        }
+        new ParallelFormulaEvaluation(workbook, evaluator, parallelism).evaluate(probe);
+        return true;
+    }
+
+    /**
+     * @return a worker with the settings of the evaluator, or {@code null} if parallel evaluation is not supported
+     */
+    private static BaseFormulaEvaluator createWorker(BaseFormulaEvaluator evaluator) {
+        BaseFormulaEvaluator worker = evaluator.createParallelWorker();
+        if (worker != null) {
+            // missing external workbooks fall back to the cached values, like in the serial evaluation
+            worker.setIgnoreMissingWorkbooks(evaluator._getWorkbookEvaluator().isIgnoreMissingWorkbooks());
+        }
+        return worker;
+    }
+
+    // for tests
+    /* package */ static int countGroups(Workbook workbook, BaseFormulaEvaluator evaluator) {
+        ParallelFormulaEvaluation evaluation = new ParallelFormulaEvaluation(workbook, evaluator, 1);
+        evaluation.collectFormulaCells();
+        evaluation.buildComponents();
+        Set<Integer> roots = new HashSet<>();
+        for (int id = 0; id < evaluation._cells.size(); id++) {
+            roots.add(evaluation.find(id));
+        }
+        return roots.size();
+    }
+
+    private void evaluate(BaseFormulaEvaluator firstWorker) {
+        collectFormulaCells();
+        if (_cells.isEmpty()) {
+            return;
+        }
+        buildComponents();
+
+        List<int[]> buckets = assignBuckets();
+        List<Callable<CellValue[]>> tasks = new ArrayList<>(buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            final int[] ids = buckets.get(i);
+            final BaseFormulaEvaluator worker = i == 0 ? firstWorker : createWorker(_evaluator);
+            tasks.add(() -> {
+                CellValue[] values = new CellValue[ids.length];
+                for (int j = 0; j < ids.length; j++) {
+                    values[j] = worker.evaluateFormulaCellValue(_cells.get(ids[j]));
+                }
+                return values;
+            });
+        }
+
+        CellValue[] results = new CellValue[_cells.size()];
+        ForkJoinPool pool = new ForkJoinPool(Math.min(_parallelism, buckets.size()));
+        try {
+            List<Future<CellValue[]>> futures = pool.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                int[] ids = buckets.get(i);
+                CellValue[] values = getResult(futures.get(i));
+                for (int j = 0; j < ids.length; j++) {
+                    results[ids[j]] = values[j];
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            // cell remains a formula cell, but the cached value is changed
+            _evaluator.setCellValue(_cells.get(i), results[i]);
+        }
+    }
+
+    private static CellValue[] getResult(Future<CellValue[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating formulas", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void collectFormulaCells() {
+        for (int i = 0; i < _workbook.getNumberOfSheets(); i++) {
+            Sheet sheet = _workbook.getSheetAt(i);
+            NavigableMap<Integer, FormulaColumn> columns = new TreeMap<>();
+            _columns.add(columns);
+            _sheetOffsets[i] = _cells.size();
+            // rows are iterated in ascending order, so the cells of each column are sorted by row
+            for (Row r : sheet) {
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        columns.computeIfAbsent(c.getColumnIndex(), k -> new FormulaColumn())
+                                .add(r.getRowNum(), _cells.size());
+                        _cells.add(c);
+                    }
+                }
+            }
+        }
+    }
+
+    private void buildComponents() {
+        // one extra node joins all formulas with references that are only known during evaluation
+        final int dynamicNode = _cells.size();
+        _parent = new int[_cells.size() + 1];
+        for (int i = 0; i < _parent.length; i++) {
+            _parent[i] = i;
+        }
+
+        EvaluationWorkbook ewb = _evaluator.getEvaluationWorkbook();
+        int sheetIndex = 0;
+        for (int id = 0; id < _cells.size(); id++) {
+            while (sheetIndex + 1 < _sheetOffsets.length && _sheetOffsets[sheetIndex + 1] <= id) {
+                sheetIndex++;
+            }
+            final int cellId = id;
+            Cell cell = _cells.get(id);
+            EvaluationCell evalCell = ewb.getSheet(sheetIndex).getCell(cell.getRowIndex(), cell.getColumnIndex());
+            FormulaDependencyIndex.forEachReference(ewb, sheetIndex, ewb.getFormulaTokens(evalCell),
+                    new FormulaDependencyIndex.ReferenceVisitor() {
+                        @Override
+                        public void visitDynamic() {
+                            union(cellId, dynamicNode);
+                        }
+
+                        @Override
+                        public void visitArea(int refSheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                            link(cellId, refSheetIndex, firstRow, lastRow, firstColumn, lastColumn);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Joins the formula with the formula cells of the area. The cells of an area column are a run
+     * of their column, which is joined by linking neighbours, so each pair of neighbours is only
+     * linked once however many formulas refer to them, e.g. running totals or whole columns.
+     */
+    private void link(int id, int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        if (sheetIndex < 0 || sheetIndex >= _columns.size()) {
+            return;
+        }
+        for (FormulaColumn column : _columns.get(sheetIndex).subMap(firstColumn, true, lastColumn, true).values()) {
+            int first = column.indexOf(firstRow);
+            int last = column.indexOf(lastRow + 1) - 1;
+            if (first > last) {
+                continue;
+            }
+            union(id, column._ids[first]);
+            for (int i = column.nextUnlinked(first); i < last; i = column.nextUnlinked(i + 1)) {
+                union(column._ids[i], column._ids[i + 1]);
+                column._next[i] = i + 1;
+            }
+        }
+    }
+
+    private int find(int node) {
+        while (_parent[node] != node) {
+            _parent[node] = _parent[_parent[node]];
+            node = _parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            _parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /**
+     * Distributes the groups over at most {@code parallelism} buckets, largest group first
+     * into the least loaded bucket. Cells keep their workbook order within a bucket.
+     */
+    private List<int[]> assignBuckets() {
+        Map<Integer, Integer> componentSizes = new HashMap<>();
+        for (int id = 0; id < _cells.size(); id++) {
+            componentSizes.merge(find(id), 1, Integer::sum);
+        }
+        List<Map.Entry<Integer, Integer>> components = new ArrayList<>(componentSizes.entrySet());
+        components.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        int bucketCount = Math.min(_parallelism, components.size());
+        int[] load = new int[bucketCount];
+        Map<Integer, Integer> bucketOfComponent = new HashMap<>();
+        for (Map.Entry<Integer, Integer> component : components) {
+            int target = 0;
+            for (int i = 1; i < bucketCount; i++) {
+                if (load[i] < load[target]) {
+                    target = i;
+                }
+            }
+            load[target] += component.getValue();
+            bucketOfComponent.put(component.getKey(), target);
+        }
+
+        int[][] ids = new int[bucketCount][];
+        int[] fill = new int[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            ids[i] = new int[load[i]];
+        }
+        for (int id = 0; id < _cells.size(); id++) {
+            int bucket = bucketOfComponent.get(find(id));
+            ids[bucket][fill[bucket]++] = id;
+        }
+        return Arrays.asList(ids);
+    }
+
+    /**
+     * The formula cells of a column, sorted by row
+     */
+    private static final class FormulaColumn {
+        private int[] _rows = new int[4];
+        private int[] _ids = new int[4];
+        /** points towards the next cell which is not linked with its successor yet, see {@link #nextUnlinked(int)} */
+        private int[] _next;
+        private int _size;
+
+        void add(int row, int id) {
+            if (_size == _rows.length) {
+                _rows = Arrays.copyOf(_rows, _size * 2);
+                _ids = Arrays.copyOf(_ids, _size * 2);
+            }
+            _rows[_size] = row;
+            _ids[_size] = id;
+            _size++;
+        }
+
+        /**
+         * @return the position of the first cell in the row or after it
+         */
+        int indexOf(int row) {
+            int i = Arrays.binarySearch(_rows, 0, _size, row);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        int nextUnlinked(int i) {
+            if (_next == null) {
+                _next = new int[_size];
+                for (int j = 0; j < _size; j++) {
+                    _next[j] = j;
+                }
+            }
+            int root = i;
+            while (root < _size - 1 && _next[root] != root) {
+                root = _next[root];
+            }
+            // path compression
+            while (i != root) {
+                int next = _next[i];
+                _next[i] = root;
+                i = next;
+            }
+            return root;
+        }
+    }
+}
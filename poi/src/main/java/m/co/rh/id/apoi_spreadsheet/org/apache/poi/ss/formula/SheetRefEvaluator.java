@@ -48,6 +48,24 @@ final class SheetRefEvaluator {
         return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
     }
 
+    /**
+     * @return the lookup index of the single row or column of this sheet
+     * @see WorkbookEvaluator#getLookupIndex(EvaluationSheet, int, int, int, int, int, EvaluationTracker)
+     */
+    public LookupIndex getLookupIndex(int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+        return _bookEvaluator.getLookupIndex(getSheet(), _sheetIndex, firstRowIndex, firstColumnIndex,
+                lastRowIndex, lastColumnIndex, _tracker);
+    }
+
+    /**
+     * @return the snapshot of the values of the area of this sheet
+     * @see WorkbookEvaluator#getColumnarArea(EvaluationSheet, int, int, int, int, int, EvaluationTracker)
+     */
+    public ColumnarArea getColumnarArea(int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+        return _bookEvaluator.getColumnarArea(getSheet(), _sheetIndex, firstRowIndex, firstColumnIndex,
+                lastRowIndex, lastColumnIndex, _tracker);
+    }
+
     private EvaluationSheet getSheet() {
         if (_sheet == null) {
             _sheet = _bookEvaluator.getSheet(_sheetIndex);
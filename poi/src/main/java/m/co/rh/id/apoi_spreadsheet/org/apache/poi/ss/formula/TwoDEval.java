@@ -74,4 +74,21 @@ public interface TwoDEval extends ValueEval {
      */
     boolean isRowHidden(int rowIndex);
 
+    /**
+     * @return the index of the values of this area for exact match lookups, {@code null} if the
+     * area is not a single row or column of a sheet or can't be indexed
+     * @see LookupIndex
+     */
+    default LookupIndex getLookupIndex() {
+        return null;
+    }
+
+    /**
+     * @return the snapshot of the values of this area, {@code null} if the area is not
+     * on a single sheet or can't be read at once
+     * @see ColumnarArea
+     */
+    default ColumnarArea getColumnarArea() {
+        return null;
+    }
 }
@@ -24,7 +24,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.Stack;
 import java.util.TreeSet;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.SpreadsheetVersion;
@@ -51,6 +50,7 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.Choose;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.FreeRefFunction;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.Function;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.IfFunc;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Area3DPtg;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.Area3DPxg;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ptg.AreaErrPtg;
@@ -104,12 +104,13 @@ public final class WorkbookEvaluator {
 
     private final EvaluationWorkbook _workbook;
     private EvaluationCache _cache;
+    private final OperandStack _stack = new OperandStack();
     /**
      * part of cache entry key (useful when evaluating multiple workbooks)
      */
     private int _workbookIx;
 
-    private final IEvaluationListener _evaluationListener;
+    private IEvaluationListener _evaluationListener;
     private final Map<EvaluationSheet, Integer> _sheetIndexesBySheet;
     private final Map<String, Integer> _sheetIndexesByName;
     private CollaboratingWorkbooksEnvironment _collaboratingWorkbookEnvironment;
@@ -204,6 +205,23 @@ public final class WorkbookEvaluator {
         return _evaluationListener;
     }
 
+    // for tests
+    /* package */ int getColumnarAreaCount() {
+        return _cache.getColumnarAreaCount();
+    }
+
+    /**
+     * Replaces the listener given on construction, also for the cache shared with collaborating workbooks
+     */
+    /* package */ void setEvaluationListener(IEvaluationListener evaluationListener) {
+        _evaluationListener = evaluationListener;
+        _cache.setEvaluationListener(evaluationListener);
+    }
+
+    /* package */ IStabilityClassifier getStabilityClassifier() {
+        return _stabilityClassifier;
+    }
+
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      * Failure to call this method after changing cell values will cause incorrect behaviour
@@ -248,6 +266,7 @@ public final class WorkbookEvaluator {
 
     public ValueEval evaluate(EvaluationCell srcCell) {
         int sheetIndex = getSheetIndex(srcCell.getSheet());
+        _cache.evictColumnarAreas();
         return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache));
     }
 
@@ -283,11 +302,11 @@ public final class WorkbookEvaluator {
         // avoid tracking dependencies to cells that have constant definition
         boolean shouldCellDependencyBeRecorded = _stabilityClassifier == null || !_stabilityClassifier.isCellFinal(sheetIndex, rowIndex, columnIndex);
         if (srcCell == null || srcCell.getCellType() != CellType.FORMULA) {
-            ValueEval result = getValueFromNonFormulaCell(srcCell);
             if (shouldCellDependencyBeRecorded) {
-                tracker.acceptPlainValueDependency(_workbook, _workbookIx, sheetIndex, rowIndex, columnIndex, result);
+                // reuses the value read before, if the cell is unchanged
+                return tracker.acceptPlainValueDependency(_workbook, _workbookIx, sheetIndex, rowIndex, columnIndex, srcCell);
             }
-            return result;
+            return getValueFromNonFormulaCell(srcCell);
         }
 
         FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
@@ -400,7 +419,7 @@ public final class WorkbookEvaluator {
         CellType cellType = cell.getCellType();
         switch (cellType) {
             case NUMERIC:
-                return new NumberEval(cell.getNumericCellValue());
+                return NumberEval.valueOf(cell.getNumericCellValue());
             case STRING:
                 return new StringEval(cell.getStringCellValue());
             case BOOLEAN:
@@ -419,6 +438,15 @@ public final class WorkbookEvaluator {
     // visibility raised for testing
     @Internal
     /* package */ ValueEval evaluateFormula(OperationEvaluationContext ec, Ptg[] ptgs) {
+        int previousBase = _stack.enterFrame();
+        try {
+            return evaluateFormula(ec, ptgs, _stack);
+        } finally {
+            _stack.exitFrame(previousBase);
+        }
+    }
+
+    private ValueEval evaluateFormula(OperationEvaluationContext ec, Ptg[] ptgs, OperandStack stack) {
 
         String dbgIndentStr = "";        // always init. to non-null just for defensive avoiding NPE
         if (dbgEvaluationOutputForNextEval) {
@@ -445,7 +473,8 @@ public final class WorkbookEvaluator {
         EvaluationSheet evalSheet = ec.getWorkbook().getSheet(ec.getSheetIndex());
         EvaluationCell evalCell = evalSheet.getCell(ec.getRowIndex(), ec.getColumnIndex());
 
-        Stack<ValueEval> stack = new Stack<>();
+        // operations of array formulas are evaluated on arrays, even for single numbers
+        boolean numbersFastPath = !ec.isArraymode() && (evalCell == null || !evalCell.isPartOfArrayFormulaGroup());
         for (int i = 0, iSize = ptgs.length; i < iSize; i++) {
             // since we don't know how to handle these yet :(
             Ptg ptg = ptgs[i];
@@ -548,8 +577,13 @@ public final class WorkbookEvaluator {
                 continue;
             }
 
-            ValueEval opResult;
-            if (ptg instanceof OperationPtg) {
+            ValueEval opResult = null;
+            if (numbersFastPath && ptg instanceof OperationPtg) {
+                opResult = evaluateNumbers((OperationPtg) ptg, stack);
+            }
+            if (opResult != null) {
+                // evaluated on the numbers directly
+            } else if (ptg instanceof OperationPtg) {
                 OperationPtg optg = (OperationPtg) ptg;
 
                 int numops = optg.getNumberOfOperands();
@@ -584,7 +618,18 @@ public final class WorkbookEvaluator {
                 ec.setArrayMode(arrayMode);
 
 //                logDebug("invoke " + operation + " (nAgs=" + numops + ")");
-                opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                IEvaluationListener evalListener = _evaluationListener;
+                if (evalListener != null && optg instanceof AbstractFunctionPtg) {
+                    String functionName = getFunctionName((AbstractFunctionPtg) optg, ops);
+                    evalListener.onStartFunction(functionName);
+                    try {
+                        opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                    } finally {
+                        evalListener.onEndFunction(functionName);
+                    }
+                } else {
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                }
 
                 ec.setArrayMode(false);
 
@@ -626,6 +671,36 @@ public final class WorkbookEvaluator {
 
     }
 
+    /**
+     * Evaluates binary arithmetic and comparison operators directly, if both operands are numbers
+     *
+     * @return {@code null} if the operator has no such fast path or the operands are no numbers,
+     * the stack is unchanged then
+     */
+    private static ValueEval evaluateNumbers(OperationPtg ptg, OperandStack stack) {
+        if (stack.size() < 2 || !(stack.peek(0) instanceof NumberEval) || !(stack.peek(1) instanceof NumberEval)) {
+            return null;
+        }
+        ValueEval result = OperationEvaluatorFactory.evaluateNumbers(ptg,
+                ((NumberEval) stack.peek(1)).getNumberValue(), ((NumberEval) stack.peek(0)).getNumberValue());
+        if (result != null) {
+            stack.pop();
+            stack.pop();
+        }
+        return result;
+    }
+
+    /**
+     * @return the name of a built-in function, or of the add-in or user defined function, which
+     * is passed as the first operand
+     */
+    private static String getFunctionName(AbstractFunctionPtg ptg, ValueEval[] ops) {
+        if (ptg.isExternalFunction() && ops.length > 0 && ops[0] instanceof FunctionNameEval) {
+            return ((FunctionNameEval) ops[0]).getFunctionName();
+        }
+        return ptg.getName();
+    }
+
     /**
      * Calculates the number of tokens that the evaluator should skip upon reaching a tAttrSkip.
      *
@@ -737,10 +812,10 @@ public final class WorkbookEvaluator {
         }
 
         if (ptg instanceof IntPtg) {
-            return new NumberEval(((IntPtg) ptg).getValue());
+            return NumberEval.valueOf(((IntPtg) ptg).getValue());
         }
         if (ptg instanceof NumberPtg) {
-            return new NumberEval(((NumberPtg) ptg).getValue());
+            return NumberEval.valueOf(((NumberPtg) ptg).getValue());
         }
         if (ptg instanceof StringPtg) {
             return new StringEval(((StringPtg) ptg).getValue());
@@ -841,6 +916,73 @@ public final class WorkbookEvaluator {
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
 
+    /**
+     * Used by the lazy area evals to look up values in a single row or column.
+     *
+     * @return the lookup index of the range, {@code null} if the range is currently being indexed,
+     * i.e. the range refers to itself, or contains a cell which can't be evaluated
+     * @see #fillAreaCacheEntry(AreaCacheEntry, EvaluationSheet, int, EvaluationTracker)
+     */
+    /* package */ LookupIndex getLookupIndex(EvaluationSheet sheet, int sheetIndex, int firstRowIndex,
+            int firstColumnIndex, int lastRowIndex, int lastColumnIndex, EvaluationTracker tracker) {
+        LookupIndex index = _cache.getOrCreateLookupIndex(_workbookIx, sheetIndex, firstRowIndex,
+                firstColumnIndex, lastRowIndex, lastColumnIndex);
+        return fillAreaCacheEntry(index, sheet, sheetIndex, tracker);
+    }
+
+    /**
+     * Used by the lazy area evals to read all values of an area at once.
+     *
+     * @return the snapshot of the area, {@code null} if the area was not read before, or is
+     * currently being read, i.e. the area refers to itself, or contains a cell which can't be evaluated
+     * @see #fillAreaCacheEntry(AreaCacheEntry, EvaluationSheet, int, EvaluationTracker)
+     */
+    /* package */ ColumnarArea getColumnarArea(EvaluationSheet sheet, int sheetIndex, int firstRowIndex,
+            int firstColumnIndex, int lastRowIndex, int lastColumnIndex, EvaluationTracker tracker) {
+        ColumnarArea area = _cache.getOrCreateColumnarArea(_workbookIx, sheetIndex, firstRowIndex,
+                firstColumnIndex, lastRowIndex, lastColumnIndex, tracker.getCurrentCacheEntry());
+        return area == null ? null : fillAreaCacheEntry(area, sheet, sheetIndex, tracker);
+    }
+
+    /**
+     * Fills the entry with the values of its area on first use, which makes it depend on
+     * these cells like a formula, so it is dropped whenever one of them changes.
+     */
+    private <T extends AreaCacheEntry> T fillAreaCacheEntry(T entry, EvaluationSheet sheet, int sheetIndex,
+            EvaluationTracker tracker) {
+        FormulaCellCacheEntry cce = entry.getCacheEntry();
+        tracker.acceptFormulaDependency(cce);
+        if (entry.isValid()) {
+            return entry;
+        }
+        if (!tracker.startEvaluate(cce)) {
+            return null;
+        }
+        try {
+            AreaCacheEntry.Area area = entry.getArea();
+            boolean complete = true;
+            int position = 0;
+            entry.clear();
+            for (int rowIndex = area.getFirstRow(); rowIndex <= area.getLastRow(); rowIndex++) {
+                for (int columnIndex = area.getFirstColumn(); columnIndex <= area.getLastColumn(); columnIndex++) {
+                    ValueEval value = evaluateReference(sheet, sheetIndex, rowIndex, columnIndex, tracker);
+                    // the value of a cell on a circular reference depends on where the evaluation started
+                    complete &= value != ErrorEval.CIRCULAR_REF_ERROR;
+                    entry.add(value, position++);
+                }
+            }
+            entry.setComplete(complete);
+            // any non-null value marks the entry as evaluated
+            tracker.updateCacheResult(BoolEval.TRUE);
+        } catch (NotImplementedException e) {
+            // a cell may not be evaluable, although the calling function wouldn't need its value
+            return null;
+        } finally {
+            tracker.endEvaluate(cce);
+        }
+        return entry;
+    }
+
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -29,6 +29,17 @@ public final class NumberEval implements NumericValueEval, StringValueEval {
 
     public static final NumberEval ZERO = new NumberEval(0);
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    /** small integers, which are common as constants and cell values */
+    private static final NumberEval[] CACHE = new NumberEval[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = i == -CACHE_LOW ? ZERO : new NumberEval(i + CACHE_LOW);
+        }
+    }
+
     private final double _value;
     private String _stringValue;
 
@@ -49,6 +60,20 @@ public final class NumberEval implements NumericValueEval, StringValueEval {
         _value = value;
     }
 
+    /**
+     * Same as {@code new NumberEval(value)}, but returns a shared instance for small integers
+     */
+    public static NumberEval valueOf(double value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            int i = (int) value;
+            // -0.0 is kept, as it is not always converted to 0.0
+            if (i == value && (i != 0 || Double.doubleToRawLongBits(value) == 0L)) {
+                return CACHE[i - CACHE_LOW];
+            }
+        }
+        return new NumberEval(value);
+    }
+
     public double getNumberValue() {
         return _value;
     }
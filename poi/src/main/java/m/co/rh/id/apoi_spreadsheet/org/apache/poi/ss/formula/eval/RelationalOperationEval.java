@@ -71,6 +71,13 @@ public abstract class RelationalOperationEval extends Fixed2ArgFunction implemen
         return BoolEval.valueOf(result);
     }
 
+    /**
+     * @return the result of the comparison of two numbers
+     */
+    public final ValueEval evaluateNumbers(double d0, double d1) {
+        return BoolEval.valueOf(convertComparisonResult(NumberComparer.compare(d0, d1)));
+    }
+
     @Override
     public ValueEval evaluateArray(ValueEval[] args, int srcRowIndex, int srcColumnIndex) {
         ValueEval arg0 = args[0];
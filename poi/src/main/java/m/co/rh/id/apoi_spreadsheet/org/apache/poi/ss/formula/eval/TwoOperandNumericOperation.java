@@ -55,24 +55,35 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction imple
 
     @Override
     public ValueEval evaluate(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
-        double result;
         try {
             double d0 = singleOperandEvaluate(arg0, srcRowIndex, srcColumnIndex);
             double d1 = singleOperandEvaluate(arg1, srcRowIndex, srcColumnIndex);
+            return evaluateNumbers(d0, d1);
+        } catch (EvaluationException e) {
+            return e.getErrorEval();
+        }
+    }
+
+    /**
+     * @return the result of the operation on two resolved operands
+     */
+    public final ValueEval evaluateNumbers(double d0, double d1) {
+        double result;
+        try {
             result = evaluate(d0, d1);
-            if (result == 0.0) { // this '==' matches +0.0 and -0.0
-                // Excel converts -0.0 to +0.0 for '*', '/', '%', '+' and '^'
-                if (!(this instanceof SubtractEvalClass)) {
-                    return NumberEval.ZERO;
-                }
-            }
-            if (Double.isNaN(result) || Double.isInfinite(result)) {
-                return ErrorEval.NUM_ERROR;
-            }
         } catch (EvaluationException e) {
             return e.getErrorEval();
         }
-        return new NumberEval(result);
+        if (result == 0.0) { // this '==' matches +0.0 and -0.0
+            // Excel converts -0.0 to +0.0 for '*', '/', '%', '+' and '^'
+            if (!(this instanceof SubtractEvalClass)) {
+                return NumberEval.ZERO;
+            }
+        }
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            return ErrorEval.NUM_ERROR;
+        }
+        return NumberEval.valueOf(result);
     }
 
     protected abstract double evaluate(double d0, double d1) throws EvaluationException;
@@ -38,15 +38,17 @@ public final class FunctionMetadata {
     private final int _maxParams;
     private final byte _returnClassCode;
     private final byte[] _parameterClassCodes;
+    private final boolean _isVolatile;
 
     /* package */ FunctionMetadata(int index, String name, int minParams, int maxParams,
-            byte returnClassCode, byte[] parameterClassCodes) {
+            byte returnClassCode, byte[] parameterClassCodes, boolean isVolatile) {
         _index = index;
         _name = name;
         _minParams = minParams;
         _maxParams = maxParams;
         _returnClassCode = returnClassCode;
         _parameterClassCodes = (parameterClassCodes == null) ? null : parameterClassCodes.clone();
+        _isVolatile = isVolatile;
     }
 
     public int getIndex() {
@@ -88,6 +90,14 @@ public final class FunctionMetadata {
         return FUNCTION_MAX_PARAMS == _maxParams;
     }
 
+    /**
+     * @return <code>true</code> if the result of this function may change although its arguments
+     * did not, like <code>NOW()</code>, so that formulas using it have to be recalculated every time
+     */
+    public boolean isVolatile() {
+        return _isVolatile;
+    }
+
     public String toString() {
         return getClass().getName() + " [" + _index + " " + _name + "]";
     }
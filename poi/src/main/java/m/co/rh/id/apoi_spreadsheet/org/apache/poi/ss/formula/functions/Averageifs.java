@@ -73,6 +73,12 @@ public final class Averageifs extends Baseifs {
 
             }
 
+            @Override
+            public void addNumber(double d) {
+                sum += d;
+                count++;
+            }
+
             @Override
             public ValueEval getResult() {
                 return count == 0 ? ErrorEval.DIV_ZERO : new NumberEval(sum / count);
@@ -19,10 +19,14 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.OperationEvaluationContext;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.AreaEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.EvaluationException;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.RefEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.CountUtils.I_MatchPredicate;
@@ -47,6 +51,13 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.Countif.E
     protected static interface Aggregator {
         void addValue(ValueEval d);
 
+        /**
+         * Same as {@code addValue(new NumberEval(d))}, implementations may avoid creating the eval
+         */
+        default void addNumber(double d) {
+            addValue(new NumberEval(d));
+        }
+
         ValueEval getResult();
     }
 
@@ -136,6 +147,11 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.Countif.E
      */
     private static ValueEval aggregateMatchingCells(Aggregator aggregator, AreaEval sumRange, AreaEval[] ranges, I_MatchPredicate[] predicates)
             throws EvaluationException {
+        ValueEval result = aggregateMatchingPositions(aggregator, sumRange, ranges, predicates);
+        if (result != null) {
+            return result;
+        }
+
         int height = ranges[0].getHeight();
         int width = ranges[0].getWidth();
 
@@ -170,6 +186,64 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions.Countif.E
         return aggregator.getResult();
     }
 
+    /**
+     * Same as {@link #aggregateMatchingCells(Aggregator, AreaEval, AreaEval[], I_MatchPredicate[])},
+     * but on the snapshots of the ranges. The criteria are matched by range, and the matches are
+     * kept with the snapshot, so that functions sharing ranges and criteria share them too.
+     *
+     * @return the computed value, {@code null} if there are no snapshots of the ranges, e.g. as they are
+     * too small or too big like whole column references
+     */
+    private static ValueEval aggregateMatchingPositions(Aggregator aggregator, AreaEval sumRange, AreaEval[] ranges,
+                                                       I_MatchPredicate[] predicates) throws EvaluationException {
+        ColumnarArea[] areas = new ColumnarArea[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            // Bugs 60858 and 56420 show predicate can be null
+            if (predicates[i] == null) {
+                return aggregator.getResult();
+            }
+            if (predicates[i] instanceof CountUtils.I_MatchAreaPredicate) {
+                return null;
+            }
+            areas[i] = MaterializedAreas.get(ranges[i]);
+            if (areas[i] == null) {
+                return null;
+            }
+        }
+        ColumnarArea sumArea = null;
+        if (sumRange != null) {
+            sumArea = MaterializedAreas.get(sumRange);
+            if (sumArea == null) {
+                return null;
+            }
+        }
+
+        BitSet matches = null;
+        for (int i = 0; i < areas.length; i++) {
+            BitSet rangeMatches = CountUtils.matchingPositions(areas[i], predicates[i]);
+            if (matches == null) {
+                matches = (BitSet) rangeMatches.clone();
+            } else {
+                matches.and(rangeMatches);
+            }
+        }
+
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            if (sumArea == null) {
+                aggregator.addValue(null);
+            } else if (sumArea.getType(i) == ColumnarArea.NUMBER) {
+                aggregator.addNumber(sumArea.getNumber(i));
+            } else {
+                ValueEval value = sumArea.getValue(i);
+                if (value instanceof ErrorEval) {
+                    throw new EvaluationException((ErrorEval) value);
+                }
+                aggregator.addValue(value);
+            }
+        }
+        return aggregator.getResult();
+    }
+
     protected static AreaEval convertRangeArg(ValueEval eval) throws EvaluationException {
         if (eval instanceof AreaEval) {
             return (AreaEval) eval;
@@ -17,6 +17,7 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.MissingArgEval;
@@ -62,12 +63,28 @@ public final class Count implements Function {
         int temp = 0;
 
         for (ValueEval arg : args) {
-            temp += CountUtils.countArg(arg, _predicate);
-
+            ColumnarArea area = _predicate == defaultPredicate ? MaterializedAreas.get(arg) : null;
+            if (area != null) {
+                temp += area.getDerivedValue(NUMBER_COUNT_KEY, Count::countNumbers);
+            } else {
+                temp += CountUtils.countArg(arg, _predicate);
+            }
         }
         return new NumberEval(temp);
     }
 
+    private static int countNumbers(ColumnarArea area) {
+        int count = 0;
+        for (int i = 0; i < area.getSize(); i++) {
+            if (area.getType(i) == ColumnarArea.NUMBER) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final Object NUMBER_COUNT_KEY = new Object();
+
     private static final I_MatchPredicate defaultPredicate = valueEval -> {
 
         if (valueEval instanceof NumberEval) {
@@ -17,8 +17,14 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ThreeDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BoolEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.NumberEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.RefEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
 
@@ -36,6 +42,13 @@ final class CountUtils {
      */
     public interface I_MatchPredicate {
         boolean matches(ValueEval x);
+
+        /**
+         * Same as {@code matches(new NumberEval(value))}, implementations may avoid creating the eval
+         */
+        default boolean matchesNumber(double value) {
+            return matches(new NumberEval(value));
+        }
     }
     public interface I_MatchAreaPredicate extends I_MatchPredicate {
         boolean matches(TwoDEval x, int rowIndex, int columnIndex);
@@ -85,6 +98,68 @@ final class CountUtils {
         }
         return result;
     }
+    /**
+     * Matches all values of the snapshot. The predicate is applied once per distinct string or boolean.
+     * Results of predicates which implement equals are kept with the snapshot, so that functions
+     * using the same range and criteria share them.
+     *
+     * @return the positions of the matching values
+     */
+    public static BitSet matchingPositions(ColumnarArea area, I_MatchPredicate criteriaPredicate) {
+        if (criteriaPredicate instanceof I_MatchAreaPredicate) {
+            throw new IllegalArgumentException("Area predicates need the area");
+        }
+        if (criteriaPredicate instanceof Countif.MatcherBase) {
+            return area.getDerivedValue(criteriaPredicate, a -> computeMatchingPositions(a, criteriaPredicate));
+        }
+        return computeMatchingPositions(area, criteriaPredicate);
+    }
+
+    private static BitSet computeMatchingPositions(ColumnarArea area, I_MatchPredicate criteriaPredicate) {
+        int size = area.getSize();
+        BitSet result = new BitSet(size);
+        // 0: not matched yet, 1: no match, 2: match
+        byte[] stringMatches = new byte[area.getStringCount()];
+        byte[] booleanMatches = new byte[2];
+        byte blankMatches = 0;
+        for (int i = 0; i < size; i++) {
+            boolean matches;
+            switch (area.getType(i)) {
+                case ColumnarArea.NUMBER:
+                    matches = criteriaPredicate.matchesNumber(area.getNumber(i));
+                    break;
+                case ColumnarArea.STRING: {
+                    int id = (int) area.getNumber(i);
+                    if (stringMatches[id] == 0) {
+                        stringMatches[id] = (byte) (criteriaPredicate.matches(area.getString(id)) ? 2 : 1);
+                    }
+                    matches = stringMatches[id] == 2;
+                    break;
+                }
+                case ColumnarArea.BOOLEAN: {
+                    int id = (int) area.getNumber(i);
+                    if (booleanMatches[id] == 0) {
+                        booleanMatches[id] = (byte) (criteriaPredicate.matches(BoolEval.valueOf(id == 1)) ? 2 : 1);
+                    }
+                    matches = booleanMatches[id] == 2;
+                    break;
+                }
+                case ColumnarArea.BLANK:
+                    if (blankMatches == 0) {
+                        blankMatches = (byte) (criteriaPredicate.matches(BlankEval.instance) ? 2 : 1);
+                    }
+                    matches = blankMatches == 2;
+                    break;
+                default:
+                    matches = criteriaPredicate.matches(area.getValue(i));
+            }
+            if (matches) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
     public static int countArg(ValueEval eval, I_MatchPredicate criteriaPredicate) {
         if (eval == null) {
             throw new IllegalArgumentException("eval must not be null");
@@ -17,6 +17,7 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ThreeDEval;
@@ -44,6 +45,9 @@ import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.usermodel.FormulaError;
  */
 public final class Countif extends Fixed2ArgFunction {
 
+    private static final int MAX_COMPILED_CRITERIA = 1024;
+    private static final ConcurrentHashMap<String, I_MatchPredicate> COMPILED_CRITERIA = new ConcurrentHashMap<>();
+
     private static final class CmpOp {
         public static final int NONE = 0;
         public static final int EQ = 1;
@@ -158,7 +162,7 @@ public final class Countif extends Fixed2ArgFunction {
         }
     }
 
-    private static abstract class MatcherBase implements I_MatchPredicate {
+    /* package */ static abstract class MatcherBase implements I_MatchPredicate {
         private final CmpOp _operator;
 
         MatcherBase(CmpOp operator) {
@@ -182,6 +186,23 @@ public final class Countif extends Fixed2ArgFunction {
             return getClass().getName() + " [" + _operator.getRepresentation() + getValueText() + "]";
         }
 
+        @Override
+        public final int hashCode() {
+            return getCode() * 31 + getValueText().hashCode();
+        }
+
+        /**
+         * Matchers are equal, if they match the same values
+         */
+        @Override
+        public final boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            MatcherBase other = (MatcherBase) obj;
+            return getCode() == other.getCode() && getValueText().equals(other.getValueText());
+        }
+
         protected abstract String getValueText();
     }
 
@@ -241,6 +262,11 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(Double.compare(testValue, _value));
         }
+
+        @Override
+        public boolean matchesNumber(double value) {
+            return evaluate(Double.compare(value, _value));
+        }
     }
 
     private static final class BooleanMatcher extends MatcherBase {
@@ -300,6 +326,12 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(testValue - _value);
         }
+
+        @Override
+        public boolean matchesNumber(double value) {
+            // not-equals comparison of a number to boolean always returns true
+            return getCode() == CmpOp.NE;
+        }
     }
 
     public static final class ErrorMatcher extends MatcherBase {
@@ -325,6 +357,11 @@ public final class Countif extends Fixed2ArgFunction {
             return false;
         }
 
+        @Override
+        public boolean matchesNumber(double value) {
+            return false;
+        }
+
         public int getValue() {
             return _value;
         }
@@ -333,7 +370,7 @@ public final class Countif extends Fixed2ArgFunction {
     public static final class StringMatcher extends MatcherBase {
 
         private final String _value;
-        private final Pattern _pattern;
+        private final WildcardMatcher _wildcard;
 
         public StringMatcher(String value, CmpOp operator) {
             super(operator);
@@ -342,20 +379,17 @@ public final class Countif extends Fixed2ArgFunction {
                 case CmpOp.NONE:
                 case CmpOp.EQ:
                 case CmpOp.NE:
-                    _pattern = getWildCardPattern(value);
+                    _wildcard = WildcardMatcher.compile(value);
                     break;
                 default:
                     // pattern matching is never used for < > <= =>
-                    _pattern = null;
+                    _wildcard = null;
             }
         }
 
         @Override
         protected String getValueText() {
-            if (_pattern == null) {
-                return _value;
-            }
-            return _pattern.pattern();
+            return _value;
         }
 
         @Override
@@ -393,14 +427,26 @@ public final class Countif extends Fixed2ArgFunction {
                 }
                 return false;
             }
-            if (_pattern != null) {
-                return evaluate(_pattern.matcher(testedValue).matches());
+            if (_wildcard != null) {
+                return evaluate(_wildcard.matches(testedValue));
             }
             // String criteria in COUNTIF are case insensitive:
             // for example, the string "apples" and the string "APPLES" will match the same cells.
+            switch (getCode()) {
+                case CmpOp.NONE:
+                case CmpOp.EQ:
+                case CmpOp.NE:
+                    return evaluate(testedValue.equalsIgnoreCase(_value));
+            }
             return evaluate(testedValue.compareToIgnoreCase(_value));
         }
 
+        @Override
+        public boolean matchesNumber(double value) {
+            // must always be string, see above
+            return false;
+        }
+
         /**
          * Translates Excel countif wildcard strings into java regex strings
          *
@@ -526,10 +572,23 @@ public final class Countif extends Fixed2ArgFunction {
     }
 
     /**
-     * When the second argument is a string, many things are possible
+     * When the second argument is a string, many things are possible.
+     * The predicates only depend on the criteria text, so they are compiled once per text.
      */
     private static I_MatchPredicate createGeneralMatchPredicate(StringEval stringEval) {
         String value = stringEval.getStringValue();
+        I_MatchPredicate predicate = COMPILED_CRITERIA.get(value);
+        if (predicate == null) {
+            if (COMPILED_CRITERIA.size() >= MAX_COMPILED_CRITERIA) {
+                COMPILED_CRITERIA.clear();
+            }
+            predicate = compileGeneralMatchPredicate(value);
+            COMPILED_CRITERIA.put(value, predicate);
+        }
+        return predicate;
+    }
+
+    private static I_MatchPredicate compileGeneralMatchPredicate(String value) {
         CmpOp operator = CmpOp.getOperator(value);
         value = value.substring(operator.getLength());
 
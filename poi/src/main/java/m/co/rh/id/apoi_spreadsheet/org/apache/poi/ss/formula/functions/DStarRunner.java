@@ -18,7 +18,6 @@
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.AreaEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
@@ -375,11 +374,11 @@ public final class DStarRunner implements Function3Arg {
                     String valueString = value instanceof BlankEval ? "" : OperandResolver.coerceValueToString(value);
                     final String lowerValue = valueString.toLowerCase(LocaleUtil.getUserLocale());
                     final String lowerCondition = conditionString.toLowerCase(LocaleUtil.getUserLocale());
-                    final Pattern pattern = Countif.StringMatcher.getWildCardPattern(lowerCondition);
-                    if (pattern == null) {
+                    final WildcardMatcher wildcard = WildcardMatcher.compile(lowerCondition);
+                    if (wildcard == null) {
                         return lowerValue.startsWith(lowerCondition);
                     } else {
-                        return pattern.matcher(lowerValue).matches();
+                        return wildcard.matches(lowerValue);
                     }
                 }
             }
@@ -47,6 +47,12 @@ final class DoubleList {
         _count++;
     }
 
+    public void addAll(double[] values) {
+        ensureCapacity(_count + values.length);
+        System.arraycopy(values, 0, _array, _count, values.length);
+        _count += values.length;
+    }
+
     public int getLength() {
         return _count;
     }
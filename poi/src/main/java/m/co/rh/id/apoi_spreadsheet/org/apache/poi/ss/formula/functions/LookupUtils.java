@@ -22,9 +22,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.LookupIndex;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BoolEval;
@@ -79,6 +78,11 @@ public final class LookupUtils {
         }
     }
 
+    /**
+     * Result of {@link #lookupIndexOfExactValue(ValueEval, ValueVector, boolean)} if no lookup index can be used
+     */
+    static final int NOT_INDEXED = -2;
+
     private static Map<Integer, MatchMode> matchModeMap = new HashMap<>();
     private static Map<Integer, SearchMode> searchModeMap = new HashMap<>();
 
@@ -138,17 +142,23 @@ public final class LookupUtils {
 
                 @Override
                 public boolean hasNext() {
-                    return pos > 0;
+                    return pos >= 0;
                 }
 
                 @Override
                 public Integer next() {
-                    pos--;
-                    if (pos < 0) throw new NoSuchElementException();
-                    return pos;
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return pos--;
                 }
             };
         }
+
+        /**
+         * @return the index of the values for exact match lookups, {@code null} if the vector isn't indexed
+         */
+        default LookupIndex getLookupIndex() {
+            return null;
+        }
     }
 
     private static final class RowVector implements ValueVector {
@@ -181,6 +191,11 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            return _tableArray.isRow() ? _tableArray.getLookupIndex() : _tableArray.getRow(_rowIndex).getLookupIndex();
+        }
     }
 
     private static final class ColumnVector implements ValueVector {
@@ -213,6 +228,11 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            return _tableArray.isColumn() ? _tableArray.getLookupIndex() : _tableArray.getColumn(_columnIndex).getLookupIndex();
+        }
     }
 
     private static final class SheetVector implements ValueVector {
@@ -406,14 +426,14 @@ public final class LookupUtils {
     private static class StringLookupComparer extends LookupValueComparerBase {
 
         protected final String _value;
-        protected final Pattern _wildCardPattern;
+        protected final WildcardMatcher _wildcard;
         protected final boolean _matchExact;
         protected final boolean _isMatchFunction;
 
         protected StringLookupComparer(StringEval se, boolean matchExact, boolean isMatchFunction) {
             super(se);
             _value = se.getStringValue();
-            _wildCardPattern = Countif.StringMatcher.getWildCardPattern(_value);
+            _wildcard = WildcardMatcher.compile(_value);
             _matchExact = matchExact;
             _isMatchFunction = isMatchFunction;
         }
@@ -426,11 +446,8 @@ public final class LookupUtils {
         @Override
         protected CompareResult compareSameType(ValueEval other) {
             String stringValue = convertToString(other);
-            if (_wildCardPattern != null && (_isMatchFunction || !_matchExact)) {
-                Matcher matcher = _wildCardPattern.matcher(stringValue);
-                boolean matches = matcher.matches();
-
-                return CompareResult.valueOf(matches);
+            if (_wildcard != null && (_isMatchFunction || !_matchExact)) {
+                return CompareResult.valueOf(_wildcard.matches(stringValue));
             }
 
             return CompareResult.valueOf(_value.compareToIgnoreCase(stringValue));
@@ -646,9 +663,19 @@ public final class LookupUtils {
         LookupValueComparer lookupComparer = createLookupComparer(lookupValue, isRangeLookup, false);
         int result;
         if (isRangeLookup) {
-            result = performBinarySearch(vector, lookupComparer);
+            // blank eval translates to zero, see createLookupComparer
+            result = lookupIndexOfApproximateValue(lookupValue == BlankEval.instance ? NumberEval.ZERO : lookupValue,
+                    vector);
+            if (result == NOT_INDEXED) {
+                result = performBinarySearch(vector, lookupComparer);
+            }
         } else {
-            result = lookupFirstIndexOfValue(lookupComparer, vector, MatchMode.ExactMatch);
+            // blank eval translates to zero, see createLookupComparer
+            result = lookupIndexOfExactValue(lookupValue == BlankEval.instance ? NumberEval.ZERO : lookupValue,
+                    vector, false);
+            if (result == NOT_INDEXED) {
+                result = lookupFirstIndexOfValue(lookupComparer, vector, MatchMode.ExactMatch);
+            }
         }
         if (result < 0) {
             throw new EvaluationException(ErrorEval.NA);
@@ -681,8 +708,16 @@ public final class LookupUtils {
             }
         }
         LookupValueComparer lookupComparer = createTolerantLookupComparer(modifiedLookup, matchMode != MatchMode.WildcardMatch, true);
-        int result;
-        if (searchMode == SearchMode.BinarySearchForward) {
+        int result = NOT_INDEXED;
+        if (matchMode == MatchMode.ExactMatch
+                && (searchMode == SearchMode.IterateForward || searchMode == SearchMode.IterateBackward)) {
+            // blank eval translates to an empty string, see createTolerantLookupComparer
+            result = lookupIndexOfExactValue(lookupValue == BlankEval.instance ? new StringEval("") : lookupValue,
+                    vector, searchMode == SearchMode.IterateBackward);
+        }
+        if (result != NOT_INDEXED) {
+            // found in the lookup index
+        } else if (searchMode == SearchMode.BinarySearchForward) {
             result = binarySearchIndexOfValue(lookupComparer, vector, matchMode, false);
         } else if (searchMode == SearchMode.BinarySearchBackward) {
             result = binarySearchIndexOfValue(lookupComparer, vector, matchMode, true);
@@ -697,6 +732,82 @@ public final class LookupUtils {
         return result;
     }
 
+    /**
+     * Finds the first or last exactly matching occurrence of the specified value in the
+     * {@link LookupIndex} of the vector, instead of comparing each value of the vector.
+     * This is only possible for numbers, booleans and strings without wildcards.
+     *
+     * @param lookupValue the value to be found, blank values must be translated by the caller
+     * @param vector      the values to be searched
+     * @param reverse     whether to find the last occurrence
+     * @return zero based index into the vector, -1 if value cannot be found,
+     * {@link #NOT_INDEXED} if the vector has to be searched by comparing each value
+     */
+    static int lookupIndexOfExactValue(ValueEval lookupValue, ValueVector vector, boolean reverse) {
+        if (lookupValue instanceof StringEval) {
+            if (WildcardMatcher.compile(((StringEval) lookupValue).getStringValue()) != null) {
+                return NOT_INDEXED;
+            }
+        } else if (!(lookupValue instanceof NumberEval || lookupValue instanceof BoolEval)) {
+            return NOT_INDEXED;
+        }
+        LookupIndex index = vector.getLookupIndex();
+        if (index == null) {
+            return NOT_INDEXED;
+        }
+        return reverse ? index.getLastIndex(lookupValue) : index.getFirstIndex(lookupValue);
+    }
+
+    /**
+     * Finds the value which {@link #performBinarySearch(ValueVector, LookupValueComparer)} would find,
+     * with a binary search in the sorted view of the {@link LookupIndex} of the vector. This is only
+     * possible if the values of the type of the lookup value are sorted at the start of the vector.
+     *
+     * @param lookupValue the value to be found, blank values must be translated by the caller
+     * @param vector      the values to be searched
+     * @return zero based index into the vector, -1 if value cannot be found,
+     * {@link #NOT_INDEXED} if the vector has to be searched by comparing values
+     */
+    static int lookupIndexOfApproximateValue(ValueEval lookupValue, ValueVector vector) {
+        LookupIndex index = getSortedLookupIndex(lookupValue, vector, false);
+        if (index == null) {
+            return NOT_INDEXED;
+        }
+        int result = index.getLastIndexInSortedRange(lookupValue);
+        return result == LookupIndex.NOT_APPLICABLE ? NOT_INDEXED : result;
+    }
+
+    /**
+     * Finds the last or first value of the type of the lookup value which is less than or equal to it,
+     * in the sorted view of the {@link LookupIndex} of the vector.
+     *
+     * @param lookupValue the value to compare with, blank values must be translated by the caller
+     * @param vector      the values to be searched
+     * @param last        whether to find the last value, rather than the first
+     * @return zero based index into the vector, -1 if there is no such value,
+     * {@link #NOT_INDEXED} if the vector has to be searched by comparing each value
+     */
+    static int lookupIndexOfLessOrEqualValue(ValueEval lookupValue, ValueVector vector, boolean last) {
+        // MATCH compares strings with wildcards by matching them
+        LookupIndex index = getSortedLookupIndex(lookupValue, vector, true);
+        if (index == null) {
+            return NOT_INDEXED;
+        }
+        int result = last ? index.getLastIndexOfLessOrEqual(lookupValue) : index.getFirstIndexOfLessOrEqual(lookupValue);
+        return result == LookupIndex.NOT_APPLICABLE ? NOT_INDEXED : result;
+    }
+
+    private static LookupIndex getSortedLookupIndex(ValueEval lookupValue, ValueVector vector, boolean isMatchFunction) {
+        if (lookupValue instanceof StringEval) {
+            if (isMatchFunction && WildcardMatcher.compile(((StringEval) lookupValue).getStringValue()) != null) {
+                return null;
+            }
+        } else if (!(lookupValue instanceof NumberEval || lookupValue instanceof BoolEval)) {
+            return null;
+        }
+        return vector.getLookupIndex();
+    }
+
     /**
      * Finds first (lowest index) matching occurrence of specified value.
      *
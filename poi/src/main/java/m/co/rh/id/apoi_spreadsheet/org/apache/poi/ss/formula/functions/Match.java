@@ -203,6 +203,15 @@ public final class Match extends Var2or3ArgFunction {
 
         int size = lookupRange.getSize();
         if (matchExact) {
+            // blank eval translates to zero, see LookupUtils.createLookupComparer
+            int index = LookupUtils.lookupIndexOfExactValue(
+                    lookupValue == BlankEval.instance ? NumberEval.ZERO : lookupValue, lookupRange, false);
+            if (index >= 0) {
+                return index;
+            }
+            if (index == -1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
             for (int i = 0; i < size; i++) {
                 if (lookupComparer.compareTo(lookupRange.getItem(i)).isEqual()) {
                     return i;
@@ -211,7 +220,16 @@ public final class Match extends Var2or3ArgFunction {
             throw new EvaluationException(ErrorEval.NA);
         }
 
+        // blank eval translates to zero, see LookupUtils.createLookupComparer
+        ValueEval indexedValue = lookupValue == BlankEval.instance ? NumberEval.ZERO : lookupValue;
         if (findLargestLessThanOrEqual) {
+            int index = LookupUtils.lookupIndexOfLessOrEqualValue(indexedValue, lookupRange, true);
+            if (index >= 0) {
+                return index;
+            }
+            if (index == -1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
             // Note - backward iteration
             for (int i = size - 1; i >= 0; i--) {
                 CompareResult cmp = lookupComparer.compareTo(lookupRange.getItem(i));
@@ -227,6 +245,20 @@ public final class Match extends Var2or3ArgFunction {
 
         // else - find smallest greater than or equal to
         // TODO - is binary search used for (match_type==+1) ?
+        int index = LookupUtils.lookupIndexOfLessOrEqualValue(indexedValue, lookupRange, false);
+        if (index == -1) {
+            return size - 1;
+        }
+        if (index >= 0) {
+            // the first value which is not greater than the lookup value ends the search
+            if (lookupComparer.compareTo(lookupRange.getItem(index)).isEqual()) {
+                return index;
+            }
+            if (index < 1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
+            return index - 1;
+        }
         for (int i = 0; i < size; i++) {
             CompareResult cmp = lookupComparer.compareTo(lookupRange.getItem(i));
             if (cmp.isEqual()) {
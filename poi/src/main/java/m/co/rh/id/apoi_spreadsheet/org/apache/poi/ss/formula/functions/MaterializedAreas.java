@@ -0,0 +1,96 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
+
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Dense primitive views of big ranges for the numeric functions, which are read from the
+ * {@link ColumnarArea} snapshot of the range instead of one {@link ValueEval} per cell.
+ */
+final class MaterializedAreas {
+    private static final Object PRODUCT_TERMS_KEY = new Object();
+
+    private MaterializedAreas() {
+        // no instances of this class
+    }
+
+    /**
+     * @return the snapshot of a big single sheet area, or {@code null} if the argument
+     * is no such area and has to be read cell by cell
+     */
+    static ColumnarArea get(ValueEval arg) {
+        if (!(arg instanceof TwoDEval)) {
+            return null;
+        }
+        TwoDEval ae = (TwoDEval) arg;
+        if (!ColumnarArea.isMaterialized((long) ae.getWidth() * ae.getHeight())) {
+            return null;
+        }
+        return ae.getColumnarArea();
+    }
+
+    /**
+     * @return the terms of the area in a SUMPRODUCT over areas, computed once per snapshot
+     */
+    static ProductTerms getProductTerms(ColumnarArea area) {
+        return area.getDerivedValue(PRODUCT_TERMS_KEY, MaterializedAreas::computeProductTerms);
+    }
+
+    private static ProductTerms computeProductTerms(ColumnarArea area) {
+        int size = area.getSize();
+        double[] values = new double[size];
+        int errorPosition = -1;
+        for (int i = 0; i < size; i++) {
+            switch (area.getType(i)) {
+                case ColumnarArea.NUMBER:
+                case ColumnarArea.BOOLEAN:
+                    values[i] = area.getNumber(i);
+                    break;
+                case ColumnarArea.ERROR:
+                    if (errorPosition < 0) {
+                        errorPosition = i;
+                    }
+                    break;
+                default:
+                    // strings and blanks are zero in area products
+                    break;
+            }
+        }
+        return new ProductTerms(values, errorPosition, errorPosition < 0 ? null : (ErrorEval) area.getValue(errorPosition));
+    }
+
+    /**
+     * The numbers of an area as used by SUMPRODUCT, and its first error in row major order
+     */
+    static final class ProductTerms {
+        final double[] values;
+        /** position of the first error, -1 if there is none */
+        final int errorPosition;
+        final ErrorEval error;
+
+        ProductTerms(double[] values, int errorPosition, ErrorEval error) {
+            this.values = values;
+            this.errorPosition = errorPosition;
+            this.error = error;
+        }
+    }
+}
@@ -197,11 +197,22 @@ final class MathX {
      * @param values
      */
     public static double min(double[] values) {
-        double min = Double.POSITIVE_INFINITY;
-        for (double value : values) {
-            min = Math.min(min, value);
+        // Math.min is associative, so independent accumulators give the same result
+        double min0 = Double.POSITIVE_INFINITY;
+        double min1 = Double.POSITIVE_INFINITY;
+        double min2 = Double.POSITIVE_INFINITY;
+        double min3 = Double.POSITIVE_INFINITY;
+        int i = 0;
+        for (int n = values.length - 3; i < n; i += 4) {
+            min0 = Math.min(min0, values[i]);
+            min1 = Math.min(min1, values[i + 1]);
+            min2 = Math.min(min2, values[i + 2]);
+            min3 = Math.min(min3, values[i + 3]);
+        }
+        for (; i < values.length; i++) {
+            min0 = Math.min(min0, values[i]);
         }
-        return min;
+        return Math.min(Math.min(min0, min1), Math.min(min2, min3));
     }
 
     /**
@@ -210,11 +221,22 @@ final class MathX {
      * @param values
      */
     public static double max(double[] values) {
-        double max = Double.NEGATIVE_INFINITY;
-        for (double value : values) {
-            max = Math.max(max, value);
+        // Math.max is associative, so independent accumulators give the same result
+        double max0 = Double.NEGATIVE_INFINITY;
+        double max1 = Double.NEGATIVE_INFINITY;
+        double max2 = Double.NEGATIVE_INFINITY;
+        double max3 = Double.NEGATIVE_INFINITY;
+        int i = 0;
+        for (int n = values.length - 3; i < n; i += 4) {
+            max0 = Math.max(max0, values[i]);
+            max1 = Math.max(max1, values[i + 1]);
+            max2 = Math.max(max2, values[i + 2]);
+            max3 = Math.max(max3, values[i + 3]);
+        }
+        for (; i < values.length; i++) {
+            max0 = Math.max(max0, values[i]);
         }
-        return max;
+        return Math.max(Math.max(max0, max1), Math.max(max2, max3));
     }
 
     /**
@@ -69,6 +69,13 @@ public final class Minifs extends Baseifs {
                 }
             }
 
+            @Override
+            public void addNumber(double d) {
+                if(accumulator == null || accumulator > d) {
+                    accumulator = d;
+                }
+            }
+
             @Override
             public ValueEval getResult() {
                 return new NumberEval(accumulator == null ? 0.0 : accumulator);
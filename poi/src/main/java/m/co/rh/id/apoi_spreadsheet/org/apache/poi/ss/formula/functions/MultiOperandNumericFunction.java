@@ -18,6 +18,7 @@
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.SpreadsheetVersion;
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ThreeDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
@@ -48,11 +49,16 @@ public abstract class MultiOperandNumericFunction implements Function {
     private EvalConsumer<BoolEval, DoubleList> boolByValueConsumer;
     private EvalConsumer<BlankEval, DoubleList> blankConsumer;
     private EvalConsumer<MissingArgEval, DoubleList> missingArgConsumer = ConsumerFactory.createForMissingArg(Policy.SKIP);
+    // the policies of the consumers used for references, which are part of the keys of memoized results
+    private final Policy boolByRefPolicy;
+    private Policy blankPolicy;
 
     protected MultiOperandNumericFunction(boolean isReferenceBoolCounted, boolean isBlankCounted) {
-        boolByRefConsumer = ConsumerFactory.createForBoolEval(isReferenceBoolCounted ? Policy.COERCE : Policy.SKIP);
+        boolByRefPolicy = isReferenceBoolCounted ? Policy.COERCE : Policy.SKIP;
+        blankPolicy = isBlankCounted ? Policy.COERCE : Policy.SKIP;
+        boolByRefConsumer = ConsumerFactory.createForBoolEval(boolByRefPolicy);
         boolByValueConsumer = ConsumerFactory.createForBoolEval(Policy.COERCE);
-        blankConsumer = ConsumerFactory.createForBlank(isBlankCounted ? Policy.COERCE : Policy.SKIP);
+        blankConsumer = ConsumerFactory.createForBlank(blankPolicy);
     }
 
     private static final int DEFAULT_MAX_NUM_OPERANDS = SpreadsheetVersion.EXCEL2007.getMaxFunctionArgs();
@@ -62,6 +68,7 @@ public abstract class MultiOperandNumericFunction implements Function {
     }
 
     public void setBlankEvalPolicy(Policy policy) {
+        blankPolicy = policy;
         blankConsumer = ConsumerFactory.createForBlank(policy);
     }
 
@@ -77,18 +84,41 @@ public abstract class MultiOperandNumericFunction implements Function {
     }
 
     public final ValueEval evaluate(ValueEval[] args, int srcCellRow, int srcCellCol) {
-        try {
-            double[] values = getNumberArray(args);
-            double d = evaluate(values);
-            if (Double.isNaN(d) || Double.isInfinite(d)) {
-                return ErrorEval.NUM_ERROR;
+        if (args.length == 1) {
+            ColumnarArea area = getMaterializedArea(args[0]);
+            if (area != null) {
+                // the same function over the same range, e.g. SUM($A$2:$A$10000) in many cells
+                return area.getDerivedValue(new ResultKey(this), this::evaluateArea);
             }
-            return new NumberEval(d);
+        }
+        try {
+            return evaluateNumbers(getNumberArray(args));
+        } catch (EvaluationException e) {
+            return e.getErrorEval();
+        }
+    }
+
+    private ValueEval evaluateArea(ColumnarArea area) {
+        NumberArray numbers = getNumbers(area);
+        if (numbers.error != null) {
+            return numbers.error;
+        }
+        try {
+            // implementations may sort the values in place
+            return evaluateNumbers(numbers.values.clone());
         } catch (EvaluationException e) {
             return e.getErrorEval();
         }
     }
 
+    private ValueEval evaluateNumbers(double[] values) throws EvaluationException {
+        double d = evaluate(values);
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return ErrorEval.NUM_ERROR;
+        }
+        return new NumberEval(d);
+    }
+
     protected abstract double evaluate(double[] values) throws EvaluationException;
 
     /**
@@ -139,6 +169,15 @@ public abstract class MultiOperandNumericFunction implements Function {
      * Collects values from a single argument
      */
     private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+        ColumnarArea area = getMaterializedArea(operand);
+        if (area != null) {
+            NumberArray numbers = getNumbers(area);
+            if (numbers.error != null) {
+                throw new EvaluationException(numbers.error);
+            }
+            temp.addAll(numbers.values);
+            return;
+        }
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -178,6 +217,122 @@ public abstract class MultiOperandNumericFunction implements Function {
         collectValue(operand, false, temp);
     }
 
+    /**
+     * @return the snapshot of a big single sheet area, if its values can be collected from it
+     */
+    private ColumnarArea getMaterializedArea(ValueEval operand) {
+        if (!isSubtotalCounted() || !isHiddenRowCounted()) {
+            return null;
+        }
+        return MaterializedAreas.get(operand);
+    }
+
+    /**
+     * Collects the values of a snapshot like {@link #collectValues(ValueEval, DoubleList)},
+     * once per snapshot and policies
+     */
+    private NumberArray getNumbers(ColumnarArea area) {
+        return area.getDerivedValue(new NumbersKey(boolByRefPolicy, blankPolicy, treatStringsAsZero()),
+                this::computeNumbers);
+    }
+
+    private NumberArray computeNumbers(ColumnarArea area) {
+        boolean isViaReference = !treatStringsAsZero();
+        Policy boolPolicy = isViaReference ? boolByRefPolicy : Policy.COERCE;
+        DoubleList temp = new DoubleList();
+        for (int i = 0; i < area.getSize(); i++) {
+            Policy policy;
+            switch (area.getType(i)) {
+                case ColumnarArea.NUMBER:
+                    temp.add(area.getNumber(i));
+                    continue;
+                case ColumnarArea.STRING:
+                    if (!isViaReference) {
+                        temp.add(0.0);
+                    }
+                    continue;
+                case ColumnarArea.ERROR:
+                    return new NumberArray(null, (ErrorEval) area.getValue(i));
+                case ColumnarArea.BOOLEAN:
+                    policy = boolPolicy;
+                    break;
+                default:
+                    policy = blankPolicy;
+                    break;
+            }
+            if (policy == Policy.COERCE) {
+                temp.add(area.getNumber(i));
+            } else if (policy == Policy.ERROR) {
+                return new NumberArray(null, ErrorEval.VALUE_INVALID);
+            }
+        }
+        return new NumberArray(temp.toArray(), null);
+    }
+
+    private static final class NumberArray {
+        final double[] values;
+        final ErrorEval error;
+
+        NumberArray(double[] values, ErrorEval error) {
+            this.values = values;
+            this.error = error;
+        }
+    }
+
+    private static final class NumbersKey {
+        private final Policy boolByRefPolicy;
+        private final Policy blankPolicy;
+        private final boolean stringsAsZero;
+
+        NumbersKey(Policy boolByRefPolicy, Policy blankPolicy, boolean stringsAsZero) {
+            this.boolByRefPolicy = boolByRefPolicy;
+            this.blankPolicy = blankPolicy;
+            this.stringsAsZero = stringsAsZero;
+        }
+
+        @Override
+        public int hashCode() {
+            return (boolByRefPolicy.hashCode() * 31 + blankPolicy.hashCode()) * 31 + (stringsAsZero ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof NumbersKey)) {
+                return false;
+            }
+            NumbersKey other = (NumbersKey) obj;
+            return boolByRefPolicy == other.boolByRefPolicy && blankPolicy == other.blankPolicy
+                    && stringsAsZero == other.stringsAsZero;
+        }
+    }
+
+    /**
+     * Identifies the result of a function instance with its current policies
+     */
+    private static final class ResultKey {
+        private final MultiOperandNumericFunction function;
+        private final Policy blankPolicy;
+
+        ResultKey(MultiOperandNumericFunction function) {
+            this.function = function;
+            this.blankPolicy = function.blankPolicy;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(function) * 31 + blankPolicy.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey other = (ResultKey) obj;
+            return function == other.function && blankPolicy == other.blankPolicy;
+        }
+    }
+
     private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp) throws EvaluationException {
         if (ve == null) {
             throw new IllegalArgumentException("ve must not be null");
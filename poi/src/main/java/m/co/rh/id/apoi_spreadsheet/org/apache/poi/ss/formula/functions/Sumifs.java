@@ -66,6 +66,11 @@ public final class Sumifs extends Baseifs {
                 accumulator += (value instanceof NumberEval) ? ((NumberEval) value).getNumberValue() : 0.0;
             }
 
+            @Override
+            public void addNumber(double d) {
+                accumulator += d;
+            }
+
             @Override
             public ValueEval getResult() {
                 return new NumberEval(accumulator);
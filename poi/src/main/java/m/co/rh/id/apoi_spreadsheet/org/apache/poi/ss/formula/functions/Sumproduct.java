@@ -19,6 +19,7 @@ package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
 import java.util.Arrays;
 
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.AreaEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.BlankEval;
@@ -156,6 +157,11 @@ public final class Sumproduct implements Function {
             return ErrorEval.VALUE_INVALID;
         }
 
+        ValueEval denseResult = evaluateDenseSumProduct(args);
+        if (denseResult != null) {
+            return denseResult;
+        }
+
         double acc = 0;
 
         for (int rrIx = 0; rrIx < height; rrIx++) {
@@ -172,6 +178,60 @@ public final class Sumproduct implements Function {
         return new NumberEval(acc);
     }
 
+    /**
+     * Sums the products over the snapshots of big areas with equal dimensions, which gives the
+     * same result as the cell by cell loop, as the terms are added in the same order.
+     *
+     * @return the result, or {@code null} if one of the areas is not materialized
+     */
+    private static ValueEval evaluateDenseSumProduct(TwoDEval[] args) throws EvaluationException {
+        int maxN = args.length;
+        double[][] terms = new double[maxN][];
+        int errorPosition = -1;
+        ErrorEval error = null;
+        for (int n = 0; n < maxN; n++) {
+            ColumnarArea area = MaterializedAreas.get(args[n]);
+            if (area == null) {
+                return null;
+            }
+            MaterializedAreas.ProductTerms areaTerms = MaterializedAreas.getProductTerms(area);
+            terms[n] = areaTerms.values;
+            // the cell by cell loop stops at the first error in row major order, then in argument order
+            if (areaTerms.errorPosition >= 0 && (errorPosition < 0 || areaTerms.errorPosition < errorPosition)) {
+                errorPosition = areaTerms.errorPosition;
+                error = areaTerms.error;
+            }
+        }
+        if (error != null) {
+            throw new EvaluationException(error);
+        }
+
+        double acc = 0;
+        int size = terms[0].length;
+        if (maxN == 1) {
+            double[] a = terms[0];
+            for (int i = 0; i < size; i++) {
+                acc += a[i];
+            }
+        } else if (maxN == 2) {
+            // 1 * a is exactly a, so this is the same product as in the general loop
+            double[] a = terms[0];
+            double[] b = terms[1];
+            for (int i = 0; i < size; i++) {
+                acc += a[i] * b[i];
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                double term = 1D;
+                for (int n = 0; n < maxN; n++) {
+                    term *= terms[n][i];
+                }
+                acc += term;
+            }
+        }
+        return new NumberEval(acc);
+    }
+
     private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
         int height = areaEval.getHeight();
         int width = areaEval.getWidth();
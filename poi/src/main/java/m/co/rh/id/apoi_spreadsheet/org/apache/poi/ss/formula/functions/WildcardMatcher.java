@@ -0,0 +1,136 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches text against Excel wildcard criteria, where {@code ?} matches any single character,
+ * {@code *} matches any number of characters, and {@code ~?} and {@code ~*} match the literal
+ * characters. Letters are compared ignoring case.
+ * <p>
+ * Compiled criteria are cached by their text, as the same criteria are usually used by many
+ * formulas.
+ * </p>
+ */
+final class WildcardMatcher {
+    private static final int ANY_CHAR = -1;
+    private static final int ANY_CHARS = -2;
+
+    private static final int MAX_CACHED_CRITERIA = 1024;
+    /** marks criteria without wildcards in the cache */
+    private static final WildcardMatcher NONE = new WildcardMatcher(new int[0]);
+    private static final ConcurrentHashMap<String, WildcardMatcher> CACHE = new ConcurrentHashMap<>();
+
+    /** case folded code points, or {@link #ANY_CHAR} and {@link #ANY_CHARS} */
+    private final int[] _pattern;
+
+    private WildcardMatcher(int[] pattern) {
+        _pattern = pattern;
+    }
+
+    /**
+     * @return the matcher for the criteria, or {@code null} if the criteria contain no wildcard characters
+     */
+    static WildcardMatcher compile(String criteria) {
+        WildcardMatcher matcher = CACHE.get(criteria);
+        if (matcher == null) {
+            if (CACHE.size() >= MAX_CACHED_CRITERIA) {
+                CACHE.clear();
+            }
+            matcher = parse(criteria);
+            CACHE.put(criteria, matcher);
+        }
+        return matcher == NONE ? null : matcher;
+    }
+
+    private static WildcardMatcher parse(String criteria) {
+        int len = criteria.length();
+        int[] pattern = new int[len];
+        int size = 0;
+        boolean hasWildCard = false;
+        for (int i = 0; i < len; ) {
+            int cp = criteria.codePointAt(i);
+            i += Character.charCount(cp);
+            switch (cp) {
+                case '?':
+                    hasWildCard = true;
+                    pattern[size++] = ANY_CHAR;
+                    continue;
+                case '*':
+                    hasWildCard = true;
+                    // consecutive stars match the same as a single one
+                    if (size == 0 || pattern[size - 1] != ANY_CHARS) {
+                        pattern[size++] = ANY_CHARS;
+                    }
+                    continue;
+                case '~':
+                    if (i < len && (criteria.charAt(i) == '?' || criteria.charAt(i) == '*')) {
+                        hasWildCard = true;
+                        pattern[size++] = criteria.charAt(i);
+                        i++;
+                        continue;
+                    }
+                    // else just a plain '~'
+                    break;
+            }
+            pattern[size++] = fold(cp);
+        }
+        return hasWildCard ? new WildcardMatcher(Arrays.copyOf(pattern, size)) : NONE;
+    }
+
+    private static int fold(int cp) {
+        return Character.toLowerCase(Character.toUpperCase(cp));
+    }
+
+    /**
+     * @return {@code true} if the whole text matches the criteria
+     */
+    boolean matches(String text) {
+        int[] pattern = _pattern;
+        int len = text.length();
+        int p = 0;
+        int t = 0;
+        // where to continue after the last star, if the characters after it do not match
+        int starP = -1;
+        int starT = 0;
+        while (t < len) {
+            int cp = text.codePointAt(t);
+            if (p < pattern.length && pattern[p] != ANY_CHARS
+                    && (pattern[p] == ANY_CHAR || pattern[p] == fold(cp))) {
+                p++;
+                t += Character.charCount(cp);
+            } else if (p < pattern.length && pattern[p] == ANY_CHARS) {
+                starP = ++p;
+                starT = t;
+            } else if (starP >= 0) {
+                // let the last star match one more character
+                p = starP;
+                starT += Character.charCount(text.codePointAt(starT));
+                t = starT;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length && pattern[p] == ANY_CHARS) {
+            p++;
+        }
+        return p == pattern.length;
+    }
+}
@@ -17,6 +17,7 @@
 
 package m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.functions;
 
+import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.ColumnarArea;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.TwoDEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.ErrorEval;
 import m.co.rh.id.apoi_spreadsheet.org.apache.poi.ss.formula.eval.EvaluationException;
@@ -120,7 +121,13 @@ public abstract class XYNumericFunction extends Fixed2ArgFunction {
             if (size == 0 || vvY.getSize() != size) {
                 return ErrorEval.NA;
             }
-            result = evaluateInternal(vvX, vvY, size);
+            ColumnarArea areaX = MaterializedAreas.get(arg0);
+            ColumnarArea areaY = areaX == null ? null : MaterializedAreas.get(arg1);
+            if (areaY != null) {
+                result = evaluateDense(areaX, areaY, size);
+            } else {
+                result = evaluateInternal(vvX, vvY, size);
+            }
         } catch (EvaluationException e) {
             return e.getErrorEval();
         }
@@ -177,6 +184,37 @@ public abstract class XYNumericFunction extends Fixed2ArgFunction {
         return result;
     }
 
+    /**
+     * Same as {@link #evaluateInternal(ValueVector, ValueVector, int)}, on the snapshots of big areas
+     */
+    private double evaluateDense(ColumnarArea x, ColumnarArea y, int size) throws EvaluationException {
+        throwFirstError(x, size);
+        throwFirstError(y, size);
+
+        Accumulator acc = createAccumulator();
+        boolean accumlatedSome = false;
+        double result = 0.0;
+        for (int i = 0; i < size; i++) {
+            // only count pairs if both elements are numbers
+            if (x.getType(i) == ColumnarArea.NUMBER && y.getType(i) == ColumnarArea.NUMBER) {
+                accumlatedSome = true;
+                result += acc.accumulate(x.getNumber(i), y.getNumber(i));
+            }
+        }
+        if (!accumlatedSome) {
+            throw new EvaluationException(ErrorEval.DIV_ZERO);
+        }
+        return result;
+    }
+
+    private static void throwFirstError(ColumnarArea area, int size) throws EvaluationException {
+        for (int i = 0; i < size; i++) {
+            if (area.getType(i) == ColumnarArea.ERROR) {
+                throw new EvaluationException((ErrorEval) area.getValue(i));
+            }
+        }
+    }
+
     private static ValueVector createValueVector(ValueEval arg) throws EvaluationException {
         if (arg instanceof ErrorEval) {
             throw new EvaluationException((ErrorEval) arg);